@@ -0,0 +1,195 @@
+import java.util.*;
+
+/*
+ * Checks the buffer limit rules of Port.setBufferLimitation on small random
+ * schedules, without z3. For each schedule, the arrival and scheduled times
+ * of the packets of a port are fixed, and the rules are evaluated on them:
+ *
+ *   reference   a packet is in the buffer from its arrival until it is
+ *               scheduled; the buffer may never hold more packets (of the
+ *               same priority, for a limit per priority) than its size
+ *   atMost      the current encoding: for each packet p, at most size - 1
+ *               other packets q hold arr(q) <= arr(p) && sched(q) > arr(p)
+ *   previous    the encoding replaced by atMost, which asserted the negation
+ *               of a conjunction over free copies of the times and a free
+ *               intersection point. The schedule is accepted if a value of
+ *               the free constants satisfies the assertion, and such a value
+ *               is looked for by setting the first copy apart from every time
+ *
+ * Every schedule must get the same answer from reference and atMost. The
+ * number of schedules rejected by reference and accepted by the previous
+ * encoding is reported.
+ *
+ * Usage: java BufferEncodingCheck [-cases=N] [-seed=S]
+ * Exits with status 1 if atMost and reference disagree.
+ */
+public class BufferEncodingCheck {
+
+	public static void main(String []args){
+
+		int cases = 100000;
+		long seed = 1;
+
+		for(String argument : args) {
+			if(argument.startsWith("-cases=")) {
+				cases = Integer.parseInt(argument.substring("-cases=".length()));
+			} else if(argument.startsWith("-seed=")) {
+				seed = Long.parseLong(argument.substring("-seed=".length()));
+			}
+		}
+
+		Random random = new Random(seed);
+		int rejected = 0;
+		int disagreements = 0;
+		int acceptedByPrevious = 0;
+
+		for(int c = 0; c < cases; c++) {
+			int numOfPackets = 1 + random.nextInt(6);
+			double[] arrival = new double[numOfPackets];
+			double[] scheduled = new double[numOfPackets];
+			int[] priority = new int[numOfPackets];
+
+			for(int i = 0; i < numOfPackets; i++) {
+				arrival[i] = random.nextInt(10);
+				scheduled[i] = arrival[i] + 1 + random.nextInt(4);
+				priority[i] = random.nextInt(3);
+			}
+
+			int bufferSize = (random.nextBoolean() ? 1 + random.nextInt(4) : -1);
+			int[] bufferSizePerPriority = new int[3];
+
+			for(int prt = 0; prt < 3; prt++) {
+				bufferSizePerPriority[prt] = (random.nextInt(3) == 0 ? 1 + random.nextInt(3) : 0);
+			}
+
+			boolean reference = fitsInBuffer(arrival, scheduled, priority, bufferSize, bufferSizePerPriority);
+			boolean atMost = atMostRules(arrival, scheduled, priority, bufferSize, bufferSizePerPriority);
+
+			if(!reference) {
+				rejected++;
+
+				if(bufferSize > 0 && previousRules(arrival, scheduled, bufferSize)) {
+					acceptedByPrevious++;
+				}
+			}
+
+			if(reference != atMost) {
+				disagreements++;
+				System.out.println("Disagreement: arrivals " + Arrays.toString(arrival) + ", scheduled " + Arrays.toString(scheduled) +
+					", priorities " + Arrays.toString(priority) + ", buffer " + bufferSize + ", per priority " + Arrays.toString(bufferSizePerPriority));
+			}
+		}
+
+		System.out.println("Schedules: " + cases + ", over the buffer: " + rejected);
+		System.out.println("atMost and reference disagree on: " + disagreements);
+		System.out.println("Over the buffer but accepted by the previous rules: " + acceptedByPrevious);
+
+		System.exit(disagreements == 0 ? 0 : 1);
+	}
+
+	/*
+	 * The buffer only grows when a packet arrives, so its occupancy is
+	 * checked right after each arrival.
+	 */
+	private static boolean fitsInBuffer(double[] arrival, double[] scheduled, int[] priority, int bufferSize, int[] bufferSizePerPriority) {
+		for(double time : arrival) {
+			int[] waitingOfPriority = new int[bufferSizePerPriority.length];
+			int waiting = 0;
+
+			for(int q = 0; q < arrival.length; q++) {
+				if(arrival[q] <= time && time < scheduled[q]) {
+					waiting++;
+					waitingOfPriority[priority[q]]++;
+				}
+			}
+
+			if(bufferSize > 0 && waiting > bufferSize) {
+				return false;
+			}
+
+			for(int prt = 0; prt < bufferSizePerPriority.length; prt++) {
+				if(bufferSizePerPriority[prt] > 0 && waitingOfPriority[prt] > bufferSizePerPriority[prt]) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean atMostRules(double[] arrival, double[] scheduled, int[] priority, int bufferSize, int[] bufferSizePerPriority) {
+		int numOfPackets = arrival.length;
+
+		for(int i = 0; i < numOfPackets; i++) {
+			int waiting = 0;
+			int waitingOfPriority = 0;
+
+			for(int j = 0; j < numOfPackets; j++) {
+				if(i == j) {
+					continue;
+				}
+
+				if(arrival[j] <= arrival[i] && scheduled[j] > arrival[i]) {
+					waiting++;
+
+					if(priority[j] == priority[i]) {
+						waitingOfPriority++;
+					}
+				}
+			}
+
+			if(bufferSize > 0 && numOfPackets > bufferSize && waiting > bufferSize - 1) {
+				return false;
+			}
+
+			int limit = bufferSizePerPriority[priority[i]];
+
+			if(limit > 0 && numOfPackets > limit && waitingOfPriority > limit - 1) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * Evaluates the previous rules with the free copies of the times set
+	 * to the times of the packets, except for the first arrival, which is
+	 * set after every arrival. The equivalence of the copies to the times
+	 * is then false, so each negated conjunction holds.
+	 */
+	private static boolean previousRules(double[] arrival, double[] scheduled, int bufferSize) {
+		int numOfPackets = arrival.length;
+
+		if(numOfPackets < bufferSize) {
+			return true;
+		}
+
+		double[] tempArrival = arrival.clone();
+		double[] tempScheduled = scheduled.clone();
+
+		tempArrival[0] = Arrays.stream(arrival).max().getAsDouble() + 1;
+
+		boolean fullEquivalence = true;
+
+		for(int j = 0; j < numOfPackets; j++) {
+			boolean equivalent = false;
+
+			for(int i = 0; i < numOfPackets; i++) {
+				equivalent = equivalent || (tempArrival[j] == arrival[i] && tempScheduled[j] == scheduled[i]);
+			}
+
+			fullEquivalence = fullEquivalence && equivalent;
+		}
+
+		for(int j = 0; j < numOfPackets - bufferSize; j++) {
+			// The ordering, uniqueness and intersection terms are conjoined with the equivalence
+			if(fullEquivalence) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,248 @@
+import java.util.*;
+import java.io.*;
+import com.microsoft.z3.Status;
+import com.microsoft.z3.Version;
+import com.tsnsched.core.components.*;
+import com.tsnsched.core.network.*;
+import com.tsnsched.core.nodes.*;
+import com.tsnsched.core.schedule_generator.*;
+import com.tsnsched.core.interface_manager.*;
+import com.tsnsched.generated_scenarios.*;
+
+/*
+ * Schedules the given scenarios with two encodings of the rules and
+ * compares their results. Both encodings must agree on whether each
+ * scenario can be scheduled, and every schedule found must pass the
+ * ScheduleValidator. The number of assertions, the time taken and
+ * whether both schedules are the same are also reported. The rules admit
+ * many schedules, so two valid schedules that differ are not an error.
+ *
+ *   -compare=encoding   standard and compact packet transmission rules
+ *   -compare=slotUsage  disjunction and per-slot indicators for the rule
+ *                       that zeroes out non-used slots
+ *
+ * Usage: java EncodingComparison [-compare=encoding|slotUsage] [-runs=R] scenario.json ...
+ * Without scenarios, the generated scenarios of the repository are used.
+ * Exits with status 1 if the encodings disagree or a schedule is invalid,
+ * and with status 2 if the z3 native library can not be loaded, in which
+ * case nothing is compared.
+ */
+public class EncodingComparison {
+
+	private static final double TOLERANCE = 1e-6;
+
+	public static void main(String []args){
+
+		String comparison = "encoding";
+		int runs = 1;
+		ArrayList<String> scenarios = new ArrayList<String>();
+
+		for(String argument : args) {
+			if(argument.startsWith("-compare=")) {
+				comparison = argument.substring("-compare=".length());
+			} else if(argument.startsWith("-runs=")) {
+				runs = Integer.parseInt(argument.substring("-runs=".length()));
+			} else {
+				scenarios.add(argument);
+			}
+		}
+
+		String[][] variants;
+		String[] variantNames;
+
+		switch(comparison) {
+			case "encoding":
+				variantNames = new String[] {"standard", "compact"};
+				variants = new String[][] {{"-encoding=standard"}, {"-encoding=compact"}};
+				break;
+			case "slotUsage":
+				variantNames = new String[] {"disjunction", "indicators"};
+				variants = new String[][] {{}, {"-slotIndicators"}};
+				break;
+			default:
+				System.out.println("Unknown comparison: " + comparison);
+				return;
+		}
+
+		try {
+			System.out.println("Z3 version: " + Version.getString());
+		} catch (UnsatisfiedLinkError e) {
+			System.out.println("The z3 native library could not be loaded (" + e.getMessage() + "), no encoding was compared");
+			System.exit(2);
+		}
+
+		if(scenarios.isEmpty()) {
+			scenarios.add("SmallScenario");
+			scenarios.add("GeneratedCode");
+			scenarios.add("../src/com/tsnsched/generated_scenarios/input.json");
+			scenarios.add("../src/com/tsnsched/generated_scenarios/input.xml");
+			scenarios.add("GeneratedCode1.json");
+		}
+
+		boolean agree = true;
+
+		System.out.println(String.format("%-55s %-12s %-14s %12s %12s", "Scenario", "Variant", "Status", "Assertions", "Time (s)"));
+
+		for(String scenario : scenarios) {
+			ArrayList<Network> results = new ArrayList<Network>();
+			ArrayList<Status> statuses = new ArrayList<Status>();
+
+			for(int variant = 0; variant < variants.length; variant++) {
+				double totalTime = 0;
+				Status status = null;
+				int numOfAssertions = 0;
+				Network net = null;
+
+				for(int run = 0; run < runs; run++) {
+					net = loadScenario(scenario);
+
+					if(net == null) {
+						break;
+					}
+
+					ScheduleGenerator gen = new ScheduleGenerator();
+					gen.setParameters(new String[] {"-noCache", "-disableJSONOutput"});
+					gen.setParameters(variants[variant]);
+
+					long startTime = System.nanoTime();
+					gen.generateSchedule(net);
+					totalTime += (System.nanoTime() - startTime) / 1000000000.0;
+					status = gen.getLastSolverStatus();
+					numOfAssertions = gen.getLastNumOfAssertions();
+				}
+
+				if(net == null) {
+					System.out.println(String.format("%-55s not found", scenario));
+					break;
+				}
+
+				results.add(net);
+				statuses.add(status);
+
+				System.out.println(String.format("%-55s %-12s %-14s %12d %12.3f",
+					scenario, variantNames[variant], status, numOfAssertions, totalTime / runs));
+			}
+
+			if(results.size() < variants.length) {
+				continue;
+			}
+
+			for(int variant = 0; variant < variants.length; variant++) {
+				if(statuses.get(variant) != statuses.get(0)) {
+					System.out.println("  DISAGREE: " + variantNames[0] + " is " + statuses.get(0) + ", " +
+						variantNames[variant] + " is " + statuses.get(variant));
+					agree = false;
+				}
+
+				if(statuses.get(variant) == Status.SATISFIABLE) {
+					List<String> violations = new ScheduleValidator(results.get(variant), new Printer()).validate();
+
+					if(!violations.isEmpty()) {
+						System.out.println("  INVALID " + variantNames[variant] + " schedule: " + violations.get(0));
+						agree = false;
+					}
+				}
+			}
+
+			if(statuses.get(0) == Status.SATISFIABLE && agree) {
+				boolean sameSchedule = true;
+
+				for(int variant = 1; variant < variants.length; variant++) {
+					sameSchedule = sameSchedule && sameSchedule(results.get(0), results.get(variant));
+				}
+
+				System.out.println("  " + (sameSchedule ? "same schedule" : "different valid schedules"));
+			}
+		}
+
+		System.out.println(agree ? "Encodings agree" : "Encodings DISAGREE");
+
+		if(!agree) {
+			System.exit(1);
+		}
+
+	}
+
+	/*
+	 * Loads a scenario from an input file, or builds one of the generated
+	 * scenarios given by the name of its class.
+	 */
+	private static Network loadScenario(String scenario) {
+		Flow.setInstanceCounter(0);
+
+		switch(scenario) {
+			case "SmallScenario":
+				return new SmallScenario().createNetwork();
+			case "GeneratedCode":
+				return new GeneratedCode().createNetwork();
+		}
+
+		if(!new File(scenario).exists()) {
+			return null;
+		}
+
+		ParserManager parser = new ParserManager(scenario);
+		parser.setPrinter(new Printer());
+
+		return parser.parseFromFile();
+	}
+
+	/*
+	 * Compares the priority and packet times of every fragment of both
+	 * networks, visiting their flows in the same order.
+	 */
+	private static boolean sameSchedule(Network netA, Network netB) {
+		ArrayList<FlowFragment> fragmentsA = new ArrayList<FlowFragment>();
+		ArrayList<FlowFragment> fragmentsB = new ArrayList<FlowFragment>();
+
+		for(Flow flw : netA.getFlows()) {
+			collectFragments(flw.getPathTree().getRoot(), fragmentsA);
+		}
+
+		for(Flow flw : netB.getFlows()) {
+			collectFragments(flw.getPathTree().getRoot(), fragmentsB);
+		}
+
+		if(fragmentsA.size() != fragmentsB.size()) {
+			return false;
+		}
+
+		for(int i = 0; i < fragmentsA.size(); i++) {
+			FlowFragment fragA = fragmentsA.get(i);
+			FlowFragment fragB = fragmentsB.get(i);
+
+			if(fragA.getFragmentPriority() != fragB.getFragmentPriority() ||
+					!sameTimes(fragA.getDepartureTimeList(), fragB.getDepartureTimeList()) ||
+					!sameTimes(fragA.getScheduledTimeList(), fragB.getScheduledTimeList())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static void collectFragments(PathNode node, ArrayList<FlowFragment> fragments) {
+		if(node.getFlowFragments() != null) {
+			fragments.addAll(node.getFlowFragments());
+		}
+
+		for(PathNode child : node.getChildren()) {
+			collectFragments(child, fragments);
+		}
+	}
+
+	private static boolean sameTimes(ArrayList<Double> timesA, ArrayList<Double> timesB) {
+		if(timesA.size() != timesB.size()) {
+			return false;
+		}
+
+		for(int i = 0; i < timesA.size(); i++) {
+			if(Math.abs(timesA.get(i) - timesB.get(i)) > TOLERANCE) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+}
@@ -0,0 +1,177 @@
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import com.google.gson.*;
+import com.tsnsched.core.components.*;
+import com.tsnsched.core.network.*;
+import com.tsnsched.core.nodes.*;
+import com.tsnsched.core.interface_manager.*;
+
+/*
+ * Compares the NetworkSnapshot format with the Java serialization of a
+ * scheduled network, without z3. The flows of the given network are copied
+ * until it holds the requested number of flows, and each flow is given a
+ * fragment on its first switch with fixed times, as a schedule would. The
+ * network is then written in both formats and loaded from each file R
+ * times. The median load time and the size of both files are reported.
+ *
+ * Only the first hop of each flow is scheduled, so the numbers show how the
+ * formats compare rather than how long a real schedule takes to load.
+ *
+ * Usage: java SnapshotBenchmark [-flows=N] [-packets=P] [-runs=R] network.json
+ * Exits with status 1 if the snapshot does not load back the same network.
+ */
+public class SnapshotBenchmark {
+
+	public static void main(String []args){
+
+		int numOfFlows = 10000;
+		int numOfPackets = 20;
+		int runs = 5;
+		String inputFile = null;
+
+		for(String argument : args) {
+			if(argument.startsWith("-flows=")) {
+				numOfFlows = Integer.parseInt(argument.substring("-flows=".length()));
+			} else if(argument.startsWith("-packets=")) {
+				numOfPackets = Integer.parseInt(argument.substring("-packets=".length()));
+			} else if(argument.startsWith("-runs=")) {
+				runs = Integer.parseInt(argument.substring("-runs=".length()));
+			} else {
+				inputFile = argument;
+			}
+		}
+
+		if(inputFile == null) {
+			System.out.println("Usage: java SnapshotBenchmark [-flows=N] [-packets=P] [-runs=R] network.json");
+			System.exit(1);
+		}
+
+		try {
+			File dir = Files.createTempDirectory("snapshotBenchmark").toFile();
+			String networkFile = new File(dir, "network.json").getPath();
+			String serializedFile = new File(dir, "network.ser").getPath();
+			String snapshotFile = new File(dir, "network" + NetworkSnapshot.FILE_EXTENSION).getPath();
+
+			copyFlows(inputFile, networkFile, numOfFlows);
+
+			ParserManager parserManager = new ParserManager(networkFile);
+			parserManager.setPrinter(new Printer());
+			Network net = parserManager.parseFromFile();
+			addFragments(net, numOfPackets);
+
+			long start = System.nanoTime();
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(serializedFile)))) {
+				out.writeObject(net);
+			}
+			double serializedWrite = (System.nanoTime() - start) / 1e6;
+
+			start = System.nanoTime();
+			NetworkSnapshot.write(net, snapshotFile);
+			double snapshotWrite = (System.nanoTime() - start) / 1e6;
+
+			double[] serializedLoads = new double[runs];
+			double[] snapshotLoads = new double[runs];
+			Network loaded = null;
+
+			// Both formats are loaded in turns so that neither gets a warmer JVM
+			for(int r = 0; r < runs; r++) {
+				start = System.nanoTime();
+				try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(serializedFile)))) {
+					in.readObject();
+				}
+				serializedLoads[r] = (System.nanoTime() - start) / 1e6;
+
+				start = System.nanoTime();
+				loaded = NetworkSnapshot.read(snapshotFile);
+				snapshotLoads[r] = (System.nanoTime() - start) / 1e6;
+			}
+
+			// Writing the loaded network again must give the same snapshot
+			String rewrittenFile = new File(dir, "rewritten" + NetworkSnapshot.FILE_EXTENSION).getPath();
+			NetworkSnapshot.write(loaded, rewrittenFile);
+			boolean identical = Arrays.equals(Files.readAllBytes(Paths.get(snapshotFile)), Files.readAllBytes(Paths.get(rewrittenFile)));
+
+			long serializedSize = new File(serializedFile).length();
+			long snapshotSize = new File(snapshotFile).length();
+
+			System.out.println("Flows: " + net.getFlows().size() + ", packets per fragment: " + numOfPackets + ", runs: " + runs);
+			System.out.printf("Java serialization: write %.1f ms, median load %.1f ms, %d bytes%n",
+				serializedWrite, median(serializedLoads), serializedSize);
+			System.out.printf("Snapshot:           write %.1f ms, median load %.1f ms, %d bytes%n",
+				snapshotWrite, median(snapshotLoads), snapshotSize);
+			System.out.printf("Snapshot size: %.1f%% of the serialized size%n", 100.0 * snapshotSize / serializedSize);
+			System.out.println("Snapshot loads back the same network: " + identical);
+
+			for(File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+
+			System.exit(identical ? 0 : 1);
+		} catch (IOException | ClassNotFoundException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Writes a copy of the network with its flows repeated, under new
+	 * names, until there are numOfFlows of them.
+	 */
+	private static void copyFlows(String inputFile, String outputFile, int numOfFlows) throws IOException {
+		JsonObject network = JsonParser.parseString(new String(Files.readAllBytes(Paths.get(inputFile)))).getAsJsonObject();
+		JsonArray flows = network.getAsJsonArray("flows");
+		JsonArray copies = new JsonArray();
+
+		for(int i = 0; i < numOfFlows; i++) {
+			JsonObject flow = flows.get(i % flows.size()).getAsJsonObject().deepCopy();
+			flow.addProperty("name", flow.get("name").getAsString() + "_" + i);
+			copies.add(flow);
+		}
+
+		network.add("flows", copies);
+		Files.write(Paths.get(outputFile), network.toString().getBytes());
+	}
+
+	private static void addFragments(Network net, int numOfPackets) {
+		for(Flow flw : net.getFlows()) {
+			PathNode switchNode = flw.getPathTree().getRoot().getChildren().get(0);
+			TSNSwitch swt = (TSNSwitch) switchNode.getNode();
+			PathNode nextNode = switchNode.getChildren().get(0);
+			String nextHop = nextNode.getNode() instanceof Device ?
+				((Device) nextNode.getNode()).getName() : ((Switch) nextNode.getNode()).getName();
+			Port port = swt.getPortOf(nextHop);
+
+			FlowFragment flowFrag = new FlowFragment(flw);
+			flowFrag.setNextHop(nextHop);
+			flowFrag.setNodeName(swt.getName());
+			flowFrag.setStartDevice(flw.getStartDevice());
+			flowFrag.setReferenceToNode(switchNode);
+			flowFrag.setPort(port);
+			flowFrag.setFragmentPriority(3);
+			flowFrag.setNumOfPacketsSent(numOfPackets);
+
+			for(int i = 0; i < numOfPackets; i++) {
+				flowFrag.addDepartureTime(i * 1.5);
+				flowFrag.addArrivalTime(i * 1.5 + 0.25);
+				flowFrag.addScheduledTime(i * 1.5 + 0.75);
+			}
+
+			switchNode.addFlowFragment(flowFrag);
+			port.getFlowFragments().add(flowFrag);
+
+			if(port.getCycle().getSlotsUsed().isEmpty()) {
+				port.getCycle().addSlotUsed(3, new ArrayList<>(List.of(1.0, 2.0)), new ArrayList<>(List.of(0.5, 0.5)));
+			}
+			port.getCycle().setCycleDuration(100.25);
+		}
+	}
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+}
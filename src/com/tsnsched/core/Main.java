@@ -12,6 +12,7 @@ import com.tsnsched.core.interface_manager.JSONParser;
 import com.tsnsched.core.network.*;
 import com.tsnsched.core.schedule_generator.*;
 import com.tsnsched.core.interface_manager.*;
+import com.tsnsched.core.server.ScheduleServer;
 
 public class Main {
     
@@ -35,6 +36,8 @@ public class Main {
 	        g.runTestCase();
 	        
 			
+		} else if(args[0].equals("-server")) {
+			ScheduleServer.main(args);
 		} else {
 			ScheduleGenerator gen = new ScheduleGenerator();
 			gen.setParameters(args);
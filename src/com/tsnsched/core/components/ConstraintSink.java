@@ -0,0 +1,278 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: ConstraintSink
+ * [Usage]: Receives the scheduling rules before they reach the solver.
+ * z3 keeps a single expression for structurally identical terms, so
+ * rules created more than once (such as the priority bounds of a
+ * fragment, repeated for every slot) are the same expression and can
+ * be dropped. Conjunctions are split into their operands and nested
+ * disjunctions are flattened before the check. The rules kept are
+ * given to the solver in batches instead of one call per rule.
+ *
+ * Every rule is added under a family name, and the number of rules
+ * received and kept per family is counted, showing which rules make
+ * up the model.
+ *
+ * Only the rules repeated the most go through the sink: the families
+ * cycleRules, slotBounds, slotOverlap, slotOrder, guardBand,
+ * priorityBounds, slotInCycle and bindTimeSlots of the ports, flowOffset,
+ * hardConstraint, jitter and latency of the network, and warmStart. The
+ * other rules are still given to the solver directly, without being
+ * deduplicated or counted per family. These are the packet times, order,
+ * best effort, slot usage and buffer rules of the ports, the definitions
+ * of the flows (first sending time, latency and jitter), the values
+ * loaded into switches, ports and cycles, the collision rules of the first
+ * hop, the rules of NetworkModificationHandler and SymmetryBreaker, and
+ * the commitments of the incremental and lazy strategies. As the sink is
+ * flushed before every check and push, both kinds of rules are in
+ * the solver when it is checked.
+ *
+ * There is one sink per solver. Sinks are retrieved with the "of"
+ * method. The solver must be checked, pushed and popped through the
+ * sink, which flushes the pending rules first, and the sink must be
+ * flushed before the assertions of the solver are read.
+ */
+public class ConstraintSink {
+
+	private static final int BATCH_SIZE = 512;
+
+	private static final Map<Solver, ConstraintSink> sinks =
+			Collections.synchronizedMap(new WeakHashMap<Solver, ConstraintSink>());
+
+	private Context ctx;
+	private Solver solver;
+	private HashSet<BoolExpr> seen = new HashSet<BoolExpr>();
+	private ArrayList<BoolExpr> pending = new ArrayList<BoolExpr>();
+	private LinkedHashMap<String, int[]> familyCounts = new LinkedHashMap<String, int[]>();
+
+	private ConstraintSink(Context ctx, Solver solver) {
+		this.ctx = ctx;
+		this.solver = solver;
+	}
+
+
+	/**
+	 * [Method]: of
+	 * [Usage]: Retrieves the sink of a solver, creating
+	 * it if this is the first request for this solver.
+	 *
+	 * @param ctx		z3 context owning the expressions
+	 * @param solver	Solver receiving the rules
+	 * @return			Sink of the given solver
+	 */
+	public static ConstraintSink of(Context ctx, Solver solver) {
+		synchronized(sinks) {
+			ConstraintSink sink = sinks.get(solver);
+
+			if(sink == null) {
+				sink = new ConstraintSink(ctx, solver);
+				sinks.put(solver, sink);
+			}
+
+			return sink;
+		}
+	}
+
+	/**
+	 * [Method]: release
+	 * [Usage]: Drops the sinks of the solvers of a context
+	 * without flushing their pending rules. Must be called
+	 * before the context is closed.
+	 *
+	 * @param ctx		z3 context being closed
+	 */
+	public static void release(Context ctx) {
+		synchronized(sinks) {
+			sinks.values().removeIf(sink -> sink.ctx == ctx);
+		}
+	}
+
+
+	/**
+	 * [Method]: add
+	 * [Usage]: Adds a rule to the sink, counting it under the given
+	 * family. The rule is dropped if it was already added since the
+	 * last flush.
+	 *
+	 * @param family	Name of the group of rules the rule belongs to
+	 * @param rule		Rule to be given to the solver
+	 */
+	public void add(String family, BoolExpr rule) {
+		int[] counts = this.familyCounts.get(family);
+
+		if(counts == null) {
+			counts = new int[2];
+			this.familyCounts.put(family, counts);
+		}
+
+		counts[0]++;
+
+		if(rule.isAnd()) {
+			for(Expr operand : rule.getArgs()) {
+				this.keep((BoolExpr) operand, counts);
+			}
+		} else if(rule.isOr()) {
+			this.keep(this.flattenDisjunction(rule), counts);
+		} else {
+			this.keep(rule, counts);
+		}
+
+		if(this.pending.size() >= BATCH_SIZE) {
+			this.solver.add(this.pending.toArray(new BoolExpr[0]));
+			this.pending.clear();
+		}
+	}
+
+	/**
+	 * [Method]: flush
+	 * [Usage]: Gives the pending rules to the solver. Rules added
+	 * after a flush are not compared to the previous ones, as the
+	 * scope where these were added may be popped.
+	 */
+	public void flush() {
+		if(!this.pending.isEmpty()) {
+			this.solver.add(this.pending.toArray(new BoolExpr[0]));
+			this.pending.clear();
+		}
+
+		this.seen.clear();
+	}
+
+	/**
+	 * [Method]: check
+	 * [Usage]: Flushes the pending rules and checks the solver.
+	 *
+	 * @param assumptions	Assumptions given to the check of the solver
+	 * @return				Status returned by the solver
+	 */
+	public Status check(Expr... assumptions) {
+		this.flush();
+
+		return this.solver.check(assumptions);
+	}
+
+	/**
+	 * [Method]: push
+	 * [Usage]: Flushes the pending rules, so they are not removed
+	 * with the new scope, and creates a backtracking point.
+	 */
+	public void push() {
+		this.flush();
+		this.solver.push();
+	}
+
+	/**
+	 * [Method]: pop
+	 * [Usage]: Drops the pending rules of the current scope and
+	 * backtracks the solver to the last backtracking point.
+	 */
+	public void pop() {
+		this.pending.clear();
+		this.seen.clear();
+		this.solver.pop();
+	}
+
+	/**
+	 * [Method]: report
+	 * [Usage]: Logs the number of rules received and kept per
+	 * family and stores them in the schedule information of the
+	 * network.
+	 *
+	 * @param net		Network being scheduled
+	 * @param printer	Printer used for the log
+	 */
+	public void report(Network net, Printer printer) {
+		LinkedHashMap<String, Object> report = new LinkedHashMap<String, Object>();
+
+		for(Map.Entry<String, int[]> entry : this.familyCounts.entrySet()) {
+			LinkedHashMap<String, Object> familyReport = new LinkedHashMap<String, Object>();
+
+			familyReport.put("added", entry.getValue()[0]);
+			familyReport.put("kept", entry.getValue()[1]);
+			report.put(entry.getKey(), familyReport);
+
+			if(printer != null) {
+				printer.printIfLoggingIsEnabled("- Rules on " + entry.getKey() + ": " + entry.getValue()[0] +
+					" added, " + entry.getValue()[1] + " given to the solver");
+			}
+		}
+
+		net.addScheduleInfo("constraints", report);
+	}
+
+
+	private void keep(BoolExpr rule, int[] counts) {
+		if(rule.isTrue() || !this.seen.add(rule)) {
+			return;
+		}
+
+		this.pending.add(rule);
+		counts[1]++;
+	}
+
+	/*
+	 * Disjunctions built one operand at a time are nested, and
+	 * some of them start from false. Operands are collected in a
+	 * single disjunction, without false and repeated operands.
+	 */
+	private BoolExpr flattenDisjunction(BoolExpr rule) {
+		LinkedHashMap<BoolExpr, Boolean> operands = new LinkedHashMap<BoolExpr, Boolean>();
+		boolean nested = this.collectOperands(rule, operands);
+
+		if(!nested) {
+			return rule;
+		}
+
+		if(operands.isEmpty()) {
+			return this.ctx.mkFalse();
+		}
+
+		if(operands.size() == 1) {
+			return operands.keySet().iterator().next();
+		}
+
+		return this.ctx.mkOr(operands.keySet().toArray(new BoolExpr[0]));
+	}
+
+	private boolean collectOperands(BoolExpr rule, LinkedHashMap<BoolExpr, Boolean> operands) {
+		boolean nested = false;
+
+		for(Expr operand : rule.getArgs()) {
+			BoolExpr boolOperand = (BoolExpr) operand;
+
+			if(boolOperand.isOr()) {
+				this.collectOperands(boolOperand, operands);
+				nested = true;
+			} else if(boolOperand.isFalse() || operands.put(boolOperand, true) != null) {
+				nested = true;
+			}
+		}
+
+		return nested;
+	}
+
+
+	public LinkedHashMap<String, int[]> getFamilyCounts() {
+		return familyCounts;
+	}
+
+}
@@ -82,6 +82,16 @@ public class Cycle implements Serializable {
 
 	private ArrayList<Integer> numOfSlotsPerPrt;
 
+	
+	/*
+	 * Networks scheduled in parallel (e.g.: by the schedule server)
+	 * may create cycles at the same time, so the counter is increased
+	 * atomically and every cycle gets its own name.
+	 */
+	private static synchronized int nextInstance() {
+		return ++instanceCounter;
+	}
+
 	/**
      * [Method]: Cycle
      * [Usage]: Overloaded method of this class. Will create 
@@ -99,9 +109,8 @@ public class Cycle implements Serializable {
                  double lowerBoundCycleTime, 
                  double maximumSlotDuration) {
     	
-    	instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+    	this.instance = nextInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
         
         this.upperBoundCycleTime = upperBoundCycleTime;
         this.lowerBoundCycleTime = lowerBoundCycleTime;
@@ -111,9 +120,8 @@ public class Cycle implements Serializable {
     
     
     public Cycle(double maximumSlotDuration) {
-        instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+        this.instance = nextInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
         
         this.maximumSlotDuration = maximumSlotDuration;
         this.firstCycleStart = 0;
@@ -138,9 +146,8 @@ public class Cycle implements Serializable {
                  double firstCycleStart,
                  double maximumSlotDuration) {
     	
-    	instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+    	this.instance = nextInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
     	
         this.upperBoundCycleTime = upperBoundCycleTime;
         this.lowerBoundCycleTime = lowerBoundCycleTime;
@@ -166,9 +173,8 @@ public class Cycle implements Serializable {
                  RealExpr lowerBoundCycleTimeZ3, 
                  RealExpr firstCycleStartZ3,
                  RealExpr maximumSlotDurationZ3) {
-    	instanceCounter++;        
-        this.instance = instanceCounter;
-        this.name = "cycle" + Integer.toString(instanceCounter);
+    	this.instance = nextInstance();
+        this.name = "cycle" + Integer.toString(this.instance);
         
         // this.upperBoundCycleTimeZ3 = upperBoundCycleTimeZ3;
         // this.lowerBoundCycleTimeZ3 = lowerBoundCycleTimeZ3;
@@ -228,16 +234,7 @@ public class Cycle implements Serializable {
      * @return          Z3 variable containing the cycle start time
      */
     public RealExpr cycleStartZ3(Context ctx, int auxIndex){
-        RealExpr index = ctx.mkReal(auxIndex);
-        
-        return (RealExpr) ctx.mkITE( 
-                ctx.mkGe(index, ctx.mkInt(1)), 
-                ctx.mkAdd(
-                        firstCycleStartZ3,
-                        ctx.mkMul(cycleDurationZ3, index)
-                        ), 
-                firstCycleStartZ3);
-
+        return Z3ExpressionCache.of(ctx).cycleStart(this, auxIndex);
      }
     
     
@@ -445,24 +442,34 @@ public class Cycle implements Serializable {
 
     
     public RealExpr slotStartZ3(Context ctx, IntExpr prt, IntExpr index) {
+        if(index.isIntNum()) {
+            return this.slotStartZ3(ctx, prt, ((IntNum) index).getInt());
+        }
         return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Start");
     }
     
+    public RealExpr slotStartZ3(Context ctx, IntExpr prt, int auxIndex) {
+        return Z3ExpressionCache.of(ctx).slotStart(this, prt, auxIndex);
+    }
+    
     public RealExpr slotStartZ3(Context ctx, int auxPrt, int auxIndex) {
-        IntExpr index = ctx.mkInt(auxIndex);
-        IntExpr prt = ctx.mkInt(auxPrt);
-        return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Start");
+        return Z3ExpressionCache.of(ctx).slotStart(this, auxPrt, auxIndex);
     }
     
    
     public RealExpr slotDurationZ3(Context ctx, IntExpr prt, IntExpr index) {
+        if(index.isIntNum()) {
+            return this.slotDurationZ3(ctx, prt, ((IntNum) index).getInt());
+        }
         return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Duration");
     }
     
+    public RealExpr slotDurationZ3(Context ctx, IntExpr prt, int auxIndex) {
+        return Z3ExpressionCache.of(ctx).slotDuration(this, prt, auxIndex);
+    }
+    
     public RealExpr slotDurationZ3(Context ctx, int auxPrt, int auxIndex) {
-        IntExpr index = ctx.mkInt(auxIndex);
-        IntExpr prt = ctx.mkInt(auxPrt);
-        return ctx.mkRealConst(this.name + "priority" + prt.toString() + "slot" + index.toString() + "Duration");
+        return Z3ExpressionCache.of(ctx).slotDuration(this, auxPrt, auxIndex);
     }
 
     public RealExpr getCycleDurationZ3() {
@@ -496,6 +503,10 @@ public class Cycle implements Serializable {
 		return numOfSlotsPerPrt.get(prt);
 	}
 
+	public int getNumOfSlots() {
+		return numOfSlots;
+	}
+
 	public void setNumOfSlots(int numOfSlots) {
 		int currentNumOfSlots = numOfSlots;
 		
@@ -538,10 +549,26 @@ public class Cycle implements Serializable {
         return this.slotsUsed;
     }
     
+    public void setSlotsUsed(ArrayList<Integer> slotsUsed) {
+        this.slotsUsed = slotsUsed;
+    }
+    
+    public ArrayList<ArrayList<Double>> getSlotStart() {
+        return slotStart;
+    }
+    
+    public void setSlotStart(ArrayList<ArrayList<Double>> slotStart) {
+        this.slotStart = slotStart;
+    }
+    
     public ArrayList<ArrayList<Double>> getSlotDuration() {
         return slotDuration;
     }
     
+    public void setSlotDuration(ArrayList<ArrayList<Double>> slotDuration) {
+        this.slotDuration = slotDuration;
+    }
+    
     public double getSlotStart(int prt, int index) {
         return this.slotStart.get(this.slotsUsed.indexOf(prt)).get(index);
     }
@@ -594,6 +621,14 @@ public class Cycle implements Serializable {
 	public void setSlotArrangementMode(SlotArrangementMode slotArrangementMode) {
 		this.slotArrangementMode = slotArrangementMode;
 	}
+
+	public ArrayList<Integer> getNumOfSlotsPerPrt() {
+		return numOfSlotsPerPrt;
+	}
+
+	public void setNumOfSlotsPerPrt(ArrayList<Integer> numOfSlotsPerPrt) {
+		this.numOfSlotsPerPrt = numOfSlotsPerPrt;
+	}
 	/*
 	public RealExpr getSlotDurationZ3(int prt, int slotNum) {
 		return this.slotDurationZ3.get(prt).get(slotNum);
@@ -10,6 +10,7 @@ package com.tsnsched.core.components;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -79,6 +80,19 @@ public class Flow implements Serializable {
     private transient RealExpr flowFirstSendingTimeZ3;
     private transient RealExpr flowSendingPeriodicityZ3;
 
+    /*
+     * Terms of the latency and jitter rules, kept while the rules
+     * defining them are in the solver. Keys are the name of the
+     * destination device (empty for the whole flow) and packet index.
+     */
+    private transient Context z3CacheContext;
+    private transient Solver z3CacheSolver;
+    private transient HashMap<String, ArrayList<PathNode>> cachedPathNodes;
+    private transient HashMap<String, ArrayList<FlowFragment>> cachedPathFragments;
+    private transient HashMap<String, RealExpr> cachedLatencies;
+    private transient HashMap<String, RealExpr> cachedAvgLatencies;
+    private transient HashMap<String, RealExpr> cachedJitters;
+
     private int numOfPacketsSentInFragment = 0;
 
     
@@ -151,10 +165,8 @@ public class Flow implements Serializable {
      * @param type      Value specifying the type of the flow (0 - Unicast; 1 - Publish subscribe)
      */
     public Flow(int type) {
-        instanceCounter++;
-        
-        this.instance = instanceCounter;
-        this.name = "flow" + Integer.toString(instanceCounter);
+        this.instance = nextInstance();
+        this.name = "flow" + Integer.toString(this.instance);
 
         if(type == UNICAST) {
             //Its not a unicast flow
@@ -166,16 +178,14 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            releaseInstance();
             //[TODO]: Throw error
         }
    
     }
 
     public Flow(String name, int type) {
-        instanceCounter++;
-        
-        this.instance = instanceCounter;
+        this.instance = nextInstance();
         this.name = name;
 
         if(type == UNICAST) {
@@ -188,7 +198,7 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            releaseInstance();
             //[TODO]: Throw error
         }
    
@@ -202,9 +212,8 @@ public class Flow implements Serializable {
      * @param type      Value specifying the type of the flow (0 - Unicast; 1 - Publish subscribe)
      */
     public Flow(int type, double flowFirstSendingTime, double flowSendingPeriodicity) {
-        instanceCounter++;
-        this.instance = instanceCounter;
-        this.name = "flow" + Integer.toString(instanceCounter);
+        this.instance = nextInstance();
+        this.name = "flow" + Integer.toString(this.instance);
 
         if(type == UNICAST) {
             //Its not a unicast flow
@@ -216,7 +225,7 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            releaseInstance();
             //[TODO]: Throw error
         }
 
@@ -227,8 +236,7 @@ public class Flow implements Serializable {
     }
 
     public Flow(String name, int type, double flowFirstSendingTime, double flowSendingPeriodicity) {
-        instanceCounter++;
-        this.instance = instanceCounter;
+        this.instance = nextInstance();
         this.name = name;
 
         if(type == UNICAST) {
@@ -241,7 +249,7 @@ public class Flow implements Serializable {
             this.type = 1;
             pathTree = new PathTree();
         } else {
-            instanceCounter--;
+            releaseInstance();
             //[TODO]: Throw error
         }
 
@@ -387,7 +395,7 @@ public class Flow implements Serializable {
      */
     public FlowFragment nodeToZ3(Context ctx, PathNode node, FlowFragment frag) {
         FlowFragment flowFrag = null;
-        int numberOfPackets = Network.PACKETUPPERBOUNDRANGE;
+        int numberOfPackets;
 
         /*
         this.printer.printIfLoggingIsEnabled("On node " +
@@ -436,6 +444,9 @@ public class Flow implements Serializable {
                     //System.out.println("defhypercycle" + ((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).getDefinedHyperCycleSize());
                     //System.out.println("sending prd: "+ this.flowSendingPeriodicity);
                     flowFrag.setNumOfPacketsSent(numberOfPackets);
+                } else {
+                    numberOfPackets = ((TSNSwitch)auxN.getNode()).getPortOf(flowFrag.getNextHop()).getPacketUpperBoundRange();
+                    flowFrag.setNumOfPacketsSent(numberOfPackets);
                 }
 
                 if(auxN.getParent().getParent() == null) { //First flow fragment, fragment first departure = device's first departure
@@ -549,6 +560,32 @@ public class Flow implements Serializable {
     public void pathToZ3(Context ctx, Switch swt, int currentSwitchIndex) {
         // Flow fragment is created
         FlowFragment flowFrag = new FlowFragment(this);
+        Port port = null;
+        int numberOfPackets;
+        
+        /*
+         * If index of current switch = last switch in the path, then 
+         * next hop will be to the end device, else, next hop will be to
+         * the next switch in the path.
+         */
+        
+        if((path.size() - 1) == currentSwitchIndex) {
+        	flowFrag.setNextHop(this.endDeviceList.get(0).getName());
+        } else {
+            flowFrag.setNextHop(
+                path.get(currentSwitchIndex + 1).getName()
+            );
+        }
+        
+        // The number of packets is bounded by the port the fragment leaves through
+        port = ((TSNSwitch) swt).getPortOf(flowFrag.getNextHop());
+        
+        if(port.checkIfAutomatedApplicationPeriod()) {
+            numberOfPackets = (int) (port.getDefinedHyperCycleSize()/this.flowSendingPeriodicity);
+        } else {
+            numberOfPackets = port.getPacketUpperBoundRange();
+        }
+        flowFrag.setNumOfPacketsSent(numberOfPackets);
         
         /*
          * If this flow fragment is the same on the fragment list, then
@@ -558,7 +595,7 @@ public class Flow implements Serializable {
         if(flowFragments.size() == 0) { 
             // If no flowFragment has been added to the path, flowPriority is null, so initiate it
             //flowFrag.setNodeName(this.startDevice.getName());
-            for (int i = 0; i < Network.PACKETUPPERBOUNDRANGE; i++) {
+            for (int i = 0; i < numberOfPackets; i++) {
                 flowFrag.addDepartureTimeZ3( // Packet departure constraint
                     (RealExpr) ctx.mkAdd(
                         this.flowFirstSendingTimeZ3,
@@ -567,7 +604,7 @@ public class Flow implements Serializable {
                 );
             }
         } else { 
-            for (int i = 0; i < Network.PACKETUPPERBOUNDRANGE; i++) {
+            for (int i = 0; i < numberOfPackets; i++) {
                 flowFrag.addDepartureTimeZ3(
                     ((TSNSwitch) path.get(currentSwitchIndex - 1)).scheduledTime(ctx, i, flowFragments.get(flowFragments.size() - 1))
                 );
@@ -582,21 +619,6 @@ public class Flow implements Serializable {
         flowFrag.setPacketSizeZ3(ctx.mkReal(Double.toString(this.packetSize)));
         flowFrag.setPacketSize(this.packetSize);
         
-
-        /*
-         * If index of current switch = last switch in the path, then 
-         * next hop will be to the end device, else, next hop will be to
-         * the next switch in the path.
-         */
-        
-        if((path.size() - 1) == currentSwitchIndex) {
-        	flowFrag.setNextHop(this.endDeviceList.get(0).getName());
-        } else {
-            flowFrag.setNextHop(
-                path.get(currentSwitchIndex + 1).getName()
-            );
-        }
-        
         /*
          * The newly created fragment is added to both the switch 
          * (on the list of fragments that go through it) and to 
@@ -889,6 +911,14 @@ public class Flow implements Serializable {
     			if(!port.getListOfPeriods().contains(this.flowSendingPeriodicity)) {
     				port.addToListOfPeriods(this.flowSendingPeriodicity);
                 }
+    			
+    			if(port.getMaximumFlowLatency() < this.flowMaximumLatency) {
+    				port.setMaximumFlowLatency(this.flowMaximumLatency);
+    			}
+    			
+    			if(port.getMaximumFlowOffset() < this.flowFirstSendingTime) {
+    				port.setMaximumFlowOffset(this.flowFirstSendingTime);
+    			}
     		}
     		
     	}
@@ -1299,6 +1329,8 @@ public class Flow implements Serializable {
      * [Method]: getLatency
      * [Usage]: Gets the Z3 variable containing the latency 
      * of the flow for a certain packet specified by the index.
+     * The rule defining the variable is only added to the solver
+     * once per packet.
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param ctx       Z3 variable and function environment
@@ -1307,7 +1339,15 @@ public class Flow implements Serializable {
      */
     public RealExpr getLatencyZ3(Solver solver, Context ctx, int index) {
         //index += 1;
-        RealExpr latency = ctx.mkRealConst(this.name + "latencyOfPacket" + index);
+        this.useZ3Cache(solver, ctx);
+        
+        RealExpr latency = this.cachedLatencies.get(":" + index);
+        
+        if(latency != null) {
+            return latency;
+        }
+        
+        latency = ctx.mkRealConst(this.name + "latencyOfPacket" + index);
         
         TSNSwitch lastSwitchInPath = ((TSNSwitch) this.path.get(path.size() - 1));
         FlowFragment lastFragmentInList = this.flowFragments.get(flowFragments.size() - 1);
@@ -1330,6 +1370,7 @@ public class Flow implements Serializable {
             )
         );
         
+        this.cachedLatencies.put(":" + index, latency);
         
         return latency;
     }
@@ -1338,7 +1379,8 @@ public class Flow implements Serializable {
      * [Method]: getLatencyZ3
      * [Usage]: Gets the Z3 variable containing the latency 
      * of the flow for a certain packet specified by the index
-     * for a certain device.
+     * for a certain device. The rule defining the variable is
+     * only added to the solver once per packet and device.
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param dev       End device of the packet
@@ -1348,11 +1390,18 @@ public class Flow implements Serializable {
      */
     public RealExpr getLatencyZ3(Solver solver, Device dev, Context ctx, int index) {
         //index += 1;
-
-        RealExpr latency = ctx.mkRealConst(this.name + "latencyOfPacket" + index + "For" + dev.getName());
+        this.useZ3Cache(solver, ctx);
+        
+        RealExpr latency = this.cachedLatencies.get(dev.getName() + ":" + index);
+        
+        if(latency != null) {
+            return latency;
+        }
         
-        ArrayList<PathNode> nodes = this.getNodesFromRootToNode(dev);
-        ArrayList<FlowFragment> flowFrags = this.getFlowFromRootToNode(dev);
+        latency = ctx.mkRealConst(this.name + "latencyOfPacket" + index + "For" + dev.getName());
+        
+        ArrayList<PathNode> nodes = this.getCachedNodesFromRootToNode(dev);
+        ArrayList<FlowFragment> flowFrags = this.getCachedFlowFromRootToNode(dev);
         
         TSNSwitch lastSwitchInPath = ((TSNSwitch) nodes.get(nodes.size() - 2).getNode()); // - 1 for indexing, - 1 for last node being the end device
         FlowFragment lastFragmentInList = flowFrags.get(flowFrags.size() - 1);
@@ -1375,12 +1424,14 @@ public class Flow implements Serializable {
             )
         );
         
+        this.cachedLatencies.put(dev.getName() + ":" + index, latency);
+        
         return latency;
     }
     
     /**
      * [Method]: getSumOfLatencyZ3
-     * [Usage]: Recursively creates values to sum the z3 latencies
+     * [Usage]: Creates values to sum the z3 latencies
      * of the flow from 0 up to a certain packet.
      * 
      * @param solver    Solver in which the rules of the problem will be added
@@ -1389,18 +1440,18 @@ public class Flow implements Serializable {
      * @return          Z3 variable containing sum of latency up to index packet
      */
     public RealExpr getSumOfLatencyZ3(Solver solver, Context ctx, int index) {
+        RealExpr sumValue = getLatencyZ3(solver, ctx, 0);
         
-        if(index == 0) {
-            return getLatencyZ3(solver, ctx, 0);
+        for(int i = 1; i <= index; i++) {
+            sumValue = (RealExpr) ctx.mkAdd(getLatencyZ3(solver, ctx, i), sumValue);
         }
         
-        return (RealExpr) ctx.mkAdd(getLatencyZ3(solver, ctx, index), getSumOfLatencyZ3(solver, ctx, index - 1));
-
+        return sumValue;
     }
     
     /**
      * [Method]: getSumOfLatencyZ3
-     * [Usage]: Recursively creates values to sum the z3 latencies
+     * [Usage]: Creates values to sum the z3 latencies
      * of the flow from 0 up to a certain packet for a certain device.
      * 
      * @param dev       Destination of the packet
@@ -1410,11 +1461,13 @@ public class Flow implements Serializable {
      * @return          Z3 variable containing sum of latency up to index packet
      */
     public RealExpr getSumOfLatencyZ3(Device dev, Solver solver, Context ctx, int index) {
-        if(index == 0) {
-            return getLatencyZ3(solver, dev, ctx, 0);
+        RealExpr sumValue = getLatencyZ3(solver, dev, ctx, 0);
+        
+        for(int i = 1; i <= index; i++) {
+            sumValue = (RealExpr) ctx.mkAdd(getLatencyZ3(solver, dev, ctx, i), sumValue);
         }
         
-        return (RealExpr) ctx.mkAdd(getLatencyZ3(solver, dev, ctx, index), getSumOfLatencyZ3(dev, solver, ctx, index - 1));
+        return sumValue;
     }
     
     /**
@@ -1440,37 +1493,54 @@ public class Flow implements Serializable {
     }
     
     /**
-     * [Method]: getSumOfAllDevLatencyZ3
-     * [Usage]: Returns the sum of all latency for all destinations
-     * of the flow for the [index] number of packets sent.
+     * [Method]: getAvgLatency
+     * [Usage]: Returns the z3 variable containing the average latency
+     * of the flow over all of its destinations. The variable is defined
+     * in the solver once and shared by every rule using it.
      * 
      * @param solver    Solver in which the rules of the problem will be added
      * @param ctx       Z3 variable and function environment       
      * @return          Z3 variable containing the average latency of the flow
      */
     public RealExpr getAvgLatency(Solver solver, Context ctx) {
+        this.useZ3Cache(solver, ctx);
+        
+        RealExpr avgLatency = this.cachedAvgLatencies.get("");
+        RealExpr avgLatencyValue = null;
+        
+        if(avgLatency != null) {
+            return avgLatency;
+        }
+        
         if(this.type == UNICAST) {
-            return (RealExpr) ctx.mkDiv(
+            avgLatencyValue = (RealExpr) ctx.mkDiv(
                 getSumOfLatencyZ3(solver, ctx, this.numOfPacketsSentInFragment - 1), 
                 ctx.mkReal(this.numOfPacketsSentInFragment)
             );
         } else if (this.type == PUBLISH_SUBSCRIBE) {
-                return (RealExpr) ctx.mkDiv(
-                    getSumOfAllDevLatencyZ3(solver, ctx, this.numOfPacketsSentInFragment - 1), 
-                    ctx.mkReal((this.numOfPacketsSentInFragment) * this.pathTree.getLeaves().size())
-                );
+            avgLatencyValue = (RealExpr) ctx.mkDiv(
+                getSumOfAllDevLatencyZ3(solver, ctx, this.numOfPacketsSentInFragment - 1), 
+                ctx.mkReal((this.numOfPacketsSentInFragment) * this.pathTree.getLeaves().size())
+            );
         } else {
             // TODO: THROW ERROR
+            return null;
         }
         
-        return null;
+        avgLatency = ctx.mkRealConst(this.name + "AvgLatency");
+        solver.add(ctx.mkEq(avgLatency, avgLatencyValue));
+        this.cachedAvgLatencies.put("", avgLatency);
+        
+        return avgLatency;
     }
     
     
     /**
      * [Method]: getAvgLatency
      * [Usage]: Retrieves the average latency for one of the subscribers
-     * of the flow.
+     * of the flow. The average is defined in the solver once as a
+     * variable of its own, which is referenced by every jitter rule
+     * of the subscriber.
      * 
      * @param dev 		Subscriber to which the average latency will be calculated
      * @param solver	Solver object 
@@ -1478,12 +1548,28 @@ public class Flow implements Serializable {
      * @return			z3 variable with the average latency for the device
      */
     public RealExpr getAvgLatency(Device dev, Solver solver, Context ctx) {
+        this.useZ3Cache(solver, ctx);
+        
+        RealExpr avgLatency = this.cachedAvgLatencies.get(dev.getName());
+        
+        if(avgLatency != null) {
+            return avgLatency;
+        }
+        
+        avgLatency = ctx.mkRealConst(this.name + "AvgLatencyFor" + dev.getName());
         
-        return (RealExpr) ctx.mkDiv(
-            this.getSumOfLatencyZ3(dev, solver, ctx, this.numOfPacketsSentInFragment - 1), 
-            ctx.mkReal(this.numOfPacketsSentInFragment)
+        solver.add(
+            ctx.mkEq(avgLatency, 
+                ctx.mkDiv(
+                    this.getSumOfLatencyZ3(dev, solver, ctx, this.numOfPacketsSentInFragment - 1), 
+                    ctx.mkReal(this.numOfPacketsSentInFragment)
+                )
+            )
         );
         
+        this.cachedAvgLatencies.put(dev.getName(), avgLatency);
+        
+        return avgLatency;
      }
     
     /**
@@ -1518,7 +1604,8 @@ public class Flow implements Serializable {
     /**
      * [Method]: getJitterZ3
      * [Usage]: Returns the z3 variable containing the jitter of that
-     * packet.
+     * packet. The rule defining the variable is only added to the
+     * solver once per packet and device.
      * 
      * 
      * @param solver    Solver in which the rules of the problem will be added
@@ -1528,9 +1615,17 @@ public class Flow implements Serializable {
      */
     public RealExpr getJitterZ3(Device dev, Solver solver, Context ctx, int index) {
         //index += 1;
-        RealExpr jitter = ctx.mkRealConst(this.name + "JitterOfPacket" + index + "For" + dev.getName());
+        this.useZ3Cache(solver, ctx);
         
-        ArrayList<PathNode> nodes = this.getNodesFromRootToNode(dev);
+        RealExpr jitter = this.cachedJitters.get(dev.getName() + ":" + index);
+        
+        if(jitter != null) {
+            return jitter;
+        }
+        
+        jitter = ctx.mkRealConst(this.name + "JitterOfPacket" + index + "For" + dev.getName());
+        
+        ArrayList<PathNode> nodes = this.getCachedNodesFromRootToNode(dev);
         
         TSNSwitch lastSwitchInPath = ((TSNSwitch) nodes.get(nodes.size() - 2).getNode()); // - 1 for indexing, - 1 for last node being the end device
         FlowFragment lastFragmentInList = nodes.get(nodes.size() - 2).getFlowFragments()
@@ -1563,9 +1658,68 @@ public class Flow implements Serializable {
             
         ));
         
+        this.cachedJitters.put(dev.getName() + ":" + index, jitter);
+        
         return jitter;
     }
     
+    /**
+     * [Method]: clearZ3Cache
+     * [Usage]: Drops the latency, average latency and jitter variables
+     * kept by the flow, along with the paths used to create them. Must
+     * be called once the rules defining them may have left the solver
+     * (e.g.: after the solver is popped) or the path of the flow changes.
+     */
+    public void clearZ3Cache() {
+        this.z3CacheContext = null;
+        this.z3CacheSolver = null;
+        this.cachedPathNodes = null;
+        this.cachedPathFragments = null;
+        this.cachedLatencies = null;
+        this.cachedAvgLatencies = null;
+        this.cachedJitters = null;
+    }
+    
+    /*
+     * Variables defined for another solver or context do not have
+     * their rules in the given solver, so the cache is started over.
+     */
+    private void useZ3Cache(Solver solver, Context ctx) {
+        if(this.z3CacheContext == ctx && this.z3CacheSolver == solver) {
+            return;
+        }
+        
+        this.z3CacheContext = ctx;
+        this.z3CacheSolver = solver;
+        this.cachedPathNodes = new HashMap<String, ArrayList<PathNode>>();
+        this.cachedPathFragments = new HashMap<String, ArrayList<FlowFragment>>();
+        this.cachedLatencies = new HashMap<String, RealExpr>();
+        this.cachedAvgLatencies = new HashMap<String, RealExpr>();
+        this.cachedJitters = new HashMap<String, RealExpr>();
+    }
+    
+    private ArrayList<PathNode> getCachedNodesFromRootToNode(Device dev) {
+        ArrayList<PathNode> nodes = this.cachedPathNodes.get(dev.getName());
+        
+        if(nodes == null) {
+            nodes = this.getNodesFromRootToNode(dev);
+            this.cachedPathNodes.put(dev.getName(), nodes);
+        }
+        
+        return nodes;
+    }
+    
+    private ArrayList<FlowFragment> getCachedFlowFromRootToNode(Device dev) {
+        ArrayList<FlowFragment> fragments = this.cachedPathFragments.get(dev.getName());
+        
+        if(fragments == null) {
+            fragments = this.getFlowFromRootToNode(dev);
+            this.cachedPathFragments.put(dev.getName(), fragments);
+        }
+        
+        return fragments;
+    }
+    
     /**
      * [Method]: getSumOfJitterZ3
      * [Usage]: Returns the sum of all jitter from packet 0
@@ -1792,7 +1946,9 @@ public class Flow implements Serializable {
     }
 
     public void setPathTree(PathTree pathTree) {
-    	this.startDevice = (Device) pathTree.getRoot().getNode();
+    	if(pathTree != null) {
+    		this.startDevice = (Device) pathTree.getRoot().getNode();
+    	}
         this.pathTree = pathTree;
     }
     
@@ -1893,14 +2049,35 @@ public class Flow implements Serializable {
 		this.priorityValue = priorityValue;
 	}
 	
-    public static int getInstanceCounter() {
+    /*
+     * Networks scheduled in parallel (e.g.: by the schedule server)
+     * may create flows at the same time, so the counter is increased
+     * atomically and every flow gets its own instance number.
+     */
+    private static synchronized int nextInstance() {
+    	return ++instanceCounter;
+    }
+
+    private static synchronized void releaseInstance() {
+    	instanceCounter--;
+    }
+
+    public static synchronized int getInstanceCounter() {
 		return instanceCounter;
 	}
 
-	public static void setInstanceCounter(int instanceCounter) {
+	public static synchronized void setInstanceCounter(int instanceCounter) {
 		Flow.instanceCounter = instanceCounter;
 	}
 
+	public int getPathTreeCount() {
+		return pathTreeCount;
+	}
+
+	public void setPathTreeCount(int pathTreeCount) {
+		this.pathTreeCount = pathTreeCount;
+	}
+
 	public Boolean getIsModifiedOrCreated() {
 		return isModifiedOrCreated;
 	}
@@ -18,12 +18,16 @@ import java.util.Vector;
 import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
 import com.microsoft.z3.Expr;
+import com.microsoft.z3.FuncDecl;
 import com.microsoft.z3.IntExpr;
+import com.microsoft.z3.IntNum;
 import com.microsoft.z3.RealExpr;
 import com.microsoft.z3.Solver;
+import com.microsoft.z3.Sort;
 import com.tsnsched.core.network.Network;
 import com.tsnsched.core.network.NetworkProperties;
 import com.tsnsched.core.nodes.TSNSwitch;
+import com.tsnsched.core.schedule_generator.EncodingMode;
 
 /**
  * [Class]: Port
@@ -52,6 +56,8 @@ public class Port implements Serializable {
     private double interframeGapSize = 12;
     
     private ArrayList<Double> listOfPeriods = new ArrayList<Double>();
+    private double maximumFlowLatency = 0;
+    private double maximumFlowOffset = 0;
     private double definedHyperCycleSize = -1;
     private double microCycleSize = -1; 
     
@@ -64,12 +70,17 @@ public class Port implements Serializable {
     private TSNSwitch hostSwitch;
 	private Cycle cycle;
     private ArrayList<FlowFragment> flowFragments;
-    private int packetUpperBoundRange = Network.PACKETUPPERBOUNDRANGE; // Limits the applications of rules to the packets
-    private int cycleUpperBoundRange = Network.CYCLEUPPERBOUNDRANGE; // Limits the applications of rules to the cycles
+    private int packetUpperBoundRange = Network.PACKETUPPERBOUNDRANGE; // Limits the applications of rules to the packets (see setUpBounds)
+    private int cycleUpperBoundRange = Network.CYCLEUPPERBOUNDRANGE; // Limits the applications of rules to the cycles (see setUpBounds)
 
 	private double gbSize;
 
 	private int bufferSizeLimitation = -1;
+	private ArrayList<Integer> bufferSizePerPriority = new ArrayList<Integer>();
+
+	private EncodingMode encodingMode = EncodingMode.STANDARD;
+	private boolean lazyPairwiseRules = false;
+	private boolean useSlotIndicators = false;
 
 	protected double maxPacketSize;
     protected double timeToTravel;
@@ -157,12 +168,14 @@ public class Port implements Serializable {
      * @param ctx           z3 context which specify the environment of constants, functions and variables
      */
     private void setUpCycleRules(Solver solver, Context ctx) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+        ConstraintSink sink = ConstraintSink.of(ctx, solver);
     	
-    	solver.add(
+    	sink.add("cycleRules",
 			ctx.mkEq(
 				this.gbSizeZ3, 
 				ctx.mkDiv(
-					ctx.mkReal(Double.toString(this.gbSize)),
+					z3Cache.mkReal(this.gbSize),
 					this.portSpeedZ3
 				)
 			)
@@ -170,31 +183,30 @@ public class Port implements Serializable {
 
         for(int numericFlowPriority = 0; numericFlowPriority < this.cycle.getNumOfPrts(); numericFlowPriority++) {
         	for(int index = 0; index < this.cycle.getNumOfSlots(numericFlowPriority); index++) {
-                IntExpr flowPriority = ctx.mkInt(numericFlowPriority);
-                IntExpr indexZ3 = ctx.mkInt(index);
+                IntExpr flowPriority = z3Cache.mkInt(numericFlowPriority);
                 
                 // A slot will be somewhere between 0 and the end of the cycle minus its duration (Slot in cycle constraint)
-                solver.add(ctx.mkGe(cycle.slotStartZ3(ctx, flowPriority, indexZ3), ctx.mkInt(0)));
-                solver.add(
-                    ctx.mkLe(cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
+                sink.add("slotBounds", ctx.mkGe(cycle.slotStartZ3(ctx, numericFlowPriority, index), z3Cache.mkInt(0)));
+                sink.add("slotBounds",
+                    ctx.mkLe(cycle.slotStartZ3(ctx, numericFlowPriority, index), 
                         ctx.mkSub(
                             cycle.getCycleDurationZ3(),
-                            cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+                            cycle.slotDurationZ3(ctx, numericFlowPriority, index)
                         )
                     )
                 );
                  
                 // Every slot duration is greater or equal 0 and lower or equal than the maximum (Slot duration constraint)
-                solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowPriority, indexZ3), ctx.mkInt(0)));
-                solver.add(ctx.mkLe(cycle.slotDurationZ3(ctx, flowPriority, indexZ3), cycle.getMaximumSlotDurationZ3()));
+                sink.add("slotBounds", ctx.mkGe(cycle.slotDurationZ3(ctx, numericFlowPriority, index), z3Cache.mkInt(0)));
+                sink.add("slotBounds", ctx.mkLe(cycle.slotDurationZ3(ctx, numericFlowPriority, index), cycle.getMaximumSlotDurationZ3()));
                 
                 //Every slot must fit inside a cycle
-                solver.add(
+                sink.add("slotBounds",
                     ctx.mkGe(
                         cycle.getCycleDurationZ3(), 
                         ctx.mkAdd(
-                            cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
-                            cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+                            cycle.slotStartZ3(ctx, numericFlowPriority, index), 
+                            cycle.slotDurationZ3(ctx, numericFlowPriority, index)
                         )
                     )
                 );
@@ -232,12 +244,11 @@ public class Port implements Serializable {
                     }
                 	for(int auxIndex = 0; auxIndex < this.cycle.getNumOfSlots(numericFlowPriority); auxIndex++) {
 
-                        IntExpr auxIndexZ3 = ctx.mkInt(auxIndex);
                         
 	                    
-	                    IntExpr auxFlowPriority = ctx.mkInt(auxNumericFlowPriority);
+	                    IntExpr auxFlowPriority = z3Cache.mkInt(auxNumericFlowPriority);
 
-	                    solver.add(
+	                    sink.add("slotOverlap",
 	                        ctx.mkImplies(
 	                            ctx.mkNot(
 	                                ctx.mkEq(
@@ -247,18 +258,18 @@ public class Port implements Serializable {
 	                            ),
 	                            ctx.mkOr(
 	                                ctx.mkGe(
-	                                    cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+	                                    cycle.slotStartZ3(ctx, numericFlowPriority, index),
 	                                    ctx.mkAdd(
-	                                        cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
-	                                        cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3)
+	                                        cycle.slotStartZ3(ctx, auxNumericFlowPriority, auxIndex),
+	                                        cycle.slotDurationZ3(ctx, auxNumericFlowPriority, auxIndex)
 	                                    )
 	                                ), 
 	                                ctx.mkLe(
 	                                    ctx.mkAdd(
-	                                        cycle.slotStartZ3(ctx, flowPriority, indexZ3),
-	                                        cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+	                                        cycle.slotStartZ3(ctx, numericFlowPriority, index),
+	                                        cycle.slotDurationZ3(ctx, numericFlowPriority, index)
 	                                    ),
-	                                    cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
+	                                    cycle.slotStartZ3(ctx, auxNumericFlowPriority, auxIndex)
 	                                )
 	                            )
 	                        )
@@ -275,18 +286,18 @@ public class Port implements Serializable {
 	                            ),
 	                            ctx.mkOr(
 	                                ctx.mkGe(
-	                                    cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+	                                    cycle.slotStartZ3(ctx, numericFlowPriority, index),
 	                                    ctx.mkAdd(
-	                                        cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
-	                                        cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3)
+	                                        cycle.slotStartZ3(ctx, auxNumericFlowPriority, auxIndex),
+	                                        cycle.slotDurationZ3(ctx, auxNumericFlowPriority, auxIndex)
 	                                    )
 	                                ), 
 	                                ctx.mkLe(
 	                                    ctx.mkAdd(
-	                                        cycle.slotStartZ3(ctx, flowPriority, indexZ3),
-	                                        cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+	                                        cycle.slotStartZ3(ctx, numericFlowPriority, index),
+	                                        cycle.slotDurationZ3(ctx, numericFlowPriority, index)
 	                                    ),
-	                                    cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
+	                                    cycle.slotStartZ3(ctx, auxNumericFlowPriority, auxIndex)
 	                                )
 	                            )
 	                        ));
@@ -296,13 +307,13 @@ public class Port implements Serializable {
                 
 
                 if(index < this.cycle.getNumOfSlots(numericFlowPriority) - 1) {
-                	solver.add(
+                	sink.add("slotOrder",
             			ctx.mkLe( 
         					ctx.mkAdd(
-    							cycle.slotStartZ3(ctx, flowPriority, indexZ3),   
-    							cycle.slotDurationZ3(ctx, flowPriority, indexZ3)
+    							cycle.slotStartZ3(ctx, numericFlowPriority, index),   
+    							cycle.slotDurationZ3(ctx, numericFlowPriority, index)
 							),
-    						cycle.slotStartZ3(ctx, flowPriority, ctx.mkInt(index + 1))
+    						cycle.slotStartZ3(ctx, flowPriority, index + 1)
     					)
         			);
                 }
@@ -316,42 +327,41 @@ public class Port implements Serializable {
                  */
                 	for(int prt = 0; prt < this.cycle.getNumOfPrts(); prt ++) {
                 		for(int auxIndex = 0; auxIndex < this.cycle.getNumOfSlots(prt); auxIndex++) {
-                        	IntExpr auxIndexZ3 = ctx.mkInt(auxIndex);
-                        	IntExpr auxFlowPriority = ctx.mkInt(prt);
+                        	IntExpr auxFlowPriority = z3Cache.mkInt(prt);
                         	
-                        	solver.add(
+                        	sink.add("guardBand",
                     			ctx.mkImplies(
                 					ctx.mkAnd(
 										ctx.mkGe(
-											cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
-											ctx.mkInt(0)
+											cycle.slotDurationZ3(ctx, prt, auxIndex),
+											z3Cache.mkInt(0)
 										),
 										ctx.mkGe(
-												cycle.slotDurationZ3(ctx, flowPriority, indexZ3),
-												ctx.mkInt(0)
+												cycle.slotDurationZ3(ctx, numericFlowPriority, index),
+												z3Cache.mkInt(0)
 										),
             							ctx.mkNot(
     											ctx.mkEq(auxFlowPriority, flowPriority)
     									),
             							ctx.mkNot(
         									ctx.mkEq(
-    											cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
+    											cycle.slotStartZ3(ctx, numericFlowPriority, index), 
     											ctx.mkAdd(
-    												cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
-    												cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
+    												cycle.slotDurationZ3(ctx, prt, auxIndex),
+    												cycle.slotStartZ3(ctx, prt, auxIndex)
     											)                                                
     										)
     									),
             							ctx.mkGt(
-        									cycle.slotStartZ3(ctx, flowPriority, indexZ3), 
-        									cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3)
+        									cycle.slotStartZ3(ctx, numericFlowPriority, index), 
+        									cycle.slotStartZ3(ctx, prt, auxIndex)
     									)
         							),
                 					ctx.mkGe(
-            							cycle.slotStartZ3(ctx, flowPriority, indexZ3),
+            							cycle.slotStartZ3(ctx, numericFlowPriority, index),
             							ctx.mkAdd(
-        									cycle.slotStartZ3(ctx, auxFlowPriority, auxIndexZ3),
-        									cycle.slotDurationZ3(ctx, auxFlowPriority, auxIndexZ3),
+        									cycle.slotStartZ3(ctx, prt, auxIndex),
+        									cycle.slotDurationZ3(ctx, prt, auxIndex),
         									gbSizeZ3
     									)   
         							)                        
@@ -378,7 +388,8 @@ public class Port implements Serializable {
      * @param flowFrag      A fragment of a flow that goes through this port
      */
     private void setupTimeSlots(Solver solver, Context ctx, FlowFragment flowFrag) {
-    	IntExpr indexZ3;
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+        ConstraintSink sink = ConstraintSink.of(ctx, solver);
     	
     	// If there is a flow assigned to the slot, slotDuration must be greater than transmission time
     	/*
@@ -403,22 +414,21 @@ public class Port implements Serializable {
 
     	for(int prt = 0; prt<this.cycle.getNumOfPrts(); prt++) {
 	    	for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	    		indexZ3 = ctx.mkInt(index);
 	    		
 		        // solver.add(ctx.mkGe(cycle.slotDurationZ3(ctx, flowFrag.getFlowPriority(), indexZ3), this.transmissionTimeZ3));
 		        
 		        // Every flow must have a priority (Priority assignment constraint)
-		        solver.add(ctx.mkGe(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(0))); 
-		        solver.add(ctx.mkLt(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(this.cycle.getNumOfPrts())));
+		        sink.add("priorityBounds", ctx.mkGe(flowFrag.getFragmentPriorityZ3(), z3Cache.mkInt(0))); 
+		        sink.add("priorityBounds", ctx.mkLt(flowFrag.getFragmentPriorityZ3(), z3Cache.mkInt(this.cycle.getNumOfPrts())));
 		        
 		        // Slot start must be <= cycle time - slot duration 
-		        solver.add(
+		        sink.add("slotInCycle",
 	        		ctx.mkImplies(
-        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), z3Cache.mkInt(prt)), 
 			            ctx.mkLe(
 			                ctx.mkAdd(
-			                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-			                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3)
+			                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+			                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index)
 			                ), 
 			                cycle.getCycleDurationZ3()
 			            )
@@ -442,6 +452,7 @@ public class Port implements Serializable {
      * @param flowFrag      A fragment of a flow that goes through this port
      */
     private void setupDevPacketTimes(Solver solver, Context ctx, FlowFragment flowFrag) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
     	
         // For the specified range of packets defined by [0, upperBoundRange],
         // apply the scheduling rules.
@@ -462,13 +473,12 @@ public class Port implements Serializable {
             solver.add( // Time to Transmit constraint.
                 ctx.mkGe(
                     this.scheduledTime(ctx, i, flowFrag),
-                    ctx.mkAdd(this.arrivalTime(ctx, i, flowFrag), ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3))
+                    ctx.mkAdd(this.arrivalTime(ctx, i, flowFrag), z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3))
                 )
             );
             
         }
         
-        IntExpr indexZ3 = null;
         Expr auxExp = null;
         Expr auxExp2 = ctx.mkTrue();
         Expr exp = null;
@@ -529,8 +539,8 @@ public class Port implements Serializable {
 	                                    this.scheduledTime(ctx, j, auxFragment),
 	                                    ctx.mkAdd(
 	                                        this.scheduledTime(ctx, i, flowFrag),
-	                                        ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3),
-	                                        ctx.mkDiv(this.interframeGapSizeZ3, this.portSpeedZ3)
+	                                        z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3),
+	                                        z3Cache.quotient(this.interframeGapSizeZ3, this.portSpeedZ3)
 	                                    )
 	                                )
 	                            )
@@ -550,7 +560,6 @@ public class Port implements Serializable {
 	                    */
 	                	
 	                	for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	                		indexZ3 = ctx.mkInt(index);
 	
 	                		/**/
 	                		auxExp2 = ctx.mkAnd((BoolExpr) auxExp2, // Arrived during a time slot predicate
@@ -560,17 +569,17 @@ public class Port implements Serializable {
 	                                            this.arrivalTime(ctx, i, flowFrag), 
 	                                            ctx.mkSub(
 	                                                ctx.mkAdd( 
-	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                                    cycle.cycleStartZ3(ctx, ctx.mkReal(j))
+	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                                    cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                                    cycle.cycleStartZ3(ctx, j)
 	                                                ), 
-	                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                                z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
 	                                            )
 	                                        ),
 	                                        ctx.mkGe(
 	                                            this.arrivalTime(ctx, i, flowFrag), 
 	                                            ctx.mkAdd( 
-	                                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
+	                                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
 	                                                cycle.cycleStartZ3(ctx, j)
 	                                            )
 	                                        )
@@ -579,7 +588,7 @@ public class Port implements Serializable {
 	                                        this.scheduledTime(ctx, i, flowFrag),
 	                                        ctx.mkAdd(
 	                                            this.arrivalTime(ctx, i, flowFrag),
-	                                            ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                            z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
 	                                        )
 	                                    )
 	                                )
@@ -603,7 +612,7 @@ public class Port implements Serializable {
 	                                            ctx.mkLt(
 	                                                this.arrivalTime(ctx, i, flowFrag), 
 	                                                ctx.mkAdd(
-	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3), 
+	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index), 
 	                                                    cycle.cycleStartZ3(ctx, j)
 	                                                )
 	                                            ),
@@ -616,10 +625,10 @@ public class Port implements Serializable {
 	                                            this.scheduledTime(ctx, i, flowFrag),
 	                                            ctx.mkAdd( 
 	                                                ctx.mkAdd(
-	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
+	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
 	                                                    cycle.cycleStartZ3(ctx, j)
 	                                                ),
-	                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                                z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
 	                                            )
 	                                            
 	                                        )
@@ -632,7 +641,7 @@ public class Port implements Serializable {
 	                                            ctx.mkLt(
 	                                                this.arrivalTime(ctx, i, flowFrag), 
 	                                                ctx.mkAdd(
-	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3), 
+	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index), 
 	                                                    cycle.cycleStartZ3(ctx, j)
 	                                                )
 	                                            ),
@@ -641,10 +650,10 @@ public class Port implements Serializable {
 	                                                ctx.mkSub(
 	                                            		ctx.mkAdd(
 	                                                		cycle.cycleStartZ3(ctx, j),
-	                                                		cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index - 1)),
-	                                                		cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), ctx.mkInt(index - 1))                                                    
+	                                                		cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index - 1),
+	                                                		cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index - 1)                                                    
 	                                            		),
-	                                            		ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                            		z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
 	                                        		)                                                
 	                                            )
 	                                        ),
@@ -652,10 +661,10 @@ public class Port implements Serializable {
 	                                            this.scheduledTime(ctx, i, flowFrag),
 	                                            ctx.mkAdd( 
 	                                                ctx.mkAdd(
-	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
+	                                                    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
 	                                                    cycle.cycleStartZ3(ctx, j)
 	                                                ),
-	                                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+	                                                z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
 	                                            )
 	                                            
 	                                        )
@@ -695,8 +704,8 @@ public class Port implements Serializable {
 	                                        ctx.mkLe( 
 	                                            this.scheduledTime(ctx, i, flowFrag),
 	                                            ctx.mkAdd(
-	                                      		    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
+	                                      		    cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
 	                                                cycle.cycleStartZ3(ctx, j)
 	                                            )
 	                                        )  
@@ -796,7 +805,7 @@ public class Port implements Serializable {
 
 	        solver.add(
 	        		ctx.mkImplies(
-	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), z3Cache.mkInt(prt)), 
 	        				(BoolExpr)exp
         			)
     		);
@@ -811,21 +820,20 @@ public class Port implements Serializable {
 	        for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
 	            for(int j = 0; j < this.cycleUpperBoundRange; j++) {
 	            	for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	            		indexZ3 = ctx.mkInt(index);
 	                    auxExp = ctx.mkAnd(
 	                             ctx.mkGe(
 		                            this.scheduledTime(ctx, i, flowFrag), 
 		                            ctx.mkAdd(
-		                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
+		                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
 		                                cycle.cycleStartZ3(ctx, j),
-		                                ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+		                                z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
 		                            )      
 	  	                        ),
 		                        ctx.mkLe(
 		                            this.scheduledTime(ctx, i, flowFrag), 
 		                            ctx.mkAdd(
-		                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-		                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
+		                                cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+		                                cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
 		                                cycle.cycleStartZ3(ctx, j)
 		                            )     
 		                        )                        
@@ -836,7 +844,7 @@ public class Port implements Serializable {
 	            }
 	            solver.add(
 	        		ctx.mkImplies(
-        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
+        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), z3Cache.mkInt(prt)), 
         				(BoolExpr) exp
     				)
 				);
@@ -852,75 +860,14 @@ public class Port implements Serializable {
                     this.scheduledTime(ctx, i + 1, flowFrag), 
                     ctx.mkAdd(
                             this.scheduledTime(ctx, i, flowFrag),
-                            ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
+                            z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3)
                     )
                 )
             );
         }
         /**/
 
-        Expr wtExp = null;
-        if(this.cycle.getWrapTransmission()){
-
-            for(int prt = 0; prt<this.cycle.getNumOfPrts(); prt++) {
-	            //A packet either ends at the start of another packet
-	            for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
-	                for (FlowFragment auxFlowFrag : this.flowFragments) {
-	                    for (int j = 0; j < this.definedHyperCycleSize/auxFlowFrag.getParent().getFlowSendingPeriodicity(); j++) {
-	
-	                        if(flowFrag.name.equals(auxFlowFrag.name) && i!=j){
-	                            continue;
-	                        }
-	
-	                        if(wtExp == null){
-	                            wtExp = ctx.mkImplies(
-	                                    ctx.mkEq(auxFlowFrag.getFragmentPriorityZ3(), flowFrag.getFragmentPriorityZ3()),
-	                                    ctx.mkEq(
-	                                        this.arrivalTime(ctx, j, auxFlowFrag),
-	                                        this.scheduledTime(ctx, i, flowFrag)
-	                                    )
-	                            );
-	                        } else {
-	                            wtExp = ctx.mkOr((BoolExpr) wtExp,
-	                                    ctx.mkImplies(
-	                                        ctx.mkEq(auxFlowFrag.getFragmentPriorityZ3(), flowFrag.getFragmentPriorityZ3()),
-	                                        ctx.mkEq(
-	                                            this.arrivalTime(ctx, j, auxFlowFrag),
-	                                            this.scheduledTime(ctx, i, flowFrag)
-	                                        )
-	                                    )
-	                            );
-	                        }
-	                    }
-	                }
-	
-	                //Or ends at the end of a cycle
-	                for(int j = 0; j < this.cycleUpperBoundRange; j++) {
-	                    for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
-	                        indexZ3 = ctx.mkInt(index);
-	                        wtExp = ctx.mkOr((BoolExpr) wtExp,
-	                                ctx.mkEq(
-	                                    this.scheduledTime(ctx, i, flowFrag),
-	                                    ctx.mkAdd(
-	                                        cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                        cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), indexZ3),
-	                                        cycle.cycleStartZ3(ctx, j)
-	                                    )
-	                                )
-	                        );
-	                    }
-	                }
-	            }
-	            if(wtExp != null){
-		            solver.add(
-		        		ctx.mkImplies(
-	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), ctx.mkInt(prt)), 
-	        				(BoolExpr) wtExp
-	    				)
-					);
-	            }
-        	}
-        }
+        this.setupWrapTransmission(solver, ctx, flowFrag);
 
 
         for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
@@ -1011,50 +958,13 @@ public class Port implements Serializable {
                 	if((flowFrag.equals(auxFlowFrag) && i == j)) {
                 		continue;
                 	} 
-                	solver.add( // Packet transmission order constraint
-                            ctx.mkImplies(
-                                ctx.mkAnd(
-                                    ctx.mkGt(
-                                        this.arrivalTime(ctx, i, flowFrag),
-                                        this.arrivalTime(ctx, j, auxFlowFrag)
-                                    ),
-                                    ctx.mkEq(
-                                        flowFrag.getFragmentPriorityZ3(), 
-                                        auxFlowFrag.getFragmentPriorityZ3()
-                                    )       
-                                ),
-                                ctx.mkGe(   		
-	                            	this.scheduledTime(ctx, i, flowFrag),   
-	                    			ctx.mkAdd( 
-	                    					this.scheduledTime(ctx, j, auxFlowFrag),
-	                    			        ctx.mkDiv(flowFrag.getPacketSizeZ3(), this.portSpeedZ3),
-		                                    ctx.mkDiv(this.interframeGapSizeZ3, this.portSpeedZ3)
-	                				)	                                
-	            				)
-	                        )
-                    );
-                	solver.add( // Packet transmission order constraint
-                        ctx.mkImplies(
-                            ctx.mkAnd(
-                                ctx.mkLe(
-                                    this.arrivalTime(ctx, i, flowFrag),
-                                    this.arrivalTime(ctx, j, auxFlowFrag)
-                                ),
-                                ctx.mkEq(
-                                    flowFrag.getFragmentPriorityZ3(), 
-                                    auxFlowFrag.getFragmentPriorityZ3()
-                                )       
-                            ),
-                            	ctx.mkLe(
-	                                this.scheduledTime(ctx, i, flowFrag),
-	                                ctx.mkSub(
-	                                    this.scheduledTime(ctx, j, auxFlowFrag),
-	                                    ctx.mkDiv(auxFlowFrag.getPacketSizeZ3(), this.portSpeedZ3),
-	                                    ctx.mkDiv(this.interframeGapSizeZ3, this.portSpeedZ3)
-	                                )
-            				)
-                        )
-                    );
+                	
+                	// Pairs of different fragments are only added when a schedule violates them
+                	if(this.lazyPairwiseRules && !flowFrag.equals(auxFlowFrag)) {
+                		continue;
+                	}
+                	
+                	this.addPacketOrderRules(solver, ctx, flowFrag, i, auxFlowFrag, j);
                     /*
                     if(!(flowFrag.equals(auxFlowFrag) && i == j)) {
                     	solver.add(	 
@@ -1075,6 +985,372 @@ public class Port implements Serializable {
     }
    
     
+    /**
+     * [Method]: addPacketOrderRules
+     * [Usage]: Adds the FIFO priority queue constraint of a pair of
+     * packets of this port: if both packets have the same priority, the
+     * first one to arrive is transmitted first. Used when setting up the
+     * rules of a fragment and, with lazy pairwise rules, when a schedule
+     * found by the solver transmits the pair out of order.
+     * 
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param flowFrag      Fragment of the first packet
+     * @param i             Index of the first packet
+     * @param auxFlowFrag   Fragment of the second packet
+     * @param j             Index of the second packet
+     */
+    public void addPacketOrderRules(Solver solver, Context ctx, FlowFragment flowFrag, int i, FlowFragment auxFlowFrag, int j) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+        
+        solver.add( // Packet transmission order constraint
+            ctx.mkImplies(
+                ctx.mkAnd(
+                    ctx.mkGt(
+                        this.arrivalTime(ctx, i, flowFrag),
+                        this.arrivalTime(ctx, j, auxFlowFrag)
+                    ),
+                    ctx.mkEq(
+                        flowFrag.getFragmentPriorityZ3(), 
+                        auxFlowFrag.getFragmentPriorityZ3()
+                    )       
+                ),
+                ctx.mkGe(
+                    this.scheduledTime(ctx, i, flowFrag),   
+                    ctx.mkAdd( 
+                        this.scheduledTime(ctx, j, auxFlowFrag),
+                        z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3),
+                        z3Cache.quotient(this.interframeGapSizeZ3, this.portSpeedZ3)
+                    )
+                )
+            )
+        );
+        solver.add( // Packet transmission order constraint
+            ctx.mkImplies(
+                ctx.mkAnd(
+                    ctx.mkLe(
+                        this.arrivalTime(ctx, i, flowFrag),
+                        this.arrivalTime(ctx, j, auxFlowFrag)
+                    ),
+                    ctx.mkEq(
+                        flowFrag.getFragmentPriorityZ3(), 
+                        auxFlowFrag.getFragmentPriorityZ3()
+                    )       
+                ),
+                ctx.mkLe(
+                    this.scheduledTime(ctx, i, flowFrag),
+                    ctx.mkSub(
+                        this.scheduledTime(ctx, j, auxFlowFrag),
+                        z3Cache.quotient(auxFlowFrag.getPacketSizeZ3(), this.portSpeedZ3),
+                        z3Cache.quotient(this.interframeGapSizeZ3, this.portSpeedZ3)
+                    )
+                )
+            )
+        );
+    }
+    
+    
+    /**
+     * [Method]: setupWrapTransmission
+     * [Usage]: If the cycle wraps transmissions, a packet must either end
+     * at the arrival of another packet of the same priority or at the end
+     * of a time slot.
+     * 
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param flowFrag      A fragment of a flow that goes through this port
+     */
+    private void setupWrapTransmission(Solver solver, Context ctx, FlowFragment flowFrag) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+        
+        Expr wtExp = null;
+        if(this.cycle.getWrapTransmission()){
+
+            for(int prt = 0; prt<this.cycle.getNumOfPrts(); prt++) {
+	            //A packet either ends at the start of another packet
+	            for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
+	                for (FlowFragment auxFlowFrag : this.flowFragments) {
+	                    for (int j = 0; j < this.definedHyperCycleSize/auxFlowFrag.getParent().getFlowSendingPeriodicity(); j++) {
+	
+	                        if(flowFrag.name.equals(auxFlowFrag.name) && i!=j){
+	                            continue;
+	                        }
+	
+	                        if(wtExp == null){
+	                            wtExp = ctx.mkImplies(
+	                                    ctx.mkEq(auxFlowFrag.getFragmentPriorityZ3(), flowFrag.getFragmentPriorityZ3()),
+	                                    ctx.mkEq(
+	                                        this.arrivalTime(ctx, j, auxFlowFrag),
+	                                        this.scheduledTime(ctx, i, flowFrag)
+	                                    )
+	                            );
+	                        } else {
+	                            wtExp = ctx.mkOr((BoolExpr) wtExp,
+	                                    ctx.mkImplies(
+	                                        ctx.mkEq(auxFlowFrag.getFragmentPriorityZ3(), flowFrag.getFragmentPriorityZ3()),
+	                                        ctx.mkEq(
+	                                            this.arrivalTime(ctx, j, auxFlowFrag),
+	                                            this.scheduledTime(ctx, i, flowFrag)
+	                                        )
+	                                    )
+	                            );
+	                        }
+	                    }
+	                }
+	
+	                //Or ends at the end of a cycle
+	                for(int j = 0; j < this.cycleUpperBoundRange; j++) {
+	                    for(int index = 0; index < this.cycle.getNumOfSlots(prt); index++) {
+	                        wtExp = ctx.mkOr((BoolExpr) wtExp,
+	                                ctx.mkEq(
+	                                    this.scheduledTime(ctx, i, flowFrag),
+	                                    ctx.mkAdd(
+	                                        cycle.slotStartZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                        cycle.slotDurationZ3(ctx, flowFrag.getFragmentPriorityZ3(), index),
+	                                        cycle.cycleStartZ3(ctx, j)
+	                                    )
+	                                )
+	                        );
+	                    }
+	                }
+	            }
+	            if(wtExp != null){
+		            solver.add(
+		        		ctx.mkImplies(
+	        				ctx.mkEq(flowFrag.getFragmentPriorityZ3(), z3Cache.mkInt(prt)), 
+	        				(BoolExpr) wtExp
+	    				)
+					);
+	            }
+        	}
+        }
+    }
+    
+    
+    /**
+     * [Method]: setupCompactDevPacketTimes
+     * [Usage]: Alternative to setupDevPacketTimes used by the compact
+     * encoding. Instead of enumerating every cycle and time slot for
+     * every pair of packets, each packet receives auxiliary variables
+     * for the cycle and slot in which it is transmitted. The rules that
+     * place a packet in its slot are then written only once over these
+     * variables, and the FIFO rules use a single ordering literal for
+     * each pair of packets, so the number and depth of the assertions
+     * grow linearly with the number of cycles and slots.
+     * 
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param flowFrag      A fragment of a flow that goes through this port
+     */
+    private void setupCompactDevPacketTimes(Solver solver, Context ctx, FlowFragment flowFrag) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+        IntExpr fragmentPriority = flowFrag.getFragmentPriorityZ3();
+        RealExpr transmissionTime = z3Cache.quotient(flowFrag.getPacketSizeZ3(), this.portSpeedZ3);
+        RealExpr interframeGap = z3Cache.quotient(this.interframeGapSizeZ3, this.portSpeedZ3);
+        int maxNumOfSlots = 0;
+        
+        for(int prt = 0; prt < this.cycle.getNumOfPrts(); prt++) {
+        	maxNumOfSlots = Math.max(maxNumOfSlots, this.cycle.getNumOfSlots(prt));
+        }
+        
+        for(int i = 0; i < flowFrag.getNumOfPacketsSent(); i++) {
+        	ArrayList<BoolExpr> rules = new ArrayList<BoolExpr>();
+        	String packetName = flowFrag.getName() + "Packet" + i;
+        	RealExpr arrivalTime = this.arrivalTime(ctx, i, flowFrag);
+        	RealExpr scheduledTime = this.scheduledTime(ctx, i, flowFrag);
+        	
+        	IntExpr cycleIndex = ctx.mkIntConst(packetName + "CycleIndex");
+        	IntExpr slotIndex = ctx.mkIntConst(packetName + "SlotIndex");
+        	RealExpr cycleStart = ctx.mkRealConst(packetName + "CycleStart");
+        	RealExpr slotStart = ctx.mkRealConst(packetName + "SlotStart");
+        	RealExpr slotDuration = ctx.mkRealConst(packetName + "SlotDuration");
+        	RealExpr previousSlotEnd = ctx.mkRealConst(packetName + "PreviousSlotEnd");
+        	
+        	// Time to Transmit constraint
+        	rules.add(ctx.mkGe(scheduledTime, ctx.mkAdd(arrivalTime, transmissionTime)));
+        	
+        	// The cycle index of the packet selects the start of its cycle
+        	rules.add(ctx.mkGe(cycleIndex, z3Cache.mkInt(0)));
+        	rules.add(ctx.mkLt(cycleIndex, z3Cache.mkInt(this.cycleUpperBoundRange)));
+        	for(int j = 0; j < this.cycleUpperBoundRange; j++) {
+        		rules.add(
+    				ctx.mkImplies(
+						ctx.mkEq(cycleIndex, z3Cache.mkInt(j)), 
+						ctx.mkEq(cycleStart, cycle.cycleStartZ3(ctx, j))
+					)
+				);
+        	}
+        	
+        	// The slot index of the packet selects its time slot and the end of the previous one
+        	rules.add(ctx.mkGe(slotIndex, z3Cache.mkInt(0)));
+        	rules.add(ctx.mkLt(slotIndex, z3Cache.mkInt(maxNumOfSlots)));
+        	for(int prt = 0; prt < this.cycle.getNumOfPrts(); prt++) {
+        		if(this.cycle.getNumOfSlots(prt) < maxNumOfSlots) {
+        			rules.add(
+    					ctx.mkImplies(
+							ctx.mkEq(fragmentPriority, z3Cache.mkInt(prt)), 
+							ctx.mkLt(slotIndex, z3Cache.mkInt(this.cycle.getNumOfSlots(prt)))
+						)
+					);
+        		}
+        	}
+        	for(int index = 0; index < maxNumOfSlots; index++) {
+        		rules.add(
+    				ctx.mkImplies(
+						ctx.mkEq(slotIndex, z3Cache.mkInt(index)), 
+						ctx.mkAnd(
+							ctx.mkEq(slotStart, cycle.slotStartZ3(ctx, fragmentPriority, index)),
+							ctx.mkEq(slotDuration, cycle.slotDurationZ3(ctx, fragmentPriority, index)),
+							ctx.mkEq(
+								previousSlotEnd, 
+								index == 0 ? 
+									z3Cache.mkReal(0) : 
+									ctx.mkAdd(
+										cycle.slotStartZ3(ctx, fragmentPriority, index - 1),
+										cycle.slotDurationZ3(ctx, fragmentPriority, index - 1)
+									)
+							)
+						)
+					)
+				);
+        	}
+        	
+        	// Every packet must be transmitted inside its time slot
+        	rules.add(
+    			ctx.mkGe(
+					scheduledTime, 
+					ctx.mkAdd(cycleStart, slotStart, transmissionTime)
+				)
+			);
+        	rules.add(
+    			ctx.mkLe(
+					scheduledTime, 
+					ctx.mkAdd(cycleStart, slotStart, slotDuration)
+				)
+			);
+        	
+        	// The slot is the first one after the arrival in which the packet fits
+        	rules.add(
+    			ctx.mkGt(
+					arrivalTime, 
+					ctx.mkSub(ctx.mkAdd(cycleStart, previousSlotEnd), transmissionTime)
+				)
+			);
+        	
+        	/*
+        	 * The packet is transmitted as soon as it arrives or as soon as its
+        	 * slot opens, unless it is followed by another packet of the same
+        	 * priority (same base cases and exception of setupDevPacketTimes)
+        	 */
+        	BoolExpr transmittedOnArrival = (BoolExpr) ctx.mkITE(
+    			ctx.mkGe(arrivalTime, ctx.mkAdd(cycleStart, slotStart)),
+    			ctx.mkEq(scheduledTime, ctx.mkAdd(arrivalTime, transmissionTime)),
+    			ctx.mkEq(scheduledTime, ctx.mkAdd(cycleStart, slotStart, transmissionTime))
+			);
+        	
+        	for(FlowFragment auxFragment : this.flowFragments) {
+        		ArrayList<BoolExpr> followedBy = new ArrayList<BoolExpr>();
+        		followedBy.add(transmittedOnArrival);
+        		
+        		for(int j = 0; j < auxFragment.getNumOfPacketsSent(); j++) {
+        			if(auxFragment == flowFrag && i == j) {
+        				continue;
+        			}
+        			
+        			followedBy.add(
+    					ctx.mkAnd(
+							ctx.mkEq(auxFragment.getFragmentPriorityZ3(), fragmentPriority),
+							ctx.mkLe(arrivalTime, this.arrivalTime(ctx, j, auxFragment)),
+							ctx.mkEq(
+								this.scheduledTime(ctx, j, auxFragment),
+								ctx.mkAdd(scheduledTime, transmissionTime, interframeGap)
+							)
+						)
+					);
+        		}
+        		
+        		rules.add(ctx.mkOr(followedBy.toArray(new BoolExpr[0])));
+        	}
+        	
+        	if(i < flowFrag.getNumOfPacketsSent() - 1) {
+        		rules.add(
+    				ctx.mkGe(
+						this.scheduledTime(ctx, i + 1, flowFrag), 
+						ctx.mkAdd(scheduledTime, transmissionTime)
+					)
+				);
+        	}
+        	
+        	/*
+        	 * FIFO priority queue constraint. Each pair of packets is visited
+        	 * only once and receives a literal stating which one arrives first.
+        	 * The other direction is stated on the arrival times instead of the
+        	 * negation of the literal, so packets of the same priority arriving
+        	 * at the same time are ruled out, as in the standard encoding.
+        	 */
+        	for(FlowFragment auxFragment : this.flowFragments) {
+        		if(!this.isPairOwner(flowFrag, auxFragment) || (this.lazyPairwiseRules && auxFragment != flowFrag)) {
+        			continue;
+        		}
+        		
+        		RealExpr auxTransmissionTime = z3Cache.quotient(auxFragment.getPacketSizeZ3(), this.portSpeedZ3);
+        		
+        		for(int j = (auxFragment == flowFrag ? i + 1 : 0); j < auxFragment.getNumOfPacketsSent(); j++) {
+        			BoolExpr arrivesFirst = ctx.mkBoolConst(packetName + "Before" + auxFragment.getName() + "Packet" + j);
+        			BoolExpr samePriority = ctx.mkEq(fragmentPriority, auxFragment.getFragmentPriorityZ3());
+        			
+        			rules.add(ctx.mkEq(arrivesFirst, ctx.mkLe(arrivalTime, this.arrivalTime(ctx, j, auxFragment))));
+        			rules.add(
+    					ctx.mkImplies(
+							ctx.mkAnd(samePriority, arrivesFirst),
+							ctx.mkGe(
+								this.scheduledTime(ctx, j, auxFragment), 
+								ctx.mkAdd(scheduledTime, auxTransmissionTime, interframeGap)
+							)
+						)
+					);
+        			rules.add(
+    					ctx.mkImplies(
+							ctx.mkAnd(samePriority, ctx.mkLe(this.arrivalTime(ctx, j, auxFragment), arrivalTime)),
+							ctx.mkGe(
+								scheduledTime, 
+								ctx.mkAdd(this.scheduledTime(ctx, j, auxFragment), transmissionTime, interframeGap)
+							)
+						)
+					);
+        		}
+        	}
+        	
+        	solver.add(rules.toArray(new BoolExpr[0]));
+        }
+        
+        this.setupWrapTransmission(solver, ctx, flowFrag);
+    }
+    
+    /**
+     * [Method]: isPairOwner
+     * [Usage]: Used by the compact encoding to visit each pair of
+     * fragments of the port only once. The pair is set up by the fragment
+     * that comes first on the list of fragments, unless the other one is
+     * not having its rules set in this run (incremental scheduling).
+     * 
+     * @param flowFrag      Fragment having its rules set
+     * @param auxFragment   Other fragment of the pair
+     * @return              True if the pair must be set up now
+     */
+    private boolean isPairOwner(FlowFragment flowFrag, FlowFragment auxFragment) {
+    	if(flowFrag == auxFragment) {
+    		return true;
+    	}
+    	
+    	if(this.isIncremental && auxFragment.getParent().getModificationType() != NetworkProperties.INCREMENTFLOW) {
+    		return true;
+    	}
+    	
+    	return this.flowFragments.indexOf(auxFragment) > this.flowFragments.indexOf(flowFrag);
+    }
+   
+    
     /**
      * [Method]: setupBestEffort
      * [Usage]: Use in order to enable the best effort traffic reservation
@@ -1368,23 +1644,25 @@ public class Port implements Serializable {
      * @param ctx		Context object for the solver
      */
     public void bindTimeSlots(Solver solver, Context ctx) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+        ConstraintSink sink = ConstraintSink.of(ctx, solver);
     	
     	// Ideia = se a prioridade de um flow e' igual a um numero, 
     	// ctx.mkeq nele com o slot the cycle (getSlotS/D(prt, slotnum))
     	for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
     		for(FlowFragment frag : this.flowFragments) {	
         		for(int slotIndex = 0; slotIndex < this.cycle.getNumOfSlots(prtIndex); slotIndex++) {
-        			solver.add(
+        			sink.add("bindTimeSlots",
         				ctx.mkImplies(
-        					ctx.mkEq(frag.getFragmentPriorityZ3(), ctx.mkInt(prtIndex)),
+        					ctx.mkEq(frag.getFragmentPriorityZ3(), z3Cache.mkInt(prtIndex)),
         					ctx.mkAnd(
     							ctx.mkEq(
-									cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(slotIndex)), 
-									cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), ctx.mkInt(slotIndex)) 
+									cycle.slotStartZ3(ctx, frag.getFragmentPriorityZ3(), slotIndex), 
+									cycle.slotStartZ3(ctx, prtIndex, slotIndex) 
 								),
     							ctx.mkEq(
-									cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), ctx.mkInt(slotIndex)), 
-									cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), ctx.mkInt(slotIndex)) 
+									cycle.slotDurationZ3(ctx, frag.getFragmentPriorityZ3(), slotIndex), 
+									cycle.slotDurationZ3(ctx, prtIndex, slotIndex) 
 								)
 							)
         				)	
@@ -1427,24 +1705,64 @@ public class Port implements Serializable {
     	
     }
     
+    /**
+     * [Method]: setUpBounds
+     * [Usage]: Sets the number of packets and cycles covered by the
+     * rules of this port. With hyper cycles, every packet of the hyper
+     * cycle is in a single cycle. With micro cycles, the hyper cycle is
+     * covered by micro cycles. Otherwise, packets are limited by the cap
+     * and the cycles are enough to cover the first sending offset,
+     * periods and latency of the flows from the first cycle on, given
+     * the minimum cycle duration.
+     * 
+     * @param packetCap		Maximum number of packets per fragment
+     * @param cycleCap		Maximum number of cycles
+     */
+    public void setUpBounds(int packetCap, int cycleCap) {
+    	if(this.listOfPeriods.isEmpty() || this.useMicroCycles || this.useHyperCycle) {
+    		return;
+    	}
+    	
+    	this.packetUpperBoundRange = packetCap;
+    	
+    	if(this.cycle.getLowerBoundCycleTime() <= 0) {
+    		this.cycleUpperBoundRange = cycleCap;
+    		return;
+    	}
+    	
+    	double span = this.maximumFlowOffset + (packetCap - 1) * Collections.max(this.listOfPeriods) + this.maximumFlowLatency;
+    	
+    	// One cycle for the offset of the first packet in its cycle, one for the last partial cycle
+    	int numOfCycles = (int) Math.ceil(span / this.cycle.getLowerBoundCycleTime()) + 2;
+    	
+    	this.cycleUpperBoundRange = Math.max(1, Math.min(cycleCap, numOfCycles));
+    }
+    
     /**
      * [Method]: zeroOutNonUsedSlots
      * [Usage]: Iterates over the slots adding a constraint that states that
      * if no packet its transmitted inside it, its size must be 0. Can be used
-     * to filter out non-used slots and avoid losing bandwidth.
+     * to filter out non-used slots and avoid losing bandwidth. If slot
+     * indicators are enabled, the rules are created by
+     * zeroOutNonUsedSlotsWithIndicators instead.
      * 
-     * @param solver
-     * @param ctx
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
      */
 	public void zeroOutNonUsedSlots(Solver solver, Context ctx) {
+		Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
 
 		if(this.useMicroCycles) {
 			return;
 		}
 
+		if(this.useSlotIndicators) {
+			this.zeroOutNonUsedSlotsWithIndicators(solver, ctx);
+			return;
+		}
+
 		BoolExpr exp1;
 		BoolExpr exp2;
-		IntExpr indexZ3;
 
 
 		int count = 0;
@@ -1475,7 +1793,6 @@ public class Port implements Serializable {
 
 		for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
 			for (int indexNum = 0; indexNum < this.cycle.getNumOfSlots(prtIndex); indexNum++) {
-				indexZ3 = ctx.mkInt(indexNum);
 				exp1 = ctx.mkFalse();
 				for (FlowFragment frag : this.flowFragments) {
 					count += 1;
@@ -1490,19 +1807,19 @@ public class Port implements Serializable {
 											ctx.mkGe(
 													ctx.mkSub(
 															this.scheduledTime(ctx, packetNum, frag),
-															ctx.mkDiv(frag.getPacketSizeZ3(), this.portSpeedZ3)
+															z3Cache.quotient(frag.getPacketSizeZ3(), this.portSpeedZ3)
 													),
 													ctx.mkAdd(
-															cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-															cycle.cycleStartZ3(ctx, ctx.mkReal(cycleNum))
+															cycle.slotStartZ3(ctx, prtIndex, indexNum),
+															cycle.cycleStartZ3(ctx, cycleNum)
 													)
 											),
 											ctx.mkLe(
 													this.scheduledTime(ctx, packetNum, frag),
 													ctx.mkAdd(
-															cycle.slotStartZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-															cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), indexZ3),
-															cycle.cycleStartZ3(ctx, ctx.mkReal(cycleNum))
+															cycle.slotStartZ3(ctx, prtIndex, indexNum),
+															cycle.slotDurationZ3(ctx, prtIndex, indexNum),
+															cycle.cycleStartZ3(ctx, cycleNum)
 													)
 											)
 									)
@@ -1519,7 +1836,7 @@ public class Port implements Serializable {
 				solver.add(
 						ctx.mkImplies(
 								ctx.mkNot(exp1),
-								ctx.mkEq(cycle.slotDurationZ3(ctx, ctx.mkInt(prtIndex), indexZ3), ctx.mkReal(0))
+								ctx.mkEq(cycle.slotDurationZ3(ctx, prtIndex, indexNum), z3Cache.mkReal(0))
 						)
 				);
 
@@ -1530,118 +1847,218 @@ public class Port implements Serializable {
 
 	}
 
-	public void setBufferLimitation(Solver solver, Context ctx){
+    /**
+     * [Method]: zeroOutNonUsedSlotsWithIndicators
+     * [Usage]: Same rule as zeroOutNonUsedSlots, used when slot indicators
+     * are enabled. Each packet is assigned to a slot index and a cycle, and
+     * each slot has a "used" indicator that can only be true if a packet
+     * of its priority is assigned to it. The slots and the assignments are
+     * reached through z3 functions indexed by priority, slot index and
+     * packet, so the number of rules grows linearly with the number of
+     * packets and slots instead of with their product.
+     * 
+     * @param solver        z3 solver object used to discover the variables' values
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     */
+	private void zeroOutNonUsedSlotsWithIndicators(Solver solver, Context ctx) {
+		Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
 
-		//General idea: There are two values A and B. If more than X packages arrive before A
-		//and leave before B, than the constraint is not respected.
+		FuncDecl slotStartOf = ctx.mkFuncDecl(this.name + "SlotStartOf", new Sort[] {ctx.getIntSort(), ctx.getIntSort()}, ctx.getRealSort());
+		FuncDecl slotDurationOf = ctx.mkFuncDecl(this.name + "SlotDurationOf", new Sort[] {ctx.getIntSort(), ctx.getIntSort()}, ctx.getRealSort());
+		FuncDecl priorityOfPacket = ctx.mkFuncDecl(this.name + "PriorityOfPacket", ctx.getIntSort(), ctx.getIntSort());
+		FuncDecl slotOfPacket = ctx.mkFuncDecl(this.name + "SlotOfPacket", ctx.getIntSort(), ctx.getIntSort());
 
-		//More specific idea: there should not exist a value A such that A is greater than the
-		//arrival time of x packages and smaller than the scheduled time of these x packages,
-		//Can be universal (shared memory buffer) or can be divided by priority (buffer per prt).
+		// The functions of the slots give the slot variables of the cycle
+		for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
+			for(int indexNum = 0; indexNum < this.cycle.getNumOfSlots(prtIndex); indexNum++) {
+				solver.add(
+					ctx.mkEq(
+						ctx.mkApp(slotStartOf, z3Cache.mkInt(prtIndex), z3Cache.mkInt(indexNum)),
+						cycle.slotStartZ3(ctx, prtIndex, indexNum)
+					)
+				);
+				solver.add(
+					ctx.mkEq(
+						ctx.mkApp(slotDurationOf, z3Cache.mkInt(prtIndex), z3Cache.mkInt(indexNum)),
+						cycle.slotDurationZ3(ctx, prtIndex, indexNum)
+					)
+				);
+			}
+		}
 
-		if(this.bufferSizeLimitation <= 0){
-			return;
+		// Each packet is transmitted inside the slot and the cycle assigned to it
+		int packetId = 0;
+
+		for (FlowFragment frag : this.flowFragments) {
+			for (int packetNum = 0; packetNum < frag.getNumOfPacketsSent(); packetNum++) {
+				IntExpr slotIndex = ctx.mkIntConst(frag.getName() + "SlotOfPacket" + packetNum);
+				RealExpr cycleStart = cycle.getFirstCycleStartZ3();
+
+				if(this.cycleUpperBoundRange > 1) {
+					BoolExpr inSomeCycle = ctx.mkFalse();
+
+					cycleStart = ctx.mkRealConst(frag.getName() + "CycleStartOfPacket" + packetNum);
+
+					for (int cycleNum = 0; cycleNum < this.cycleUpperBoundRange; cycleNum++) {
+						inSomeCycle = ctx.mkOr(inSomeCycle, ctx.mkEq(cycleStart, cycle.cycleStartZ3(ctx, cycleNum)));
+					}
+
+					solver.add(inSomeCycle);
+				}
+
+				solver.add(ctx.mkGe(slotIndex, z3Cache.mkInt(0)));
+
+				for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
+					solver.add(
+						ctx.mkImplies(
+							ctx.mkEq(frag.getFragmentPriorityZ3(), z3Cache.mkInt(prtIndex)),
+							ctx.mkLt(slotIndex, z3Cache.mkInt(this.cycle.getNumOfSlots(prtIndex)))
+						)
+					);
+				}
+
+				solver.add(ctx.mkEq(ctx.mkApp(priorityOfPacket, z3Cache.mkInt(packetId)), frag.getFragmentPriorityZ3()));
+				solver.add(ctx.mkEq(ctx.mkApp(slotOfPacket, z3Cache.mkInt(packetId)), slotIndex));
+
+				solver.add(
+					ctx.mkGe(
+						ctx.mkSub(
+							this.scheduledTime(ctx, packetNum, frag),
+							z3Cache.quotient(frag.getPacketSizeZ3(), this.portSpeedZ3)
+						),
+						ctx.mkAdd(
+							(RealExpr) ctx.mkApp(slotStartOf, frag.getFragmentPriorityZ3(), slotIndex),
+							cycleStart
+						)
+					)
+				);
+				solver.add(
+					ctx.mkLe(
+						this.scheduledTime(ctx, packetNum, frag),
+						ctx.mkAdd(
+							(RealExpr) ctx.mkApp(slotStartOf, frag.getFragmentPriorityZ3(), slotIndex),
+							(RealExpr) ctx.mkApp(slotDurationOf, frag.getFragmentPriorityZ3(), slotIndex),
+							cycleStart
+						)
+					)
+				);
+
+				packetId++;
+			}
 		}
 
-		int numOfScheduledPackages = 0;
+		// A slot is only used if a packet of its priority is assigned to it, otherwise its size is 0
+		for(int prtIndex = 0; prtIndex < this.cycle.getNumOfPrts(); prtIndex++) {
+			for (int indexNum = 0; indexNum < this.cycle.getNumOfSlots(prtIndex); indexNum++) {
+				BoolExpr slotUsed = ctx.mkBoolConst(this.name + "Priority" + prtIndex + "Slot" + indexNum + "Used");
+				IntExpr packetInSlot = ctx.mkIntConst(this.name + "Priority" + prtIndex + "Slot" + indexNum + "Packet");
+
+				solver.add(
+					ctx.mkImplies(
+						slotUsed,
+						ctx.mkAnd(
+							ctx.mkGe(packetInSlot, z3Cache.mkInt(0)),
+							ctx.mkLt(packetInSlot, z3Cache.mkInt(packetId)),
+							ctx.mkEq(ctx.mkApp(priorityOfPacket, packetInSlot), z3Cache.mkInt(prtIndex)),
+							ctx.mkEq(ctx.mkApp(slotOfPacket, packetInSlot), z3Cache.mkInt(indexNum))
+						)
+					)
+				);
 
-		for(FlowFragment frag : this.flowFragments){
-			numOfScheduledPackages += frag.getNumOfPacketsSent();
+				solver.add(
+					ctx.mkImplies(
+						ctx.mkNot(slotUsed),
+						ctx.mkEq(cycle.slotDurationZ3(ctx, prtIndex, indexNum), z3Cache.mkReal(0))
+					)
+				);
+			}
 		}
 
-		if(numOfScheduledPackages < this.bufferSizeLimitation){
+	}
+
+	/**
+	 * [Method]: setBufferLimitation
+	 * [Usage]: Limits the number of packets waiting in the buffer of this
+	 * port. A packet waits from its arrival until it is scheduled, so the
+	 * buffer is the fullest right when a packet arrives. For each packet,
+	 * the other packets that arrived until then and are scheduled after
+	 * its arrival are counted, and the count plus the packet itself can
+	 * not go over the buffer size. A buffer size per priority only counts
+	 * the packets of that priority.
+	 * 
+	 * @param solver        z3 solver object used to discover the variables' values
+	 * @param ctx           z3 context which specify the environment of constants, functions and variables
+	 */
+	public void setBufferLimitation(Solver solver, Context ctx){
+		Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+
+		if(this.bufferSizeLimitation <= 0 && this.bufferSizePerPriority.isEmpty()){
 			return;
 		}
 
 		ArrayList<RealExpr> listOfArrivalTimes = new ArrayList<RealExpr>();
 		ArrayList<RealExpr> listOfScheduledTimes = new ArrayList<RealExpr>();
-		ArrayList<RealExpr> tempListOfArrivalTimes = new ArrayList<RealExpr>();
-		ArrayList<RealExpr> tempListOfScheduledTimes = new ArrayList<RealExpr>();
-		RealExpr intersectionPoint = ctx.mkRealConst(this.name + "IntersectionPoint");
+		ArrayList<IntExpr> listOfPriorities = new ArrayList<IntExpr>();
 
 		for(FlowFragment frag : this.flowFragments) {
 			for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
 				listOfArrivalTimes.add(this.arrivalTime(ctx, i, frag));
 				listOfScheduledTimes.add(this.scheduledTime(ctx, i, frag));
+				listOfPriorities.add(frag.getFragmentPriorityZ3());
 			}
 		}
 
-		for(int i = 0; i < listOfArrivalTimes.size(); i++){
-			tempListOfArrivalTimes.add(ctx.mkRealConst(this.name + "TempArrivalTime" + i));
-			tempListOfScheduledTimes.add(ctx.mkRealConst(this.name + "TempScheduledTime" + i));
-		}
+		int numOfScheduledPackages = listOfArrivalTimes.size();
 
-		BoolExpr fullEquivalenceConstraint = ctx.mkTrue();
-		BoolExpr equivalenceOfTempArrivalTimes = ctx.mkFalse();
-		BoolExpr noRepeatedTimeVariable = ctx.mkTrue();
-		BoolExpr orderedArrivalTimes = ctx.mkTrue();
-		BoolExpr notExistsIntersectionPoint = ctx.mkTrue();
-
-		for(int j = 0; j<tempListOfArrivalTimes.size(); j++) {
-			for(int i = 0; i<listOfArrivalTimes.size(); i++) {
-				equivalenceOfTempArrivalTimes = ctx.mkOr(
-					equivalenceOfTempArrivalTimes,
-					ctx.mkAnd(
-						ctx.mkEq(tempListOfArrivalTimes.get(j), listOfArrivalTimes.get(i)),
-						ctx.mkEq(tempListOfScheduledTimes.get(j), listOfScheduledTimes.get(i))
-					)
+		for(int i = 0; i < numOfScheduledPackages; i++) {
+			BoolExpr[] waitingPackets = new BoolExpr[numOfScheduledPackages - 1];
+			int index = 0;
+
+			// Packet j is in the buffer when packet i arrives
+			for(int j = 0; j < numOfScheduledPackages; j++) {
+				if(i == j) {
+					continue;
+				}
+
+				waitingPackets[index++] = ctx.mkAnd(
+					ctx.mkLe(listOfArrivalTimes.get(j), listOfArrivalTimes.get(i)),
+					ctx.mkGt(listOfScheduledTimes.get(j), listOfArrivalTimes.get(i))
 				);
 			}
 
-			fullEquivalenceConstraint = ctx.mkAnd(fullEquivalenceConstraint, equivalenceOfTempArrivalTimes);
-			equivalenceOfTempArrivalTimes = ctx.mkFalse();
-		}
+			if(this.bufferSizeLimitation > 0 && numOfScheduledPackages > this.bufferSizeLimitation) {
+				solver.add(ctx.mkAtMost(waitingPackets, this.bufferSizeLimitation - 1));
+			}
 
-		for(int i = 0; i<tempListOfArrivalTimes.size() - 1; i++) {
-			orderedArrivalTimes = ctx.mkAnd(
-				orderedArrivalTimes,
-				ctx.mkGe(
-					tempListOfArrivalTimes.get(i+1),
-					tempListOfArrivalTimes.get(i)
-				)
-			);
-		}
+			for(int prt = 0; prt < this.bufferSizePerPriority.size(); prt++) {
+				int limit = this.bufferSizePerPriority.get(prt);
 
-		for(int i = 0; i < tempListOfArrivalTimes.size(); i++) {
-			for(int j = 0; j < tempListOfArrivalTimes.size(); j++) {
-				if (i == j)
+				if(limit <= 0 || numOfScheduledPackages <= limit) {
 					continue;
+				}
 
-				noRepeatedTimeVariable = ctx.mkAnd(
-					noRepeatedTimeVariable,
-					ctx.mkAnd(
-						//ctx.mkNot(ctx.mkEq(tempListOfArrivalTimes.get(i),tempListOfArrivalTimes.get(j))),
-						ctx.mkNot(ctx.mkEq(tempListOfScheduledTimes.get(i),tempListOfScheduledTimes.get(j)))
-					)
-				);
+				BoolExpr[] waitingPacketsOfPriority = new BoolExpr[numOfScheduledPackages - 1];
+				index = 0;
 
-			}
-		}
-
-		for (int j = 0; j<tempListOfArrivalTimes.size() - this.bufferSizeLimitation; j++){
-			notExistsIntersectionPoint = ctx.mkTrue();
+				for(int j = 0; j < numOfScheduledPackages; j++) {
+					if(i == j) {
+						continue;
+					}
 
-			intersectionPoint = ctx.mkRealConst(this.name + "IntersectionPoint" + j);
+					waitingPacketsOfPriority[index] = ctx.mkAnd(
+						waitingPackets[index],
+						ctx.mkEq(listOfPriorities.get(j), z3Cache.mkInt(prt))
+					);
+					index++;
+				}
 
-			for (int i = j; i<this.bufferSizeLimitation; i++){
-				notExistsIntersectionPoint = ctx.mkAnd(
-						notExistsIntersectionPoint,
-						ctx.mkGe(intersectionPoint, tempListOfArrivalTimes.get(i)),
-						ctx.mkLe(intersectionPoint, tempListOfScheduledTimes.get(i))
+				solver.add(
+					ctx.mkImplies(
+						ctx.mkEq(listOfPriorities.get(i), z3Cache.mkInt(prt)),
+						ctx.mkAtMost(waitingPacketsOfPriority, limit - 1)
+					)
 				);
 			}
-
-			solver.add(
-					ctx.mkNot(
-						ctx.mkAnd(
-								fullEquivalenceConstraint,
-								orderedArrivalTimes,
-								noRepeatedTimeVariable,
-								notExistsIntersectionPoint
-						)
-					)
-			);
-
 		}
 
 	}
@@ -1656,6 +2073,7 @@ public class Port implements Serializable {
      * @param ctx           z3 context which specify the environment of constants, functions and variables
      */
     public void setupSchedulingRules(Solver solver, Context ctx) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
 
     	this.isIncremental = this.checkIfHasIncrement();
     	
@@ -1667,7 +2085,7 @@ public class Port implements Serializable {
     	
     	if (this.flowFragments.size() == 0) {
     		solver.add(ctx.mkEq( 
-                ctx.mkReal(Double.toString(0)), 
+                z3Cache.mkReal(0), 
                 this.cycle.getCycleDurationZ3()
             ));
     		
@@ -1693,7 +2111,12 @@ public class Port implements Serializable {
         	}
 
             setupTimeSlots(solver, ctx, flowFrag);
-            setupDevPacketTimes(solver, ctx, flowFrag);
+            
+            if(this.encodingMode == EncodingMode.COMPACT) {
+            	setupCompactDevPacketTimes(solver, ctx, flowFrag);
+            } else {
+            	setupDevPacketTimes(solver, ctx, flowFrag);
+            }
         }
         
         /*
@@ -1705,13 +2128,14 @@ public class Port implements Serializable {
     }
     
     private void setUpCycleZ3(Solver solver, Context ctx) {
+        Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
     	if(useMicroCycles && this.listOfPeriods.size() > 0) {
             solver.add(
-	            ctx.mkEq(this.cycle.getCycleDurationZ3(), ctx.mkReal(Double.toString(this.microCycleSize)))
+	            ctx.mkEq(this.cycle.getCycleDurationZ3(), z3Cache.mkReal(this.microCycleSize))
 	        );
         } else if (useHyperCycle && this.listOfPeriods.size() > 0) {
         	solver.add(
-	            ctx.mkEq(this.cycle.getCycleDurationZ3(), ctx.mkReal(Double.toString(this.definedHyperCycleSize)))
+	            ctx.mkEq(this.cycle.getCycleDurationZ3(), z3Cache.mkReal(this.definedHyperCycleSize))
 	        );
         }
 
@@ -1727,7 +2151,7 @@ public class Port implements Serializable {
 		if(this.cycle.getCycleStart() > -1){
 			solver.add(
 				ctx.mkEq( // Equal cycle constraints
-					ctx.mkReal(Double.toString(this.cycle.getCycleStart())),
+					z3Cache.mkReal(this.cycle.getCycleStart()),
 					this.getCycle().getFirstCycleStartZ3()
 				)
 			);
@@ -1762,7 +2186,7 @@ public class Port implements Serializable {
     public RealExpr departureTime(Context ctx, IntExpr index, FlowFragment flowFrag){
                 
         // If the index is 0, then its the first departure time, else add index * periodicity
-        return this.departureTime(ctx, (Integer.parseInt(index.toString())), flowFrag);
+        return this.departureTime(ctx, ((IntNum) index).getInt(), flowFrag);
         
         /*
         return (RealExpr) ctx.mkITE( 
@@ -1787,11 +2211,11 @@ public class Port implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-    	IntExpr index = null;
     	RealExpr departureTime;
     	int cycleNum = 0;
         
         if(auxIndex + 1 > flowFrag.getNumOfPacketsSent()) {
+        	Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
 
 			cycleNum = (auxIndex - (auxIndex % flowFrag.getNumOfPacketsSent()))/flowFrag.getNumOfPacketsSent();
 
@@ -1801,10 +2225,10 @@ public class Port implements Serializable {
         			ctx.mkAdd(
     					flowFrag.getDepartureTimeZ3(auxIndex), 
     					ctx.mkMul(
-                            ctx.mkReal(cycleNum),
+                            z3Cache.mkReal(cycleNum),
                             ctx.mkMul(
                                 this.cycle.getCycleDurationZ3(),
-                                ctx.mkReal(this.cycleUpperBoundRange)
+                                z3Cache.mkReal(this.cycleUpperBoundRange)
                             )
                         )
 					);
@@ -1855,10 +2279,9 @@ public class Port implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-        IntExpr index = ctx.mkInt(auxIndex);
         
-        return (RealExpr) ctx.mkAdd( // Arrival time value constraint
-                        departureTime(ctx, index, flowFrag),
+        return Z3ExpressionCache.of(ctx).arrivalTime( // Arrival time value constraint
+                        departureTime(ctx, auxIndex, flowFrag),
                         timeToTravelZ3
                         );
     }
@@ -1903,7 +2326,7 @@ public class Port implements Serializable {
      * @return              Returns the z3 variable for the scheduled time of the desired packet
      */
     public RealExpr scheduledTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-    	IntExpr index = null;
+    	Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
     	RealExpr scheduledTime;
     	int cycleNum = 0;
     	
@@ -1911,16 +2334,15 @@ public class Port implements Serializable {
 			cycleNum = (auxIndex - (auxIndex % flowFrag.getNumOfPacketsSent()))/flowFrag.getNumOfPacketsSent();
 
         	auxIndex = (auxIndex % flowFrag.getNumOfPacketsSent());
-        	index = ctx.mkInt(auxIndex);
 
         	scheduledTime = (RealExpr)
         			ctx.mkAdd(
-    					ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index.toString()), 
+    					z3Cache.scheduledTime(flowFrag, auxIndex), 
     					ctx.mkMul(
-                            ctx.mkReal(cycleNum),
+                            z3Cache.mkReal(cycleNum),
                             ctx.mkMul(
-                                ctx.mkReal(Double.toString(this.cycle.getCycleDuration())),
-                                ctx.mkReal(this.cycleUpperBoundRange)
+                                z3Cache.mkReal(this.cycle.getCycleDuration()),
+                                z3Cache.mkReal(this.cycleUpperBoundRange)
                             )
                         )
 					);
@@ -1929,10 +2351,7 @@ public class Port implements Serializable {
         	return scheduledTime;
         }
         
-        index = ctx.mkInt(auxIndex);
-        
-        
-        scheduledTime = ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index.toString());
+        scheduledTime = z3Cache.scheduledTime(flowFrag, auxIndex);
         
         return (RealExpr) scheduledTime;
     }
@@ -2134,6 +2553,30 @@ public class Port implements Serializable {
 		this.listOfPeriods = listOfPeriods;
 	}
 
+    public int getPacketUpperBoundRange() {
+		return packetUpperBoundRange;
+	}
+
+	public void setPacketUpperBoundRange(int packetUpperBoundRange) {
+		this.packetUpperBoundRange = packetUpperBoundRange;
+	}
+
+	public double getMaximumFlowLatency() {
+		return maximumFlowLatency;
+	}
+
+	public void setMaximumFlowLatency(double maximumFlowLatency) {
+		this.maximumFlowLatency = maximumFlowLatency;
+	}
+
+	public double getMaximumFlowOffset() {
+		return maximumFlowOffset;
+	}
+
+	public void setMaximumFlowOffset(double maximumFlowOffset) {
+		this.maximumFlowOffset = maximumFlowOffset;
+	}
+
     public int getCycleUpperBoundRange() {
 		return cycleUpperBoundRange;
 	}
@@ -2330,4 +2773,106 @@ public class Port implements Serializable {
 	public void setBufferSize(int bufferSize) {
 		this.bufferSizeLimitation = bufferSize;
 	}
-}
\ No newline at end of file
+
+	public int getBufferSize() {
+		return bufferSizeLimitation;
+	}
+
+	public ArrayList<Integer> getBufferSizePerPriority() {
+		return bufferSizePerPriority;
+	}
+
+	/**
+	 * [Method]: setBufferSizePerPriority
+	 * [Usage]: Sets the maximum number of packets of each priority
+	 * waiting in the buffer of this port, indexed by priority. Values
+	 * lower or equal to 0 leave the priority without a limit.
+	 */
+	public void setBufferSizePerPriority(ArrayList<Integer> bufferSizePerPriority) {
+		this.bufferSizePerPriority = bufferSizePerPriority;
+	}
+
+	public double getMaxPacketSize() {
+		return maxPacketSize;
+	}
+
+	public void setMaxPacketSize(double maxPacketSize) {
+		this.maxPacketSize = maxPacketSize;
+	}
+
+	public double getInterframeGapSize() {
+		return interframeGapSize;
+	}
+
+	public void setInterframeGapSize(double interframeGapSize) {
+		this.interframeGapSize = interframeGapSize;
+	}
+
+	public double getTransmissionTime() {
+		return transmissionTime;
+	}
+
+	public void setTransmissionTime(double transmissionTime) {
+		this.transmissionTime = transmissionTime;
+	}
+
+	public double getMicroCycleSize() {
+		return microCycleSize;
+	}
+
+	public void setMicroCycleSize(double microCycleSize) {
+		this.microCycleSize = microCycleSize;
+	}
+
+	public double getBestEffortPercent() {
+		return bestEffortPercent;
+	}
+
+	public void setBestEffortPercent(double bestEffortPercent) {
+		this.bestEffortPercent = bestEffortPercent;
+	}
+
+	public Boolean getIsIncremental() {
+		return isIncremental;
+	}
+
+	public void setIsIncremental(Boolean isIncremental) {
+		this.isIncremental = isIncremental;
+	}
+
+	public EncodingMode getEncodingMode() {
+		return encodingMode;
+	}
+
+	public void setEncodingMode(EncodingMode encodingMode) {
+		this.encodingMode = encodingMode;
+	}
+
+	public boolean getLazyPairwiseRules() {
+		return lazyPairwiseRules;
+	}
+
+	/**
+	 * [Method]: setLazyPairwiseRules
+	 * [Usage]: Sets whether the FIFO rules between packets of different
+	 * fragments are left out of the rules of the port, to be added only
+	 * when a schedule violates them.
+	 */
+	public void setLazyPairwiseRules(boolean lazyPairwiseRules) {
+		this.lazyPairwiseRules = lazyPairwiseRules;
+	}
+
+	public boolean getUseSlotIndicators() {
+		return useSlotIndicators;
+	}
+
+	/**
+	 * [Method]: setUseSlotIndicators
+	 * [Usage]: Sets whether the rule that zeroes out non-used slots is
+	 * encoded with a "used" indicator per slot instead of the disjunction
+	 * over every packet and cycle of the port.
+	 */
+	public void setUseSlotIndicators(boolean useSlotIndicators) {
+		this.useSlotIndicators = useSlotIndicators;
+	}
+}
@@ -0,0 +1,321 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.components;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.microsoft.z3.*;
+
+/**
+ * [Class]: Z3ExpressionCache
+ * [Usage]: Interns the z3 symbols and numerals created while the
+ * scheduling rules are set. The same slot, scheduled time and numeric
+ * constants are requested many times for every pair of packets in a
+ * port. Instead of building their names and asking z3 for them again
+ * on every request, the first expression created is stored and
+ * returned on the following ones.
+ *
+ * There is one cache per z3 context, as expressions of a context can
+ * not be used in another one. Caches are retrieved with the "of"
+ * method and must be released when the context is closed.
+ */
+public class Z3ExpressionCache {
+
+	private static final Map<Context, Z3ExpressionCache> caches =
+			Collections.synchronizedMap(new WeakHashMap<Context, Z3ExpressionCache>());
+
+	private static final int SLOT_START = 0;
+	private static final int SLOT_DURATION = 1;
+	private static final int SCHEDULED_TIME = 2;
+	private static final int ARRIVAL_TIME = 3;
+	private static final int CYCLE_START = 4;
+	private static final int QUOTIENT = 5;
+
+	private Context ctx;
+	private HashMap<Integer, IntNum> intNumerals = new HashMap<Integer, IntNum>();
+	private HashMap<Integer, RatNum> integerRealNumerals = new HashMap<Integer, RatNum>();
+	private HashMap<Double, RatNum> realNumerals = new HashMap<Double, RatNum>();
+	private IdentityHashMap<Expr, String> expressionNames = new IdentityHashMap<Expr, String>();
+	private HashMap<Key, Expr> expressions = new HashMap<Key, Expr>();
+
+	private Z3ExpressionCache(Context ctx) {
+		this.ctx = ctx;
+	}
+
+
+	/**
+	 * [Method]: of
+	 * [Usage]: Retrieves the cache of a context, creating
+	 * it if this is the first request for this context.
+	 *
+	 * @param ctx		z3 context owning the expressions
+	 * @return			Cache of the given context
+	 */
+	public static Z3ExpressionCache of(Context ctx) {
+		synchronized(caches) {
+			Z3ExpressionCache cache = caches.get(ctx);
+
+			if(cache == null) {
+				cache = new Z3ExpressionCache(ctx);
+				caches.put(ctx, cache);
+			}
+
+			return cache;
+		}
+	}
+
+	/**
+	 * [Method]: release
+	 * [Usage]: Drops the cache of a context. Must be called
+	 * before the context is closed.
+	 *
+	 * @param ctx		z3 context being closed
+	 */
+	public static void release(Context ctx) {
+		caches.remove(ctx);
+	}
+
+
+	public IntNum mkInt(int value) {
+		IntNum numeral = this.intNumerals.get(value);
+
+		if(numeral == null) {
+			numeral = this.ctx.mkInt(value);
+			this.intNumerals.put(value, numeral);
+		}
+
+		return numeral;
+	}
+
+	public RatNum mkReal(int value) {
+		RatNum numeral = this.integerRealNumerals.get(value);
+
+		if(numeral == null) {
+			numeral = this.ctx.mkReal(value);
+			this.integerRealNumerals.put(value, numeral);
+		}
+
+		return numeral;
+	}
+
+	public RatNum mkReal(double value) {
+		RatNum numeral = this.realNumerals.get(value);
+
+		if(numeral == null) {
+			numeral = this.ctx.mkReal(Double.toString(value));
+			this.realNumerals.put(value, numeral);
+		}
+
+		return numeral;
+	}
+
+
+	/**
+	 * [Method]: slotStart
+	 * [Usage]: Returns the variable of the start of a time slot
+	 * of a cycle given a numeric priority and a slot index.
+	 *
+	 * @param cycle		Cycle owning the time slot
+	 * @param prt		Numeric priority of the slot
+	 * @param index		Index of the slot
+	 * @return			z3 variable of the slot start
+	 */
+	public RealExpr slotStart(Cycle cycle, int prt, int index) {
+		return this.slotVariable(cycle, null, prt, index, SLOT_START, "Start");
+	}
+
+	/**
+	 * [Method]: slotStart
+	 * [Usage]: Returns the variable of the start of a time slot
+	 * of a cycle given the priority variable of a fragment and a
+	 * slot index.
+	 *
+	 * @param cycle		Cycle owning the time slot
+	 * @param prt		Priority of a fragment as a z3 variable
+	 * @param index		Index of the slot
+	 * @return			z3 variable of the slot start
+	 */
+	public RealExpr slotStart(Cycle cycle, IntExpr prt, int index) {
+		return this.slotVariable(cycle, prt, 0, index, SLOT_START, "Start");
+	}
+
+	public RealExpr slotDuration(Cycle cycle, int prt, int index) {
+		return this.slotVariable(cycle, null, prt, index, SLOT_DURATION, "Duration");
+	}
+
+	public RealExpr slotDuration(Cycle cycle, IntExpr prt, int index) {
+		return this.slotVariable(cycle, prt, 0, index, SLOT_DURATION, "Duration");
+	}
+
+	private RealExpr slotVariable(Cycle cycle, IntExpr prtZ3, int prt, int index, int kind, String suffix) {
+		Key key = new Key(cycle, prtZ3, kind, prt, index);
+		RealExpr slotVariable = (RealExpr) this.expressions.get(key);
+
+		if(slotVariable == null) {
+			String prtName = prtZ3 == null ? Integer.toString(prt) : this.nameOf(prtZ3);
+			slotVariable = this.ctx.mkRealConst(cycle.getName() + "priority" + prtName + "slot" + index + suffix);
+			this.expressions.put(key, slotVariable);
+		}
+
+		return slotVariable;
+	}
+
+
+	/**
+	 * [Method]: scheduledTime
+	 * [Usage]: Returns the variable of the scheduled time of
+	 * a packet of a flow fragment.
+	 *
+	 * @param flowFrag		Flow fragment that the packet belongs to
+	 * @param index			Index of the packet
+	 * @return				z3 variable of the scheduled time
+	 */
+	public RealExpr scheduledTime(FlowFragment flowFrag, int index) {
+		Key key = new Key(flowFrag, null, SCHEDULED_TIME, index, 0);
+		RealExpr scheduledTime = (RealExpr) this.expressions.get(key);
+
+		if(scheduledTime == null) {
+			scheduledTime = this.ctx.mkRealConst(flowFrag.getName() + "ScheduledTime" + index);
+			this.expressions.put(key, scheduledTime);
+		}
+
+		return scheduledTime;
+	}
+
+	/**
+	 * [Method]: arrivalTime
+	 * [Usage]: Returns the sum of a departure time and the time
+	 * to travel of a port. Both are identified by their objects,
+	 * so a departure time replaced on its fragment produces a
+	 * new sum.
+	 *
+	 * @param departureTime		Departure time of the packet
+	 * @param timeToTravel		Time to travel of the port
+	 * @return					z3 expression of the arrival time
+	 */
+	public RealExpr arrivalTime(RealExpr departureTime, RealExpr timeToTravel) {
+		Key key = new Key(departureTime, timeToTravel, ARRIVAL_TIME, 0, 0);
+		RealExpr arrivalTime = (RealExpr) this.expressions.get(key);
+
+		if(arrivalTime == null) {
+			arrivalTime = (RealExpr) this.ctx.mkAdd(departureTime, timeToTravel);
+			this.expressions.put(key, arrivalTime);
+		}
+
+		return arrivalTime;
+	}
+
+	/**
+	 * [Method]: cycleStart
+	 * [Usage]: Returns the start of the cycle of a given index
+	 * based on the current first cycle start and cycle duration
+	 * variables of the cycle.
+	 *
+	 * @param cycle		Cycle of the port
+	 * @param index		Index of the desired cycle
+	 * @return			z3 expression of the cycle start
+	 */
+	public RealExpr cycleStart(Cycle cycle, int index) {
+		if(index < 1) {
+			return cycle.getFirstCycleStartZ3();
+		}
+
+		Key key = new Key(cycle.getFirstCycleStartZ3(), cycle.getCycleDurationZ3(), CYCLE_START, index, 0);
+		RealExpr cycleStart = (RealExpr) this.expressions.get(key);
+
+		if(cycleStart == null) {
+			cycleStart = (RealExpr) this.ctx.mkAdd(
+				cycle.getFirstCycleStartZ3(),
+				this.ctx.mkMul(cycle.getCycleDurationZ3(), this.mkReal(index))
+			);
+			this.expressions.put(key, cycleStart);
+		}
+
+		return cycleStart;
+	}
+
+	/**
+	 * [Method]: quotient
+	 * [Usage]: Returns the division of two expressions, such as
+	 * the size of a packet by the speed of a port.
+	 *
+	 * @param dividend		Dividend expression
+	 * @param divisor		Divisor expression
+	 * @return				z3 expression of the division
+	 */
+	public RealExpr quotient(RealExpr dividend, RealExpr divisor) {
+		Key key = new Key(dividend, divisor, QUOTIENT, 0, 0);
+		RealExpr quotient = (RealExpr) this.expressions.get(key);
+
+		if(quotient == null) {
+			quotient = (RealExpr) this.ctx.mkDiv(dividend, divisor);
+			this.expressions.put(key, quotient);
+		}
+
+		return quotient;
+	}
+
+	private String nameOf(Expr expression) {
+		String name = this.expressionNames.get(expression);
+
+		if(name == null) {
+			name = expression.toString();
+			this.expressionNames.put(expression, name);
+		}
+
+		return name;
+	}
+
+
+	/*
+	 * Objects on a key are compared by identity, as the same
+	 * cycle, fragment or expression object always leads to the
+	 * same z3 term during the life of a context.
+	 */
+	private static final class Key {
+		private final Object first;
+		private final Object second;
+		private final int kind;
+		private final int a;
+		private final int b;
+
+		Key(Object first, Object second, int kind, int a, int b) {
+			this.first = first;
+			this.second = second;
+			this.kind = kind;
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+
+			Key other = (Key) obj;
+
+			return this.first == other.first && this.second == other.second &&
+				   this.kind == other.kind && this.a == other.a && this.b == other.b;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(this.first);
+			hash = 31 * hash + System.identityHashCode(this.second);
+			hash = 31 * hash + this.kind;
+			hash = 31 * hash + this.a;
+			return 31 * hash + this.b;
+		}
+	}
+
+}
@@ -0,0 +1,263 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.interface_manager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: JSONOutputWriter
+ * [Usage]: Writes the schedule of a network in the JSON output format
+ * while walking through its switches, ports and flows. Every value is
+ * written to a buffered file channel as soon as it is read from the
+ * network, so the memory used does not grow with the size of the
+ * schedule (e.g.: the packet times of a long hyper cycle).
+ *
+ * The output is indented by default and can be written in a single
+ * line with the compact mode.
+ */
+public class JSONOutputWriter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private Path outputPath;
+	private boolean compactOutput = false;
+	private boolean enablePacketTimeOutput = false;
+
+
+	public JSONOutputWriter(String outputPath) {
+		this.outputPath = Paths.get(outputPath);
+	}
+
+
+	/**
+	 * [Method]: write
+	 * [Usage]: Writes the switches, the flows and the schedule
+	 * information of the network to the output file, replacing
+	 * its previous content.
+	 *
+	 * @param net			Network containing the generated schedule
+	 * @throws IOException	If the output file can not be written
+	 */
+	public void write(Network net) throws IOException {
+		Path parent = this.outputPath.toAbsolutePath().getParent();
+
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+
+		FileChannel channel = FileChannel.open(this.outputPath,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+		try (JsonWriter writer = new JsonWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), BUFFER_SIZE))) {
+			writer.setIndent(this.compactOutput ? "" : "  ");
+
+			writer.beginObject();
+
+			writer.name("switches");
+			this.writeSwitches(writer, net);
+
+			writer.name("flows");
+			this.writeFlows(writer, net);
+
+			// Schedule information is small and made of maps and lists, so it is given to gson as it is
+			if(!net.getScheduleInfo().isEmpty()) {
+				writer.name("scheduleInfo");
+				new Gson().toJson(net.getScheduleInfo(), net.getScheduleInfo().getClass(), writer);
+			}
+
+			writer.endObject();
+		} finally {
+			channel.close();
+		}
+	}
+
+
+	private void writeSwitches(JsonWriter writer, Network net) throws IOException {
+		writer.beginArray();
+
+		for(Switch swt : net.getSwitches()) {
+			writer.beginObject();
+			writer.name("name").value(swt.getName());
+			writer.name("ports");
+			writer.beginArray();
+
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				this.writePort(writer, port);
+			}
+
+			writer.endArray();
+			writer.endObject();
+		}
+
+		writer.endArray();
+	}
+
+	private void writePort(JsonWriter writer, Port port) throws IOException {
+		Cycle cyc = port.getCycle();
+
+		writer.beginObject();
+		writer.name("name").value(port.getName());
+		writer.name("firstCycleStart").value(cyc.getFirstCycleStart());
+		writer.name("cycleDuration").value(cyc.getCycleDuration());
+		writer.name("prioritySlotsData");
+		writer.beginArray();
+
+		for(int prt : cyc.getSlotsUsed()) {
+			writer.beginObject();
+			writer.name("priority").value(prt);
+			writer.name("slotsData");
+			writer.beginArray();
+
+			for(int i = 0; i < cyc.getSlotStartList(prt).size(); i++) {
+				// Slots not used by the priority are left out
+				if(cyc.getSlotDuration(prt, i) > 0) {
+					writer.beginObject();
+					writer.name("slotStart").value(cyc.getSlotStart(prt, i));
+					writer.name("slotDuration").value(cyc.getSlotDuration(prt, i));
+					writer.endObject();
+				}
+			}
+
+			writer.endArray();
+			writer.endObject();
+		}
+
+		writer.endArray();
+		writer.endObject();
+	}
+
+	private void writeFlows(JsonWriter writer, Network net) throws IOException {
+		writer.beginArray();
+
+		for(Flow flow : net.getFlows()) {
+			writer.beginObject();
+			writer.name("name").value(flow.getName());
+			writer.name("firstSendingTime").value(flow.getFlowFirstSendingTime());
+			writer.name("averageLatency").value(flow.getAverageLatency());
+			writer.name("jitter").value(flow.getAverageJitter());
+
+			if(this.enablePacketTimeOutput) {
+				writer.name("packetTimes");
+				this.writePacketTimes(writer, flow);
+			}
+
+			if(flow.isFixedPriority()) {
+				writer.name("flowPriority").value(flow.getPriorityValue());
+			} else {
+				writer.name("hops");
+				writer.beginArray();
+				this.writeHops(writer, flow.getPathTree().getRoot().getChildren().get(0));
+				writer.endArray();
+			}
+
+			writer.endObject();
+		}
+
+		writer.endArray();
+	}
+
+	private void writeHops(JsonWriter writer, PathNode node) throws IOException {
+
+		if(node.getFlowFragments() == null) {
+			return;
+		}
+
+		for(FlowFragment frag : node.getFlowFragments()) {
+			writer.beginObject();
+			writer.name("currentNodeName").value(frag.getNodeName());
+			writer.name("nextNodeName").value(frag.getNextHop());
+			writer.name("priority").value(frag.getFragmentPriority());
+			writer.endObject();
+		}
+
+		for(PathNode childNode : node.getChildren()) {
+			this.writeHops(writer, childNode);
+		}
+
+	}
+
+	/*
+	 * As in the previous output, the fragments of the path to each
+	 * subscriber are listed, so fragments shared by several paths
+	 * appear once per subscriber.
+	 */
+	private void writePacketTimes(JsonWriter writer, Flow flow) throws IOException {
+		writer.beginArray();
+
+		for(PathNode node : flow.getPathTree().getLeaves()) {
+			for(FlowFragment frag : flow.getFlowFromRootToNode((Device) node.getNode())) {
+				writer.beginObject();
+				writer.name(frag.getName());
+				writer.beginArray();
+
+				for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+					writer.beginObject();
+					writer.name("packetNumber").value(i);
+					writer.name("packet" + i + "DepartureTime").value(frag.getDepartureTime(i));
+					writer.name("packet" + i + "ArrivalTime").value(frag.getArrivalTime(i));
+					writer.name("packet" + i + "ScheduledTime").value(frag.getScheduledTime(i));
+					writer.endObject();
+				}
+
+				writer.endArray();
+				writer.endObject();
+			}
+		}
+
+		writer.endArray();
+	}
+
+
+	public String getOutputPath() {
+		return outputPath.toString();
+	}
+
+	public boolean getCompactOutput() {
+		return compactOutput;
+	}
+
+	/**
+	 * [Method]: setCompactOutput
+	 * [Usage]: If set to true, the output is written in a
+	 * single line, without indentation.
+	 *
+	 * @param compactOutput		Whether the output is compact
+	 */
+	public void setCompactOutput(boolean compactOutput) {
+		this.compactOutput = compactOutput;
+	}
+
+	public boolean getEnablePacketTimeOutput() {
+		return enablePacketTimeOutput;
+	}
+
+	public void setEnablePacketTimeOutput(boolean enablePacketTimeOutput) {
+		this.enablePacketTimeOutput = enablePacketTimeOutput;
+	}
+
+}
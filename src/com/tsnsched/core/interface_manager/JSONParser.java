@@ -10,30 +10,57 @@ import com.tsnsched.core.network.*;
 import com.tsnsched.core.schedule_generator.*;
 
 
+import java.io.BufferedReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
 import org.json.*;
 
 
 public class JSONParser implements GenericParser {
 	String inputFilePath = "";
 	String outputFilePath = "";
-	String fileContent = "";
 
 	private Printer printer;
 
 	private Boolean enablePacketTimeOutput = false;
+	private Boolean compactOutput = false;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	// Network being built while the input is read, from beginNetwork to endNetwork
+	private Network net;
+	private HashMap<String, Device> devicesByName;
+	private HashMap<String, Switch> switchesByName;
+	private HashSet<String> sectionsRead;
+	private ArrayList<Flow> flowsRead;
+	private ArrayList<FlowReferences> pendingReferences;
+	
+	/*
+	 * Names of the devices and switches used by a flow, which are
+	 * resolved once the devices and switches of the input are read.
+	 */
+	private static class FlowReferences {
+		Flow flow;
+		String sourceDevice;
+		ArrayList<String> endDevices = new ArrayList<String>();
+		ArrayList<String[]> hops = new ArrayList<String[]>();
+	}
 	
 
 
@@ -45,190 +72,175 @@ public class JSONParser implements GenericParser {
 		this.inputFilePath = inputFilePath;
 	}
 	
-	private Device[] getListOfDevices(JsonObject jsonObject) {
-		List<Device> listOfDevices = new ArrayList<Device>();
+	/**
+	 * [Method]: parseDevice
+	 * [Usage]: Creates a device from its object in the input.
+	 * 
+	 * @param deviceObject		Object of the device in the input
+	 * @return					Device described by the object
+	 */
+	private Device parseDevice(JsonObject deviceObject) {
+		
+		Device dev = new Device(deviceObject.get("name").getAsString());
+		
+		if(deviceObject.has("defaultFirstSendingTime")) {
+			dev.setFirstT1Time(
+				this.convertTimeUnits(
+					deviceObject.get("defaultFirstSendingTime").getAsDouble(),
+					(deviceObject.has("defaultFirstSendingTimeUnit") ? deviceObject.get("defaultFirstSendingTimeUnit").getAsString() : "")
+				)
+			);
+		} 
 		
-		if (jsonObject.has("devices")) {
-			JsonArray devicesDataObject = null;
-			
-			devicesDataObject = this.getArrayFromElement(jsonObject, "devices");
-			
-		    if (devicesDataObject  != null) {
+		if(deviceObject.has("defaultPacketPeriodicity")) {
+			dev.setPacketPeriodicity(
+				this.convertTimeUnits(
+					deviceObject.get("defaultPacketPeriodicity").getAsDouble(),
+					(deviceObject.has("defaultPacketPeriodicityUnit") ? deviceObject.get("defaultPacketPeriodicityUnit").getAsString() : "")
+				)
+			);
+		} 
+		
+		if(deviceObject.has("defaultHardConstraintTime")) {
+			dev.setHardConstraintTime(
+				this.convertTimeUnits(
+					deviceObject.get("defaultHardConstraintTime").getAsDouble(),
+					(deviceObject.has("defaultHardConstraintTimeUnit") ? deviceObject.get("defaultHardConstraintTimeUnit").getAsString() : "")
+				)
+			);
+		}
 
-	    		for(JsonElement jsonElement : devicesDataObject ) {
-	    			
-	    			JsonObject deviceObject = jsonElement.getAsJsonObject();
-	    			
-	    			Device dev = new Device(deviceObject.get("name").getAsString());
-	    			
-	    			if(deviceObject.has("defaultFirstSendingTime")) {
-	    				dev.setFirstT1Time(
-    						this.convertTimeUnits(
-								deviceObject.get("defaultFirstSendingTime").getAsDouble(),
-								(deviceObject.has("defaultFirstSendingTimeUnit") ? deviceObject.get("defaultFirstSendingTimeUnit").getAsString() : "")
-							)
-						);
-	    			} 
-	    			
-	    			if(deviceObject.has("defaultPacketPeriodicity")) {
-	    				dev.setPacketPeriodicity(
-    						this.convertTimeUnits(
-								deviceObject.get("defaultPacketPeriodicity").getAsDouble(),
-								(deviceObject.has("defaultPacketPeriodicityUnit") ? deviceObject.get("defaultPacketPeriodicityUnit").getAsString() : "")
-							)
-						);
-	    			} 
-	    			
-	    			if(deviceObject.has("defaultHardConstraintTime")) {
-	    				dev.setHardConstraintTime(
-    						this.convertTimeUnits(
-								deviceObject.get("defaultHardConstraintTime").getAsDouble(),
-								(deviceObject.has("defaultHardConstraintTimeUnit") ? deviceObject.get("defaultHardConstraintTimeUnit").getAsString() : "")
-							)
-						);
-	    			}
-
-	    			if(deviceObject.has("defaultPacketSize")) {
-	    				dev.setPacketSize(
-    						this.convertSizeUnits(
-								deviceObject.get("defaultPacketSize").getAsDouble(), 
-								(deviceObject.has("defaultPacketSizeUnit") ? deviceObject.get("defaultPacketSizeUnit").getAsString() : "")
-							)
-						);
-	    			}
-	    			
-	    			listOfDevices.add(dev);
-	    			
-	    		}
-	    		
-		    }
-		    
+		if(deviceObject.has("defaultPacketSize")) {
+			dev.setPacketSize(
+				this.convertSizeUnits(
+					deviceObject.get("defaultPacketSize").getAsDouble(), 
+					(deviceObject.has("defaultPacketSizeUnit") ? deviceObject.get("defaultPacketSizeUnit").getAsString() : "")
+				)
+			);
 		}
 		
-		Device[] arrayOfDevices = new Device[listOfDevices.size()];
-		listOfDevices.toArray(arrayOfDevices);
-		return arrayOfDevices;
+		return dev;
 		
 	}
 	
-	private void setPortsOfSwitch(JsonObject jsonObject, Network net) {
-		List<Switch> listOfSwitches = new ArrayList<Switch>();
+	/**
+	 * [Method]: setPortsOfSwitch
+	 * [Usage]: Creates the ports listed in the object of a switch.
+	 * The default values of the switch must have been set before.
+	 * 
+	 * @param switchObject		Object of the switch in the input
+	 * @param swt				Switch receiving the ports
+	 */
+	private void setPortsOfSwitch(JsonObject switchObject, TSNSwitch swt) {
+		
+		if(!switchObject.has("ports")) {
+			return;
+		}
 		
-		if (jsonObject.has("switches")) {
+	    JsonArray portsDataObject = this.getArrayFromElement(switchObject, "ports");
 
-		    JsonArray switchesDataObject = this.getArrayFromElement(jsonObject, "switches");
+	    if (portsDataObject  == null) {
+	    	return;
+	    }
+	    	
+		for(JsonElement portJsonElement : portsDataObject ) {
+
+			Cycle cycle;
+			Port port; 
 			
-		    if (switchesDataObject  != null) {
-		    	
-	    		for(JsonElement jsonElement : switchesDataObject ) {
-	    			
-	    			JsonObject switchObject = jsonElement.getAsJsonObject();
-	    			TSNSwitch swt = (TSNSwitch) net.getSwitch(switchObject.get("name").getAsString());
-	    			
-	    			if(switchObject.has("ports")) {
-
-	    			    JsonArray portsDataObject = this.getArrayFromElement(switchObject, "ports");
-
-	    			    if (portsDataObject  != null) {
-	    			    	
-	    		    		for(JsonElement portJsonElement : portsDataObject ) {
-
-	    		    			Cycle cycle;
-	    		    			Port port; 
-	    		    			
-	    		    			JsonObject portObject = portJsonElement.getAsJsonObject();
-
-	    		    			cycle = null;
-	    		    			
-	    		    			if(portObject.has("maximumSlotDuration")) {
-	    		    				cycle = new Cycle(
-    		    						this.convertTimeUnits(
-		    								portObject.get("maximumSlotDuration").getAsDouble(),
-		    								(portObject.has("maximumSlotDurationUnit") ? portObject.get("maximumSlotDurationUnit").getAsString() : "")
-	    								)
-		    						);
-	    		    			} else {
-	    		    				cycle = new Cycle(10000);
-	    		    			}
-	    		    			
-	    		    			port = swt.createPort(portObject.get("connectsTo").getAsString(), cycle);
-	    		    			
-
-	    		    			if(portObject.has("name")) {
-	    		    				port.setName(portObject.get("name").getAsString());   		    				
-	    		    			}
-	    		    			
-	    		    			if(portObject.has("portSpeed")) {
-	    		    				port.setPortSpeed(
-    		    						this.convertSpeedUnits(
-		    								portObject.get("portSpeed").getAsDouble(),
-		    								(portObject.has("portSpeedSizeUnit") ? portObject.get("portSpeedSizeUnit").getAsString() : ""),
-    										(portObject.has("portSpeedTimeUnit") ? portObject.get("portSpeedTimeUnit").getAsString() : "")		    								
-	    								)
-		    						);
-	    		    			}
-	    		    			
-	    		    			if(portObject.has("timeToTravel")) {
-	    		    				port.setTimeToTravel(
-    		    						this.convertTimeUnits(
-		    								portObject.get("timeToTravel").getAsDouble(),
-		    								(portObject.has("timeToTravelUnit") ? portObject.get("timeToTravelUnit").getAsString() : "")
-	    								)
-		    						);
-	    		    			}
-	    		    			
-	    		    			if(portObject.has("guardBandSize")) {
-	    		    				port.setGbSize(
-    		    						this.convertTimeUnits(
-		    								portObject.get("guardBandSize").getAsDouble(),
-		    								(portObject.has("guardBandSizeUnit") ? portObject.get("guardBandSizeUnit").getAsString() : "")
-	    								)
-		    						);
-	    		    			}
-	    		    			
-	    		    			if(portObject.has("cycleStart")) {
-	    		    				port.setCycleStart(
-    		    						this.convertTimeUnits(
-		    								portObject.get("cycleStart").getAsDouble(),
-		    								(portObject.has("cycleStartUnit") ? portObject.get("cycleStartUnit").getAsString() : "")
-	    								)
-		    						);
-	    		    			}
-
-								if(portObject.has("bufferSize")) {
-									port.setBufferSize(
-										portObject.get("bufferSize").getAsInt()
-									);
-								}
-	    		    			
-	    		    			if(portObject.has("scheduleType")) {
-	    		    				String scheduleType = portObject.get("scheduleType").getAsString().toLowerCase();
-
-	    		    				switch(scheduleType) {
-	    		    					case "hypercycle":
-	    		    						port.clearScheduleType();
-	    		    		        		port.setUseHyperCycle(true);
-	    		    						break;
-	    		    					case "microcycle":
-	    		    						port.clearScheduleType();
-	    		    		        		port.setUseMicroCycles(true);
-	    		    						break;
-	    		    					default:
-	    		    						this.printer.printIfLoggingIsEnabled("[ALERT] Schedule type for port " + portObject.get("name").getAsString() + " not recognized");
-	    		    				}
-	    		    			}
-	    		    				    		    			
-	    		    		}
-	    		    		
-	    			    }
-	    			    
-	    			}
-	    				    			
-	    		}
-		        
-		    } 
-		    
-		} 
+			JsonObject portObject = portJsonElement.getAsJsonObject();
+
+			cycle = null;
+			
+			if(portObject.has("maximumSlotDuration")) {
+				cycle = new Cycle(
+					this.convertTimeUnits(
+						portObject.get("maximumSlotDuration").getAsDouble(),
+						(portObject.has("maximumSlotDurationUnit") ? portObject.get("maximumSlotDurationUnit").getAsString() : "")
+					)
+				);
+			} else {
+				cycle = new Cycle(10000);
+			}
+			
+			port = swt.createPort(portObject.get("connectsTo").getAsString(), cycle);
+			
+
+			if(portObject.has("name")) {
+				port.setName(portObject.get("name").getAsString());   		    				
+			}
+			
+			if(portObject.has("portSpeed")) {
+				port.setPortSpeed(
+					this.convertSpeedUnits(
+						portObject.get("portSpeed").getAsDouble(),
+						(portObject.has("portSpeedSizeUnit") ? portObject.get("portSpeedSizeUnit").getAsString() : ""),
+						(portObject.has("portSpeedTimeUnit") ? portObject.get("portSpeedTimeUnit").getAsString() : "")		    								
+					)
+				);
+			}
+			
+			if(portObject.has("timeToTravel")) {
+				port.setTimeToTravel(
+					this.convertTimeUnits(
+						portObject.get("timeToTravel").getAsDouble(),
+						(portObject.has("timeToTravelUnit") ? portObject.get("timeToTravelUnit").getAsString() : "")
+					)
+				);
+			}
+			
+			if(portObject.has("guardBandSize")) {
+				port.setGbSize(
+					this.convertTimeUnits(
+						portObject.get("guardBandSize").getAsDouble(),
+						(portObject.has("guardBandSizeUnit") ? portObject.get("guardBandSizeUnit").getAsString() : "")
+					)
+				);
+			}
+			
+			if(portObject.has("cycleStart")) {
+				port.setCycleStart(
+					this.convertTimeUnits(
+						portObject.get("cycleStart").getAsDouble(),
+						(portObject.has("cycleStartUnit") ? portObject.get("cycleStartUnit").getAsString() : "")
+					)
+				);
+			}
+
+			if(portObject.has("bufferSize")) {
+				port.setBufferSize(
+					portObject.get("bufferSize").getAsInt()
+				);
+			}
+
+			if(portObject.has("bufferSizePerPriority")) {
+				ArrayList<Integer> bufferSizePerPriority = new ArrayList<Integer>();
+				
+				for(JsonElement bufferSize : this.getArrayFromElement(portObject, "bufferSizePerPriority")) {
+					bufferSizePerPriority.add(bufferSize.getAsInt());
+				}
+				
+				port.setBufferSizePerPriority(bufferSizePerPriority);
+			}
+			
+			if(portObject.has("scheduleType")) {
+				String scheduleType = portObject.get("scheduleType").getAsString().toLowerCase();
+
+				switch(scheduleType) {
+					case "hypercycle":
+						port.clearScheduleType();
+		        		port.setUseHyperCycle(true);
+						break;
+					case "microcycle":
+						port.clearScheduleType();
+		        		port.setUseMicroCycles(true);
+						break;
+					default:
+						this.printer.printIfLoggingIsEnabled("[ALERT] Schedule type for port " + portObject.get("name").getAsString() + " not recognized");
+				}
+			}
+				    		    			
+		}
 		
 	}
 	
@@ -247,251 +259,403 @@ public class JSONParser implements GenericParser {
 				jsonArray = (JsonArray) ((JsonObject) object.get(objectName)).get("element") ;
 			}
 			
-		} else {
+		} else if(object.get(objectName) instanceof JsonArray) {
 			jsonArray = (JsonArray) object.get(objectName);
+		} else if(object.get(objectName) instanceof JsonPrimitive) {
+			// Single values of lists written in XML
+			jsonArray = new JsonArray();
+			jsonArray.add(object.get(objectName));
 		}
 		
 		return jsonArray;
 	}
 	
+	
+	/**
+	 * [Method]: parseSwitch
+	 * [Usage]: Creates a switch and its ports from its object
+	 * in the input.
+	 * 
+	 * @param switchObject		Object of the switch in the input
+	 * @return					Switch described by the object
+	 */
+	private TSNSwitch parseSwitch(JsonObject switchObject) {
+		
+		TSNSwitch swt = new TSNSwitch(switchObject.get("name").getAsString());
+		
+		if(switchObject.has("defaultTimeToTravel")) {
+			swt.setTimeToTravel(
+				this.convertTimeUnits(
+					switchObject.get("defaultTimeToTravel").getAsDouble(),
+					(switchObject.has("defaultTimeToTravelUnit") ? switchObject.get("defaultTimeToTravelUnit").getAsString() : "")
+				)
+			);
+		}
 		
-	private Switch[] getListOfSwitches(JsonObject jsonObject) {
-		List<Switch> listOfSwitches = new ArrayList<Switch>();
-		
-		if (jsonObject.has("switches")) {
-			JsonArray switchesDataObject = null;
-			
-			switchesDataObject = this.getArrayFromElement(jsonObject, "switches");
-			
+		if(switchObject.has("defaultGuardBandSize")) {
+			swt.setGbSize(
+				this.convertTimeUnits(
+					switchObject.get("defaultGuardBandSize").getAsDouble(),
+					(switchObject.has("defaultGuardBandSizeUnit") ? switchObject.get("defaultGuardBandSizeUnit").getAsString() : "")
+				)
+			);
+		}
+			    			
+		if(switchObject.has("defaultPortSpeed")) {
+			swt.setPortSpeed(
+				this.convertSpeedUnits(
+					switchObject.get("defaultPortSpeed").getAsDouble(),
+					(switchObject.has("defaultPortSpeedSizeUnit") ? switchObject.get("defaultPortSpeedSizeUnit").getAsString() : ""),
+					(switchObject.has("defaultPortSpeedTimeUnit") ? switchObject.get("defaultPortSpeedTimeUnit").getAsString() : "")	
+				)
+			);
+		}
+		if(switchObject.has("defaultScheduleType")) {
+			String scheduleType = switchObject.get("defaultScheduleType").getAsString().toLowerCase();
 			
-		    if (switchesDataObject  != null) {
-		    	
-	    		for(JsonElement jsonElement : switchesDataObject ) {
-	    			
-	    			JsonObject switchObject = jsonElement.getAsJsonObject();
-	    			
-	    			TSNSwitch swt = new TSNSwitch(switchObject.get("name").getAsString());
-	    			
-	    			if(switchObject.has("defaultTimeToTravel")) {
-	    				swt.setTimeToTravel(
-    						this.convertTimeUnits(
-								switchObject.get("defaultTimeToTravel").getAsDouble(),
-								(switchObject.has("defaultTimeToTravelUnit") ? switchObject.get("defaultTimeToTravelUnit").getAsString() : "")
-							)
-						);
-	    			}
-	    			
-	    			if(switchObject.has("defaultGuardBandSize")) {
-	    				swt.setGbSize(
-    						this.convertTimeUnits(
-								switchObject.get("defaultGuardBandSize").getAsDouble(),
-								(switchObject.has("defaultGuardBandSizeUnit") ? switchObject.get("defaultGuardBandSizeUnit").getAsString() : "")
-							)
-						);
-	    			}
-	    				    			
-	    			if(switchObject.has("defaultPortSpeed")) {
-	    				swt.setPortSpeed(
-    						this.convertSpeedUnits(
-								switchObject.get("defaultPortSpeed").getAsDouble(),
-								(switchObject.has("defaultPortSpeedSizeUnit") ? switchObject.get("defaultPortSpeedSizeUnit").getAsString() : ""),
-								(switchObject.has("defaultPortSpeedTimeUnit") ? switchObject.get("defaultPortSpeedTimeUnit").getAsString() : "")	
-							)
-						);
-	    			}
-	    			if(switchObject.has("defaultScheduleType")) {
-	    				String scheduleType = switchObject.get("defaultScheduleType").getAsString().toLowerCase();
-	    				
-	    				switch(scheduleType) {
-	    					case "hypercycle":
-	    						swt.setScheduleType(ScheduleType.HYPERCYCLES);
-	    						break;
-	    					case "microcycle":
-	    						swt.setScheduleType(ScheduleType.MICROCYCLES);
-	    						break;
-	    					default:
-	    						this.printer.printIfLoggingIsEnabled("[ALERT] Schedule type for switch " + switchObject.get("name").getAsString() + " not recognized");
-	    				}
-	    			}
-
-	    			listOfSwitches.add(swt);
-	    			
-	    		}
-		        
-		    } 
-		    
-		} 
+			switch(scheduleType) {
+				case "hypercycle":
+					swt.setScheduleType(ScheduleType.HYPERCYCLES);
+					break;
+				case "microcycle":
+					swt.setScheduleType(ScheduleType.MICROCYCLES);
+					break;
+				default:
+					this.printer.printIfLoggingIsEnabled("[ALERT] Schedule type for switch " + switchObject.get("name").getAsString() + " not recognized");
+			}
+		}
 		
-		Switch[] arrayOfSwitches = new Switch[listOfSwitches.size()];
-		listOfSwitches.toArray(arrayOfSwitches);
-		return arrayOfSwitches;
+		this.setPortsOfSwitch(switchObject, swt);
+
+		return swt;
 		
 	}
 	
-	private Flow[] getListOfFlows(JsonObject jsonObject, Network net) {
-		List<Flow> listOfFlows = new ArrayList<Flow>();
+	/**
+	 * [Method]: parseFlow
+	 * [Usage]: Creates a flow from its object in the input. The
+	 * names of its devices and hops are returned with the flow,
+	 * since they may be listed after the flows in the input.
+	 * 
+	 * @param flowObject		Object of the flow in the input
+	 * @return					Flow and the names of the nodes it references
+	 */
+	private FlowReferences parseFlow(JsonObject flowObject) {
+		FlowReferences references = new FlowReferences();
+		Flow flow;
+		
+		flow = new Flow(flowObject.get("name").getAsString(), Flow.PUBLISH_SUBSCRIBE);
+		references.flow = flow;
+
+		if(flowObject.has("sourceDevice")) {
+			references.sourceDevice = flowObject.get("sourceDevice").getAsString();
+		}
+
+		if(flowObject.has("packetPeriodicity")) {
+			flow.setFlowSendingPeriodicity(
+				this.convertTimeUnits(
+					flowObject.get("packetPeriodicity").getAsDouble(),
+					(flowObject.has("packetPeriodicityUnit") ? flowObject.get("packetPeriodicityUnit").getAsString() : "")
+				)
+			);
+		}
 		
-		if (jsonObject.has("flows")) {
+		if(flowObject.has("packetSize")) {
+			flow.setPacketSize(
+				this.convertSizeUnits(
+					flowObject.get("packetSize").getAsDouble(),
+					(flowObject.has("packetSizeUnit") ? flowObject.get("packetSizeUnit").getAsString() : "")
+				)
+			);
+		}
+		
+		if(flowObject.has("firstSendingTime")) {
+			flow.setFlowFirstSendingTime(
+				this.convertTimeUnits(
+					flowObject.get("firstSendingTime").getAsDouble(),
+					(flowObject.has("firstSendingTimeUnit") ? flowObject.get("firstSendingTimeUnit").getAsString() : "")
+				)
+			);
+		}
+		
+		if(flowObject.has("fixedPriority")) {
+			flow.setFixedPriority(flowObject.get("fixedPriority").getAsBoolean());
+		}
+		
+		if(flowObject.has("priorityValue")) {
+			flow.setPriorityValue(flowObject.get("priorityValue").getAsInt());
+		}
 
-		    JsonArray flowsDataObject = this.getArrayFromElement(jsonObject, "flows");
-			
-		    if (flowsDataObject  != null) {
-		    	
-	    		for(JsonElement jsonElement : flowsDataObject ) {
 
-	    			JsonObject flowObject = jsonElement.getAsJsonObject();
-	    			Flow flow;
-	    			
-	    			flow = new Flow(flowObject.get("name").getAsString(), Flow.PUBLISH_SUBSCRIBE);
+		if(flowObject.has("maximumJitter")) {
+			flow.setFlowMaximumJitter(
+				this.convertTimeUnits(
+					flowObject.get("maximumJitter").getAsDouble(),
+					(flowObject.has("maximumJitterUnit") ? flowObject.get("maximumJitterUnit").getAsString() : "")
+				)
+			);
+		}
+		
+		if(flowObject.has("hardConstraintTime")) {
+			flow.setFlowMaximumLatency(
+				this.convertTimeUnits(
+					flowObject.get("hardConstraintTime").getAsDouble(),
+					(flowObject.has("hardConstraintTimeUnit") ? flowObject.get("hardConstraintTimeUnit").getAsString() : "")
+				)
+			);
+		}
+		
+		if(flowObject.has("endDevices")) {
 
-					if(flowObject.has("sourceDevice")) {
-						flow.setStartDevice(net.getDevice(flowObject.get("sourceDevice").getAsString()));
-					}
+		    JsonArray endDevicesDataObject = this.getArrayFromElement(flowObject, "endDevices");
 
-					if(flowObject.has("packetPeriodicity")) {
-	    				flow.setFlowSendingPeriodicity(
-    						this.convertTimeUnits(
-								flowObject.get("packetPeriodicity").getAsDouble(),
-								(flowObject.has("packetPeriodicityUnit") ? flowObject.get("packetPeriodicityUnit").getAsString() : "")
-							)
-						);
-	    			}
-	    			
-	    			if(flowObject.has("packetSize")) {
-	    				flow.setPacketSize(
-    						this.convertSizeUnits(
-								flowObject.get("packetSize").getAsDouble(),
-								(flowObject.has("packetSizeUnit") ? flowObject.get("packetSizeUnit").getAsString() : "")
-							)
-						);
-	    			}
-	    			
-	    			if(flowObject.has("firstSendingTime")) {
-	    				flow.setFlowFirstSendingTime(
-    						this.convertTimeUnits(
-								flowObject.get("firstSendingTime").getAsDouble(),
-								(flowObject.has("firstSendingTimeUnit") ? flowObject.get("firstSendingTimeUnit").getAsString() : "")
-							)
-						);
-	    			}
-	    			
-	    			if(flowObject.has("fixedPriority")) {
-	    				flow.setFixedPriority(flowObject.get("fixedPriority").getAsBoolean());
-	    			}
-	    			
-	    			if(flowObject.has("priorityValue")) {
-	    				flow.setPriorityValue(flowObject.get("priorityValue").getAsInt());
-	    			}
-
-
-	    			if(flowObject.has("maximumJitter")) {
-	    				flow.setFlowMaximumJitter(
-    						this.convertTimeUnits(
-								flowObject.get("maximumJitter").getAsDouble(),
-								(flowObject.has("maximumJitterUnit") ? flowObject.get("maximumJitterUnit").getAsString() : "")
-							)
-						);
-	    			}
-	    			
-	    			if(flowObject.has("hardConstraintTime")) {
-	    				flow.setFlowMaximumLatency(
-    						this.convertTimeUnits(
-								flowObject.get("hardConstraintTime").getAsDouble(),
-								(flowObject.has("hardConstraintTimeUnit") ? flowObject.get("hardConstraintTimeUnit").getAsString() : "")
-							)
-						);
-	    			}
+		    if (endDevicesDataObject  != null) {
+		    	
+		    	for(JsonElement endDevicesJsonElement : endDevicesDataObject ) {
+		    		
+		    		references.endDevices.add(endDevicesJsonElement.getAsString());
 	    			
-	    			if(flowObject.has("endDevices")) {
+		    	}
+		
+		    }
+		
+		}
+		
+		if(flowObject.has("hops")) {
 
-	    			    JsonArray endDevicesDataObject = this.getArrayFromElement(flowObject, "endDevices");
+		    JsonArray hopsDataObject = this.getArrayFromElement(flowObject, "hops");
 
-	    			    if (endDevicesDataObject  != null) {
-	    			    	
-	    			    	for(JsonElement endDevicesJsonElement : endDevicesDataObject ) {
-	    			    		
-	    			    		flow.setEndDevice(net.getDevice(endDevicesJsonElement.getAsString()));
-	    		    			
-	    			    	}
-	    			
-	    			    }
-	    			
-	    			}
-	    			
-	    			if(flowObject.has("hops")) {
-
-	    			    JsonArray hopsDataObject = this.getArrayFromElement(flowObject, "hops");
-
-	    			    if (hopsDataObject  != null) {
-	    			    	for(JsonElement hopJsonElement : hopsDataObject ) {
-	    		    			
-	    		    			JsonObject hopObject = hopJsonElement.getAsJsonObject();
-	    		    			
-	    		    			Object source = net.getDevice(hopObject.get("currentNodeName").getAsString()) == null ?
-	    		    					net.getSwitch(hopObject.get("currentNodeName").getAsString()) :
-	    		    					net.getDevice(hopObject.get("currentNodeName").getAsString());
-	    		    			Object destination = net.getDevice(hopObject.get("nextNodeName").getAsString()) == null ?
-	    		    					net.getSwitch(hopObject.get("nextNodeName").getAsString()) :
-	    		    					net.getDevice(hopObject.get("nextNodeName").getAsString());
-	    		    			
-	    		    			flow.addToPath(source, destination);
-	    		    			
-	    			    	}
-	    			    	
-	    			    }
+		    if (hopsDataObject  != null) {
+		    	for(JsonElement hopJsonElement : hopsDataObject ) {
 	    			
-	    			}
+	    			JsonObject hopObject = hopJsonElement.getAsJsonObject();
 	    			
-	    			listOfFlows.add(flow);
+	    			references.hops.add(new String[] {
+	    					hopObject.get("currentNodeName").getAsString(),
+	    					hopObject.get("nextNodeName").getAsString()
+	    			});
 	    			
-	    		}
-	    		
+		    	}
+		    	
 		    }
-		    
+		
 		}
 		
-		Flow[] arrayOfFlows = new Flow[listOfFlows.size()];
-		listOfFlows.toArray(arrayOfFlows);
-		return arrayOfFlows;
+		return references;
+		
+	}
+	
+	/*
+	 * The start device is set after the values of the flow, which are
+	 * only replaced by the defaults of the device if they were not given.
+	 */
+	private void resolveReferences(FlowReferences references) {
+		Flow flow = references.flow;
+		
+		if(references.sourceDevice != null) {
+			flow.setStartDevice(this.devicesByName.get(references.sourceDevice));
+		}
+		
+		for(String endDevice : references.endDevices) {
+			flow.setEndDevice(this.devicesByName.get(endDevice));
+		}
+		
+		for(String[] hop : references.hops) {
+			Object source = this.devicesByName.containsKey(hop[0]) ? this.devicesByName.get(hop[0]) : this.switchesByName.get(hop[0]);
+			Object destination = this.devicesByName.containsKey(hop[1]) ? this.devicesByName.get(hop[1]) : this.switchesByName.get(hop[1]);
+			
+			flow.addToPath(source, destination);
+		}
 		
 	}
 
-	public Network parseInput() {
-
-		List<String> contentListOfLines; 
-		try {
-			contentListOfLines = Files.readAllLines(Paths.get(this.inputFilePath), Charset.forName("UTF-8"));
-		} catch(Exception e) {
-			contentListOfLines = new ArrayList<String>();
+	
+	/**
+	 * [Method]: beginNetwork
+	 * [Usage]: Starts a new network to be built from the elements
+	 * read from the input, one at a time.
+	 */
+	void beginNetwork() {
+		this.net = new Network();
+		this.devicesByName = new HashMap<String, Device>();
+		this.switchesByName = new HashMap<String, Switch>();
+		this.sectionsRead = new HashSet<String>();
+		this.flowsRead = new ArrayList<Flow>();
+		this.pendingReferences = new ArrayList<FlowReferences>();
+	}
+	
+	/**
+	 * [Method]: addElement
+	 * [Usage]: Adds a device, switch (with its ports) or flow read
+	 * from the input to the network being built. Flows listed before
+	 * the devices and switches have their paths set once these are read.
+	 * 
+	 * @param section		Section of the element ("devices", "switches" or "flows")
+	 * @param element		Object of the element in the input
+	 */
+	void addElement(String section, JsonObject element) {
+		
+		switch(section) {
+			case "devices":
+				Device dev = this.parseDevice(element);
+				this.net.addDevice(dev);
+				this.devicesByName.putIfAbsent(dev.getName(), dev);
+				break;
+			case "switches":
+				TSNSwitch swt = this.parseSwitch(element);
+				this.net.addSwitch(swt);
+				this.switchesByName.putIfAbsent(swt.getName(), swt);
+				break;
+			case "flows":
+				FlowReferences references = this.parseFlow(element);
+				this.flowsRead.add(references.flow);
+				
+				if(this.sectionsRead.contains("devices") && this.sectionsRead.contains("switches")) {
+					this.resolveReferences(references);
+				} else {
+					this.pendingReferences.add(references);
+				}
+				break;
+		}
+		
+	}
+	
+	/**
+	 * [Method]: endSection
+	 * [Usage]: Marks a section of the input as completely read.
+	 * 
+	 * @param section		Section of the input
+	 */
+	void endSection(String section) {
+		this.sectionsRead.add(section);
+	}
+	
+	/**
+	 * [Method]: endNetwork
+	 * [Usage]: Sets the paths of the flows that were waiting for
+	 * their devices and switches and returns the network built.
+	 * 
+	 * @return				Network described by the input
+	 */
+	Network endNetwork() {
+		Network builtNetwork = this.net;
+		
+		for(FlowReferences references : this.pendingReferences) {
+			this.resolveReferences(references);
 		}
 		
-		for(String line : contentListOfLines) {
-			this.fileContent += line;
+		for(Flow flw : this.flowsRead) {
+			builtNetwork.addFlow(flw);
 		}
 		
-		return this.parseInputContent(fileContent);
+		this.net = null;
+		this.devicesByName = null;
+		this.switchesByName = null;
+		this.flowsRead = null;
+		this.pendingReferences = null;
+		
+		return builtNetwork;
 	}
 	
-	public Network parseInputContent(String content) {
-		JsonObject networkJson = new Gson().fromJson(content, JsonObject.class);
+	
+	/**
+	 * [Method]: parseNetwork
+	 * [Usage]: Reads a network from a JSON input one element at
+	 * a time. Only the element being read is kept as a JSON object,
+	 * so the whole input never needs to be in memory. Sections can
+	 * be in any order, and their elements can be given as an array
+	 * or under an "element" property.
+	 * 
+	 * @param reader			Reader positioned at the start of the input
+	 * @return					Network described by the input
+	 * @throws IOException		If the input can not be read
+	 */
+	public Network parseNetwork(JsonReader reader) throws IOException {
+		reader.setLenient(true);
+		
+		this.beginNetwork();
+		
+		reader.beginObject();
+		
+		while(reader.hasNext()) {
+			String section = reader.nextName();
+			
+			if(section.equals("devices") || section.equals("switches") || section.equals("flows")) {
+				this.readSection(reader, section, true);
+				this.endSection(section);
+			} else {
+				reader.skipValue();
+			}
+		}
 		
-		Network net = new Network();
+		reader.endObject();
 		
-		for(Switch swt : this.getListOfSwitches(networkJson)) {
-			net.addSwitch(swt);
+		return this.endNetwork();
+	}
+	
+	private void readSection(JsonReader reader, String section, boolean allowWrapper) throws IOException {
+		
+		switch(reader.peek()) {
+			case BEGIN_ARRAY:
+				reader.beginArray();
+				
+				while(reader.hasNext()) {
+					this.readSection(reader, section, false);
+				}
+				
+				reader.endArray();
+				break;
+			case BEGIN_OBJECT:
+				JsonObject object = JsonParser.parseReader(reader).getAsJsonObject();
+				
+				// Single elements of a section may also be wrapped under "element"
+				if(allowWrapper && object.has("element") && !object.has("name")) {
+					for(JsonElement element : this.getArrayFromElement(object, "element")) {
+						this.addElement(section, element.getAsJsonObject());
+					}
+				} else {
+					this.addElement(section, object);
+				}
+				break;
+			default:
+				reader.skipValue();
 		}
 		
-		for(Device dev : this.getListOfDevices(networkJson)) {
-			net.addDevice(dev);
+	}
+
+	public Network parseInput() {
+		
+		FileChannel channel = null;
+		
+		try {
+			channel = FileChannel.open(Paths.get(this.inputFilePath), StandardOpenOption.READ);
+			Reader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1), BUFFER_SIZE);
+			
+			return this.parseNetwork(new JsonReader(reader));
+		} catch(IOException e) {
+			this.printer.printIfLoggingIsEnabled("[ERROR] Could not read the input file " + this.inputFilePath + ": " + e.getMessage());
+		} finally {
+			if(channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					;
+				}
+			}
 		}
 		
-		this.setPortsOfSwitch(networkJson, net);
+		return null;
+	}
+	
+	public Network parseInputContent(String content) {
 		
-		for(Flow flw : this.getListOfFlows(networkJson, net)) {
-			net.addFlow(flw);
+		try {
+			return this.parseNetwork(new JsonReader(new StringReader(content)));
+		} catch(IOException e) {
+			this.printer.printIfLoggingIsEnabled("[ERROR] Could not read the input: " + e.getMessage());
 		}
-				
-		return net;
+		
+		return null;
 		
 	}
 
@@ -853,31 +1017,29 @@ public class JSONParser implements GenericParser {
 
 	}
 	
+	/**
+	 * [Method]: generateOutput
+	 * [Usage]: Writes the schedule of the network to the output
+	 * file (./output.json unless another path is given) through
+	 * the streaming writer.
+	 * 
+	 * @param net		Network containing the generated schedule
+	 */
 	public void generateOutput(Network net) {
 		
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();;
-		String outputPath = "./output.json";
+		String outputPath = (this.outputFilePath.isEmpty() ? "./output.json" : this.outputFilePath);
+		JSONOutputWriter writer = new JSONOutputWriter(outputPath);
 		
-		JsonObject networkObject = new JsonObject();
-		JsonArray switchList = new JsonArray();
+		writer.setCompactOutput(this.compactOutput);
+		writer.setEnablePacketTimeOutput(this.enablePacketTimeOutput);
 		
-
-		Map<String, Object> networkInfo = new HashMap<>();
-				
-		networkInfo.put("switches", this.extractSwitchInfoList(net));
-		networkInfo.put("flows", this.extractFlowInfoList(net));
-
-	    
 		try {
-		    Writer writer = new FileWriter(outputPath);
-			gson.toJson(networkInfo, writer);
-			writer.close();
+			writer.write(net);
 		} catch (JsonIOException | IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
 		
-		
 	}
 		
 
@@ -897,5 +1059,21 @@ public class JSONParser implements GenericParser {
 		this.enablePacketTimeOutput = enablePacketTimeOutput;
 	}
 
+	public String getOutputFilePath() {
+		return outputFilePath;
+	}
+
+	public void setOutputFilePath(String outputFilePath) {
+		this.outputFilePath = outputFilePath;
+	}
+
+	public Boolean getCompactOutput() {
+		return compactOutput;
+	}
+
+	public void setCompactOutput(Boolean compactOutput) {
+		this.compactOutput = compactOutput;
+	}
+
 	
 }
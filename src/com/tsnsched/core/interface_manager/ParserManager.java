@@ -1,19 +1,23 @@
 package com.tsnsched.core.interface_manager;
 
-import java.nio.charset.Charset;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
 
 import com.tsnsched.core.network.Network;
 
 public class ParserManager {
+	private static final int PEEK_SIZE = 64;
+	
 	private String inputFile = "";
-	private String fileContent = "";
 	private Printer printer;
 
 	private Boolean enablePacketTimeOutput = false;
+	private String outputFile = "";
+	private Boolean compactOutput = false;
 	
 	public ParserManager() {
 		;
@@ -24,20 +28,53 @@ public class ParserManager {
 	}
 	
 	public static char getFirstNonWhitespace(String string){
-	    char[] characters = string.toCharArray();
-	    
 	    for(int i = 0; i < string.length(); i++){
-	        if(!Character.isWhitespace(characters[i])){
-	            return characters[i];
+	        if(!Character.isWhitespace(string.charAt(i))){
+	            return string.charAt(i);
 	        }
 	    }
 	    return 'n';
 	}
 	
+	/**
+	 * [Method]: getFirstNonWhitespace
+	 * [Usage]: Reads the beginning of a file until its first character
+	 * that is not a whitespace, skipping the byte order mark of UTF-8.
+	 * Only this character is needed to tell the type of the input.
+	 * 
+	 * @param path				Path of the file
+	 * @return					First character that is not a whitespace, or 'n' if there is none
+	 * @throws IOException		If the file can not be read
+	 */
+	public static char getFirstNonWhitespace(Path path) throws IOException {
+		
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(path), PEEK_SIZE)) {
+			int value = stream.read();
+			
+			// Byte order mark of UTF-8 (EF BB BF)
+			if(value == 0xEF) {
+				stream.read();
+				stream.read();
+				value = stream.read();
+			}
+			
+			while(value != -1 && Character.isWhitespace(value)) {
+				value = stream.read();
+			}
+			
+			return (value == -1 ? 'n' : (char) value);
+		}
+		
+	}
+	
 	public GenericParser getParser(String content) {
+		return this.getParser(getFirstNonWhitespace(content));
+	}
+	
+	public GenericParser getParser(char firstCharacter) {
 		GenericParser parser = null;
 		
-		switch(this.getFirstNonWhitespace(content)) {
+		switch(firstCharacter) {
 			case '<':
 				this.printer.printIfLoggingIsEnabled("Input is XML");
 				parser = new XMLParser(this.inputFile);
@@ -51,9 +88,9 @@ public class ParserManager {
 				parser = new JSONParser(this.inputFile);
 				break;
 			default:
-				this.printer.printIfLoggingIsEnabled(this.getFirstNonWhitespace(content) + "");
+				this.printer.printIfLoggingIsEnabled(firstCharacter + "");
 				this.printer.printIfLoggingIsEnabled("Input not recognized");
-				break;		
+				return null;		
 		}
 		
 		parser.setPrinter(this.printer);
@@ -70,19 +107,18 @@ public class ParserManager {
 		
 		this.printer.printIfLoggingIsEnabled("Trying to detect type of input.");
 		
-		List<String> contentListOfLines; 
+		GenericParser parser;
+		
 		try {
-			contentListOfLines = Files.readAllLines(Paths.get(this.inputFile), Charset.forName("UTF-8"));
-		} catch(Exception e) {
-			contentListOfLines = new ArrayList<String>();
-		}
-
-		this.fileContent = "";
-		for(String line : contentListOfLines) {
-			this.fileContent += line;
+			parser = this.getParser(getFirstNonWhitespace(Paths.get(this.inputFile)));
+		} catch(IOException e) {
+			this.printer.printIfLoggingIsEnabled("[ERROR] Could not read the input file " + this.inputFile + ": " + e.getMessage());
+			return net;
 		}
 		
-		GenericParser parser = this.getParser(this.fileContent);
+		if(parser == null) {
+			return net;
+		}
 		
 		net = parser.parseInput();
 		
@@ -94,6 +130,10 @@ public class ParserManager {
 		
 		GenericParser parser = this.getParser(content);
 		
+		if(parser == null) {
+			return net;
+		}
+		
 		net = parser.parseInputContent(content);
 		
 		return net;
@@ -103,6 +143,8 @@ public class ParserManager {
 		
 		JSONParser parser = new JSONParser();
 		parser.setEnablePacketTimeOutput(this.enablePacketTimeOutput);
+		parser.setOutputFilePath(this.outputFile);
+		parser.setCompactOutput(this.compactOutput);
 		parser.generateOutput(net);
 		
 	}
@@ -131,5 +173,21 @@ public class ParserManager {
 		this.enablePacketTimeOutput = enablePacketTimeOutput;
 	}
 
+	public String getOutputFile() {
+		return outputFile;
+	}
+
+	public void setOutputFile(String outputFile) {
+		this.outputFile = outputFile;
+	}
+
+	public Boolean getCompactOutput() {
+		return compactOutput;
+	}
+
+	public void setCompactOutput(Boolean compactOutput) {
+		this.compactOutput = compactOutput;
+	}
+
 	
 }
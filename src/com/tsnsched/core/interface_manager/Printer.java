@@ -74,18 +74,19 @@ public class Printer {
 	/**
     * [Method]: writePathTree
     * [Usage]: This is a recursive function used to 
-    * navigate through the pathTree, storing information
-    * about the switches and flowFramengts in the nodes
-    * and printing data in the log.
+    * navigate through the pathTree, printing the data
+    * of the flowFragments in the nodes in the log. The
+    * values must have been retrieved from the model by
+    * the ModelExtractor.
     * 
     * @param pathNode  Current node of pathTree (should start with root)
-    * @param model     Output model generated by z3
+    * @param model     Output model generated by z3 (null if the values were merged from other networks)
     * @param ctx       z3 context used to generate the model
     * @param out       PrintWriter stream to output log file
     */
    public void writePathTree(PathNode pathNode, Model model, Context ctx, PrintWriter out) {
-       Switch swt;
-       IntExpr indexZ3 = null;
+       TSNSwitch swt;
+       Cycle cycle;
     
        if((pathNode.getNode() instanceof Device) && (pathNode.getParent() != null)) {
            this.logIfLoggingIsEnabled(out , "    [END OF BRANCH]");
@@ -96,161 +97,41 @@ public class Printer {
         * each switch children, there will be a flow fragment, and to each device
         * children, there will be an end of branch.
         * 
-        * The logic for storing and printing the data on the publish subscribe
-        * flows is similar but easier than the unicast flows. The pathNode object
-        * stores references to both flow fragment and switch, so no search is needed.
+        * The values printed were retrieved from the model by the model extractor
+        * and stored in the flow fragments and cycles. The pathNode object stores
+        * references to both flow fragment and switch, so no search is needed.
         */
     for(PathNode child : pathNode.getChildren()) {
         if(child.getNode() instanceof Switch) {
             
             for(FlowFragment ffrag : child.getFlowFragments()) {
             	
-            	/*
-            	this.printIfLoggingIsEnabled("Fragment " + ffrag.getName() + " : " + 
-            						((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getName()
-    			);
-            	*/
-            	int prt = Integer.parseInt(model.eval(ffrag.getFragmentPriorityZ3(), false).toString());
+            	swt = (TSNSwitch) child.getNode();
+            	cycle = swt.getPortOf(ffrag.getNextHop()).getCycle();
+            	int prt = ffrag.getFragmentPriority();
             	
                 this.logIfLoggingIsEnabled(out ,"    Fragment name: " + ffrag.getName());
                 this.logIfLoggingIsEnabled(out ,"        Fragment node: " + ffrag.getNodeName());
                 this.logIfLoggingIsEnabled(out, "        Fragment next hop: " + ffrag.getNextHop());
-                this.logIfLoggingIsEnabled(out, "        Fragment priority: " + model.eval(ffrag.getFragmentPriorityZ3(), false));
-                this.logIfLoggingIsEnabled(out, "        Fragment size: " + model.eval(ffrag.getPacketSizeZ3(), false));
-                this.logIfLoggingIsEnabled(out, "        Port cycle start: " + model.eval(ffrag.getPort().getCycle().getFirstCycleStartZ3(), false));
-                for(int index = 0; index < ((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getNumOfSlots(prt); index++) {
-             	   indexZ3 = ctx.mkInt(index);
-             	   this.logIfLoggingIsEnabled(out, "        Fragment slot start " + index + ": " 
-                            + this.stringToDouble(
-                                    model.eval(((TSNSwitch) child.getNode())
-                                           .getPortOf(ffrag.getNextHop())
-                                           .getCycle()
-                                           .slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                           , false).toString()
-                                )
-                           + " ; " + model.eval(((TSNSwitch) child.getNode())
-                                   .getPortOf(ffrag.getNextHop())
-                                   .getCycle()
-                                   .slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                   , false).toString()
-             			   );
-
-             	   this.logIfLoggingIsEnabled(out, "        Fragment slot duration " + index + " : " 
-                             + this.stringToDouble(
-                                 model.eval(((TSNSwitch) child.getNode())
-                                            .getPortOf(ffrag.getNextHop())
-                                            .getCycle()
-                                            .slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                            , false).toString())
-                             + " ; " + model.eval(((TSNSwitch) child.getNode())
-                                     .getPortOf(ffrag.getNextHop())
-                                     .getCycle()
-                                     .slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) 
-                                     , false).toString()
-             			   );
-         
+                this.logIfLoggingIsEnabled(out, "        Fragment priority: " + prt);
+                this.logIfLoggingIsEnabled(out, "        Fragment size: " + 
+                		(model == null ? ffrag.getPacketSize() : model.eval(ffrag.getPacketSizeZ3(), false)));
+                this.logIfLoggingIsEnabled(out, "        Port cycle start: " + ffrag.getPort().getCycle().getFirstCycleStart());
+                
+                if(cycle.getSlotsUsed().contains(prt)) {
+	                for(int index = 0; index < cycle.getSlotStartList(prt).size(); index++) {
+	             	   this.logIfLoggingIsEnabled(out, "        Fragment slot start " + index + ": " + cycle.getSlotStart(prt, index));
+	             	   this.logIfLoggingIsEnabled(out, "        Fragment slot duration " + index + " : " + cycle.getSlotDuration(prt, index));
+	                }
                 }
                 
                 this.logIfLoggingIsEnabled(out, "        Fragment times-");
-                ffrag.getParent().addToTotalNumOfPackets(ffrag.getNumOfPacketsSent());
-				ffrag.resetOutputLists();
                 
-                for(int i = 0; i < ffrag.getParent().getNumOfPacketsSent(); i++) {
-             	   if(i < ffrag.getNumOfPacketsSent()) {
-	                	   this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment departure time: " + this.stringToDouble(model.eval(((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag) , false).toString())); // + " ; " + ((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag));
-	                	   this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment arrival time: " + this.stringToDouble(model.eval(((TSNSwitch) child.getNode()).arrivalTime(ctx, i, ffrag) , false).toString())); // + " ; " + ((TSNSwitch) child.getNode()).arrivalTime(ctx, i, ffrag));
-	                       this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment scheduled time: " + this.stringToDouble(model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString())); // + " ; " + ((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag));
-	                       this.logIfLoggingIsEnabled(out, "          ----------------------------");
-             	   }
-                    
-             	   ffrag.setFragmentPriority(
-         			   Integer.parseInt(
-             			   model.eval(ffrag.getFragmentPriorityZ3(), false).toString()
- 					   )
-     			   );
-             	   
-             	   if(ffrag.getDepartureTimeList().size() == 0) {
-             		   ffrag.setFlowFirstSendingTime(this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag) , false).toString()   
-                        ));
-             	   }
-
-                    ffrag.addDepartureTime(
-                        this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).departureTime(ctx, i, ffrag) , false).toString()   
-                        )
-                    );
-                    ffrag.addArrivalTime(
-                        this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).arrivalTime(ctx, i, ffrag) , false).toString()   
-                        )
-                    );
-                    ffrag.addScheduledTime(
-                        this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString()   
-                        )
-                    );
-                    
-                    /*
-                    this.printIfLoggingIsEnabled(
-                		((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) 
-                		+
-                		" : "
-                		+
-                		this.stringToDouble(
-                            model.eval(((TSNSwitch) child.getNode()).scheduledTime(ctx, i, ffrag) , false).toString()   
-                        )	
-            		);
-                    */
-                }
-                
-                swt = (TSNSwitch) child.getNode();
-
-                for (Port port : ((TSNSwitch) swt).getPorts()) {
-
-                    if(!port.getFlowFragments().contains(ffrag)) {
-                        continue;
-                    }
-
-                    ArrayList<Double> listOfStart = new ArrayList<Double>();
-             	    ArrayList<Double> listOfDuration = new ArrayList<Double>();
-             	
-                    
-                    for(int index = 0; index < ((TSNSwitch) child.getNode()).getPortOf(ffrag.getNextHop()).getCycle().getNumOfSlots(prt); index++) {
-                 	   indexZ3 = ctx.mkInt(index);
-                 	   
-             		   listOfStart.add(
-         				   this.stringToDouble(model.eval( 
-                                ((TSNSwitch) child.getNode())
-                                .getPortOf(ffrag.getNextHop())
-                                .getCycle().slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString())
-     				   );
-             		   listOfDuration.add(
-         				   this.stringToDouble(model.eval( 
-                                ((TSNSwitch) child.getNode())
-                                .getPortOf(ffrag.getNextHop())
-                                .getCycle().slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString())
-     				   );
-             		   
-             		   /*
-                       System.out.println( this.stringToDouble(model.eval( 
-                               ((TSNSwitch) child.getNode())
-                               .getPortOf(ffrag.getNextHop())
-                               .getCycle().slotStartZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString()));
-                       System.out.println( this.stringToDouble(model.eval( 
-                               ((TSNSwitch) child.getNode())
-                               .getPortOf(ffrag.getNextHop())
-                               .getCycle().slotDurationZ3(ctx, ffrag.getFragmentPriorityZ3(), indexZ3) , false).toString())
-    				   );
-                       /**/
-                    }
-             	   
-                    port.getCycle().addSlotUsed(
-                        (int) this.stringToDouble(model.eval(ffrag.getFragmentPriorityZ3(), false).toString()), 
-                        listOfStart, 
-                        listOfDuration
-                    );
-                    
+                for(int i = 0; i < ffrag.getNumOfPacketsSent() && i < ffrag.getDepartureTimeList().size(); i++) {
+                	this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment departure time: " + ffrag.getDepartureTime(i));
+                	this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment arrival time: " + ffrag.getArrivalTime(i));
+                    this.logIfLoggingIsEnabled(out, "          (" + Integer.toString(i) + ") Fragment scheduled time: " + ffrag.getScheduledTime(i));
+                    this.logIfLoggingIsEnabled(out, "          ----------------------------");
                 }
                 
             }
@@ -261,9 +142,19 @@ public class Printer {
    }
 	
    
+   /*
+    * The model may be null when the values of the network were merged
+    * from networks solved in other contexts, in which case the values
+    * stored in the network objects are logged.
+    */
    public void generateLog(String logName, Network net, Context ctx, Model model) {
 	   this.printIfLoggingIsEnabled("- Model generated successfully.");
        
+       // The values of the schedule are retrieved by the model extractor, so there is nothing left to do without a log file
+       if(!this.enableLoggerFile) {
+    	   return;
+       }
+       
        try {
            PrintWriter out = null; 
            
@@ -303,38 +194,6 @@ public class Printer {
                }
                /**/
                
-               
-               
-               // [EXTRACTING OUTPUT]: Obtaining the z3 output of the switch properties,
-               // converting it from string to double and storing in the objects
-                                        
-               for (Port port : ((TSNSwitch)auxSwt).getPorts()) {
-
-            	   if(port.getFlowFragments().isEmpty()) {
-            		   continue;            		   
-            	   }
-            	   
-                   port
-                       .getCycle()
-                       .setCycleStart(
-                           this.stringToDouble("" + model.eval(port.getCycle().getFirstCycleStartZ3(), false))
-                       );
-               
-                   // cycleDuration
-                   port
-                       .getCycle()
-                       .setCycleDuration(
-                           this.stringToDouble("" + model.eval(port.getCycle().getCycleDurationZ3(), false))
-                       );
-                   port
-	                   .getCycle()
-	                   .setFirstCycleStart(
-	                       this.stringToDouble("" + model.eval(port.getCycle().getFirstCycleStartZ3(), false))
-	                   );
-               
-
-               }
-               
            }
            
            this.logIfLoggingIsEnabled(out, "");
@@ -359,10 +218,10 @@ public class Printer {
                //this.logIfLoggingIsEnabled(out, "    Flow priority:" + model.eval(f.getFlowPriority(), false));
                //this.logIfLoggingIsEnabled(out, "    Flow latency:" + model.eval(f.getFlowPriority(), false));
                //this.logIfLoggingIsEnabled(out, "    Flow latency:" + model.eval(f.getJitterZ3(), false));
-               this.logIfLoggingIsEnabled(out, "    Start first t1: " + model.eval(f.getFlowFirstSendingTimeZ3(), false));
-               f.setFlowFirstSendingTime(this.stringToDouble(model.eval(f.getFlowFirstSendingTimeZ3(), false).toString()));
+               this.logIfLoggingIsEnabled(out, "    Start first t1: " + f.getFlowFirstSendingTime());
                this.logIfLoggingIsEnabled(out, "    Start HC: " + f.getFlowMaximumLatency());
-               this.logIfLoggingIsEnabled(out, "    Start packet periodicity: " + model.eval(f.getFlowSendingPeriodicityZ3(), false));
+               this.logIfLoggingIsEnabled(out, "    Start packet periodicity: " + 
+            		   (model == null ? f.getFlowSendingPeriodicity() : model.eval(f.getFlowSendingPeriodicityZ3(), false)));
                
                
                // IF FLOW IS UNICAST
@@ -7,21 +7,35 @@ import com.tsnsched.core.components.Port;
 import com.tsnsched.core.network.*;
 import com.tsnsched.core.schedule_generator.*;
 
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.StandardOpenOption;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.XML;
 import com.google.gson.*;
 
+/**
+ * [Class]: XMLParser
+ * [Usage]: Reads a network from an XML input with a StAX reader. Each
+ * element of the devices, switches and flows is converted into the
+ * same object the JSON input would give for it (child tags become
+ * properties and repeated tags become lists) and is added to the
+ * network by a JSONParser as soon as it is read.
+ */
 public class XMLParser implements GenericParser {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
 	String inputFilePath = "";
 	String outputFilePath = "";
-	String fileContent = "";
 	
 	private Printer printer;
 	
@@ -34,46 +48,136 @@ public class XMLParser implements GenericParser {
 	}
 	
 	public Network parseInput() {
-		Network net = null;
-
-		List<String> contentListOfLines; 
-		try {
-			contentListOfLines = Files.readAllLines(Paths.get(this.inputFilePath), Charset.forName("UTF-8"));
-		} catch(Exception e) {
-			contentListOfLines = new ArrayList<String>();
-		}
 		
-		for(String line : contentListOfLines) {
-			this.fileContent += line;
+		try (FileChannel channel = FileChannel.open(Paths.get(this.inputFilePath), StandardOpenOption.READ);
+			 InputStream stream = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE)) {
+			
+			XMLStreamReader reader = this.createFactory().createXMLStreamReader(stream);
+			
+			try {
+				return this.parseNetwork(reader);
+			} finally {
+				reader.close();
+			}
+		} catch(IOException | XMLStreamException e) {
+			this.printer.printIfLoggingIsEnabled("[ERROR] Could not read the input file " + this.inputFilePath + ": " + e.getMessage());
 		}
 		
-		net = this.parseInputContent(this.fileContent);
-		
-		return net;
+		return null;
 	
 	}
 	
 
 	public Network parseInputContent(String content) {
 
-		Network net = null;
-		String jsonPrettyPrintString = null;
-			
 		try {
-	        JSONObject json = XML.toJSONObject(content); // converts xml to json
-	        jsonPrettyPrintString = json.toString(4); // json pretty print
-	        jsonPrettyPrintString = jsonPrettyPrintString.replace("{\"network\": ", "");
-	        jsonPrettyPrintString = jsonPrettyPrintString.substring(0,jsonPrettyPrintString.length()-1);  
-
-		} catch(JSONException je) {
-			;
+			XMLStreamReader reader = this.createFactory().createXMLStreamReader(new StringReader(content));
+			
+			try {
+				return this.parseNetwork(reader);
+			} finally {
+				reader.close();
+			}
+		} catch(XMLStreamException e) {
+			this.printer.printIfLoggingIsEnabled("[ERROR] Could not read the input: " + e.getMessage());
 		}
-
+		
+		return null;
+		
+	}
+	
+	private XMLInputFactory createFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		
+		// The input only describes a network, so no external content is loaded
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		
+		return factory;
+	}
+	
+	
+	/**
+	 * [Method]: parseNetwork
+	 * [Usage]: Reads the sections under the root tag of the input
+	 * and gives each of their elements to a JSONParser, which builds
+	 * the network.
+	 * 
+	 * @param reader				Reader positioned at the start of the input
+	 * @return						Network described by the input
+	 * @throws XMLStreamException	If the input is not valid XML
+	 */
+	public Network parseNetwork(XMLStreamReader reader) throws XMLStreamException {
 		JSONParser jsonParser = new JSONParser();
-		net = jsonParser.parseInputContent(jsonPrettyPrintString);
+		jsonParser.setPrinter(this.printer);
+		jsonParser.beginNetwork();
+		
+		reader.nextTag();
 		
-		return net;
+		while(reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String section = reader.getLocalName();
+			
+			if(!section.equals("devices") && !section.equals("switches") && !section.equals("flows")) {
+				this.readElement(reader);
+				continue;
+			}
+			
+			while(reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				JsonElement element = this.readElement(reader);
+				
+				if(element.isJsonObject()) {
+					jsonParser.addElement(section, element.getAsJsonObject());
+				}
+			}
+			
+			jsonParser.endSection(section);
+		}
+		
+		return jsonParser.endNetwork();
+	}
+	
+	/*
+	 * Reads the tag the reader is positioned at, up to its end tag. Tags
+	 * with only text become strings, which the JSONParser converts when
+	 * reading the values.
+	 */
+	private JsonElement readElement(XMLStreamReader reader) throws XMLStreamException {
+		JsonObject object = null;
+		StringBuilder text = new StringBuilder();
+		
+		while(reader.hasNext()) {
+			int event = reader.next();
+			
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
+				JsonElement child = this.readElement(reader);
+				
+				if(object == null) {
+					object = new JsonObject();
+				}
+				
+				if(!object.has(name)) {
+					object.add(name, child);
+				} else if(object.get(name).isJsonArray()) {
+					object.getAsJsonArray(name).add(child);
+				} else {
+					JsonArray list = new JsonArray();
+					list.add(object.get(name));
+					list.add(child);
+					object.add(name, list);
+				}
+			} else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+				text.append(reader.getText());
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		
+		if(object != null) {
+			return object;
+		}
 		
+		return new JsonPrimitive(text.toString().trim());
 	}
 	
 	public static void main(String []args) {
@@ -9,10 +9,12 @@ package com.tsnsched.core.network;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Stack;
 
 import com.microsoft.z3.*;
+import com.tsnsched.core.components.ConstraintSink;
 import com.tsnsched.core.components.Flow;
 import com.tsnsched.core.components.FlowFragment;
 import com.tsnsched.core.components.PathNode;
@@ -33,8 +35,11 @@ import com.tsnsched.core.nodes.TSNSwitch;
 public class Network implements Serializable {
 	private NetworkModificationHandler netModHandler;
 	private Boolean hasBeenModified = false;
+	private transient boolean lazyPairwiseRules = false;
+	private transient NetworkJournal journal;
 	
 	private transient Printer printer;
+	private transient LinkedHashMap<String, Object> scheduleInfo;
 
 	private static final long serialVersionUID = 1L;
 	String db_name;
@@ -54,8 +59,11 @@ public class Network implements Serializable {
     public transient ArrayList<RealExpr> allSumOfJitter = new ArrayList<RealExpr>();
     public ArrayList<Integer> numberOfNodes = new ArrayList<Integer>();
     
-    public static int PACKETUPPERBOUNDRANGE = 5; // Limits the applications of rules to the packets
-    public static int CYCLEUPPERBOUNDRANGE = 25; // Limits the applications of rules to the cycles
+    public static int PACKETUPPERBOUNDRANGE = 5; // Default limit of the applications of rules to the packets
+    public static int CYCLEUPPERBOUNDRANGE = 25; // Default limit of the applications of rules to the cycles
+    
+    private int packetUpperBoundRange = PACKETUPPERBOUNDRANGE; // Caps the number of packets of a port
+    private int cycleUpperBoundRange = CYCLEUPPERBOUNDRANGE; // Caps the number of cycles of a port
     
     private double jitterUpperBoundRange = -1;
 	transient RealExpr jitterUpperBoundRangeZ3;
@@ -116,12 +124,24 @@ public class Network implements Serializable {
      * @param ctx       z3 context which specify the environment of constants, functions and variables
      */
     public void secureHC(Solver solver, Context ctx) {
-    	avgLatencyPerDev = new ArrayList<RealExpr>();
-        
+    	this.secureHC(solver, ctx, this.getFlows());
+    }
+    
+    /**
+     * [Method]: SecureHC
+     * [Usage]: Sets up the scheduling rules of the modified ports and
+     * the hard constraints of the given flows only. Used when flows are
+     * added to a network whose remaining flows are already fixed in the
+     * solver.
+     * 
+     * @param solver    		z3 solver object used to discover the variables' values
+     * @param ctx       		z3 context which specify the environment of constants, functions and variables
+     * @param flowsToSecure		Flows that will have their hard constraints established
+     */
+    public void secureHC(Solver solver, Context ctx, List<Flow> flowsToSecure) {
+    	ConstraintSink sink = ConstraintSink.of(ctx, solver);
     	
-        if(jitterUpperBoundRange != -1) { // If there is a value on the upperBoundRange, it was set through the network
-            this.setJitterUpperBoundRangeZ3(ctx, this.jitterUpperBoundRange);
-        }
+    	this.prepareHC(ctx);
         
         Stack<RealExpr> jitterList = new Stack<RealExpr>();
         int totalNumOfLeaves = 0;
@@ -143,134 +163,174 @@ public class Network implements Serializable {
          *  constraint  
          */
         
-        for(Flow flw : this.getFlows()) {
-        	flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
-
-            flw.bindAllFragments(solver, ctx);
-
-            solver.add( // No negative cycle values constraint
-                ctx.mkGe(
-                    flw.getStartDevice().getFirstT1TimeZ3(),
-                    (RealExpr) ctx.mkReal(0)
-                )
-            );
-            solver.add( // Maximum transmission offset constraint
-                ctx.mkLe(
-                    flw.getStartDevice().getFirstT1TimeZ3(),
-                    flw.getStartDevice().getPacketPeriodicityZ3() 
-                )
-            );
+        for(Flow flw : flowsToSecure) {
+        	this.secureFlowHC(solver, ctx, flw);
+        }
+        
+        // The remaining rules are given to the solver, so the number of assertions read after this call is complete
+        sink.flush();
+        sink.report(this, this.printer);
+        
+    }
+    
+    
+    /**
+     * [Method]: prepareHC
+     * [Usage]: Resets the values shared by the hard constraints of
+     * the flows before they are set up.
+     * 
+     * @param ctx       z3 context which specify the environment of constants, functions and variables
+     */
+    public void prepareHC(Context ctx) {
+    	avgLatencyPerDev = new ArrayList<RealExpr>();
+    	
+        if(jitterUpperBoundRange != -1) { // If there is a value on the upperBoundRange, it was set through the network
+            this.setJitterUpperBoundRangeZ3(ctx, this.jitterUpperBoundRange);
+        }
+    }
+    
+    /**
+     * [Method]: secureFlowHC
+     * [Usage]: Sets up the hard constraint of a single flow: its first
+     * transmission offset, its latency and, for publish subscribe flows,
+     * its jitter. The rules of the ports the flow goes through are not
+     * set here.
+     * 
+     * @param solver    z3 solver object used to discover the variables' values
+     * @param ctx       z3 context which specify the environment of constants, functions and variables
+     * @param flw		Flow that will have its hard constraint established
+     */
+    public void secureFlowHC(Solver solver, Context ctx, Flow flw) {
+    	ConstraintSink sink = ConstraintSink.of(ctx, solver);
+    	
+    	flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
+
+        flw.bindAllFragments(solver, ctx);
+
+        sink.add("flowOffset", // No negative cycle values constraint
+            ctx.mkGe(
+                flw.getStartDevice().getFirstT1TimeZ3(),
+                (RealExpr) ctx.mkReal(0)
+            )
+        );
+        sink.add("flowOffset", // Maximum transmission offset constraint
+            ctx.mkLe(
+                flw.getStartDevice().getFirstT1TimeZ3(),
+                flw.getStartDevice().getPacketPeriodicityZ3() 
+            )
+        );
+        
+        
+        
+        if(flw.getType() == Flow.UNICAST) {
+            
+            ArrayList<FlowFragment> currentFrags = flw.getFlowFragments();
+            ArrayList<Switch> path = flw.getPath();
             
             
+            //Make sure that HC is respected
+            for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+                sink.add("hardConstraint",
+                        ctx.mkLe(
+                            ctx.mkSub(
+                                ((TSNSwitch) path.get(path.size() - 1)).scheduledTime(ctx, i, currentFrags.get(currentFrags.size() - 1)),
+                                ((TSNSwitch) path.get(0)).departureTime(ctx, i, currentFrags.get(0))
+                            ),
+                            flw.getStartDevice().getHardConstraintTimeZ3()  
+                        )                   
+                  );
+            }
+           
+        } else if (flw.getType() == Flow.PUBLISH_SUBSCRIBE) {
+            PathNode root = flw.getPathTree().getRoot();
+            ArrayList<PathNode> leaves = flw.getPathTree().getLeaves();
+            ArrayList<PathNode> parents = new ArrayList<PathNode>();
             
-            if(flw.getType() == Flow.UNICAST) {
+            // Make list of parents of all leaves
+            for(PathNode leaf : leaves) {
                 
-                ArrayList<FlowFragment> currentFrags = flw.getFlowFragments();
-                ArrayList<Switch> path = flw.getPath();
+                if(!parents.contains(leaf.getParent())){
+                    parents.add(leaf.getParent());
+                }
                 
                 
-                //Make sure that HC is respected
-                for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
-                    solver.add(
-                            ctx.mkLe(
-                                ctx.mkSub(
-                                    ((TSNSwitch) path.get(path.size() - 1)).scheduledTime(ctx, i, currentFrags.get(currentFrags.size() - 1)),
-                                    ((TSNSwitch) path.get(0)).departureTime(ctx, i, currentFrags.get(0))
-                                ),
-                                flw.getStartDevice().getHardConstraintTimeZ3()  
-                            )                   
-                      );
+                // Set the maximum allowed jitter
+                for(int index = 0; index < flw.getNumOfPacketsSent(); index++) {
+                	sink.add("jitter", // Maximum allowed jitter constraint
+                        ctx.mkLe(
+                            flw.getJitterZ3((Device) leaf.getNode(), solver, ctx, index),
+                            (flw.getFlowMaximumJitter() < 0 ? this.jitterUpperBoundRangeZ3 : ctx.mkReal(Double.toString(flw.getFlowMaximumJitter())))
+                        )
+                    );
                 }
-               
-            } else if (flw.getType() == Flow.PUBLISH_SUBSCRIBE) {
-                PathNode root = flw.getPathTree().getRoot();
-                ArrayList<PathNode> leaves = flw.getPathTree().getLeaves();
-                ArrayList<PathNode> parents = new ArrayList<PathNode>();
                 
-                // Make list of parents of all leaves
-                for(PathNode leaf : leaves) {
-                    
-                    if(!parents.contains(leaf.getParent())){
-                        parents.add(leaf.getParent());
-                    }
-                    
-                    
-                    // Set the maximum allowed jitter
-                    for(int index = 0; index < flw.getNumOfPacketsSent(); index++) {
-                    	solver.add( // Maximum allowed jitter constraint
+            }
+            
+         // Iterate over the flows of each leaf parent, assert HC
+            for(PathNode parent : parents) {
+                for(FlowFragment ffrag : parent.getFlowFragments()) {
+                	for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+
+            			sink.add("latency", // Maximum Allowed Latency constraint
                             ctx.mkLe(
-                                flw.getJitterZ3((Device) leaf.getNode(), solver, ctx, index),
-                                (flw.getFlowMaximumJitter() < 0 ? this.jitterUpperBoundRangeZ3 : ctx.mkReal(Double.toString(flw.getFlowMaximumJitter())))
-                            )
-                        );
-                    }
-                    
-                }
-                
-             // Iterate over the flows of each leaf parent, assert HC
-                for(PathNode parent : parents) {
-                    for(FlowFragment ffrag : parent.getFlowFragments()) {
-                    	for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
-
-                			solver.add( // Maximum Allowed Latency constraint
-                                ctx.mkLe(
-                                		ctx.mkAdd(
-                                				ctx.mkReal(Double.toString(ffrag.getParent().getPacketSize()/
-                                						((TSNSwitch) root.getChildren().get(0).getNode()).getPortOf(ffrag.getParent().getStartDeviceName()).getPortSpeed()))                              				
-                                				,ctx.mkSub(
-                                                        ((TSNSwitch) parent.getNode()).scheduledTime(ctx, i, ffrag),
-                                                        ((TSNSwitch) root.getChildren().get(0).getNode()).departureTime(ctx, i, 
-                                                            root.getChildren().get(0).getFlowFragments().get(0)
-                                                        )
+                            		ctx.mkAdd(
+                            				ctx.mkReal(Double.toString(ffrag.getParent().getPacketSize()/
+                            						((TSNSwitch) root.getChildren().get(0).getNode()).getPortOf(ffrag.getParent().getStartDeviceName()).getPortSpeed()))                              				
+                            				,ctx.mkSub(
+                                                    ((TSNSwitch) parent.getNode()).scheduledTime(ctx, i, ffrag),
+                                                    ((TSNSwitch) root.getChildren().get(0).getNode()).departureTime(ctx, i, 
+                                                        root.getChildren().get(0).getFlowFragments().get(0)
                                                     )
-                                				)
-                                    ,
-                                    ctx.mkReal(Double.toString(flw.getFlowMaximumLatency()))
-                                )                   
-                            );
+                                                )
+                            				)
+                                ,
+                                ctx.mkReal(Double.toString(flw.getFlowMaximumLatency()))
+                            )                   
+                        );
 
-                        }
-                    } 
-                    
-                }
-                
-                /*
-                
-                // TODO: CHECK FAIRNESS CONSTRAINT (?)
-                
-                sumOfAllJitter = flw.getSumOfAllDevJitterZ3(solver, ctx, Network.PACKETUPPERBOUNDRANGE - 1);
+                    }
+                } 
                 
-                jitterList.push(sumOfAllJitter);
-                totalNumOfLeaves += flw.getPathTree().getLeaves().size();
+            }
+            
+            /*
+            
+            // TODO: CHECK FAIRNESS CONSTRAINT (?)
+            
+            sumOfAllJitter = flw.getSumOfAllDevJitterZ3(solver, ctx, Network.PACKETUPPERBOUNDRANGE - 1);
+            
+            jitterList.push(sumOfAllJitter);
+            totalNumOfLeaves += flw.getPathTree().getLeaves().size();
+            
+            // SET THE MAXIMUM JITTER FOR THE FLOW    
+            solver.add(
+                ctx.mkLe(
+                    ctx.mkDiv(
+                        sumOfAllJitter,
+                        ctx.mkReal(flw.getPathTree().getLeaves().size() * (PACKETUPPERBOUNDRANGE))
+                    ),  
+                    jitterUpperBoundRangeZ3
+                )
+            );
+            */
+            
+            avgOfAllLatency = flw.getAvgLatency(solver, ctx);
+            for(PathNode node : flw.getPathTree().getLeaves()) {
+                Device endDev = (Device) node.getNode();
                 
-                // SET THE MAXIMUM JITTER FOR THE FLOW    
-                solver.add(
-                    ctx.mkLe(
-                        ctx.mkDiv(
-                            sumOfAllJitter,
-                            ctx.mkReal(flw.getPathTree().getLeaves().size() * (PACKETUPPERBOUNDRANGE))
-                        ),  
-                        jitterUpperBoundRangeZ3
+                this.avgLatencyPerDev.add(
+                    (RealExpr) ctx.mkDiv(
+                        flw.getSumOfJitterZ3(endDev, solver, ctx, flw.getNumOfPacketsSent() - 1),
+                        ctx.mkReal(flw.getNumOfPacketsSent())
                     )
                 );
-                */
-                
-                avgOfAllLatency = flw.getAvgLatency(solver, ctx);
-                for(PathNode node : flw.getPathTree().getLeaves()) {
-                    Device endDev = (Device) node.getNode();
-                    
-                    this.avgLatencyPerDev.add(
-                        (RealExpr) ctx.mkDiv(
-                            flw.getSumOfJitterZ3(endDev, solver, ctx, flw.getNumOfPacketsSent() - 1),
-                            ctx.mkReal(flw.getNumOfPacketsSent())
-                        )
-                    );
-                }
-                
             }
-        
+
         }
-        
+
+        // The latency and jitter variables are shared by the rules of this flow only, and may be popped with them
+        flw.clearZ3Cache();
+
     }
     
     
@@ -287,6 +347,9 @@ public class Network implements Serializable {
     	// TODO: Don't forget to load the values of this class
     	boolean hasFlow = false;
     	
+    	// The bounds are derived again, as the caps may differ from the ones of the serialized network
+    	this.setUpBounds();
+    	
     	if(this.jitterUpperBoundRange < 0) {
     		this.jitterUpperBoundRangeZ3 = ctx.mkRealConst("networkJitterUpperboundRange");
     	} else {
@@ -360,6 +423,15 @@ public class Network implements Serializable {
     	this.hasBeenModified = true;
     	
     	if(element instanceof Port) {
+    		// The change is journaled before it is applied
+    		if(this.journal != null) {
+    			try {
+    				this.journal.appendModification((Port) element, propertyID, value);
+    			} catch (IOException e) {
+    				throw new UncheckedIOException("Could not append the change to " + this.journal.getPath(), e);
+    			}
+    		}
+    		
     		this.netModHandler.modifyProperty((Port)element, propertyID, value);
     	}
     	
@@ -379,28 +451,56 @@ public class Network implements Serializable {
 
             }
 
-            this.assertRulesForCollisionPrevention(listOfFlows, solver, context);
+            this.assertRulesForCollisionPrevention(listOfFlows, solver, context, null);
 
         }
 
     }
 
-    private void assertRulesForCollisionPrevention(List<Flow> listOfFlows, Solver solver, Context ctx) {
+    /**
+     * [Method]: preventCollisionOnFirstHop
+     * [Usage]: Prevents collisions on the first hop only between the
+     * given flows and the other flows leaving the same devices. Pairs
+     * of flows that are not in the given list are not constrained again.
+     * 
+     * @param solver		z3 solver object
+     * @param context		z3 context
+     * @param addedFlows	Flows added to the network
+     */
+    public void preventCollisionOnFirstHop(Solver solver, Context context, List<Flow> addedFlows) {
+        List<Flow> listOfFlows = null;
+        List<String> startDevices = new ArrayList<String>();
+
+        for(Flow flow : addedFlows) {
+        	if(!startDevices.contains(flow.getStartDevice().getName())) {
+        		startDevices.add(flow.getStartDevice().getName());
+        	}
+        }
+
+        for(String devName : startDevices){
+            listOfFlows = new ArrayList<Flow>();
+
+            for(Flow flow : this.flows){
+
+                if(flow.getStartDevice().getName().equals(devName)){
+                    listOfFlows.add(flow);
+                }
+
+            }
+
+            this.assertRulesForCollisionPrevention(listOfFlows, solver, context, addedFlows);
+
+        }
+
+    }
+
+    private void assertRulesForCollisionPrevention(List<Flow> listOfFlows, Solver solver, Context ctx, List<Flow> addedFlows) {
 
         double currentPortSpeed = -1;
 
         if(listOfFlows.size() > 1){
 
-            currentPortSpeed =
-                    ((TSNSwitch) listOfFlows // From the list of flows
-                    .get(0)                  // give me the first one
-                    .getPathTree()           // and give me its path tree
-                    .getRoot()               // so I can get the source of the flow
-                    .getChildren()           // and the first hops from the source
-                    .get(0)                  // Since one flow connects to one device, give me the node device it talks to
-                    .getNode())              // and get the object of that node, converting it to a tsnswitch
-                    .getPortOf(listOfFlows.get(0).getStartDevice().getName()) // Now give me the port that the source device talks to
-                    .getPortSpeed();         // and from the port, give me the speed.
+            currentPortSpeed = this.getFirstHopPortSpeed(listOfFlows.get(0));
         } else {
             return;
         }
@@ -453,30 +553,18 @@ public class Network implements Serializable {
                             continue;
                         }
 
-                        solver.add(
-                            ctx.mkOr(
-                                ctx.mkGe(
-                                    fragA.getPort().departureTime(ctx, i, fragA),
-                                    ctx.mkAdd(
-                                        fragB.getPort().departureTime(ctx, j, fragB),
-                                        ctx.mkDiv(
-                                            fragA.getPacketSizeZ3(),
-                                            ctx.mkReal(Double.toString(currentPortSpeed))
-                                        )
-                                    )
-                                ),
-                                ctx.mkGe(
-                                    fragB.getPort().departureTime(ctx, i, fragB),
-                                    ctx.mkAdd(
-                                        fragA.getPort().departureTime(ctx, j, fragA),
-                                        ctx.mkDiv(
-                                            fragB.getPacketSizeZ3(),
-                                            ctx.mkReal(Double.toString(currentPortSpeed))
-                                        )
-                                    )
-                                )
-                            )
-                        );
+                        if(addedFlows != null && 
+                           !addedFlows.contains(fragA.getParent()) && 
+                           !addedFlows.contains(fragB.getParent())) {
+                        	continue;
+                        }
+
+                        // Collisions are only prevented when a schedule has them
+                        if(this.lazyPairwiseRules) {
+                        	continue;
+                        }
+
+                        solver.add(this.collisionPreventionRule(ctx, fragA, i, fragB, j, currentPortSpeed));
 
                         /* FOR DEBUGGING PURPOSES
                         this.printer.printIfLoggingIsEnabled(
@@ -605,7 +693,64 @@ public class Network implements Serializable {
     	
     }
     
-    private List<FlowFragment> getFragmentsOfFirstHop(List<Flow> flowList) {
+    /**
+     * [Method]: collisionPreventionRule
+     * [Usage]: Creates the rule stating that two packets of flows leaving
+     * the same device are not sent at the same time on the first hop.
+     * 
+     * @param ctx           z3 context which specify the environment of constants, functions and variables
+     * @param fragA         First hop fragment of the first flow
+     * @param i             Index of the packet of the first flow
+     * @param fragB         First hop fragment of the second flow
+     * @param j             Index of the packet of the second flow
+     * @param portSpeed     Speed of the port connecting the device to the network
+     * @return              Rule preventing the collision of the packets
+     */
+    public BoolExpr collisionPreventionRule(Context ctx, FlowFragment fragA, int i, FlowFragment fragB, int j, double portSpeed) {
+        return ctx.mkOr(
+            ctx.mkGe(
+                fragA.getPort().departureTime(ctx, i, fragA),
+                ctx.mkAdd(
+                    fragB.getPort().departureTime(ctx, j, fragB),
+                    ctx.mkDiv(
+                        fragA.getPacketSizeZ3(),
+                        ctx.mkReal(Double.toString(portSpeed))
+                    )
+                )
+            ),
+            ctx.mkGe(
+                fragB.getPort().departureTime(ctx, i, fragB),
+                ctx.mkAdd(
+                    fragA.getPort().departureTime(ctx, j, fragA),
+                    ctx.mkDiv(
+                        fragB.getPacketSizeZ3(),
+                        ctx.mkReal(Double.toString(portSpeed))
+                    )
+                )
+            )
+        );
+    }
+    
+    /**
+     * [Method]: getFirstHopPortSpeed
+     * [Usage]: Speed of the port of the first switch of a flow
+     * that its source device talks to.
+     * 
+     * @param flow      Flow leaving the device
+     * @return          Speed of the port
+     */
+    public double getFirstHopPortSpeed(Flow flow) {
+        return ((TSNSwitch) flow     // From the flow
+                .getPathTree()       // give me its path tree
+                .getRoot()           // so I can get the source of the flow
+                .getChildren()       // and the first hops from the source
+                .get(0)              // Since one flow connects to one device, give me the node device it talks to
+                .getNode())          // and get the object of that node, converting it to a tsnswitch
+                .getPortOf(flow.getStartDevice().getName()) // Now give me the port that the source device talks to
+                .getPortSpeed();     // and from the port, give me the speed.
+    }
+    
+    public List<FlowFragment> getFragmentsOfFirstHop(List<Flow> flowList) {
         List<FlowFragment> flowFragList = new ArrayList<FlowFragment>();
 
         for(Flow flow : flowList){
@@ -629,6 +774,36 @@ public class Network implements Serializable {
 
     }
 
+    /**
+     * [Method]: setUpBounds
+     * [Usage]: Derives the number of packets and cycles that the rules of
+     * each port must cover from the periods and latencies of the flows
+     * going through it. The bounds of this network are used as caps.
+     * Must be called after the cycle sizes of the switches are set up.
+     */
+    public void setUpBounds() {
+    	int packetCap = (this.packetUpperBoundRange > 0 ? this.packetUpperBoundRange : PACKETUPPERBOUNDRANGE);
+    	int cycleCap = (this.cycleUpperBoundRange > 0 ? this.cycleUpperBoundRange : CYCLEUPPERBOUNDRANGE);
+    	int numOfCycles = 0;
+    	int numOfPorts = 0;
+    	
+    	for(Switch swt : this.switches) {
+    		for(Port port : ((TSNSwitch) swt).getPorts()) {
+    			if(port.getListOfPeriods().isEmpty()) {
+    				continue;
+    			}
+    			
+    			port.setUpBounds(packetCap, cycleCap);
+    			numOfCycles += port.getCycleUpperBoundRange();
+    			numOfPorts++;
+    		}
+    	}
+    	
+    	if(this.printer != null && numOfPorts > 0) {
+    		this.printer.printIfLoggingIsEnabled("- Bounds: " + numOfCycles + " cycles over " + numOfPorts + " ports (cap: " + cycleCap + " cycles per port)");
+    	}
+    }
+
     public void createNewObjects() {
     	this.netModHandler.createNewObjects();
     }
@@ -719,6 +894,15 @@ public class Network implements Serializable {
 	
 	public void addElement(Flow flow, NetworkProperties propertyID) {
     	this.hasBeenModified = true;
+    	
+		if(this.journal != null) {
+			try {
+				this.journal.appendAddition(flow, propertyID);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Could not append the change to " + this.journal.getPath(), e);
+			}
+		}
+		
 		this.addFlow(flow);
     	this.netModHandler.addElement(flow, propertyID);
 	}
@@ -727,8 +911,56 @@ public class Network implements Serializable {
 	public Boolean getHasBeenModified() {
 		return hasBeenModified;
 	}
+
+	public void setHasBeenModified(Boolean hasBeenModified) {
+		this.hasBeenModified = hasBeenModified;
+	}
+
+	public int getNetworkFlowCount() {
+		return networkFlowCount;
+	}
+
+	public void setNetworkFlowCount(int networkFlowCount) {
+		this.networkFlowCount = networkFlowCount;
+	}
+
+	public NetworkJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * [Method]: setJournal
+	 * [Usage]: Sets the journal to which the changes made through
+	 * modifyElement and addElement are appended. Null for no journal.
+	 */
+	public void setJournal(NetworkJournal journal) {
+		this.journal = journal;
+	}
+
+	public boolean getLazyPairwiseRules() {
+		return lazyPairwiseRules;
+	}
+
+	/**
+	 * [Method]: setLazyPairwiseRules
+	 * [Usage]: Sets whether the collision rules of the first hop and the
+	 * FIFO rules between packets of different fragments are left out, to
+	 * be added only when a schedule violates them.
+	 */
+	public void setLazyPairwiseRules(boolean lazyPairwiseRules) {
+		this.lazyPairwiseRules = lazyPairwiseRules;
+	}
 	
 
+    public double getTimeToTravel() {
+		return timeToTravel;
+	}
+
+    public void setTimeToTravel(double timeToTravel) {
+		this.timeToTravel = timeToTravel;
+	}
+
+
     public double getJitterUpperBoundRange() {
 		return jitterUpperBoundRange;
 	}
@@ -746,5 +978,40 @@ public class Network implements Serializable {
 		this.printer = printer;
 	}
 
-
+	/**
+	 * [Method]: getScheduleInfo
+	 * [Usage]: Returns the information about how the last schedule
+	 * of this network was generated (solver used, time taken and
+	 * such). It is exported with the schedule and is not serialized.
+	 * 
+	 * @return	Map of properties of the last schedule generated
+	 */
+	public LinkedHashMap<String, Object> getScheduleInfo() {
+		if(this.scheduleInfo == null) {
+			this.scheduleInfo = new LinkedHashMap<String, Object>();
+		}
+		
+		return this.scheduleInfo;
+	}
+	
+	public int getPacketUpperBoundRange() {
+		return packetUpperBoundRange;
+	}
+	
+	public void setPacketUpperBoundRange(int packetUpperBoundRange) {
+		this.packetUpperBoundRange = packetUpperBoundRange;
+	}
+	
+	public int getCycleUpperBoundRange() {
+		return cycleUpperBoundRange;
+	}
+	
+	public void setCycleUpperBoundRange(int cycleUpperBoundRange) {
+		this.cycleUpperBoundRange = cycleUpperBoundRange;
+	}
+	
+	public void addScheduleInfo(String property, Object value) {
+		this.getScheduleInfo().put(property, value);
+	}
+	
 }
@@ -0,0 +1,509 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.PathTree;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: NetworkJournal
+ * [Usage]: Append-only journal of the changes made to a network loaded
+ * from a snapshot (see NetworkSnapshot). Every change made through
+ * Network.modifyElement and Network.addElement is appended and forced
+ * to the disk before it is applied, so storing a change costs the size
+ * of the change instead of the size of the network. The network is
+ * rebuilt by loading the snapshot and replaying the journal. The file
+ * is made of:
+ *
+ *   header      magic number ("TSNJ"), schema version, size and
+ *               checksum of the snapshot the journal applies to
+ *   records     length, checksum and content of each change
+ *
+ * Compaction writes a new snapshot of the network and starts an empty
+ * journal for it. Both are written to temporary files and moved over
+ * the previous ones, the snapshot first. If the process stops between
+ * the moves, the previous journal no longer matches the checksum of the
+ * snapshot (which already contains its changes) and is discarded when
+ * opened. Records that were not completely written are also discarded.
+ */
+public class NetworkJournal implements Closeable {
+
+	public static final int MAGIC = 0x54534E4A; // "TSNJ"
+	public static final int SCHEMA_VERSION = 1;
+
+	private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+	private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+	private static final byte PORT_MODIFICATION = 0;
+	private static final byte FLOW_ADDITION = 1;
+
+	private static final byte DEVICE_NODE = 0;
+	private static final byte SWITCH_NODE = 1;
+
+	private Path path;
+	private Path snapshotPath;
+	private FileChannel channel;
+	private long validSize;
+	private int numOfRecords;
+	private long numOfDiscardedBytes = 0;
+	private boolean stale = false;
+
+
+	private NetworkJournal(Path path, Path snapshotPath) {
+		this.path = path;
+		this.snapshotPath = snapshotPath;
+	}
+
+
+	/**
+	 * [Method]: open
+	 * [Usage]: Opens the journal of a snapshot for replay and for new
+	 * changes. A journal that is missing or that belongs to another
+	 * snapshot is replaced by an empty one, and records at the end of
+	 * the file that were not completely written are removed.
+	 *
+	 * @param journalPath	Path of the journal file
+	 * @param snapshotPath	Path of the snapshot the journal applies to
+	 * @return				Journal positioned after its last record
+	 * @throws IOException	If a file can not be read or written
+	 */
+	public static NetworkJournal open(String journalPath, String snapshotPath) throws IOException {
+		Path snapshot = Paths.get(snapshotPath);
+		NetworkJournal journal = new NetworkJournal(Paths.get(journalPath), snapshot);
+		long snapshotSize = Files.size(snapshot);
+		long snapshotChecksum = checksum(snapshot);
+
+		if(!journal.matches(snapshotSize, snapshotChecksum)) {
+			journal.stale = Files.exists(journal.path);
+			writeHeader(journal.path, snapshotSize, snapshotChecksum);
+		}
+
+		journal.channel = FileChannel.open(journal.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		journal.scan();
+
+		if(journal.validSize < journal.channel.size()) {
+			journal.numOfDiscardedBytes = journal.channel.size() - journal.validSize;
+			journal.channel.truncate(journal.validSize);
+			journal.channel.force(true);
+		}
+
+		journal.channel.position(journal.validSize);
+
+		return journal;
+	}
+
+	/**
+	 * [Method]: compact
+	 * [Usage]: Stores the network in a new snapshot and attaches an empty
+	 * journal to it, replacing the previous snapshot and journal. Should
+	 * be called once the changes of the network were scheduled, since the
+	 * changes waiting to be scheduled are not part of a snapshot.
+	 *
+	 * @param net			Network to be stored
+	 * @param snapshotPath	Path of the snapshot file
+	 * @param journalPath	Path of the journal file
+	 * @return				Empty journal attached to the network
+	 * @throws IOException	If a file can not be written
+	 */
+	public static NetworkJournal compact(Network net, String snapshotPath, String journalPath) throws IOException {
+		Path snapshot = Paths.get(snapshotPath);
+		Path journalFile = Paths.get(journalPath);
+		Path temporarySnapshot = Paths.get(snapshotPath + ".tmp");
+		Path temporaryJournal = Paths.get(journalPath + ".tmp");
+
+		if(net.getJournal() != null) {
+			net.getJournal().close();
+			net.setJournal(null);
+		}
+
+		NetworkSnapshot.write(net, temporarySnapshot.toString());
+		writeHeader(temporaryJournal, Files.size(temporarySnapshot), checksum(temporarySnapshot));
+
+		Files.move(temporarySnapshot, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		Files.move(temporaryJournal, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		NetworkJournal journal = open(journalPath, snapshotPath);
+		net.setJournal(journal);
+
+		return journal;
+	}
+
+
+	/**
+	 * [Method]: replay
+	 * [Usage]: Applies the changes of the journal to the network loaded
+	 * from its snapshot, in the order they were made. Must be called
+	 * before the journal is attached to the network, so the changes are
+	 * not appended again.
+	 *
+	 * @param net			Network loaded from the snapshot of the journal
+	 * @return				Number of changes applied
+	 * @throws IOException	If the journal can not be read or refers to elements not in the network
+	 */
+	public int replay(Network net) throws IOException {
+		MappedByteBuffer in = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.validSize);
+
+		in.position(HEADER_SIZE);
+
+		for(int i = 0; i < this.numOfRecords; i++) {
+			byte[] record = new byte[in.getInt()];
+
+			in.getInt();
+			in.get(record);
+			this.apply(net, new DataInputStream(new ByteArrayInputStream(record)));
+		}
+
+		return this.numOfRecords;
+	}
+
+	/**
+	 * [Method]: appendModification
+	 * [Usage]: Appends the change of a property of a port.
+	 *
+	 * @param port			Port modified
+	 * @param propertyID	Property modified
+	 * @param value			New value of the property
+	 * @throws IOException	If the change can not be written
+	 */
+	public void appendModification(Port port, NetworkProperties propertyID, double value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeByte(PORT_MODIFICATION);
+		out.writeUTF(port.getHostSwitch().getName());
+		out.writeUTF(port.getName());
+		out.writeUTF(propertyID.name());
+		out.writeDouble(value);
+
+		this.append(bytes.toByteArray());
+	}
+
+	/**
+	 * [Method]: appendAddition
+	 * [Usage]: Appends a flow added to the network, with its devices,
+	 * path and properties. Should be called before the flow is converted
+	 * to the multicast model, so its unicast path is kept.
+	 *
+	 * @param flow			Flow added
+	 * @param propertyID	Type of addition (ADDFLOW or INCREMENTFLOW)
+	 * @throws IOException	If the change can not be written
+	 */
+	public void appendAddition(Flow flow, NetworkProperties propertyID) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeByte(FLOW_ADDITION);
+		out.writeUTF(propertyID.name());
+		out.writeUTF(flow.getName());
+		out.writeInt(flow.getType());
+		out.writeUTF(flow.getStartDevice().getName());
+		out.writeInt(flow.getEndDeviceList().size());
+
+		for(Device dev : flow.getEndDeviceList()) {
+			out.writeUTF(dev.getName());
+		}
+
+		if(flow.getPath() == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(flow.getPath().size());
+
+			for(Switch swt : flow.getPath()) {
+				out.writeUTF(swt.getName());
+			}
+		}
+
+		ArrayList<PathNode> treeNodes = new ArrayList<PathNode>();
+
+		if(flow.getPathTree() != null && flow.getPathTree().getRoot() != null) {
+			this.collectNodes(flow.getPathTree().getRoot(), treeNodes);
+		}
+
+		// Nodes in preorder, so the parent of a node is always written before it
+		out.writeInt(treeNodes.size());
+
+		for(PathNode node : treeNodes) {
+			out.writeByte(node.getNode() instanceof Device ? DEVICE_NODE : SWITCH_NODE);
+			out.writeUTF(this.getNodeName(node));
+			out.writeInt(node.getParent() == null ? -1 : treeNodes.indexOf(node.getParent()));
+		}
+
+		out.writeDouble(flow.getPacketSize());
+		out.writeDouble(flow.getFlowFirstSendingTime());
+		out.writeDouble(flow.getFlowSendingPeriodicity());
+		out.writeDouble(flow.getFlowMaximumLatency());
+		out.writeDouble(flow.getFlowMaximumJitter());
+		out.writeBoolean(flow.isFixedPriority());
+		out.writeInt(flow.getPriorityValue());
+
+		this.append(bytes.toByteArray());
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+
+	private void append(byte[] record) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer out = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.length);
+
+		crc.update(record);
+		out.putInt(record.length);
+		out.putInt((int) crc.getValue());
+		out.put(record);
+		out.flip();
+
+		while(out.hasRemaining()) {
+			this.channel.write(out);
+		}
+
+		this.channel.force(false);
+		this.validSize += out.limit();
+		this.numOfRecords++;
+	}
+
+	private void apply(Network net, DataInputStream in) throws IOException {
+		byte type = in.readByte();
+
+		if(type == PORT_MODIFICATION) {
+			String switchName = in.readUTF();
+			String portName = in.readUTF();
+			NetworkProperties propertyID = NetworkProperties.valueOf(in.readUTF());
+			double value = in.readDouble();
+
+			net.modifyElement(this.findPort(net, switchName, portName), propertyID, value);
+		} else if(type == FLOW_ADDITION) {
+			NetworkProperties propertyID = NetworkProperties.valueOf(in.readUTF());
+
+			net.addElement(this.readFlow(net, in), propertyID);
+		} else {
+			throw new IOException("Unknown record type " + type + " in journal " + this.path);
+		}
+	}
+
+	private Flow readFlow(Network net, DataInputStream in) throws IOException {
+		Flow flow = new Flow(in.readUTF(), in.readInt());
+
+		flow.setStartDevice(this.findDevice(net, in.readUTF()));
+
+		for(int i = in.readInt(); i > 0; i--) {
+			flow.setEndDevice(this.findDevice(net, in.readUTF()));
+		}
+
+		int pathSize = in.readInt();
+
+		if(pathSize >= 0) {
+			ArrayList<Switch> path = new ArrayList<Switch>(pathSize);
+
+			for(int i = 0; i < pathSize; i++) {
+				path.add(this.findSwitch(net, in.readUTF()));
+			}
+
+			flow.setPath(path);
+		}
+
+		int numOfNodes = in.readInt();
+
+		if(numOfNodes > 0) {
+			PathTree pathTree = new PathTree();
+			ArrayList<PathNode> treeNodes = new ArrayList<PathNode>(numOfNodes);
+
+			for(int i = 0; i < numOfNodes; i++) {
+				byte kind = in.readByte();
+				String name = in.readUTF();
+				int parentIndex = in.readInt();
+				Object node = (kind == DEVICE_NODE ? this.findDevice(net, name) : this.findSwitch(net, name));
+
+				treeNodes.add(parentIndex < 0 ? pathTree.addRoot(node) : treeNodes.get(parentIndex).addChild(node));
+			}
+
+			flow.setPathTree(pathTree);
+		}
+
+		flow.setPacketSize(in.readDouble());
+		flow.setFlowFirstSendingTime(in.readDouble());
+		flow.setFlowSendingPeriodicity(in.readDouble());
+		flow.setFlowMaximumLatency(in.readDouble());
+		flow.setFlowMaximumJitter(in.readDouble());
+		flow.setFixedPriority(in.readBoolean());
+		flow.setPriorityValue(in.readInt());
+
+		return flow;
+	}
+
+	private Port findPort(Network net, String switchName, String portName) throws IOException {
+
+		for(Port port : ((TSNSwitch) this.findSwitch(net, switchName)).getPorts()) {
+			if(port.getName().equals(portName)) {
+				return port;
+			}
+		}
+
+		throw new IOException("Port " + portName + " of the journal not found in the network");
+	}
+
+	private Device findDevice(Network net, String name) throws IOException {
+		Device dev = net.getDevice(name);
+
+		if(dev == null) {
+			throw new IOException("Device " + name + " of the journal not found in the network");
+		}
+
+		return dev;
+	}
+
+	private Switch findSwitch(Network net, String name) throws IOException {
+		Switch swt = net.getSwitch(name);
+
+		if(swt == null) {
+			throw new IOException("Switch " + name + " of the journal not found in the network");
+		}
+
+		return swt;
+	}
+
+	private void collectNodes(PathNode node, ArrayList<PathNode> treeNodes) {
+		treeNodes.add(node);
+
+		for(PathNode child : node.getChildren()) {
+			this.collectNodes(child, treeNodes);
+		}
+	}
+
+	private String getNodeName(PathNode node) {
+		return node.getNode() instanceof Device ? ((Device) node.getNode()).getName() : ((Switch) node.getNode()).getName();
+	}
+
+
+	/*
+	 * Reads the header and counts the complete records, stopping at the
+	 * first record that is truncated or whose checksum does not match.
+	 */
+	private void scan() throws IOException {
+		MappedByteBuffer in = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+		CRC32 crc = new CRC32();
+
+		in.position(HEADER_SIZE);
+		this.validSize = HEADER_SIZE;
+		this.numOfRecords = 0;
+
+		while(in.remaining() >= RECORD_HEADER_SIZE) {
+			int length = in.getInt();
+			int checksum = in.getInt();
+
+			if(length < 0 || length > in.remaining()) {
+				break;
+			}
+
+			ByteBuffer record = in.slice();
+			record.limit(length);
+			crc.reset();
+			crc.update(record);
+
+			if((int) crc.getValue() != checksum) {
+				break;
+			}
+
+			in.position(in.position() + length);
+			this.validSize = in.position();
+			this.numOfRecords++;
+		}
+	}
+
+	private boolean matches(long snapshotSize, long snapshotChecksum) throws IOException {
+
+		if(!Files.exists(this.path) || Files.size(this.path) < HEADER_SIZE) {
+			return false;
+		}
+
+		try (FileChannel file = FileChannel.open(this.path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+			while(header.hasRemaining() && file.read(header) >= 0);
+			header.flip();
+
+			return header.getInt() == MAGIC && header.getInt() == SCHEMA_VERSION &&
+					header.getLong() == snapshotSize && header.getLong() == snapshotChecksum;
+		}
+	}
+
+	private static void writeHeader(Path path, long snapshotSize, long snapshotChecksum) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+		header.putInt(MAGIC);
+		header.putInt(SCHEMA_VERSION);
+		header.putLong(snapshotSize);
+		header.putLong(snapshotChecksum);
+		header.flip();
+
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			while(header.hasRemaining()) {
+				file.write(header);
+			}
+
+			file.force(true);
+		}
+	}
+
+	private static long checksum(Path path) throws IOException {
+		CRC32 crc = new CRC32();
+
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+			crc.update(file.map(FileChannel.MapMode.READ_ONLY, 0, file.size()));
+		}
+
+		return crc.getValue();
+	}
+
+
+	public String getPath() {
+		return path.toString();
+	}
+
+	public String getSnapshotPath() {
+		return snapshotPath.toString();
+	}
+
+	public int getNumOfRecords() {
+		return numOfRecords;
+	}
+
+	public long getNumOfDiscardedBytes() {
+		return numOfDiscardedBytes;
+	}
+
+	public boolean isStale() {
+		return stale;
+	}
+
+}
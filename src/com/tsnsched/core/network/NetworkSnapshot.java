@@ -0,0 +1,1199 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.network;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.PathTree;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+import com.tsnsched.core.schedule_generator.EncodingMode;
+import com.tsnsched.core.schedule_generator.ScheduleType;
+import com.tsnsched.core.schedule_generator.SlotArrangementMode;
+
+/**
+ * [Class]: NetworkSnapshot
+ * [Usage]: Stores a network and the values of its schedule in a
+ * binary file and loads it back, replacing the java serialization
+ * of the whole object graph. The file is made of:
+ *
+ *   header      magic number ("TSNS") and schema version
+ *   strings     table with every name and enumeration value used
+ *   network     properties of the network
+ *   devices     properties of each device
+ *   switches    properties of each switch, its ports and their cycles
+ *               (devices and switches only used by flows are included,
+ *               marked as not being part of the network)
+ *   flows       properties of each flow and the nodes of its path tree
+ *   fragments   properties and packet times of each flow fragment
+ *
+ * Records refer to strings by their index in the table and to other
+ * objects by their index in their section (path nodes are numbered
+ * across all flows), so -1 stands for null. Slot, cycle and packet
+ * times are stored as arrays of doubles after their length. Files
+ * are written and read through memory-mapped buffers.
+ *
+ * The schema version is increased whenever a record changes, so
+ * files written by other versions are rejected instead of misread.
+ * Files of the previous format can be converted with the main method.
+ */
+public class NetworkSnapshot {
+
+	public static final int MAGIC = 0x54534E53; // "TSNS"
+	public static final int SCHEMA_VERSION = 3;
+	public static final String FILE_EXTENSION = ".snap";
+
+	private static final int NULL_INDEX = -1;
+	private static final byte NULL_BOOLEAN = 2;
+
+	private static final byte DEVICE_NODE = 0;
+	private static final byte SWITCH_NODE = 1;
+
+	private static final byte SWITCH = 0;
+	private static final byte TSN_SWITCH = 1;
+
+	private static final int INITIAL_SIZE = 64 * 1024;
+
+	// Tables of the snapshot being written
+	private ByteBuffer body;
+	private ArrayList<String> strings = new ArrayList<String>();
+	private HashMap<String, Integer> stringIndexes = new HashMap<String, Integer>();
+	private IdentityHashMap<Object, Integer> deviceIndexes = new IdentityHashMap<Object, Integer>();
+	private IdentityHashMap<Object, Integer> switchIndexes = new IdentityHashMap<Object, Integer>();
+	private IdentityHashMap<Object, Integer> portIndexes = new IdentityHashMap<Object, Integer>();
+	private IdentityHashMap<Object, Integer> flowIndexes = new IdentityHashMap<Object, Integer>();
+	private IdentityHashMap<Object, Integer> fragmentIndexes = new IdentityHashMap<Object, Integer>();
+	private IdentityHashMap<Object, Integer> nodeIndexes = new IdentityHashMap<Object, Integer>();
+	private ArrayList<Device> listOfDevices = new ArrayList<Device>();
+	private ArrayList<Switch> listOfSwitches = new ArrayList<Switch>();
+	private ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>();
+
+	// Tables of the snapshot being read
+	private ByteBuffer in;
+	private String[] stringTable;
+	private Device[] devices;
+	private Switch[] switches;
+	private ArrayList<Port> ports = new ArrayList<Port>();
+	private ArrayList<int[]> portFragments = new ArrayList<int[]>();
+	private ArrayList<Integer> portHosts = new ArrayList<Integer>();
+	private Flow[] flows;
+	private int[][] flowFragments;
+	private ArrayList<PathNode> nodes = new ArrayList<PathNode>();
+	private ArrayList<int[]> nodeFragments = new ArrayList<int[]>();
+
+
+	private NetworkSnapshot() {
+		;
+	}
+
+
+	/**
+	 * [Method]: write
+	 * [Usage]: Stores the network and the values of its schedule in
+	 * a snapshot file, replacing the previous content of the file.
+	 * Fragments of flows that are not in the network are left out.
+	 *
+	 * @param net			Network to be stored
+	 * @param path			Path of the snapshot file
+	 * @throws IOException	If the file can not be written
+	 */
+	public static void write(Network net, String path) throws IOException {
+		new NetworkSnapshot().store(net, Paths.get(path));
+	}
+
+	/**
+	 * [Method]: read
+	 * [Usage]: Loads a network and the values of its schedule from a
+	 * snapshot file.
+	 *
+	 * @param path			Path of the snapshot file
+	 * @return				Network stored in the file
+	 * @throws IOException	If the file can not be read or is not a snapshot of this version
+	 */
+	public static Network read(String path) throws IOException {
+		return new NetworkSnapshot().load(Paths.get(path));
+	}
+
+	/**
+	 * [Method]: isSnapshot
+	 * [Usage]: Checks whether a file starts with the magic number of
+	 * the snapshots, reading only its first bytes.
+	 *
+	 * @param path		Path of the file
+	 * @return			Whether the file is a snapshot
+	 */
+	public static boolean isSnapshot(String path) {
+
+		try (InputStream stream = Files.newInputStream(Paths.get(path))) {
+			byte[] header = new byte[4];
+
+			return stream.readNBytes(header, 0, 4) == 4 && ByteBuffer.wrap(header).getInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+
+	}
+
+	/**
+	 * [Method]: convert
+	 * [Usage]: Converts a network serialized with java serialization
+	 * (such as the network.ser files of previous versions) into a
+	 * snapshot.
+	 *
+	 * @param serializedPath	Path of the serialized network
+	 * @param snapshotPath		Path of the snapshot file
+	 * @throws IOException		If a file can not be read or written
+	 */
+	public static void convert(String serializedPath, String snapshotPath) throws IOException {
+		Network net;
+
+		try (ObjectInputStream objectIn = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(serializedPath))))) {
+			net = (Network) objectIn.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("File " + serializedPath + " does not contain a serialized network", e);
+		}
+
+		write(net, snapshotPath);
+	}
+
+	public static void main(String[] args) {
+
+		if(args.length < 1) {
+			System.out.println("Usage: NetworkSnapshot <serialized network> [snapshot file]");
+			return;
+		}
+
+		String snapshotPath = (args.length > 1 ? args[1] : args[0].replaceAll("\\.ser$", "") + FILE_EXTENSION);
+
+		try {
+			convert(args[0], snapshotPath);
+			System.out.println("Snapshot saved in " + snapshotPath);
+		} catch (IOException e) {
+			System.out.println("Could not convert " + args[0] + ": " + e.getMessage());
+		}
+
+	}
+
+
+	/*
+	 * The body is written to the heap first, since the size of the
+	 * string table is only known once every record is written.
+	 */
+	private void store(Network net, Path path) throws IOException {
+		this.body = ByteBuffer.allocate(INITIAL_SIZE);
+
+		this.indexNetwork(net);
+
+		this.writeNetwork(net);
+		this.writeDevices(net);
+		this.writeSwitches(net);
+		this.writeFlows(net);
+		this.writeFragments();
+
+		byte[][] encodedStrings = new byte[this.strings.size()][];
+		long size = 3 * Integer.BYTES + this.body.position();
+
+		for(int i = 0; i < encodedStrings.length; i++) {
+			encodedStrings[i] = this.strings.get(i).getBytes(StandardCharsets.UTF_8);
+			size += Integer.BYTES + encodedStrings[i].length;
+		}
+
+		Path parent = path.toAbsolutePath().getParent();
+
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+			out.putInt(MAGIC);
+			out.putInt(SCHEMA_VERSION);
+			out.putInt(encodedStrings.length);
+
+			for(byte[] encodedString : encodedStrings) {
+				out.putInt(encodedString.length);
+				out.put(encodedString);
+			}
+
+			this.body.flip();
+			out.put(this.body);
+			out.force();
+		}
+	}
+
+	private void indexNetwork(Network net) {
+
+		for(Device dev : net.getDevices()) {
+			this.indexNode(dev);
+		}
+
+		for(Switch swt : net.getSwitches()) {
+			this.indexNode(swt);
+		}
+
+		for(Flow flw : net.getFlows()) {
+			this.flowIndexes.putIfAbsent(flw, this.flowIndexes.size());
+			this.indexNode(flw.getStartDevice());
+
+			for(Device dev : flw.getEndDeviceList()) {
+				this.indexNode(dev);
+			}
+
+			if(flw.getPath() != null) {
+				for(Switch swt : flw.getPath()) {
+					this.indexNode(swt);
+				}
+			}
+		}
+
+		for(Flow flw : net.getFlows()) {
+			if(flw.getPathTree() != null && flw.getPathTree().getRoot() != null) {
+				this.indexFragments(flw.getPathTree().getRoot());
+			}
+
+			if(flw.getFlowFragments() != null) {
+				for(FlowFragment frag : flw.getFlowFragments()) {
+					this.indexFragment(frag);
+				}
+			}
+		}
+
+		for(Object port : this.portIndexes.keySet()) {
+			if(((Port) port).getFlowFragments() != null) {
+				for(FlowFragment frag : ((Port) port).getFlowFragments()) {
+					this.indexFragment(frag);
+				}
+			}
+		}
+	}
+
+	private void indexNode(Object node) {
+
+		if(node instanceof Device && !this.deviceIndexes.containsKey(node)) {
+			this.deviceIndexes.put(node, this.listOfDevices.size());
+			this.listOfDevices.add((Device) node);
+		} else if(node instanceof Switch && !this.switchIndexes.containsKey(node)) {
+			this.switchIndexes.put(node, this.listOfSwitches.size());
+			this.listOfSwitches.add((Switch) node);
+
+			if(node instanceof TSNSwitch) {
+				for(Port port : ((TSNSwitch) node).getPorts()) {
+					this.portIndexes.putIfAbsent(port, this.portIndexes.size());
+				}
+			}
+		}
+	}
+
+	private void indexFragments(PathNode node) {
+		this.indexNode(node.getNode());
+
+		if(node.getFlowFragments() != null) {
+			for(FlowFragment frag : node.getFlowFragments()) {
+				this.indexFragment(frag);
+			}
+		}
+
+		if(node.getChildren() != null) {
+			for(PathNode child : node.getChildren()) {
+				this.indexFragments(child);
+			}
+		}
+	}
+
+	private void indexFragment(FlowFragment frag) {
+		// A fragment can only be created back with its flow
+		if(!this.fragmentIndexes.containsKey(frag) && this.flowIndexes.containsKey(frag.getParent())) {
+			this.fragmentIndexes.put(frag, this.fragments.size());
+			this.fragments.add(frag);
+		}
+	}
+
+
+	private void writeNetwork(Network net) {
+		this.putNullableBoolean(net.getHasBeenModified());
+		this.putString(net.db_name);
+		this.putString(net.file_id);
+		this.putInt(net.getNetworkFlowCount());
+		this.putDouble(net.getTimeToTravel());
+		this.putIntegers(net.numberOfNodes);
+		this.putInt(net.getPacketUpperBoundRange());
+		this.putInt(net.getCycleUpperBoundRange());
+		this.putDouble(net.getJitterUpperBoundRange());
+	}
+
+	private void writeDevices(Network net) {
+		IdentityHashMap<Object, Integer> devicesOfNetwork = this.toIndexes(net.getDevices());
+
+		this.putInt(this.listOfDevices.size());
+
+		for(Device dev : this.listOfDevices) {
+			this.putBoolean(devicesOfNetwork.containsKey(dev));
+			this.putString(dev.getName());
+			this.putDouble(dev.getPacketPeriodicity());
+			this.putDouble(dev.getFirstT1Time());
+			this.putDouble(dev.getHardConstraintTime());
+			this.putDouble(dev.getSoftConstraintTime());
+			this.putDouble(dev.getPacketSize());
+		}
+	}
+
+	private void writeSwitches(Network net) {
+		IdentityHashMap<Object, Integer> switchesOfNetwork = this.toIndexes(net.getSwitches());
+
+		this.putInt(this.listOfSwitches.size());
+
+		for(Switch swt : this.listOfSwitches) {
+			this.putBoolean(switchesOfNetwork.containsKey(swt));
+			this.putByte(swt instanceof TSNSwitch ? TSN_SWITCH : SWITCH);
+			this.putString(swt.getName());
+			this.putDouble(swt.getMaxPacketSize());
+			this.putDouble(swt.getTimeToTravel());
+			this.putDouble(swt.getTransmissionTime());
+			this.putDouble(swt.getPortSpeed());
+
+			if(!(swt instanceof TSNSwitch)) {
+				continue;
+			}
+
+			TSNSwitch tsnSwitch = (TSNSwitch) swt;
+
+			this.putNullableBoolean(tsnSwitch.getIsModifiedOrCreated());
+			this.putNullableBoolean(tsnSwitch.getUseSameCycleStart());
+			this.putNullableDouble(tsnSwitch.getFirstCycleStart());
+			this.putStrings(tsnSwitch.getConnectsTo());
+			this.putDouble(tsnSwitch.getCycleDurationUpperBound());
+			this.putDouble(tsnSwitch.getCycleDurationLowerBound());
+			this.putDouble(tsnSwitch.getGbSize());
+			this.putInt(tsnSwitch.getPortNum());
+			this.putEnum(tsnSwitch.getScheduleType());
+
+			this.putInt(tsnSwitch.getPorts().size());
+
+			for(Port port : tsnSwitch.getPorts()) {
+				this.writePort(port);
+			}
+		}
+	}
+
+	private void writePort(Port port) {
+		this.writeCycle(port.getCycle());
+
+		this.putString(port.getName());
+		this.putInt(port.getPortNum());
+		this.putString(port.getConnectsTo());
+		this.putIndex(this.switchIndexes, port.getHostSwitch());
+		this.putNullableBoolean(port.getIsModifiedOrCreated());
+		this.putEnum(port.getModificationType());
+		this.putNullableBoolean(port.getUseMicroCycles());
+		this.putNullableBoolean(port.getUseHyperCycle());
+		this.putDouble(port.getInterframeGapSize());
+		this.putDoubles(port.getListOfPeriods());
+		this.putDouble(port.getMaximumFlowLatency());
+		this.putDouble(port.getMaximumFlowOffset());
+		this.putDouble(port.getDefinedHyperCycleSize());
+		this.putDouble(port.getMicroCycleSize());
+		this.putDouble(port.getBestEffortPercent());
+		this.putInt(port.getPacketUpperBoundRange());
+		this.putInt(port.getCycleUpperBoundRange());
+		this.putDouble(port.getGbSize());
+		this.putInt(port.getBufferSize());
+		this.putIntegers(port.getBufferSizePerPriority());
+		this.putEnum(port.getEncodingMode());
+		this.putBoolean(port.getLazyPairwiseRules());
+		this.putBoolean(port.getUseSlotIndicators());
+		this.putDouble(port.getMaxPacketSize());
+		this.putDouble(port.getTimeToTravel());
+		this.putDouble(port.getTransmissionTime());
+		this.putDouble(port.getPortSpeed());
+		this.putNullableBoolean(port.getIsIncremental());
+		this.putIndexes(this.fragmentIndexes, port.getFlowFragments());
+	}
+
+	private IdentityHashMap<Object, Integer> toIndexes(List<?> values) {
+		IdentityHashMap<Object, Integer> indexes = new IdentityHashMap<Object, Integer>();
+
+		for(Object value : values) {
+			indexes.putIfAbsent(value, indexes.size());
+		}
+
+		return indexes;
+	}
+
+	private void writeCycle(Cycle cycle) {
+		this.putString(cycle.getPortName());
+		this.putString(cycle.getName());
+		this.putBoolean(cycle.getWrapTransmission());
+		this.putInt(cycle.getInstance());
+		this.putDouble(cycle.getUpperBoundCycleTime());
+		this.putDouble(cycle.getLowerBoundCycleTime());
+		this.putDouble(cycle.getFirstCycleStart());
+		this.putDouble(cycle.getMaximumSlotDuration());
+		this.putDouble(cycle.getCycleDuration());
+		this.putDouble(cycle.getCycleStart());
+		this.putInt(cycle.getNumOfPrts());
+		this.putInt(cycle.getNumOfSlots());
+		this.putEnum(cycle.getSlotArrangementMode());
+		this.putIntegers(cycle.getNumOfSlotsPerPrt());
+		this.putIntegers(cycle.getSlotsUsed());
+		this.putDoubleLists(cycle.getSlotStart());
+		this.putDoubleLists(cycle.getSlotDuration());
+	}
+
+	private void writeFlows(Network net) {
+		this.putInt(net.getFlows().size());
+
+		for(Flow flw : net.getFlows()) {
+			this.writeFlowProperties(flw);
+
+			if(flw.getPathTree() == null || flw.getPathTree().getRoot() == null) {
+				this.putInt(NULL_INDEX);
+				continue;
+			}
+
+			ArrayList<PathNode> treeNodes = new ArrayList<PathNode>();
+			this.collectNodes(flw.getPathTree().getRoot(), treeNodes);
+
+			this.putInt(treeNodes.size());
+
+			for(PathNode node : treeNodes) {
+				this.nodeIndexes.put(node, this.nodeIndexes.size());
+
+				if(node.getNode() instanceof Device) {
+					this.putByte(DEVICE_NODE);
+					this.putIndex(this.deviceIndexes, node.getNode());
+				} else {
+					this.putByte(SWITCH_NODE);
+					this.putIndex(this.switchIndexes, node.getNode());
+				}
+
+				// Parents come before their children
+				this.putIndex(this.nodeIndexes, node.getParent());
+				this.putIndexes(this.fragmentIndexes, node.getFlowFragments());
+			}
+		}
+	}
+
+	private void collectNodes(PathNode node, ArrayList<PathNode> treeNodes) {
+		treeNodes.add(node);
+
+		if(node.getChildren() != null) {
+			for(PathNode child : node.getChildren()) {
+				this.collectNodes(child, treeNodes);
+			}
+		}
+	}
+
+	/*
+	 * Properties shared by flows and fragments. The fragments keep the
+	 * start device and times of their flow in the same properties.
+	 */
+	private void writeFlowProperties(Flow flw) {
+		this.putString(flw.getName());
+		this.putInt(flw.getInstance());
+		this.putInt(flw.getType());
+		this.putNullableBoolean(flw.getIsModifiedOrCreated());
+		this.putEnum(flw.getModificationType());
+		this.putInt(flw.getTotalNumOfPackets());
+		this.putBoolean(flw.isFixedPriority());
+		this.putInt(flw.getPriorityValue());
+		this.putInt(flw.getPathTreeCount());
+		this.putIndex(this.deviceIndexes, flw.getStartDevice());
+		this.putIndexes(this.deviceIndexes, flw.getEndDeviceList());
+		this.putDouble(flw.getFlowMaximumJitter());
+		this.putDouble(flw.getFlowMaximumLatency());
+		this.putDouble(flw.getPacketSize());
+		this.putDouble(flw.getFlowFirstSendingTime());
+		this.putDouble(flw.getFlowSendingPeriodicity());
+		this.putInt(flw.getNumOfPacketsSent());
+		this.putIndexes(this.switchIndexes, flw.getPath());
+		this.putIndexes(this.fragmentIndexes, flw.getFlowFragments());
+	}
+
+	private void writeFragments() {
+		this.putInt(this.fragments.size());
+
+		for(FlowFragment frag : this.fragments) {
+			this.putIndex(this.flowIndexes, frag.getParent());
+			this.writeFlowProperties(frag);
+			this.putIndex(this.portIndexes, frag.getPort());
+			this.putIndex(this.nodeIndexes, frag.getReferenceToNode());
+			this.putInt(frag.getFragmentPriority());
+			this.putString(frag.getNodeName());
+			this.putString(frag.getNextHop());
+			this.putIndex(this.fragmentIndexes, frag.getPreviousFragment());
+			this.putIndexes(this.fragmentIndexes, frag.getNextFragments());
+			this.putDoubles(frag.getDepartureTimeList());
+			this.putDoubles(frag.getArrivalTimeList());
+			this.putDoubles(frag.getScheduledTimeList());
+		}
+	}
+
+
+	private void ensureCapacity(int numOfBytes) {
+
+		if(this.body.remaining() >= numOfBytes) {
+			return;
+		}
+
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(this.body.capacity() * 2, this.body.position() + numOfBytes));
+		this.body.flip();
+		larger.put(this.body);
+		this.body = larger;
+	}
+
+	private void putByte(byte value) {
+		this.ensureCapacity(1);
+		this.body.put(value);
+	}
+
+	private void putBoolean(boolean value) {
+		this.putByte((byte) (value ? 1 : 0));
+	}
+
+	private void putNullableBoolean(Boolean value) {
+		this.putByte(value == null ? NULL_BOOLEAN : (byte) (value ? 1 : 0));
+	}
+
+	private void putInt(int value) {
+		this.ensureCapacity(Integer.BYTES);
+		this.body.putInt(value);
+	}
+
+	private void putDouble(double value) {
+		this.ensureCapacity(Double.BYTES);
+		this.body.putDouble(value);
+	}
+
+	private void putNullableDouble(Double value) {
+		this.putBoolean(value != null);
+
+		if(value != null) {
+			this.putDouble(value);
+		}
+	}
+
+	private void putString(String value) {
+
+		if(value == null) {
+			this.putInt(NULL_INDEX);
+			return;
+		}
+
+		Integer index = this.stringIndexes.get(value);
+
+		if(index == null) {
+			index = this.strings.size();
+			this.strings.add(value);
+			this.stringIndexes.put(value, index);
+		}
+
+		this.putInt(index);
+	}
+
+	private void putEnum(Enum<?> value) {
+		this.putString(value == null ? null : value.name());
+	}
+
+	private void putStrings(List<String> values) {
+
+		if(values == null) {
+			this.putInt(NULL_INDEX);
+			return;
+		}
+
+		this.putInt(values.size());
+
+		for(String value : values) {
+			this.putString(value);
+		}
+	}
+
+	private void putIntegers(List<Integer> values) {
+
+		if(values == null) {
+			this.putInt(NULL_INDEX);
+			return;
+		}
+
+		this.ensureCapacity(Integer.BYTES * (values.size() + 1));
+		this.body.putInt(values.size());
+
+		for(Integer value : values) {
+			this.body.putInt(value);
+		}
+	}
+
+	private void putDoubles(List<Double> values) {
+
+		if(values == null) {
+			this.putInt(NULL_INDEX);
+			return;
+		}
+
+		this.ensureCapacity(Integer.BYTES + Double.BYTES * values.size());
+		this.body.putInt(values.size());
+
+		for(Double value : values) {
+			this.body.putDouble(value);
+		}
+	}
+
+	private void putDoubleLists(List<ArrayList<Double>> values) {
+
+		if(values == null) {
+			this.putInt(NULL_INDEX);
+			return;
+		}
+
+		this.putInt(values.size());
+
+		for(ArrayList<Double> value : values) {
+			this.putDoubles(value);
+		}
+	}
+
+	private void putIndex(IdentityHashMap<Object, Integer> indexes, Object value) {
+		Integer index = (value == null ? null : indexes.get(value));
+
+		this.putInt(index == null ? NULL_INDEX : index);
+	}
+
+	/*
+	 * Objects that are not stored (such as fragments of flows that are
+	 * not in the network) are left out of the list.
+	 */
+	private void putIndexes(IdentityHashMap<Object, Integer> indexes, List<?> values) {
+
+		if(values == null) {
+			this.putInt(NULL_INDEX);
+			return;
+		}
+
+		int[] listOfIndexes = new int[values.size()];
+		int size = 0;
+
+		for(Object value : values) {
+			Integer index = indexes.get(value);
+
+			if(index != null) {
+				listOfIndexes[size++] = index;
+			}
+		}
+
+		this.ensureCapacity(Integer.BYTES * (size + 1));
+		this.body.putInt(size);
+		this.body.asIntBuffer().put(listOfIndexes, 0, size);
+		this.body.position(this.body.position() + Integer.BYTES * size);
+	}
+
+
+	private Network load(Path path) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			this.in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if(this.in.remaining() < 2 * Integer.BYTES || this.in.getInt() != MAGIC) {
+			throw new IOException("File " + path + " is not a network snapshot");
+		}
+
+		int version = this.in.getInt();
+
+		if(version != SCHEMA_VERSION) {
+			throw new IOException("Snapshot " + path + " has schema version " + version + ", but version " + SCHEMA_VERSION + " is expected");
+		}
+
+		this.stringTable = new String[this.in.getInt()];
+
+		for(int i = 0; i < this.stringTable.length; i++) {
+			byte[] encodedString = new byte[this.in.getInt()];
+			this.in.get(encodedString);
+			this.stringTable[i] = new String(encodedString, StandardCharsets.UTF_8);
+		}
+
+		Network net = this.readNetwork();
+		this.readDevices(net);
+		this.readSwitches(net);
+		this.readFlows(net);
+		this.readFragments();
+
+		return net;
+	}
+
+	private Network readNetwork() {
+		Network net = new Network();
+
+		net.setHasBeenModified(this.getNullableBoolean());
+		net.db_name = this.getString();
+		net.file_id = this.getString();
+		net.setNetworkFlowCount(this.in.getInt());
+		net.setTimeToTravel(this.in.getDouble());
+		net.numberOfNodes = this.getIntegers();
+		net.setPacketUpperBoundRange(this.in.getInt());
+		net.setCycleUpperBoundRange(this.in.getInt());
+		net.setJitterUpperBoundRange(this.in.getDouble());
+
+		return net;
+	}
+
+	private void readDevices(Network net) {
+		this.devices = new Device[this.in.getInt()];
+
+		for(int i = 0; i < this.devices.length; i++) {
+			boolean inNetwork = this.getBoolean();
+			Device dev = new Device(this.getString());
+
+			dev.setPacketPeriodicity(this.in.getDouble());
+			dev.setFirstT1Time(this.in.getDouble());
+			dev.setHardConstraintTime(this.in.getDouble());
+			dev.setSoftConstraintTime(this.in.getDouble());
+			dev.setPacketSize(this.in.getDouble());
+
+			this.devices[i] = dev;
+
+			if(inNetwork) {
+				net.addDevice(dev);
+			}
+		}
+	}
+
+	private void readSwitches(Network net) {
+		this.switches = new Switch[this.in.getInt()];
+
+		for(int i = 0; i < this.switches.length; i++) {
+			boolean inNetwork = this.getBoolean();
+			byte kind = this.in.get();
+			String name = this.getString();
+			Switch swt = (kind == TSN_SWITCH ? new TSNSwitch(name) : new Switch());
+
+			swt.setName(name);
+			swt.setMaxPacketSize(this.in.getDouble());
+			swt.setTimeToTravel(this.in.getDouble());
+			swt.setTransmissionTime(this.in.getDouble());
+			swt.setPortSpeed(this.in.getDouble());
+
+			this.switches[i] = swt;
+
+			if(inNetwork) {
+				net.addSwitch(swt);
+			}
+
+			if(kind != TSN_SWITCH) {
+				continue;
+			}
+
+			TSNSwitch tsnSwitch = (TSNSwitch) swt;
+
+			tsnSwitch.setIsModifiedOrCreated(this.getNullableBoolean());
+			tsnSwitch.setUseSameCycleStart(this.getNullableBoolean());
+			tsnSwitch.setFirstCycleStart(this.getNullableDouble());
+			tsnSwitch.getConnectsTo().addAll(this.getStrings());
+			tsnSwitch.setCycleDurationUpperBound(this.in.getDouble());
+			tsnSwitch.setCycleDurationLowerBound(this.in.getDouble());
+			tsnSwitch.setGbSize(this.in.getDouble());
+			tsnSwitch.setPortNum(this.in.getInt());
+			tsnSwitch.setScheduleType(this.getEnum(ScheduleType.class));
+
+			int numOfPorts = this.in.getInt();
+
+			for(int p = 0; p < numOfPorts; p++) {
+				tsnSwitch.getPorts().add(this.readPort());
+			}
+		}
+
+		for(int i = 0; i < this.ports.size(); i++) {
+			int host = this.portHosts.get(i);
+
+			this.ports.get(i).setHostSwitch(host == NULL_INDEX ? null : (TSNSwitch) this.switches[host]);
+		}
+	}
+
+	private Port readPort() {
+		Cycle cycle = this.readCycle();
+		String cyclePortName = cycle.getPortName();
+		String name = this.getString();
+		int portNum = this.in.getInt();
+		String connectsTo = this.getString();
+
+		// Sizes and speeds are set below, after the values only kept by the port
+		Port port = new Port(name, portNum, connectsTo, 0, 0, 0, 0, 0, cycle);
+		cycle.setPortName(cyclePortName);
+
+		this.portHosts.add(this.in.getInt());
+		port.setIsModifiedOrCreated(this.getNullableBoolean());
+		port.setModificationType(this.getEnum(NetworkProperties.class));
+		port.setUseMicroCycles(this.getNullableBoolean());
+		port.setUseHyperCycle(this.getNullableBoolean());
+		port.setInterframeGapSize(this.in.getDouble());
+		port.setListOfPeriods(this.getDoubles());
+		port.setMaximumFlowLatency(this.in.getDouble());
+		port.setMaximumFlowOffset(this.in.getDouble());
+		port.setDefinedHyperCycleSize(this.in.getDouble());
+		port.setMicroCycleSize(this.in.getDouble());
+		port.setBestEffortPercent(this.in.getDouble());
+		port.setPacketUpperBoundRange(this.in.getInt());
+		port.setCycleUpperBoundRange(this.in.getInt());
+		port.setGbSize(this.in.getDouble());
+		port.setBufferSize(this.in.getInt());
+		port.setBufferSizePerPriority(this.getIntegers());
+		port.setEncodingMode(this.getEnum(EncodingMode.class));
+		port.setLazyPairwiseRules(this.getBoolean());
+		port.setUseSlotIndicators(this.getBoolean());
+		port.setMaxPacketSize(this.in.getDouble());
+		port.setTimeToTravel(this.in.getDouble());
+		port.setTransmissionTime(this.in.getDouble());
+		port.setPortSpeed(this.in.getDouble());
+		port.setIsIncremental(this.getNullableBoolean());
+
+		this.portFragments.add(this.getIndexes());
+		this.ports.add(port);
+
+		return port;
+	}
+
+	private Cycle readCycle() {
+		Cycle cycle = new Cycle(0);
+
+		cycle.setPortName(this.getString());
+		cycle.setName(this.getString());
+		cycle.setWrapTransmission(this.getBoolean());
+		cycle.setInstance(this.in.getInt());
+		cycle.setUpperBoundCycleTime(this.in.getDouble());
+		cycle.setLowerBoundCycleTime(this.in.getDouble());
+		cycle.setFirstCycleStart(this.in.getDouble());
+		cycle.setMaximumSlotDuration(this.in.getDouble());
+		cycle.setCycleDuration(this.in.getDouble());
+		cycle.setCycleStart(this.in.getDouble());
+		cycle.setNumOfPrts(this.in.getInt());
+		cycle.setNumOfSlots(this.in.getInt());
+		cycle.setSlotArrangementMode(this.getEnum(SlotArrangementMode.class));
+		cycle.setNumOfSlotsPerPrt(this.getIntegers());
+		cycle.setSlotsUsed(this.getIntegers());
+		cycle.setSlotStart(this.getDoubleLists());
+		cycle.setSlotDuration(this.getDoubleLists());
+
+		return cycle;
+	}
+
+	private void readFlows(Network net) {
+		this.flows = new Flow[this.in.getInt()];
+		this.flowFragments = new int[this.flows.length][];
+
+		for(int i = 0; i < this.flows.length; i++) {
+			Flow flw = new Flow();
+
+			this.flowFragments[i] = this.readFlowProperties(flw);
+			this.flows[i] = flw;
+
+			int numOfNodes = this.in.getInt();
+
+			if(numOfNodes == NULL_INDEX) {
+				flw.setPathTree(null);
+			} else {
+				PathTree pathTree = new PathTree();
+
+				for(int n = 0; n < numOfNodes; n++) {
+					byte kind = this.in.get();
+					int objectIndex = this.in.getInt();
+					int parentIndex = this.in.getInt();
+					PathNode node = new PathNode(kind == DEVICE_NODE ? this.devices[objectIndex] : this.switches[objectIndex]);
+
+					if(parentIndex == NULL_INDEX) {
+						node.setParent(null);
+						pathTree.setRoot(node);
+					} else {
+						PathNode parent = this.nodes.get(parentIndex);
+						node.setParent(parent);
+						parent.getChildren().add(node);
+					}
+
+					this.nodes.add(node);
+					this.nodeFragments.add(this.getIndexes());
+				}
+
+				flw.setPathTree(pathTree);
+			}
+
+			net.addFlow(flw);
+		}
+	}
+
+	/*
+	 * The references to fragments are returned to be resolved once
+	 * every fragment is created.
+	 */
+	private int[] readFlowProperties(Flow flw) {
+		flw.setName(this.getString());
+		flw.setInstance(this.in.getInt());
+		flw.setType(this.in.getInt());
+		flw.setIsModifiedOrCreated(this.getNullableBoolean());
+		flw.setModificationType(this.getEnum(NetworkProperties.class));
+		flw.setTotalNumOfPackets(this.in.getInt());
+		flw.setFixedPriority(this.getBoolean());
+		flw.setPriorityValue(this.in.getInt());
+		flw.setPathTreeCount(this.in.getInt());
+
+		int startDevice = this.in.getInt();
+
+		if(startDevice != NULL_INDEX) {
+			// The path tree created here for multicast flows is replaced by the stored one
+			flw.setStartDevice(this.devices[startDevice]);
+		}
+
+		for(int endDevice : this.getIndexes()) {
+			flw.getEndDeviceList().add(this.devices[endDevice]);
+		}
+
+		flw.setFlowMaximumJitter(this.in.getDouble());
+		flw.setFlowMaximumLatency(this.in.getDouble());
+		flw.setPacketSize(this.in.getDouble());
+		flw.setFlowFirstSendingTime(this.in.getDouble());
+		flw.setFlowSendingPeriodicity(this.in.getDouble());
+		flw.setNumOfPacketsSent(this.in.getInt());
+
+		int[] path = this.getIndexes();
+
+		if(path == null) {
+			flw.setPath(null);
+		} else {
+			ArrayList<Switch> listOfSwitches = new ArrayList<Switch>(path.length);
+
+			for(int index : path) {
+				listOfSwitches.add(this.switches[index]);
+			}
+
+			flw.setPath(listOfSwitches);
+		}
+
+		int[] fragmentsOfFlow = this.getIndexes();
+		flw.setFlowFragments(fragmentsOfFlow == null ? null : new ArrayList<FlowFragment>(fragmentsOfFlow.length));
+
+		return fragmentsOfFlow;
+	}
+
+	private void readFragments() {
+		FlowFragment[] listOfFragments = new FlowFragment[this.in.getInt()];
+		int[] previousFragments = new int[listOfFragments.length];
+		int[][] nextFragments = new int[listOfFragments.length][];
+
+		for(int i = 0; i < listOfFragments.length; i++) {
+			Flow parent = this.flows[this.in.getInt()];
+			FlowFragment frag = this.createFragment(parent);
+
+			this.readFlowProperties(frag);
+			frag.setPathTree(null);
+
+			int port = this.in.getInt();
+			int node = this.in.getInt();
+
+			frag.setPort(port == NULL_INDEX ? null : this.ports.get(port));
+			frag.setReferenceToNode(node == NULL_INDEX ? null : this.nodes.get(node));
+			frag.setFragmentPriority(this.in.getInt());
+			frag.setNodeName(this.getString());
+			frag.setNextHop(this.getString());
+			previousFragments[i] = this.in.getInt();
+			nextFragments[i] = this.getIndexes();
+			frag.resetOutputLists();
+			this.addDoubles(frag.getDepartureTimeList());
+			this.addDoubles(frag.getArrivalTimeList());
+			this.addDoubles(frag.getScheduledTimeList());
+
+			listOfFragments[i] = frag;
+		}
+
+		for(int i = 0; i < listOfFragments.length; i++) {
+			listOfFragments[i].setPreviousFragment(previousFragments[i] == NULL_INDEX ? null : listOfFragments[previousFragments[i]]);
+			listOfFragments[i].setNextFragments(this.toFragments(nextFragments[i], listOfFragments));
+		}
+
+		for(int i = 0; i < this.flows.length; i++) {
+			if(this.flowFragments[i] != null) {
+				this.flows[i].setFlowFragments(this.toFragments(this.flowFragments[i], listOfFragments));
+			}
+		}
+
+		for(int i = 0; i < this.nodes.size(); i++) {
+			this.nodes.get(i).setFlowFragment(this.toFragments(this.nodeFragments.get(i), listOfFragments));
+		}
+
+		for(int i = 0; i < this.ports.size(); i++) {
+			this.ports.get(i).setFlowFragments(this.toFragments(this.portFragments.get(i), listOfFragments));
+		}
+	}
+
+	/*
+	 * The constructor of the fragments names them after the fragments
+	 * of their flow, so the name and counters are set again after it.
+	 */
+	private FlowFragment createFragment(Flow parent) {
+		ArrayList<FlowFragment> fragmentsOfParent = parent.getFlowFragments();
+		int pathTreeCount = parent.getPathTreeCount();
+
+		if(fragmentsOfParent == null) {
+			parent.setFlowFragments(new ArrayList<FlowFragment>());
+		}
+
+		FlowFragment frag = new FlowFragment(parent);
+
+		parent.setFlowFragments(fragmentsOfParent);
+		parent.setPathTreeCount(pathTreeCount);
+
+		return frag;
+	}
+
+	private ArrayList<FlowFragment> toFragments(int[] indexes, FlowFragment[] listOfFragments) {
+
+		if(indexes == null) {
+			return null;
+		}
+
+		ArrayList<FlowFragment> fragmentList = new ArrayList<FlowFragment>(indexes.length);
+
+		for(int index : indexes) {
+			fragmentList.add(listOfFragments[index]);
+		}
+
+		return fragmentList;
+	}
+
+
+	private boolean getBoolean() {
+		return this.in.get() == 1;
+	}
+
+	private Boolean getNullableBoolean() {
+		byte value = this.in.get();
+
+		return (value == NULL_BOOLEAN ? null : value == 1);
+	}
+
+	private Double getNullableDouble() {
+		return (this.getBoolean() ? this.in.getDouble() : null);
+	}
+
+	private String getString() {
+		int index = this.in.getInt();
+
+		return (index == NULL_INDEX ? null : this.stringTable[index]);
+	}
+
+	private <E extends Enum<E>> E getEnum(Class<E> type) {
+		String name = this.getString();
+
+		return (name == null ? null : Enum.valueOf(type, name));
+	}
+
+	private ArrayList<String> getStrings() {
+		int size = this.in.getInt();
+		ArrayList<String> values = new ArrayList<String>(Math.max(size, 0));
+
+		for(int i = 0; i < size; i++) {
+			values.add(this.getString());
+		}
+
+		return values;
+	}
+
+	private int[] getIndexes() {
+		int size = this.in.getInt();
+
+		if(size == NULL_INDEX) {
+			return null;
+		}
+
+		int[] values = new int[size];
+		this.in.asIntBuffer().get(values);
+		this.in.position(this.in.position() + Integer.BYTES * size);
+
+		return values;
+	}
+
+	private ArrayList<Integer> getIntegers() {
+		int[] values = this.getIndexes();
+
+		if(values == null) {
+			return null;
+		}
+
+		ArrayList<Integer> list = new ArrayList<Integer>(values.length);
+
+		for(int value : values) {
+			list.add(value);
+		}
+
+		return list;
+	}
+
+	private ArrayList<Double> getDoubles() {
+		int size = this.in.getInt();
+
+		if(size == NULL_INDEX) {
+			return null;
+		}
+
+		double[] values = new double[size];
+		this.in.asDoubleBuffer().get(values);
+		this.in.position(this.in.position() + Double.BYTES * size);
+
+		ArrayList<Double> list = new ArrayList<Double>(size);
+
+		for(double value : values) {
+			list.add(value);
+		}
+
+		return list;
+	}
+
+	private void addDoubles(ArrayList<Double> list) {
+		ArrayList<Double> values = this.getDoubles();
+
+		if(values != null) {
+			list.addAll(values);
+		}
+	}
+
+	private ArrayList<ArrayList<Double>> getDoubleLists() {
+		int size = this.in.getInt();
+
+		if(size == NULL_INDEX) {
+			return null;
+		}
+
+		ArrayList<ArrayList<Double>> lists = new ArrayList<ArrayList<Double>>(size);
+
+		for(int i = 0; i < size; i++) {
+			lists.add(this.getDoubles());
+		}
+
+		return lists;
+	}
+
+}
@@ -426,7 +426,6 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr arrivalTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-        IntExpr index = ctx.mkInt(auxIndex);
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
 
         return (RealExpr) this.ports.get(portIndex).arrivalTime(ctx, auxIndex, flowFrag);
@@ -479,10 +478,8 @@ public class TSNSwitch extends Switch implements Serializable {
      * @return              Returns the z3 variable for the arrival time of the desired packet
      */
     public RealExpr departureTime(Context ctx, int auxIndex, FlowFragment flowFrag){
-        IntExpr index = ctx.mkInt(auxIndex);
-        
         int portIndex = this.connectsTo.indexOf(flowFrag.getNextHop());
-        return (RealExpr) this.ports.get(portIndex).departureTime(ctx, index, flowFrag);
+        return (RealExpr) this.ports.get(portIndex).departureTime(ctx, auxIndex, flowFrag);
      }
   
     /**
@@ -667,4 +664,36 @@ public class TSNSwitch extends Switch implements Serializable {
 		this.useSameCycleStart = useSameCycleStart;
 	}
 
+	public double getCycleDurationUpperBound() {
+		return cycleDurationUpperBound;
+	}
+
+	public void setCycleDurationUpperBound(double cycleDurationUpperBound) {
+		this.cycleDurationUpperBound = cycleDurationUpperBound;
+	}
+
+	public double getCycleDurationLowerBound() {
+		return cycleDurationLowerBound;
+	}
+
+	public void setCycleDurationLowerBound(double cycleDurationLowerBound) {
+		this.cycleDurationLowerBound = cycleDurationLowerBound;
+	}
+
+	public Double getFirstCycleStart() {
+		return firstCycleStart;
+	}
+
+	public void setFirstCycleStart(Double firstCycleStart) {
+		this.firstCycleStart = firstCycleStart;
+	}
+
+	public int getPortNum() {
+		return portNum;
+	}
+
+	public void setPortNum(int portNum) {
+		this.portNum = portNum;
+	}
+
 }
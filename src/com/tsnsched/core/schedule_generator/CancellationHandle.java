@@ -0,0 +1,76 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+
+import com.microsoft.z3.Context;
+
+/**
+ * [Class]: CancellationHandle
+ * [Usage]: Keeps track of the z3 contexts in use by a schedule
+ * generator, so the scheduling can be cancelled from another thread.
+ * Cancelling interrupts the solver of every registered context and
+ * stops the generator from starting new checks. Contexts are registered
+ * when created and must be unregistered before they are closed.
+ */
+public class CancellationHandle {
+
+	private ArrayList<Context> runningContexts = new ArrayList<Context>();
+	private boolean cancelled = false;
+
+
+	/**
+	 * [Method]: register
+	 * [Usage]: Adds a context to the handle. Returns false if the
+	 * handle is already cancelled, meaning that the solver of the
+	 * context should not be started.
+	 *
+	 * @param ctx		Context used by the generator
+	 * @return			True if the context can be used to solve
+	 */
+	public synchronized boolean register(Context ctx) {
+		if(this.cancelled) {
+			return false;
+		}
+
+		this.runningContexts.add(ctx);
+		return true;
+	}
+
+	public synchronized void unregister(Context ctx) {
+		this.runningContexts.remove(ctx);
+	}
+
+
+	/**
+	 * [Method]: cancel
+	 * [Usage]: Cancels the scheduling, interrupting every solver
+	 * that is still running. Can be called from any thread.
+	 */
+	public synchronized void cancel() {
+		this.cancelled = true;
+
+		for(Context ctx : this.runningContexts) {
+			ctx.interrupt();
+		}
+	}
+
+	public synchronized boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * [Method]: reset
+	 * [Usage]: Allows a cancelled generator to schedule again.
+	 */
+	public synchronized void reset() {
+		this.cancelled = false;
+	}
+
+}
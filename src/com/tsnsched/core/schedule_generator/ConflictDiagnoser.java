@@ -0,0 +1,359 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.ConstraintSink;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ConflictDiagnoser
+ * [Usage]: Finds which flows and ports make a network impossible to
+ * schedule. The rules of each flow, each port and the first hop of
+ * each source device are set on a solver of their own, and then moved
+ * to the diagnosis solver guarded by a label (a boolean constant) of
+ * that flow, port or device. The labels are given to the solver as
+ * assumptions, so the core returned when the network can not be
+ * scheduled names the elements in conflict. The core is minimised by
+ * removing one label at a time and checking again.
+ *
+ * The diagnoser can also pick the flow to be left out in order to
+ * solve a conflict: the flow of lowest priority among the flows of the
+ * core and the flows going through its ports or leaving its devices.
+ * Flows are left out on the same solver: the rules of the flows stay
+ * on it and the label of a flow left out is no longer assumed, while
+ * the rules of the ports and devices, which involve several flows, are
+ * set in a scope of the solver and set again without the flow.
+ */
+public class ConflictDiagnoser {
+
+	private ScheduleGenerator generator;
+	private Printer printer;
+
+	private Context ctx;
+	private Solver solver;
+	private Network net;
+	private LinkedHashMap<Flow, BoolExpr> flowLabels = new LinkedHashMap<Flow, BoolExpr>();
+	private LinkedHashMap<BoolExpr, String> labels = new LinkedHashMap<BoolExpr, String>();
+	private LinkedHashMap<BoolExpr, String> scopeLabels = new LinkedHashMap<BoolExpr, String>();
+	private LinkedHashMap<String, LinkedHashSet<Flow>> flowsOfPort = new LinkedHashMap<String, LinkedHashSet<Flow>>();
+
+	private LinkedHashSet<String> conflictingFlows = new LinkedHashSet<String>();
+	private LinkedHashSet<String> conflictingPorts = new LinkedHashSet<String>();
+	private LinkedHashSet<String> conflictingDevices = new LinkedHashSet<String>();
+	private ArrayList<Flow> candidateFlows = new ArrayList<Flow>();
+
+
+	public ConflictDiagnoser(ScheduleGenerator generator, Printer printer) {
+		this.generator = generator;
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: findConflict
+	 * [Usage]: Sets the rules of the network with a label per flow,
+	 * port and source device and checks them. If the network can not
+	 * be scheduled, the minimised conflict is stored in the diagnoser.
+	 * The network must not have been configured before, and flows are
+	 * removed from it by shedFlow. The solver is kept until close is
+	 * called.
+	 *
+	 * @param net		Network to be diagnosed
+	 * @return			Status of the check of the labelled rules
+	 */
+	public Status findConflict(Network net) {
+		this.close();
+
+		this.ctx = this.generator.createContext();
+		this.solver = this.generator.createSolver(this.ctx);
+		this.net = net;
+
+		net.setPrinter(this.printer);
+		this.generator.prepareNetwork(net, this.ctx, this.solver);
+
+		net.setJitterUpperBoundRangeZ3(this.ctx, 25);
+		net.prepareHC(this.ctx);
+
+		for(Flow flw : net.getFlows()) {
+			Solver flowSolver = this.ctx.mkSolver();
+			flw.assertFirstSendingTime(flowSolver, this.ctx);
+			net.secureFlowHC(flowSolver, this.ctx, flw);
+			this.flowLabels.put(flw, this.moveRules(flowSolver, this.labels, "flow", flw.getName()));
+		}
+
+		ConstraintSink.of(this.ctx, this.solver).push();
+		this.setSharedRules();
+
+		return this.check();
+	}
+
+
+	/**
+	 * [Method]: shedFlow
+	 * [Usage]: Leaves a flow out of the network being diagnosed and
+	 * checks the remaining flows on the same solver. The label of the
+	 * flow is no longer assumed, and the rules of the ports and devices
+	 * are set again without its fragments.
+	 *
+	 * @param flowName	Name of the flow to be left out
+	 * @return			Status of the check of the remaining flows
+	 */
+	public Status shedFlow(String flowName) {
+		ArrayList<Flow> remainingFlows = new ArrayList<Flow>(this.net.getFlows());
+		remainingFlows.removeIf(flw -> flw.getName().equals(flowName));
+		this.net.setFlows(remainingFlows);
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>(port.getFlowFragments());
+				fragments.removeIf(frag -> frag.getParent().getName().equals(flowName));
+				port.setFlowFragments(fragments);
+			}
+		}
+
+		ConstraintSink sink = ConstraintSink.of(this.ctx, this.solver);
+		sink.pop();
+		sink.push();
+		this.setSharedRules();
+
+		return this.check();
+	}
+
+
+	/**
+	 * [Method]: close
+	 * [Usage]: Closes the context of the diagnosis solver.
+	 */
+	public void close() {
+		if(this.ctx != null) {
+			this.generator.closeContext(this.ctx);
+		}
+
+		this.ctx = null;
+		this.solver = null;
+		this.flowLabels.clear();
+		this.labels.clear();
+		this.scopeLabels.clear();
+	}
+
+
+	/*
+	 * Sets the rules of the first hop of each source device and of each
+	 * port, which involve several flows, in the current scope.
+	 */
+	private void setSharedRules() {
+		LinkedHashMap<String, ArrayList<Flow>> flowsOfDevice = new LinkedHashMap<String, ArrayList<Flow>>();
+
+		this.scopeLabels.clear();
+		this.flowsOfPort.clear();
+
+		for(Flow flw : this.net.getFlows()) {
+			String deviceName = flw.getStartDevice().getName();
+
+			if(!flowsOfDevice.containsKey(deviceName)) {
+				flowsOfDevice.put(deviceName, new ArrayList<Flow>());
+			}
+
+			flowsOfDevice.get(deviceName).add(flw);
+		}
+
+		for(String deviceName : flowsOfDevice.keySet()) {
+			Solver deviceSolver = this.ctx.mkSolver();
+			this.net.preventCollisionOnFirstHop(deviceSolver, this.ctx, flowsOfDevice.get(deviceName));
+			this.moveRules(deviceSolver, this.scopeLabels, "device", deviceName);
+		}
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(!port.getIsModifiedOrCreated() && !port.checkIfHasIncrement()) {
+					continue;
+				}
+
+				Solver portSolver = this.ctx.mkSolver();
+				port.setupSchedulingRules(portSolver, this.ctx);
+				this.moveRules(portSolver, this.scopeLabels, "port", port.getName());
+
+				this.flowsOfPort.put(port.getName(), new LinkedHashSet<Flow>());
+				for(FlowFragment frag : port.getFlowFragments()) {
+					this.flowsOfPort.get(port.getName()).add(frag.getParent());
+				}
+			}
+		}
+	}
+
+	/*
+	 * Checks the solver assuming the labels of the flows left in the
+	 * network and of the rules of the current scope, and stores the
+	 * minimised conflict if there is one.
+	 */
+	private Status check() {
+		LinkedHashMap<BoolExpr, String> assumedLabels = new LinkedHashMap<BoolExpr, String>();
+
+		for(Flow flw : this.net.getFlows()) {
+			BoolExpr label = this.flowLabels.get(flw);
+			assumedLabels.put(label, this.labels.get(label));
+		}
+
+		assumedLabels.putAll(this.scopeLabels);
+
+		this.conflictingFlows.clear();
+		this.conflictingPorts.clear();
+		this.conflictingDevices.clear();
+		this.candidateFlows.clear();
+
+		this.printer.printIfLoggingIsEnabled("- Checking the rules of " + assumedLabels.size() + " flows, ports and devices");
+
+		this.generator.applySolverLimits(this.ctx, this.solver);
+		Status status = ConstraintSink.of(this.ctx, this.solver).check(assumedLabels.keySet().toArray(new BoolExpr[0]));
+
+		if(status == Status.UNSATISFIABLE) {
+			for(BoolExpr label : this.minimiseCore(this.ctx, this.solver, this.solver.getUnsatCore())) {
+				String[] element = assumedLabels.get(label).split(":", 2);
+
+				if(element[0].equals("flow")) {
+					this.conflictingFlows.add(element[1]);
+				} else if(element[0].equals("port")) {
+					this.conflictingPorts.add(element[1]);
+				} else {
+					this.conflictingDevices.add(element[1]);
+				}
+			}
+
+			for(Flow flw : this.net.getFlows()) {
+				boolean inConflict = this.conflictingFlows.contains(flw.getName()) ||
+						this.conflictingDevices.contains(flw.getStartDevice().getName());
+
+				for(String portName : this.conflictingPorts) {
+					inConflict = inConflict || this.flowsOfPort.get(portName).contains(flw);
+				}
+
+				if(inConflict) {
+					this.candidateFlows.add(flw);
+				}
+			}
+
+			this.printer.printIfLoggingIsEnabled("- Conflict found on flows " + this.conflictingFlows +
+					", ports " + this.conflictingPorts + " and devices " + this.conflictingDevices);
+		}
+
+		return status;
+	}
+
+
+	/**
+	 * [Method]: pickFlowToShed
+	 * [Usage]: Among the flows involved in the last conflict found,
+	 * returns the name of the flow with the lowest priority value.
+	 * Flows without a fixed priority come first, and ties are broken
+	 * by leaving out the flow that appears last in the network.
+	 *
+	 * @return			Name of the flow to be left out, or null if there is none
+	 */
+	public String pickFlowToShed() {
+		Flow flowToShed = null;
+
+		for(Flow flw : this.candidateFlows) {
+			if(flowToShed == null || flw.getPriorityValue() <= flowToShed.getPriorityValue()) {
+				flowToShed = flw;
+			}
+		}
+
+		return (flowToShed == null ? null : flowToShed.getName());
+	}
+
+
+	/**
+	 * [Method]: describeConflict
+	 * [Usage]: Lists the flows, ports and devices of the last
+	 * conflict found, as stored in the schedule information.
+	 *
+	 * @return			Elements of the conflict, by type
+	 */
+	public LinkedHashMap<String, Object> describeConflict() {
+		LinkedHashMap<String, Object> conflict = new LinkedHashMap<String, Object>();
+
+		conflict.put("flows", new ArrayList<String>(this.conflictingFlows));
+		conflict.put("ports", new ArrayList<String>(this.conflictingPorts));
+		conflict.put("devices", new ArrayList<String>(this.conflictingDevices));
+
+		return conflict;
+	}
+
+
+	/*
+	 * Rules are set on a solver of their own, so they can be moved to
+	 * the diagnosis solver as implications of the label of their owner.
+	 */
+	private BoolExpr moveRules(Solver from, LinkedHashMap<BoolExpr, String> labels, String type, String name) {
+		BoolExpr label = this.ctx.mkBoolConst("conflictLabel:" + type + ":" + name);
+
+		ConstraintSink.of(this.ctx, from).flush();
+
+		for(BoolExpr rule : from.getAssertions()) {
+			this.solver.add(this.ctx.mkImplies(label, rule));
+		}
+
+		labels.put(label, type + ":" + name);
+
+		return label;
+	}
+
+	/*
+	 * Deletion based minimisation: a label is dropped if the remaining
+	 * labels are still in conflict, in which case the core is reduced to
+	 * the new core returned by the solver. Each check is limited to the
+	 * time left, and the core found so far is kept once it runs out.
+	 */
+	private ArrayList<BoolExpr> minimiseCore(Context ctx, Solver solver, BoolExpr[] unsatCore) {
+		ArrayList<BoolExpr> core = new ArrayList<BoolExpr>(Arrays.asList(unsatCore));
+		int index = 0;
+
+		while(index < core.size() && !this.generator.isOutOfTime()) {
+			ArrayList<BoolExpr> reducedCore = new ArrayList<BoolExpr>(core);
+			reducedCore.remove(index);
+			this.generator.applySolverLimits(ctx, solver);
+
+			if(solver.check(reducedCore.toArray(new BoolExpr[0])) == Status.UNSATISFIABLE) {
+				HashSet<BoolExpr> newCore = new HashSet<BoolExpr>(Arrays.asList(solver.getUnsatCore()));
+				reducedCore.retainAll(newCore);
+				core = reducedCore;
+			} else {
+				index++;
+			}
+		}
+
+		return core;
+	}
+
+
+	public ArrayList<String> getConflictingFlows() {
+		return new ArrayList<String>(conflictingFlows);
+	}
+
+	public ArrayList<String> getConflictingPorts() {
+		return new ArrayList<String>(conflictingPorts);
+	}
+
+	public ArrayList<String> getConflictingDevices() {
+		return new ArrayList<String>(conflictingDevices);
+	}
+
+}
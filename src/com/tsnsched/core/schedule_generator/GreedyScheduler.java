@@ -0,0 +1,746 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+import com.microsoft.z3.Context;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: GreedyScheduler
+ * [Usage]: Heuristic alternative to the z3 encoding. Flows are taken in
+ * earliest deadline order, and each one receives the earliest offset in
+ * which its packets are forwarded by every switch of its path tree as soon
+ * as they arrive, without colliding with the packets of the flows placed
+ * before it. Flows without a fixed priority take the lowest priority in
+ * which they are placed and the slots of their ports can still be built.
+ * The time slots of each port are then built around the transmissions,
+ * merging neighbouring transmissions of the same priority while there are
+ * more transmissions than slots.
+ *
+ * Only ports using the hyper cycle are supported. The values are stored
+ * in the network objects in the same way as the values of a z3 model, so
+ * the result can be checked by the ScheduleValidator and exported.
+ */
+public class GreedyScheduler {
+
+	public static final int DEFAULT_PRIORITY = 0;
+	private static final double TOLERANCE = 1e-9;
+
+	private Network net;
+	private Printer printer;
+	private String failureReason = null;
+
+	private HashMap<Port, ArrayList<Transmission>> transmissions = new HashMap<Port, ArrayList<Transmission>>();
+	private HashMap<FlowFragment, Double> departureDelays = new HashMap<FlowFragment, Double>();
+	private HashMap<Flow, ArrayList<FlowFragment>> fragmentsOfFlow = new HashMap<Flow, ArrayList<FlowFragment>>();
+	private HashMap<Flow, Double> offsets = new HashMap<Flow, Double>();
+	private HashMap<Flow, Integer> priorities = new HashMap<Flow, Integer>();
+
+
+	public GreedyScheduler(Network net, Printer printer) {
+		this.net = net;
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: schedule
+	 * [Usage]: Places every flow of the network and stores the resulting
+	 * schedule in its objects. The context is only used to create the flow
+	 * fragments, no rule is given to a solver. If a flow cannot be placed,
+	 * false is returned and the reason can be retrieved with
+	 * getFailureReason. In this case, the network is left with partial
+	 * values and should be discarded.
+	 *
+	 * @param ctx		Context used to create the flow fragments
+	 * @return			True if every flow was placed
+	 */
+	public boolean schedule(Context ctx) {
+		this.prepareNetwork(ctx);
+
+		if(!this.checkSupport()) {
+			return false;
+		}
+
+		ArrayList<Flow> flows = new ArrayList<Flow>(this.net.getFlows());
+
+		// Earliest deadline first, breaking ties with the shortest period
+		flows.sort(
+			Comparator.comparingDouble(Flow::getFlowMaximumLatency)
+				.thenComparingDouble(Flow::getFlowSendingPeriodicity)
+		);
+
+		for(Flow flw : flows) {
+			if(!this.placeFlow(flw)) {
+				return false;
+			}
+		}
+
+		if(!this.buildSlots()) {
+			return false;
+		}
+
+		this.writeFlowValues();
+
+		return true;
+	}
+
+
+	/*
+	 * Same preparation done by the generator before setting the rules,
+	 * up to the creation of the fragments and the number of packets
+	 * each of them sends in a hyper cycle.
+	 */
+	private void prepareNetwork(Context ctx) {
+		for(Flow flw : this.net.getFlows()) {
+			flw.setPrinter(this.printer);
+			flw.modifyIfUsingCustomVal();
+			flw.convertUnicastFlow();
+			flw.setUpPeriods(flw.getPathTree().getRoot());
+		}
+
+		for(Switch swt : this.net.getSwitches()) {
+			((TSNSwitch) swt).setPrinter(this.printer);
+			((TSNSwitch) swt).setUpCycleSize(null, ctx);
+		}
+
+		this.net.setUpBounds();
+
+		for(Flow flw : this.net.getFlows()) {
+			flw.toZ3(ctx);
+			flw.setNumberOfPacketsSent(flw.getPathTree().getRoot());
+		}
+	}
+
+	private boolean checkSupport() {
+		for(Flow flw : this.net.getFlows()) {
+			if(flw.getType() != Flow.PUBLISH_SUBSCRIBE) {
+				return this.fail("flow " + flw.getName() + " could not be converted to a path tree");
+			}
+		}
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(port.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				if(port.getUseMicroCycles() || !port.getUseHyperCycle()) {
+					return this.fail("port " + port.getName() + " of " + swt.getName() + " does not use the hyper cycle");
+				}
+
+				if(port.getCycle().getWrapTransmission()) {
+					return this.fail("port " + port.getName() + " of " + swt.getName() + " wraps transmissions");
+				}
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * [Method]: placeFlow
+	 * [Usage]: Looks for the earliest offset of the first packet of a
+	 * flow in which none of its transmissions collides with the ones
+	 * already placed. Since packets never wait in a queue, the only
+	 * candidates are the lower bound of the offset and the points where
+	 * a packet of the flow would start right after a packet placed before.
+	 * A flow with a fixed priority is only placed in it. Other flows try
+	 * every priority available on all of their ports, from the lowest,
+	 * and an offset is only kept if the slots of the ports can still be
+	 * built with it.
+	 *
+	 * @param flw		Flow to be placed
+	 * @return			True if an offset was found
+	 */
+	private boolean placeFlow(Flow flw) {
+		ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>();
+
+		for(PathNode child : flw.getPathTree().getRoot().getChildren()) {
+			this.collectFragments(child, 0, fragments);
+		}
+
+		ArrayList<Integer> priorities = new ArrayList<Integer>();
+
+		if(flw.isFixedPriority() && flw.getPriorityValue() >= 0 && flw.getPriorityValue() <= 7) {
+			priorities.add(flw.getPriorityValue());
+		} else {
+			int numOfPrts = Integer.MAX_VALUE;
+
+			for(FlowFragment frag : fragments) {
+				numOfPrts = Math.min(numOfPrts, frag.getPort().getCycle().getNumOfPrts());
+			}
+
+			for(int prt = DEFAULT_PRIORITY; prt < numOfPrts; prt++) {
+				priorities.add(prt);
+			}
+		}
+
+		int priority = (priorities.isEmpty() ? DEFAULT_PRIORITY : priorities.get(0));
+
+		double period = flw.getFlowSendingPeriodicity();
+		double firstHopTransmissionTime = flw.getPacketSize() / this.getFirstHopPortSpeed(flw);
+
+		// Without queuing, the latency of every packet is the same
+		for(PathNode leaf : flw.getPathTree().getLeaves()) {
+			for(FlowFragment frag : leaf.getParent().getFlowFragments()) {
+				double latency = firstHopTransmissionTime + this.getArrivalDelay(frag) + this.getTransmissionTime(frag);
+
+				if(latency > flw.getFlowMaximumLatency() + TOLERANCE) {
+					return this.fail("flow " + flw.getName() + " cannot meet its maximum latency of " + flw.getFlowMaximumLatency());
+				}
+			}
+		}
+
+		double lowerBound = firstHopTransmissionTime;
+		double upperBound = Double.MAX_VALUE;
+
+		for(FlowFragment frag : fragments) {
+			Port port = frag.getPort();
+			double cycleStart = this.getCycleStart(port);
+
+			if(priority >= port.getCycle().getNumOfPrts()) {
+				return this.fail("port " + port.getName() + " has no priority " + priority);
+			}
+
+			lowerBound = Math.max(lowerBound, cycleStart + this.getGuardBand(port) - this.getArrivalDelay(frag));
+			upperBound = Math.min(
+				upperBound,
+				cycleStart + port.getDefinedHyperCycleSize() - (frag.getNumOfPacketsSent() - 1) * period -
+					this.getArrivalDelay(frag) - this.getTransmissionTime(frag)
+			);
+		}
+
+		for(int prt : priorities) {
+			if(this.placeFlowWithPriority(flw, fragments, prt, lowerBound, upperBound)) {
+				return true;
+			}
+		}
+
+		return this.fail("no offset found for flow " + flw.getName() + " with the priorities " + priorities);
+	}
+
+	/*
+	 * Tries the candidate offsets of a flow in a single priority,
+	 * keeping the first one that is free of collisions and with which
+	 * the slots of every port of the flow can still be built.
+	 */
+	private boolean placeFlowWithPriority(Flow flw, ArrayList<FlowFragment> fragments, int priority, double lowerBound, double upperBound) {
+		double period = flw.getFlowSendingPeriodicity();
+		double firstHopTransmissionTime = flw.getPacketSize() / this.getFirstHopPortSpeed(flw);
+		TreeSet<Double> candidates = new TreeSet<Double>();
+
+		if(flw.getFlowFirstSendingTime() >= 0 && flw.getFlowFirstSendingTime() > firstHopTransmissionTime) {
+			candidates.add(flw.getFlowFirstSendingTime());
+		} else {
+			candidates.add(lowerBound);
+
+			for(FlowFragment frag : fragments) {
+				ArrayList<Transmission> placed = this.transmissions.get(frag.getPort());
+
+				if(placed == null) {
+					continue;
+				}
+
+				for(Transmission transmission : placed) {
+					double separation = this.getSeparation(frag.getPort(), transmission.priority, priority);
+
+					for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+						double candidate = transmission.end + separation - this.getArrivalDelay(frag) - i * period;
+
+						if(candidate >= lowerBound && candidate <= upperBound) {
+							candidates.add(candidate);
+						}
+					}
+				}
+			}
+
+			for(Flow other : this.getPlacedFlowsFromSameSource(flw)) {
+				int numOfPackets = Math.max(this.getFirstHopNumOfPackets(flw), this.getFirstHopNumOfPackets(other));
+
+				for(int i = 0; i < numOfPackets; i++) {
+					for(int j = 0; j < numOfPackets; j++) {
+						double candidate = this.offsets.get(other) + j * other.getFlowSendingPeriodicity() -
+							i * period + flw.getPacketSize() / this.getSourcePortSpeed(flw);
+
+						if(candidate >= lowerBound && candidate <= upperBound) {
+							candidates.add(candidate);
+						}
+					}
+				}
+			}
+		}
+
+		for(double offset : candidates) {
+			if(!this.isFeasible(flw, fragments, priority, offset)) {
+				continue;
+			}
+
+			this.commitFlow(flw, fragments, priority, offset);
+
+			if(this.fitsInSlots(fragments)) {
+				this.printer.printIfLoggingIsEnabled("- Flow " + flw.getName() + " placed at offset " + offset + " with priority " + priority);
+				return true;
+			}
+
+			this.removeFlow(flw, fragments);
+		}
+
+		return false;
+	}
+
+	/*
+	 * Walks the path tree storing, for each fragment, the departure time
+	 * of its first packet relative to the offset of the flow.
+	 */
+	private void collectFragments(PathNode node, double departureDelay, ArrayList<FlowFragment> fragments) {
+		for(int index = 0; index < node.getFlowFragments().size(); index++) {
+			FlowFragment frag = node.getFlowFragments().get(index);
+			PathNode next = node.getChildren().get(index);
+
+			this.departureDelays.put(frag, departureDelay);
+			fragments.add(frag);
+
+			if(next.getNode() instanceof TSNSwitch) {
+				this.collectFragments(next, this.getArrivalDelay(frag) + this.getTransmissionTime(frag), fragments);
+			}
+		}
+	}
+
+	private boolean isFeasible(Flow flw, ArrayList<FlowFragment> fragments, int priority, double offset) {
+		double period = flw.getFlowSendingPeriodicity();
+
+		for(FlowFragment frag : fragments) {
+			Port port = frag.getPort();
+			double cycleStart = this.getCycleStart(port);
+			double transmissionTime = this.getTransmissionTime(frag);
+			ArrayList<Transmission> placed = this.transmissions.get(port);
+
+			if(frag.getNumOfPacketsSent() > 1 && period < transmissionTime + this.getInterframeGap(port) - TOLERANCE) {
+				return false;
+			}
+
+			for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+				double start = offset + i * period + this.getArrivalDelay(frag);
+				double end = start + transmissionTime;
+
+				if(start < cycleStart + this.getGuardBand(port) - TOLERANCE ||
+				   end > cycleStart + port.getDefinedHyperCycleSize() + TOLERANCE) {
+					return false;
+				}
+
+				if(placed == null) {
+					continue;
+				}
+
+				for(Transmission transmission : placed) {
+					double separation = this.getSeparation(port, transmission.priority, priority);
+
+					if(start < transmission.end + separation - TOLERANCE &&
+					   transmission.start < end + separation - TOLERANCE) {
+						return false;
+					}
+				}
+			}
+		}
+
+		for(Flow other : this.getPlacedFlowsFromSameSource(flw)) {
+			if(!this.isFirstHopFree(flw, offset, other, this.offsets.get(other))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * Rule used by the network to prevent collisions between flows
+	 * leaving the same device, checked in both directions for every
+	 * pair of packets of the first hop.
+	 */
+	private boolean isFirstHopFree(Flow flowA, double offsetA, Flow flowB, double offsetB) {
+		double speed = this.getSourcePortSpeed(flowA);
+		double transmissionTimeA = flowA.getPacketSize() / speed;
+		double transmissionTimeB = flowB.getPacketSize() / speed;
+		int numOfPacketsA = this.getFirstHopNumOfPackets(flowA);
+		int numOfPacketsB = this.getFirstHopNumOfPackets(flowB);
+
+		for(int i = 0; i < Math.max(numOfPacketsA, numOfPacketsB); i++) {
+			for(int j = 0; j < Math.max(numOfPacketsA, numOfPacketsB); j++) {
+				double departureAi = offsetA + i * flowA.getFlowSendingPeriodicity();
+				double departureAj = offsetA + j * flowA.getFlowSendingPeriodicity();
+				double departureBi = offsetB + i * flowB.getFlowSendingPeriodicity();
+				double departureBj = offsetB + j * flowB.getFlowSendingPeriodicity();
+
+				boolean aAfterB = departureAi >= departureBj + transmissionTimeA - TOLERANCE;
+				boolean bAfterA = departureBi >= departureAj + transmissionTimeB - TOLERANCE;
+
+				if(i < numOfPacketsA && j < numOfPacketsB && !aAfterB && !bAfterA) {
+					return false;
+				}
+
+				aAfterB = departureAj >= departureBi + transmissionTimeA - TOLERANCE;
+				bAfterA = departureBj >= departureAi + transmissionTimeB - TOLERANCE;
+
+				if(i < numOfPacketsB && j < numOfPacketsA && !aAfterB && !bAfterA) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private void commitFlow(Flow flw, ArrayList<FlowFragment> fragments, int priority, double offset) {
+		double period = flw.getFlowSendingPeriodicity();
+
+		for(FlowFragment frag : fragments) {
+			ArrayList<Transmission> placed = this.transmissions.get(frag.getPort());
+
+			if(placed == null) {
+				placed = new ArrayList<Transmission>();
+				this.transmissions.put(frag.getPort(), placed);
+			}
+
+			for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+				double start = offset + i * period + this.getArrivalDelay(frag);
+				placed.add(new Transmission(start, start + this.getTransmissionTime(frag), priority, flw));
+			}
+		}
+
+		this.fragmentsOfFlow.put(flw, fragments);
+		this.offsets.put(flw, offset);
+		this.priorities.put(flw, priority);
+	}
+
+	private void removeFlow(Flow flw, ArrayList<FlowFragment> fragments) {
+		for(FlowFragment frag : fragments) {
+			this.transmissions.get(frag.getPort()).removeIf(transmission -> transmission.flow == flw);
+		}
+
+		this.fragmentsOfFlow.remove(flw);
+		this.offsets.remove(flw);
+		this.priorities.remove(flw);
+	}
+
+	/*
+	 * Checks if the slots of the ports used by a flow can be built with
+	 * the transmissions placed so far, without storing them.
+	 */
+	private boolean fitsInSlots(ArrayList<FlowFragment> fragments) {
+		for(FlowFragment frag : fragments) {
+			Port port = frag.getPort();
+			ArrayList<Transmission> placed = new ArrayList<Transmission>(this.transmissions.get(port));
+			TreeSet<Integer> usedPriorities = new TreeSet<Integer>();
+
+			placed.sort(Comparator.comparingDouble((Transmission transmission) -> transmission.start));
+
+			for(Transmission transmission : placed) {
+				usedPriorities.add(transmission.priority);
+			}
+
+			for(int prt : usedPriorities) {
+				if(this.mergeSlots(port.getCycle(), placed, prt) == null) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * [Method]: buildSlots
+	 * [Usage]: Creates the time slots of every port with fragments around
+	 * the transmissions placed on it and stores them in its cycle. While a
+	 * priority has more transmissions than slots, the two neighbouring
+	 * slots with the smallest gap between them are merged, as long as no
+	 * transmission of another priority is inside the gap and the merged
+	 * slot is not longer than the maximum duration. The slots left unused
+	 * are closed with no duration at the end of the last one.
+	 *
+	 * @return			True if the slots of every port could be built
+	 */
+	private boolean buildSlots() {
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(port.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				Cycle cycle = port.getCycle();
+				double cycleStart = this.getCycleStart(port);
+				ArrayList<Transmission> placed = this.transmissions.get(port);
+				TreeSet<Integer> usedPriorities = new TreeSet<Integer>();
+
+				placed.sort(Comparator.comparingDouble((Transmission transmission) -> transmission.start));
+
+				for(Transmission transmission : placed) {
+					usedPriorities.add(transmission.priority);
+				}
+
+				cycle.setCycleStart(cycleStart);
+				cycle.setCycleDuration(port.getDefinedHyperCycleSize());
+				cycle.setFirstCycleStart(cycleStart);
+
+				for(int prt : usedPriorities) {
+					ArrayList<double[]> slots = this.mergeSlots(cycle, placed, prt);
+
+					if(slots == null) {
+						return this.fail("port " + port.getName() + " of " + swt.getName() + " can not fit the packets of priority " +
+							prt + " in " + cycle.getNumOfSlots(prt) + " slots");
+					}
+
+					ArrayList<Double> listOfStart = new ArrayList<Double>();
+					ArrayList<Double> listOfDuration = new ArrayList<Double>();
+
+					for(double[] slot : slots) {
+						listOfStart.add(slot[0] - cycleStart);
+						listOfDuration.add(slot[1] - slot[0]);
+					}
+
+					double lastSlotEnd = slots.get(slots.size() - 1)[1] - cycleStart;
+
+					while(listOfStart.size() < cycle.getNumOfSlots(prt)) {
+						listOfStart.add(lastSlotEnd);
+						listOfDuration.add(0.0);
+					}
+
+					cycle.addSlotUsed(prt, listOfStart, listOfDuration);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * Slots of a priority around its transmissions, which must be sorted
+	 * by their start, merging the two closest neighbours while there are
+	 * more slots than the cycle allows. Returns null if a packet is
+	 * longer than the maximum slot duration or no slots can be merged.
+	 */
+	private ArrayList<double[]> mergeSlots(Cycle cycle, ArrayList<Transmission> placed, int prt) {
+		ArrayList<double[]> slots = new ArrayList<double[]>();
+
+		for(Transmission transmission : placed) {
+			if(transmission.priority != prt) {
+				continue;
+			}
+
+			if(transmission.end - transmission.start > cycle.getMaximumSlotDuration() + TOLERANCE) {
+				return null;
+			}
+
+			slots.add(new double[] {transmission.start, transmission.end});
+		}
+
+		while(slots.size() > cycle.getNumOfSlots(prt)) {
+			int bestIndex = -1;
+			double bestGap = Double.MAX_VALUE;
+
+			for(int index = 0; index < slots.size() - 1; index++) {
+				double[] slot = slots.get(index);
+				double[] nextSlot = slots.get(index + 1);
+
+				if(nextSlot[1] - slot[0] > cycle.getMaximumSlotDuration() + TOLERANCE ||
+				   this.hasOtherPriorityBetween(placed, prt, slot[1], nextSlot[0])) {
+					continue;
+				}
+
+				if(nextSlot[0] - slot[1] < bestGap) {
+					bestGap = nextSlot[0] - slot[1];
+					bestIndex = index;
+				}
+			}
+
+			if(bestIndex < 0) {
+				return null;
+			}
+
+			slots.get(bestIndex)[1] = slots.get(bestIndex + 1)[1];
+			slots.remove(bestIndex + 1);
+		}
+
+		return slots;
+	}
+
+	private boolean hasOtherPriorityBetween(ArrayList<Transmission> placed, int prt, double from, double to) {
+		for(Transmission transmission : placed) {
+			if(transmission.priority != prt && transmission.end > from && transmission.start < to) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * Stores the offsets, priorities and packet times in the flows
+	 * and fragments, as the printer does with the values of a model.
+	 */
+	private void writeFlowValues() {
+		for(Flow flw : this.net.getFlows()) {
+			double offset = this.offsets.get(flw);
+			double period = flw.getFlowSendingPeriodicity();
+
+			flw.setFlowFirstSendingTime(offset);
+
+			for(FlowFragment frag : this.fragmentsOfFlow.get(flw)) {
+				double timeToTravel = frag.getPort().getTimeToTravel();
+				double transmissionTime = this.getTransmissionTime(frag);
+
+				frag.getParent().addToTotalNumOfPackets(frag.getNumOfPacketsSent());
+				frag.resetOutputLists();
+				frag.setFragmentPriority(this.priorities.get(flw));
+
+				for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+					double departureTime = offset + i * period + this.departureDelays.get(frag);
+
+					if(i == 0) {
+						frag.setFlowFirstSendingTime(departureTime);
+					}
+
+					frag.addDepartureTime(departureTime);
+					frag.addArrivalTime(departureTime + timeToTravel);
+					frag.addScheduledTime(departureTime + timeToTravel + transmissionTime);
+				}
+			}
+		}
+	}
+
+
+	private double getArrivalDelay(FlowFragment frag) {
+		return this.departureDelays.get(frag) + frag.getPort().getTimeToTravel();
+	}
+
+	private double getTransmissionTime(FlowFragment frag) {
+		return frag.getParent().getPacketSize() / frag.getPort().getPortSpeed();
+	}
+
+	private double getGuardBand(Port port) {
+		return port.getGbSize() / port.getPortSpeed();
+	}
+
+	private double getInterframeGap(Port port) {
+		return port.getInterframeGapSize() / port.getPortSpeed();
+	}
+
+	/*
+	 * Packets of the same priority are kept apart by the interframe gap,
+	 * packets of different priorities also leave room for a guard band.
+	 */
+	private double getSeparation(Port port, int priority, int auxPriority) {
+		if(priority == auxPriority) {
+			return this.getInterframeGap(port);
+		}
+
+		return Math.max(this.getInterframeGap(port), this.getGuardBand(port));
+	}
+
+	private double getCycleStart(Port port) {
+		if(port.getCycle().getCycleStart() > -1) {
+			return port.getCycle().getCycleStart();
+		}
+
+		if(port.getHostSwitch().getUseSameCycleStart() && port.getHostSwitch().getFirstCycleStart() != null) {
+			return port.getHostSwitch().getFirstCycleStart();
+		}
+
+		return 0;
+	}
+
+	private double getFirstHopPortSpeed(Flow flw) {
+		TSNSwitch firstSwitch = (TSNSwitch) flw.getPathTree().getRoot().getChildren().get(0).getNode();
+
+		return firstSwitch.getPortOf(flw.getStartDeviceName()).getPortSpeed();
+	}
+
+	/*
+	 * The collision rule of the first hop uses the speed of the first
+	 * flow of the network leaving the same device.
+	 */
+	private double getSourcePortSpeed(Flow flw) {
+		for(Flow other : this.net.getFlows()) {
+			if(other.getStartDevice().getName().equals(flw.getStartDevice().getName())) {
+				return this.getFirstHopPortSpeed(other);
+			}
+		}
+
+		return this.getFirstHopPortSpeed(flw);
+	}
+
+	private int getFirstHopNumOfPackets(Flow flw) {
+		int numOfPackets = 0;
+
+		for(PathNode child : flw.getPathTree().getRoot().getChildren()) {
+			for(FlowFragment frag : child.getFlowFragments()) {
+				numOfPackets = Math.max(numOfPackets, frag.getNumOfPacketsSent());
+			}
+		}
+
+		return numOfPackets;
+	}
+
+	private ArrayList<Flow> getPlacedFlowsFromSameSource(Flow flw) {
+		ArrayList<Flow> placedFlows = new ArrayList<Flow>();
+
+		for(Flow other : this.offsets.keySet()) {
+			if(other != flw && other.getStartDevice().getName().equals(flw.getStartDevice().getName())) {
+				placedFlows.add(other);
+			}
+		}
+
+		return placedFlows;
+	}
+
+	private boolean fail(String reason) {
+		this.failureReason = reason;
+		this.printer.printIfLoggingIsEnabled("- Greedy pre-scheduler: " + reason);
+		return false;
+	}
+
+
+	public String getFailureReason() {
+		return failureReason;
+	}
+
+
+	/*
+	 * Time in which a port is busy transmitting a packet.
+	 */
+	private static class Transmission {
+		private double start;
+		private double end;
+		private int priority;
+		private Flow flow;
+
+		private Transmission(double start, double end, int priority, Flow flow) {
+			this.start = start;
+			this.end = end;
+			this.priority = priority;
+			this.flow = flow;
+		}
+	}
+
+}
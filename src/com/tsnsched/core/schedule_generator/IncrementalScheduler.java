@@ -0,0 +1,414 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.*;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.ConstraintSink;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkModificationHandler;
+import com.tsnsched.core.network.NetworkProperties;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: IncrementalScheduler
+ * [Usage]: Schedules the flows of a network in batches while keeping
+ * a single z3 context and solver alive. The rules of each batch are set
+ * inside a push/pop scope of the solver. If the batch is schedulable,
+ * the scope is popped and the values found for the ports it goes
+ * through are asserted as equalities on the base level, committing the
+ * batch. Following batches only set the rules of the ports they go
+ * through, so the cost of adding a flow depends on its neighbourhood
+ * and not on the size of the network already scheduled.
+ *
+ * If a batch can not be scheduled, its flows and fragments are removed
+ * and the ports it went through are restored to their previous state,
+ * so the scheduler can keep receiving batches.
+ */
+public class IncrementalScheduler {
+
+	private Network net;
+	private Context ctx;
+	private Solver solver;
+	private ConstraintSink sink;
+	private Printer printer;
+
+	private HashSet<Expr> committedTerms = new HashSet<Expr>();
+	private ArrayList<Flow> committedFlows = new ArrayList<Flow>();
+	private ArrayList<Flow> rejectedFlows = new ArrayList<Flow>();
+
+
+	public IncrementalScheduler(Network net, Context ctx, Solver solver, Printer printer) {
+		this.net = net;
+		this.ctx = ctx;
+		this.solver = solver;
+		this.sink = ConstraintSink.of(ctx, solver);
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: start
+	 * [Usage]: Sets the rules of the flows currently in the network
+	 * through the regular configuration of the generator and commits
+	 * them if they are schedulable. Must be called once, before any
+	 * other batch is added. If the initial flows are not schedulable,
+	 * they are removed and the ports are restored, as for any other
+	 * batch, so the following batches can still be added.
+	 *
+	 * @param generator		Schedule generator used to configure the network
+	 * @return				Status of the solver for the initial flows
+	 */
+	public Status start(ScheduleGenerator generator) {
+		long startTime = System.nanoTime();
+		ArrayList<Flow> initialFlows = new ArrayList<Flow>(this.net.getFlows());
+		ArrayList<PortState> previousStates = new ArrayList<PortState>();
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				previousStates.add(new PortState(port));
+			}
+		}
+
+		this.sink.push();
+		generator.configureNetwork(this.net, this.ctx, this.solver);
+
+		Status result = this.sink.check();
+
+		if(result == Status.SATISFIABLE) {
+			ArrayList<BoolExpr> commitments = this.getCommitments(this.getPortsWithFragments(), initialFlows, this.solver.getModel());
+
+			this.sink.pop();
+			this.solver.add(commitments.toArray(new BoolExpr[0]));
+			this.committedFlows.addAll(initialFlows);
+		} else {
+			this.sink.pop();
+
+			for(PortState state : previousStates) {
+				state.restore();
+			}
+
+			this.net.getFlows().removeAll(initialFlows);
+			this.rejectedFlows.addAll(initialFlows);
+		}
+
+		// Every port starts as modified, so the flags are reset for the whole network once
+		this.net.setAllElementsToNotModified();
+		this.net.setNetModHandler(new NetworkModificationHandler());
+
+		this.printer.printIfLoggingIsEnabled("- Initial batch with " + initialFlows.size() + " flow(s): " + result +
+				" in " + ((float) (System.nanoTime() - startTime))/1000000000 + " seconds");
+
+		return result;
+	}
+
+
+	/**
+	 * [Method]: addFlows
+	 * [Usage]: Adds a batch of flows to the network and attempts to
+	 * schedule them without changing the values of the flows already
+	 * committed. Only the ports on the path of the batch have their
+	 * rules set again.
+	 *
+	 * @param batch		Flows referencing the devices and switches of the network
+	 * @return			Status of the solver for the batch
+	 */
+	public Status addFlows(List<Flow> batch) {
+		long startTime = System.nanoTime();
+
+		for(Flow flw : batch) {
+			flw.setPrinter(this.printer);
+			this.net.addElement(flw, NetworkProperties.INCREMENTFLOW);
+		}
+
+		ArrayList<Port> neighbourhood = this.getPortsOnPath(batch);
+		ArrayList<PortState> previousStates = new ArrayList<PortState>();
+
+		for(Port port : neighbourhood) {
+			previousStates.add(new PortState(port));
+		}
+
+		this.sink.push();
+
+		this.net.createNewObjects();
+		this.net.setSolverAndContextForNetModHandler(this.solver, this.ctx);
+		this.net.applyChangesToSolver();
+
+		for(Flow flw : batch) {
+			flw.assertFirstSendingTime(this.solver, this.ctx);
+		}
+
+		this.net.preventCollisionOnFirstHop(this.solver, this.ctx, batch);
+		this.net.secureHC(this.solver, this.ctx, this.getFlowsOnPorts(neighbourhood));
+
+		this.sink.flush();
+		int numOfAssertions = this.solver.getNumAssertions();
+		Status result = this.sink.check();
+
+		if(result == Status.SATISFIABLE) {
+			ArrayList<BoolExpr> commitments = this.getCommitments(neighbourhood, batch, this.solver.getModel());
+
+			this.sink.pop();
+			this.solver.add(commitments.toArray(new BoolExpr[0]));
+			this.committedFlows.addAll(batch);
+		} else {
+			this.sink.pop();
+
+			for(PortState state : previousStates) {
+				state.restore();
+			}
+
+			this.net.getFlows().removeAll(batch);
+			this.rejectedFlows.addAll(batch);
+		}
+
+		this.setPortsToNotModified(neighbourhood, batch);
+		this.net.setNetModHandler(new NetworkModificationHandler());
+
+		this.printer.printIfLoggingIsEnabled("- Batch with " + batch.size() + " flow(s) over " + neighbourhood.size() +
+				" port(s) and " + numOfAssertions + " assertion(s): " + result +
+				" in " + ((float) (System.nanoTime() - startTime))/1000000000 + " seconds");
+
+		return result;
+	}
+
+
+	/**
+	 * [Method]: getFinalModel
+	 * [Usage]: Checks the committed assertions alone and returns the
+	 * model, which holds the values of every committed flow. Returns
+	 * null if no flow was committed.
+	 *
+	 * @return		Model with the values of the committed flows
+	 */
+	public Model getFinalModel() {
+		if(this.committedFlows.isEmpty() || this.sink.check() != Status.SATISFIABLE) {
+			return null;
+		}
+
+		return this.solver.getModel();
+	}
+
+
+	/**
+	 * [Method]: getCommitments
+	 * [Usage]: Builds the equalities that fix, to their values in the
+	 * model, the cycles, priorities, slots and packet times of every
+	 * fragment on the given ports and the first sending time of the
+	 * given flows. These are the values read when the schedule is
+	 * logged. Terms committed by previous batches are skipped.
+	 *
+	 * @param ports		Ports whose values will be fixed
+	 * @param flows		Flows whose first sending time will be fixed
+	 * @param model		Model found for the current batch
+	 * @return			List of equalities to be asserted on the base level
+	 */
+	private ArrayList<BoolExpr> getCommitments(List<Port> ports, List<Flow> flows, Model model) {
+		ArrayList<BoolExpr> commitments = new ArrayList<BoolExpr>();
+
+		for(Flow flw : flows) {
+			this.commit(commitments, flw.getFlowFirstSendingTimeZ3(), model);
+		}
+
+		for(Port port : ports) {
+			Cycle cycle = port.getCycle();
+
+			if(port.getFlowFragments().isEmpty()) {
+				continue;
+			}
+
+			this.commit(commitments, cycle.getCycleDurationZ3(), model);
+			this.commit(commitments, cycle.getFirstCycleStartZ3(), model);
+
+			for(FlowFragment frag : port.getFlowFragments()) {
+				int prt = ((IntNum) model.evaluate(frag.getFragmentPriorityZ3(), true)).getInt();
+
+				this.commit(commitments, frag.getFragmentPriorityZ3(), model);
+
+				for(int index = 0; index < cycle.getNumOfSlots(prt); index++) {
+					this.commit(commitments, cycle.slotStartZ3(this.ctx, prt, index), model);
+					this.commit(commitments, cycle.slotDurationZ3(this.ctx, prt, index), model);
+					this.commit(commitments, cycle.slotStartZ3(this.ctx, frag.getFragmentPriorityZ3(), index), model);
+					this.commit(commitments, cycle.slotDurationZ3(this.ctx, frag.getFragmentPriorityZ3(), index), model);
+				}
+
+				for(int i = 0; i < frag.getParent().getNumOfPacketsSent(); i++) {
+					this.commit(commitments, port.departureTime(this.ctx, i, frag), model);
+					this.commit(commitments, port.arrivalTime(this.ctx, i, frag), model);
+					this.commit(commitments, port.scheduledTime(this.ctx, i, frag), model);
+				}
+			}
+		}
+
+		return commitments;
+	}
+
+	private void commit(ArrayList<BoolExpr> commitments, Expr term, Model model) {
+		if(term == null || !this.committedTerms.add(term)) {
+			return;
+		}
+
+		commitments.add(this.ctx.mkEq(term, model.evaluate(term, true)));
+	}
+
+
+	/**
+	 * [Method]: getPortsOnPath
+	 * [Usage]: Lists the egress ports used by the given flows,
+	 * following the path tree of each flow from its source device.
+	 *
+	 * @param flows		Flows already converted to the path tree structure
+	 * @return			List of ports without repetition
+	 */
+	private ArrayList<Port> getPortsOnPath(List<Flow> flows) {
+		LinkedHashSet<Port> ports = new LinkedHashSet<Port>();
+		LinkedList<PathNode> nodesToVisit = new LinkedList<PathNode>();
+
+		for(Flow flw : flows) {
+			nodesToVisit.add(flw.getPathTree().getRoot());
+		}
+
+		while(!nodesToVisit.isEmpty()) {
+			PathNode node = nodesToVisit.removeFirst();
+
+			for(PathNode child : node.getChildren()) {
+				if(node.getNode() instanceof TSNSwitch) {
+					ports.add(((TSNSwitch) node.getNode()).getPortOf(
+						child.getNode() instanceof Device ?
+						((Device) child.getNode()).getName() :
+						((TSNSwitch) child.getNode()).getName()
+					));
+				}
+				nodesToVisit.add(child);
+			}
+		}
+
+		return new ArrayList<Port>(ports);
+	}
+
+	private ArrayList<Port> getPortsWithFragments() {
+		ArrayList<Port> ports = new ArrayList<Port>();
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(!port.getFlowFragments().isEmpty()) {
+					ports.add(port);
+				}
+			}
+		}
+
+		return ports;
+	}
+
+	private ArrayList<Flow> getFlowsOnPorts(List<Port> ports) {
+		LinkedHashSet<Flow> flows = new LinkedHashSet<Flow>();
+
+		for(Port port : ports) {
+			for(FlowFragment frag : port.getFlowFragments()) {
+				flows.add(frag.getParent());
+			}
+		}
+
+		return new ArrayList<Flow>(flows);
+	}
+
+	private void setPortsToNotModified(List<Port> ports, List<Flow> batch) {
+		for(Port port : ports) {
+			port.setIsModifiedOrCreated(false);
+			port.setModificationType(null);
+
+			for(FlowFragment frag : port.getFlowFragments()) {
+				frag.setIsModifiedOrCreated(false);
+				frag.setModificationType(null);
+			}
+		}
+
+		for(Flow flw : batch) {
+			flw.setIsModifiedOrCreated(false);
+			flw.setModificationType(null);
+		}
+	}
+
+
+	/*
+	 * State of a port before a batch is added, used to undo the
+	 * changes made to the port and to its fragments when the batch
+	 * can not be scheduled.
+	 */
+	private static class PortState {
+		private Port port;
+		private ArrayList<FlowFragment> flowFragments;
+		private ArrayList<Double> listOfPeriods;
+		private double definedHyperCycleSize;
+		private int cycleUpperBoundRange;
+		private double cycleDuration;
+		private int numOfSlots;
+		private HashMap<FlowFragment, Integer> numOfPacketsSent = new HashMap<FlowFragment, Integer>();
+		private HashMap<FlowFragment, ArrayList<RealExpr>> departureTimes = new HashMap<FlowFragment, ArrayList<RealExpr>>();
+
+		PortState(Port port) {
+			this.port = port;
+			this.flowFragments = new ArrayList<FlowFragment>(port.getFlowFragments());
+			this.listOfPeriods = new ArrayList<Double>(port.getListOfPeriods());
+			this.definedHyperCycleSize = port.getDefinedHyperCycleSize();
+			this.cycleUpperBoundRange = port.getCycleUpperBoundRange();
+			this.cycleDuration = port.getCycle().getCycleDuration();
+			this.numOfSlots = port.getCycle().getNumOfSlots();
+
+			for(FlowFragment frag : this.flowFragments) {
+				ArrayList<RealExpr> departures = new ArrayList<RealExpr>();
+
+				for(int i = 0; i < frag.getSizeOfDepartureTimeListZ3(); i++) {
+					departures.add(frag.getDepartureTimeZ3(i));
+				}
+
+				this.numOfPacketsSent.put(frag, frag.getNumOfPacketsSent());
+				this.departureTimes.put(frag, departures);
+			}
+		}
+
+		void restore() {
+			this.port.setFlowFragments(this.flowFragments);
+			this.port.setListOfPeriods(this.listOfPeriods);
+			this.port.setDefinedHyperCycleSize(this.definedHyperCycleSize);
+			this.port.setCycleUpperBoundRange(this.cycleUpperBoundRange);
+			this.port.getCycle().setCycleDuration(this.cycleDuration);
+			this.port.getCycle().setNumOfSlots(this.numOfSlots);
+
+			for(FlowFragment frag : this.flowFragments) {
+				frag.setNumOfPacketsSent(this.numOfPacketsSent.get(frag));
+				frag.createNewDepartureTimeZ3List();
+
+				for(RealExpr departure : this.departureTimes.get(frag)) {
+					frag.addDepartureTimeZ3(departure);
+				}
+
+				frag.getParent().setNumberOfPacketsSent(frag.getParent().getPathTree().getRoot());
+			}
+		}
+	}
+
+
+	public ArrayList<Flow> getCommittedFlows() {
+		return committedFlows;
+	}
+
+	public ArrayList<Flow> getRejectedFlows() {
+		return rejectedFlows;
+	}
+
+}
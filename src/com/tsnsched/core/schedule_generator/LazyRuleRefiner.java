@@ -0,0 +1,249 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.ConstraintSink;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: LazyRuleRefiner
+ * [Usage]: Completes the rules of a network set up with lazy pairwise
+ * rules. The FIFO rules between packets of different fragments and the
+ * collision rules of the first hop are left out of the first check.
+ * Every schedule found is then checked for packets of the same priority
+ * transmitted out of order (or overlapping) on each port and for packets
+ * colliding on the first hop. The rules of the pairs found are added to
+ * the solver, which is checked again, until a schedule respects every
+ * rule. Most pairs never interfere, so their rules are never created.
+ *
+ * Pairs whose times are within a small tolerance of the rule are also
+ * refined, so rounding errors in the values of the schedule never hide
+ * a violated rule.
+ */
+public class LazyRuleRefiner {
+
+	private static final double TOLERANCE = 1e-6;
+
+	private Network net;
+	private Context ctx;
+	private Printer printer;
+
+	private HashSet<String> refinedPairs = new HashSet<String>();
+	private int numOfIterations = 0;
+
+
+	public LazyRuleRefiner(Network net, Context ctx, Printer printer) {
+		this.net = net;
+		this.ctx = ctx;
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: refine
+	 * [Usage]: While the solver finds schedules violating the rules
+	 * that were left out, adds the violated rules and checks again.
+	 *
+	 * @param solver	Solver with the rules of the network
+	 * @param result	Result of the first check of the solver
+	 * @return			Result of the last check of the solver
+	 */
+	public Status refine(Solver solver, Status result) {
+		while(result == Status.SATISFIABLE) {
+			Model model = solver.getModel();
+			int numOfRulesAdded = this.addPacketOrderRules(solver, model) + this.addCollisionRules(solver, model);
+
+			if(numOfRulesAdded == 0) {
+				break;
+			}
+
+			this.numOfIterations++;
+			this.printer.printIfLoggingIsEnabled("- Refinement " + this.numOfIterations + ": " + numOfRulesAdded + " pairwise rules added");
+
+			result = ConstraintSink.of(this.ctx, solver).check();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * [Method]: reportRefinement
+	 * [Usage]: Stores the number of refinements and of pairs of
+	 * packets whose rules were added in the schedule information
+	 * of the network.
+	 */
+	public void reportRefinement() {
+		LinkedHashMap<String, Object> report = new LinkedHashMap<String, Object>();
+
+		report.put("iterations", this.numOfIterations);
+		report.put("pairsAdded", this.refinedPairs.size());
+
+		this.net.addScheduleInfo("lazyRefinement", report);
+	}
+
+
+	/*
+	 * Two packets of the same priority on a port must be transmitted in
+	 * the order they arrive, one after the other. Packets of different
+	 * priorities are kept apart by the time slots.
+	 */
+	private int addPacketOrderRules(Solver solver, Model model) {
+		int numOfRulesAdded = 0;
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(!port.getLazyPairwiseRules() || port.getFlowFragments().size() < 2) {
+					continue;
+				}
+
+				ArrayList<FlowFragment> fragments = port.getFlowFragments();
+				double interframeGap = port.getInterframeGapSize() / port.getPortSpeed();
+				int[] priorities = new int[fragments.size()];
+				double[][] arrivalTimes = new double[fragments.size()][];
+				double[][] scheduledTimes = new double[fragments.size()][];
+
+				for(int f = 0; f < fragments.size(); f++) {
+					FlowFragment frag = fragments.get(f);
+
+					priorities[f] = ((IntNum) model.evaluate(frag.getFragmentPriorityZ3(), true)).getInt();
+					arrivalTimes[f] = new double[frag.getNumOfPacketsSent()];
+					scheduledTimes[f] = new double[frag.getNumOfPacketsSent()];
+
+					for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+						arrivalTimes[f][i] = this.evaluate(model, port.arrivalTime(this.ctx, i, frag));
+						scheduledTimes[f][i] = this.evaluate(model, port.scheduledTime(this.ctx, i, frag));
+					}
+				}
+
+				for(int a = 0; a < fragments.size(); a++) {
+					for(int b = a + 1; b < fragments.size(); b++) {
+						if(priorities[a] != priorities[b]) {
+							continue;
+						}
+
+						FlowFragment fragA = fragments.get(a);
+						FlowFragment fragB = fragments.get(b);
+						double transmissionTimeA = fragA.getParent().getPacketSize() / port.getPortSpeed();
+						double transmissionTimeB = fragB.getParent().getPacketSize() / port.getPortSpeed();
+
+						for(int i = 0; i < fragA.getNumOfPacketsSent(); i++) {
+							for(int j = 0; j < fragB.getNumOfPacketsSent(); j++) {
+								boolean inOrder =
+									(arrivalTimes[a][i] < arrivalTimes[b][j] - TOLERANCE &&
+									 scheduledTimes[b][j] - scheduledTimes[a][i] - transmissionTimeB - interframeGap > TOLERANCE) ||
+									(arrivalTimes[b][j] < arrivalTimes[a][i] - TOLERANCE &&
+									 scheduledTimes[a][i] - scheduledTimes[b][j] - transmissionTimeA - interframeGap > TOLERANCE);
+								String pairName = port.getName() + ":" + fragA.getName() + ":" + i + ":" + fragB.getName() + ":" + j;
+
+								if(inOrder || !this.refinedPairs.add(pairName)) {
+									continue;
+								}
+
+								port.addPacketOrderRules(solver, this.ctx, fragA, i, fragB, j);
+								port.addPacketOrderRules(solver, this.ctx, fragB, j, fragA, i);
+								numOfRulesAdded += 4;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		return numOfRulesAdded;
+	}
+
+	/*
+	 * Packets of flows leaving the same device can not be sent at
+	 * the same time. The rule is evaluated in the schedule as it is,
+	 * since its packet indexes follow the rule of the eager encoding.
+	 */
+	private int addCollisionRules(Solver solver, Model model) {
+		LinkedHashMap<String, ArrayList<Flow>> flowsOfDevice = new LinkedHashMap<String, ArrayList<Flow>>();
+		int numOfRulesAdded = 0;
+
+		if(!this.net.getLazyPairwiseRules()) {
+			return 0;
+		}
+
+		for(Flow flw : this.net.getFlows()) {
+			String deviceName = flw.getStartDevice().getName();
+
+			if(!flowsOfDevice.containsKey(deviceName)) {
+				flowsOfDevice.put(deviceName, new ArrayList<Flow>());
+			}
+
+			flowsOfDevice.get(deviceName).add(flw);
+		}
+
+		for(ArrayList<Flow> flows : flowsOfDevice.values()) {
+			if(flows.size() < 2) {
+				continue;
+			}
+
+			double portSpeed = this.net.getFirstHopPortSpeed(flows.get(0));
+			List<FlowFragment> fragments = this.net.getFragmentsOfFirstHop(flows);
+
+			for(FlowFragment fragA : fragments) {
+				for(FlowFragment fragB : fragments) {
+					if(fragA.getParent().getName().equals(fragB.getParent().getName())) {
+						continue;
+					}
+
+					for(int i = 0; i < fragA.getNumOfPacketsSent(); i++) {
+						for(int j = 0; j < fragB.getNumOfPacketsSent(); j++) {
+							String pairName = "firstHop:" + fragA.getName() + ":" + i + ":" + fragB.getName() + ":" + j;
+
+							if(this.refinedPairs.contains(pairName)) {
+								continue;
+							}
+
+							BoolExpr rule = this.net.collisionPreventionRule(this.ctx, fragA, i, fragB, j, portSpeed);
+
+							if(model.evaluate(rule, true).isTrue()) {
+								continue;
+							}
+
+							solver.add(rule);
+							this.refinedPairs.add(pairName);
+							numOfRulesAdded++;
+						}
+					}
+				}
+			}
+		}
+
+		return numOfRulesAdded;
+	}
+
+	private double evaluate(Model model, Expr expression) {
+		return ModelExtractor.toDouble(model.evaluate(expression, true));
+	}
+
+
+	public int getNumOfIterations() {
+		return numOfIterations;
+	}
+
+	public int getNumOfRefinedPairs() {
+		return refinedPairs.size();
+	}
+
+}
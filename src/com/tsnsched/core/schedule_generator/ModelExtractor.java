@@ -0,0 +1,214 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ModelExtractor
+ * [Usage]: Retrieves the values of a schedule from the model given by
+ * the solver and stores them as primitive values in the cycles of the
+ * ports and in the flow fragments. Numbers are read from the numerator
+ * and denominator of the z3 numerals instead of their text.
+ *
+ * The java API of z3 evaluates one term per call, so the terms needed
+ * are evaluated once each: a departure time is also the first sending
+ * time of its fragment, and the slots of a priority are shared by the
+ * fragments of that priority on a port.
+ *
+ * Extraction does not depend on logging. The log of the printer is
+ * written from the values stored here.
+ */
+public class ModelExtractor {
+
+	private static final long MAX_EXACT_LONG = 1L << 53;
+
+	private Model model;
+	private Context ctx;
+
+	private HashMap<Expr, Double> values = new HashMap<Expr, Double>();
+
+
+	public ModelExtractor(Model model, Context ctx) {
+		this.model = model;
+		this.ctx = ctx;
+	}
+
+
+	/**
+	 * [Method]: extractNetwork
+	 * [Usage]: Stores the cycle of every port with fragments and the
+	 * priority, slots and packet times of every fragment of the flows
+	 * of the network.
+	 *
+	 * @param net		Network scheduled by the solver
+	 */
+	public void extractNetwork(Network net) {
+
+		for(Switch swt : net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(port.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				Cycle cycle = port.getCycle();
+
+				cycle.setCycleStart(this.evaluate(cycle.getFirstCycleStartZ3()));
+				cycle.setCycleDuration(this.evaluate(cycle.getCycleDurationZ3()));
+				cycle.setFirstCycleStart(this.evaluate(cycle.getFirstCycleStartZ3()));
+			}
+		}
+
+		for(Flow flw : net.getFlows()) {
+			flw.setFlowFirstSendingTime(this.evaluate(flw.getFlowFirstSendingTimeZ3()));
+
+			// Unicast flows are converted into the multicast model before scheduling
+			if(flw.getType() == Flow.PUBLISH_SUBSCRIBE) {
+				this.extractPathTree(flw.getPathTree().getRoot());
+			}
+		}
+
+	}
+
+
+	/**
+	 * [Method]: evaluate
+	 * [Usage]: Evaluates a term in the model and returns its value.
+	 * Terms are only evaluated once.
+	 *
+	 * @param expression	Term to be evaluated
+	 * @return				Value of the term, or -1 if it is not a number
+	 */
+	public double evaluate(Expr expression) {
+		Double value = this.values.get(expression);
+
+		if(value == null) {
+			value = toDouble(this.model.evaluate(expression, false));
+			this.values.put(expression, value);
+		}
+
+		return value;
+	}
+
+
+	/**
+	 * [Method]: toDouble
+	 * [Usage]: Converts a z3 numeral into a double. Rationals whose
+	 * numerator and denominator are exact as doubles are divided
+	 * directly; larger ones are divided with 34 digits of precision.
+	 *
+	 * @param value		Value given by a model
+	 * @return			Value as a double, or -1 if it is not a number
+	 */
+	public static double toDouble(Expr value) {
+
+		if(value instanceof IntNum) {
+			return toDouble((IntNum) value, null);
+		}
+
+		if(value instanceof RatNum) {
+			return toDouble(((RatNum) value).getNumerator(), ((RatNum) value).getDenominator());
+		}
+
+		if(value instanceof AlgebraicNum) {
+			RatNum lowerBound = ((AlgebraicNum) value).toLower(20);
+
+			return toDouble(lowerBound.getNumerator(), lowerBound.getDenominator());
+		}
+
+		return -1;
+	}
+
+	private static double toDouble(IntNum numerator, IntNum denominator) {
+		try {
+			long numeratorValue = numerator.getInt64();
+			long denominatorValue = (denominator == null ? 1 : denominator.getInt64());
+
+			if(Math.abs(numeratorValue) <= MAX_EXACT_LONG && denominatorValue <= MAX_EXACT_LONG) {
+				return ((double) numeratorValue) / denominatorValue;
+			}
+		} catch (Z3Exception e) {
+			// Does not fit in 64 bits, divided below
+		}
+
+		BigDecimal numeratorDecimal = new BigDecimal(numerator.getBigInteger());
+		BigDecimal denominatorDecimal = (denominator == null ? BigDecimal.ONE : new BigDecimal(denominator.getBigInteger()));
+
+		return numeratorDecimal.divide(denominatorDecimal, MathContext.DECIMAL128).doubleValue();
+	}
+
+
+	private void extractPathTree(PathNode pathNode) {
+
+		for(PathNode child : pathNode.getChildren()) {
+			if(!(child.getNode() instanceof Switch)) {
+				continue;
+			}
+
+			for(FlowFragment ffrag : child.getFlowFragments()) {
+				this.extractFragment((TSNSwitch) child.getNode(), ffrag);
+			}
+
+			this.extractPathTree(child);
+		}
+
+	}
+
+	private void extractFragment(TSNSwitch swt, FlowFragment ffrag) {
+		int prt = (int) this.evaluate(ffrag.getFragmentPriorityZ3());
+		Cycle cycle = swt.getPortOf(ffrag.getNextHop()).getCycle();
+		ArrayList<Double> listOfStart = new ArrayList<Double>();
+		ArrayList<Double> listOfDuration = new ArrayList<Double>();
+
+		ffrag.getParent().addToTotalNumOfPackets(ffrag.getNumOfPacketsSent());
+		ffrag.resetOutputLists();
+		ffrag.setFragmentPriority(prt);
+
+		for(int i = 0; i < ffrag.getParent().getNumOfPacketsSent(); i++) {
+			double departureTime = this.evaluate(swt.departureTime(this.ctx, i, ffrag));
+
+			if(ffrag.getDepartureTimeList().size() == 0) {
+				ffrag.setFlowFirstSendingTime(departureTime);
+			}
+
+			ffrag.addDepartureTime(departureTime);
+			ffrag.addArrivalTime(this.evaluate(swt.arrivalTime(this.ctx, i, ffrag)));
+			ffrag.addScheduledTime(this.evaluate(swt.scheduledTime(this.ctx, i, ffrag)));
+		}
+
+		for(int index = 0; index < cycle.getNumOfSlots(prt); index++) {
+			listOfStart.add(this.evaluate(cycle.slotStartZ3(this.ctx, ffrag.getFragmentPriorityZ3(), index)));
+			listOfDuration.add(this.evaluate(cycle.slotDurationZ3(this.ctx, ffrag.getFragmentPriorityZ3(), index)));
+		}
+
+		for(Port port : swt.getPorts()) {
+			if(port.getFlowFragments().contains(ffrag)) {
+				port.getCycle().addSlotUsed(prt, new ArrayList<Double>(listOfStart), new ArrayList<Double>(listOfDuration));
+			}
+		}
+	}
+
+
+	public int getNumOfTermsEvaluated() {
+		return values.size();
+	}
+
+}
@@ -0,0 +1,456 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.io.*;
+import java.util.*;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkModificationHandler;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: NetworkPartitioner
+ * [Usage]: Splits the flows of a network into groups that never
+ * share a port (or a source device). Flows of different groups
+ * do not interfere with each other, so each group can be scheduled
+ * in its own z3 context. After the groups are solved, the values
+ * of their cycles and flow fragments are merged back into the
+ * original network object.
+ */
+public class NetworkPartitioner {
+
+	private Printer printer;
+
+	public NetworkPartitioner(Printer printer) {
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: findIndependentComponents
+	 * [Usage]: Builds the port-flow interference graph of the network
+	 * and returns its connected components as lists of flows. Two flows
+	 * are in the same component if they go through the same port or if
+	 * they leave from the same device. The order of the flows in each
+	 * component follows the order of the flows in the network.
+	 *
+	 * @param net		Network with the flows to be partitioned
+	 * @return			List of components, each one being a list of flows
+	 */
+	public ArrayList<ArrayList<Flow>> findIndependentComponents(Network net) {
+		ArrayList<Flow> flows = net.getFlows();
+		int[] parent = new int[flows.size()];
+		HashMap<String, Integer> ownerOfPort = new HashMap<String, Integer>();
+
+		for(int i = 0; i < flows.size(); i++) {
+			parent[i] = i;
+		}
+
+		for(int i = 0; i < flows.size(); i++) {
+			Flow flw = flows.get(i);
+
+			flw.convertUnicastFlow();
+
+			for(String portKey : this.getPortKeys(flw)) {
+				Integer owner = ownerOfPort.get(portKey);
+
+				if(owner == null) {
+					ownerOfPort.put(portKey, i);
+				} else {
+					this.union(parent, owner, i);
+				}
+			}
+		}
+
+		LinkedHashMap<Integer, ArrayList<Flow>> components = new LinkedHashMap<Integer, ArrayList<Flow>>();
+
+		for(int i = 0; i < flows.size(); i++) {
+			int root = this.find(parent, i);
+
+			if(!components.containsKey(root)) {
+				components.put(root, new ArrayList<Flow>());
+			}
+
+			components.get(root).add(flows.get(i));
+		}
+
+		return new ArrayList<ArrayList<Flow>>(components.values());
+	}
+
+
+	/**
+	 * [Method]: getPortKeys
+	 * [Usage]: Lists the identifiers of the resources used by a flow.
+	 * Every egress port is identified by its switch and the node it
+	 * connects to. The source device is also considered a resource, as
+	 * flows leaving the same device are constrained together on their
+	 * first hop.
+	 *
+	 * @param flw		Flow already converted to the path tree structure
+	 * @return			Set of identifiers of the resources used by the flow
+	 */
+	private Set<String> getPortKeys(Flow flw) {
+		Set<String> portKeys = new LinkedHashSet<String>();
+		LinkedList<PathNode> nodesToVisit = new LinkedList<PathNode>();
+		PathNode root = flw.getPathTree().getRoot();
+
+		portKeys.add("device:" + ((Device) root.getNode()).getName());
+		nodesToVisit.add(root);
+
+		while(!nodesToVisit.isEmpty()) {
+			PathNode node = nodesToVisit.removeFirst();
+
+			for(PathNode child : node.getChildren()) {
+				if(node.getNode() instanceof TSNSwitch) {
+					portKeys.add(
+						"port:" + ((TSNSwitch) node.getNode()).getName() +
+						"->" + this.getNodeName(child)
+					);
+				}
+				nodesToVisit.add(child);
+			}
+		}
+
+		return portKeys;
+	}
+
+	private String getNodeName(PathNode node) {
+		if(node.getNode() instanceof Device) {
+			return ((Device) node.getNode()).getName();
+		}
+
+		return ((Switch) node.getNode()).getName();
+	}
+
+	private int find(int[] parent, int i) {
+		while(parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+
+		return i;
+	}
+
+	private void union(int[] parent, int a, int b) {
+		int rootA = this.find(parent, a);
+		int rootB = this.find(parent, b);
+
+		if(rootA != rootB) {
+			parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+		}
+	}
+
+
+	/**
+	 * [Method]: takeSnapshot
+	 * [Usage]: Serializes the network into memory. The snapshot
+	 * is used to create independent copies of the network for
+	 * each component, so no object is shared between threads.
+	 *
+	 * @param net		Network to be copied
+	 * @return			Serialized network
+	 */
+	public byte[] takeSnapshot(Network net) {
+		try {
+			ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(byteOut);
+			out.writeObject(net);
+			out.close();
+			return byteOut.toByteArray();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+
+	/**
+	 * [Method]: restoreSnapshot
+	 * [Usage]: Creates an independent copy of the network from a
+	 * snapshot, with a modification handler of its own.
+	 *
+	 * @param snapshot		Serialized network obtained with takeSnapshot
+	 * @return				Copy of the network
+	 */
+	public Network restoreSnapshot(byte[] snapshot) {
+		Network copy = null;
+
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(snapshot));
+			copy = (Network) in.readObject();
+			in.close();
+		} catch (IOException | ClassNotFoundException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		copy.setNetModHandler(new NetworkModificationHandler());
+
+		return copy;
+	}
+
+
+	/**
+	 * [Method]: extractComponent
+	 * [Usage]: Creates a copy of the network from a snapshot and removes
+	 * from it every flow that does not belong to the given component.
+	 *
+	 * @param snapshot		Serialized network obtained with takeSnapshot
+	 * @param component		Flows of the component
+	 * @return				Copy of the network containing only the flows of the component
+	 */
+	public Network extractComponent(byte[] snapshot, ArrayList<Flow> component) {
+		Network copy = null;
+		Set<String> flowNames = new HashSet<String>();
+
+		for(Flow flw : component) {
+			flowNames.add(flw.getName());
+		}
+
+		copy = this.restoreSnapshot(snapshot);
+
+		if(copy == null) {
+			return null;
+		}
+
+		ArrayList<Flow> componentFlows = new ArrayList<Flow>();
+		for(Flow flw : copy.getFlows()) {
+			if(flowNames.contains(flw.getName())) {
+				componentFlows.add(flw);
+			}
+		}
+		copy.setFlows(componentFlows);
+
+		return copy;
+	}
+
+
+	/**
+	 * [Method]: mergeComponent
+	 * [Usage]: Moves the values of a solved component back into the
+	 * original network. The values of the flows of the component and
+	 * of their fragments are copied into the flows of the same name in
+	 * the original network, whose fragments are created if needed. Ports
+	 * used by the component receive its cycle and the fragments of the
+	 * original flows, so every object reached from the original network
+	 * (ports, fragments, path nodes and devices) belongs to it.
+	 *
+	 * @param net			Original network
+	 * @param component		Solved copy of the network containing a single component
+	 */
+	public void mergeComponent(Network net, Network component) {
+		IdentityHashMap<FlowFragment, FlowFragment> originalFragments = new IdentityHashMap<FlowFragment, FlowFragment>();
+		HashMap<String, Flow> originalFlows = new HashMap<String, Flow>();
+
+		for(Flow flw : net.getFlows()) {
+			originalFlows.put(flw.getName(), flw);
+		}
+
+		for(Flow flw : component.getFlows()) {
+			Flow originalFlow = originalFlows.get(flw.getName());
+
+			if(originalFlow != null) {
+				this.mergeFlow(originalFlow, flw, originalFragments);
+			}
+		}
+
+		for(Switch swt : component.getSwitches()) {
+			if(!(swt instanceof TSNSwitch)) {
+				continue;
+			}
+
+			TSNSwitch originalSwitch = (TSNSwitch) net.getSwitch(swt.getName());
+			ArrayList<Port> componentPorts = ((TSNSwitch) swt).getPorts();
+
+			for(int i = 0; i < componentPorts.size(); i++) {
+				Port componentPort = componentPorts.get(i);
+
+				if(componentPort.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>();
+
+				for(FlowFragment frag : componentPort.getFlowFragments()) {
+					if(originalFragments.containsKey(frag)) {
+						fragments.add(originalFragments.get(frag));
+					}
+				}
+
+				Port originalPort = originalSwitch.getPorts().get(i);
+
+				if(originalPort.getCycle() == null) {
+					originalPort.setCycle(componentPort.getCycle());
+				} else {
+					this.mergeCycle(originalPort.getCycle(), componentPort.getCycle());
+				}
+
+				originalPort.setFlowFragments(fragments);
+				originalPort.setListOfPeriods(componentPort.getListOfPeriods());
+				originalPort.setDefinedHyperCycleSize(componentPort.getDefinedHyperCycleSize());
+				originalPort.setPacketUpperBoundRange(componentPort.getPacketUpperBoundRange());
+				originalPort.setCycleUpperBoundRange(componentPort.getCycleUpperBoundRange());
+			}
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Merged component with " + component.getFlows().size() + " flow(s)");
+	}
+
+
+	/**
+	 * [Method]: mergeCycle
+	 * [Usage]: Copies the values of a solved cycle into the cycle of
+	 * the matching port in the original network, so the original port
+	 * keeps its own cycle object. The z3 variables are not copied, as
+	 * they belong to the context of the component.
+	 *
+	 * @param originalCycle		Cycle of the original port
+	 * @param solvedCycle		Cycle of the same port in the solved component
+	 */
+	private void mergeCycle(Cycle originalCycle, Cycle solvedCycle) {
+		ArrayList<ArrayList<Double>> slotStart = new ArrayList<ArrayList<Double>>();
+		ArrayList<ArrayList<Double>> slotDuration = new ArrayList<ArrayList<Double>>();
+
+		for(ArrayList<Double> starts : solvedCycle.getSlotStart()) {
+			slotStart.add(new ArrayList<Double>(starts));
+		}
+
+		for(ArrayList<Double> durations : solvedCycle.getSlotDuration()) {
+			slotDuration.add(new ArrayList<Double>(durations));
+		}
+
+		originalCycle.setUpperBoundCycleTime(solvedCycle.getUpperBoundCycleTime());
+		originalCycle.setLowerBoundCycleTime(solvedCycle.getLowerBoundCycleTime());
+		originalCycle.setMaximumSlotDuration(solvedCycle.getMaximumSlotDuration());
+		originalCycle.setWrapTransmission(solvedCycle.getWrapTransmission());
+		originalCycle.setSlotArrangementMode(solvedCycle.getSlotArrangementMode());
+		originalCycle.setNumOfPrts(solvedCycle.getNumOfPrts());
+		originalCycle.setNumOfSlots(solvedCycle.getNumOfSlots());
+
+		if(solvedCycle.getNumOfSlotsPerPrt() != null) {
+			originalCycle.setNumOfSlotsPerPrt(new ArrayList<Integer>(solvedCycle.getNumOfSlotsPerPrt()));
+		}
+
+		originalCycle.setFirstCycleStart(solvedCycle.getFirstCycleStart());
+		originalCycle.setCycleStart(solvedCycle.getCycleStart());
+		originalCycle.setCycleDuration(solvedCycle.getCycleDuration());
+		originalCycle.setSlotsUsed(new ArrayList<Integer>(solvedCycle.getSlotsUsed()));
+		originalCycle.setSlotStart(slotStart);
+		originalCycle.setSlotDuration(slotDuration);
+	}
+
+
+	/**
+	 * [Method]: mergeFlow
+	 * [Usage]: Copies the values of a solved flow into the flow of the
+	 * same name in the original network. Both flows have the same path
+	 * tree, so their nodes are visited side by side and the fragments of
+	 * each node of the solved flow are copied into the fragments of the
+	 * matching node of the original flow. The links between fragments
+	 * are then rebuilt between the original fragments.
+	 *
+	 * @param originalFlow			Flow of the original network
+	 * @param solvedFlow			Flow of the same name in the solved component
+	 * @param originalFragments		Map from the solved fragments to the original ones, filled by this method
+	 */
+	private void mergeFlow(Flow originalFlow, Flow solvedFlow, IdentityHashMap<FlowFragment, FlowFragment> originalFragments) {
+		IdentityHashMap<FlowFragment, FlowFragment> flowFragments = new IdentityHashMap<FlowFragment, FlowFragment>();
+
+		originalFlow.convertUnicastFlow();
+		originalFlow.setFlowFirstSendingTime(solvedFlow.getFlowFirstSendingTime());
+		originalFlow.setFlowSendingPeriodicity(solvedFlow.getFlowSendingPeriodicity());
+		originalFlow.setTotalNumOfPackets(solvedFlow.getTotalNumOfPackets());
+		originalFlow.setNumOfPacketsSent(solvedFlow.getNumOfPacketsSent());
+
+		if(solvedFlow.getPathTree() == null || originalFlow.getPathTree() == null) {
+			return;
+		}
+
+		this.mergePathNode(originalFlow, originalFlow.getPathTree().getRoot(), solvedFlow.getPathTree().getRoot(), flowFragments);
+		originalFlow.setPathTreeCount(solvedFlow.getPathTreeCount());
+
+		for(Map.Entry<FlowFragment, FlowFragment> entry : flowFragments.entrySet()) {
+			FlowFragment solvedFrag = entry.getKey();
+			FlowFragment originalFrag = entry.getValue();
+			ArrayList<FlowFragment> nextFragments = new ArrayList<FlowFragment>();
+
+			for(FlowFragment nextFrag : solvedFrag.getNextFragments()) {
+				nextFragments.add(flowFragments.get(nextFrag));
+			}
+
+			originalFrag.setPreviousFragment(flowFragments.get(solvedFrag.getPreviousFragment()));
+			originalFrag.setNextFragments(nextFragments);
+		}
+
+		originalFragments.putAll(flowFragments);
+	}
+
+	private void mergePathNode(Flow originalFlow, PathNode originalNode, PathNode solvedNode, IdentityHashMap<FlowFragment, FlowFragment> flowFragments) {
+		ArrayList<FlowFragment> solvedFragments = solvedNode.getFlowFragments();
+
+		// Device nodes have no fragments
+		if(solvedFragments == null) {
+			solvedFragments = new ArrayList<FlowFragment>();
+		}
+
+		if(!solvedFragments.isEmpty() &&
+				(originalNode.getFlowFragments() == null || originalNode.getFlowFragments().size() != solvedFragments.size())) {
+			originalNode.setFlowFragment(new ArrayList<FlowFragment>());
+
+			for(int i = 0; i < solvedFragments.size(); i++) {
+				originalNode.addFlowFragment(new FlowFragment(originalFlow));
+			}
+		}
+
+		for(int i = 0; i < solvedFragments.size(); i++) {
+			FlowFragment solvedFrag = solvedFragments.get(i);
+			FlowFragment originalFrag = originalNode.getFlowFragments().get(i);
+
+			originalFrag.setName(solvedFrag.getName());
+			originalFrag.setNodeName(solvedFrag.getNodeName());
+			originalFrag.setNextHop(solvedFrag.getNextHop());
+			originalFrag.setNumOfPacketsSent(solvedFrag.getNumOfPacketsSent());
+			originalFrag.setFragmentPriority(solvedFrag.getFragmentPriority());
+			originalFrag.setFlowFirstSendingTime(solvedFrag.getFlowFirstSendingTime());
+			originalFrag.setFlowSendingPeriodicity(solvedFrag.getFlowSendingPeriodicity());
+			originalFrag.setPacketSize(solvedFrag.getPacketSize());
+			originalFrag.setStartDevice(originalFlow.getStartDevice());
+			originalFrag.setReferenceToNode(originalNode);
+			originalFrag.setPort(((TSNSwitch) originalNode.getNode()).getPortOf(solvedFrag.getNextHop()));
+			originalFrag.resetOutputLists();
+
+			for(int j = 0; j < solvedFrag.getDepartureTimeList().size(); j++) {
+				originalFrag.addDepartureTime(solvedFrag.getDepartureTime(j));
+			}
+
+			for(int j = 0; j < solvedFrag.getArrivalTimeList().size(); j++) {
+				originalFrag.addArrivalTime(solvedFrag.getArrivalTime(j));
+			}
+
+			for(int j = 0; j < solvedFrag.getScheduledTimeList().size(); j++) {
+				originalFrag.addScheduledTime(solvedFrag.getScheduledTime(j));
+			}
+
+			flowFragments.put(solvedFrag, originalFrag);
+		}
+
+		for(int i = 0; i < solvedNode.getChildren().size() && i < originalNode.getChildren().size(); i++) {
+			this.mergePathNode(originalFlow, originalNode.getChildren().get(i), solvedNode.getChildren().get(i), flowFragments);
+		}
+	}
+
+}
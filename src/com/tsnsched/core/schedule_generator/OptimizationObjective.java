@@ -0,0 +1,14 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//    
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+public enum OptimizationObjective {
+	LATENCY,		// Sum of the latencies of every packet to every subscriber
+	JITTER,			// Maximum jitter among the packets of every flow and subscriber
+	GATE_OPEN_TIME	// Sum of the durations of the time slots of every cycle
+}
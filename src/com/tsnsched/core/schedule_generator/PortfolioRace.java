@@ -0,0 +1,73 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import com.microsoft.z3.Status;
+import com.tsnsched.core.network.Network;
+
+/**
+ * [Class]: PortfolioRace
+ * [Usage]: Keeps track of the z3 contexts of a portfolio of solvers
+ * running in parallel over copies of the same network. Once one of them
+ * reaches an answer, the race is finished and the others are interrupted.
+ * Contexts are registered while their solver is running and must be
+ * unregistered before they are closed.
+ */
+public class PortfolioRace extends CancellationHandle {
+
+	/**
+	 * [Method]: finish
+	 * [Usage]: Ends the race, interrupting every solver that
+	 * is still running.
+	 */
+	public void finish() {
+		this.cancel();
+	}
+
+	public boolean isFinished() {
+		return this.isCancelled();
+	}
+
+
+	/**
+	 * [Class]: Entry
+	 * [Usage]: Result of a single configuration of the portfolio.
+	 * The network is the copy solved by the configuration, containing
+	 * the values of the schedule if the status is satisfiable.
+	 */
+	public static class Entry {
+		private SolverConfiguration configuration;
+		private Network network;
+		private Status status;
+		private float solvingTime;
+
+		public Entry(SolverConfiguration configuration, Network network, Status status, float solvingTime) {
+			this.configuration = configuration;
+			this.network = network;
+			this.status = status;
+			this.solvingTime = solvingTime;
+		}
+
+		public SolverConfiguration getConfiguration() {
+			return configuration;
+		}
+
+		public Network getNetwork() {
+			return network;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public float getSolvingTime() {
+			return solvingTime;
+		}
+	}
+
+}
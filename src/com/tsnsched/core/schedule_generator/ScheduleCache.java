@@ -0,0 +1,345 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkSnapshot;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ScheduleCache
+ * [Usage]: Stores generated schedules in a local directory, indexed by
+ * a hash of the network given as input and of the options of the solver.
+ * The hash is computed over the parameters of devices, switches, ports
+ * and flows in the order they were declared, so parsing the same input
+ * twice leads to the same key. A schedule is stored as a network
+ * snapshot (see NetworkSnapshot) containing the values of cycles and
+ * flow fragments, so entries are read without java deserialization and
+ * entries of another schema version are discarded as misses. When the
+ * total size of the directory goes over the limit, the schedules used
+ * the longest time ago are removed.
+ */
+public class ScheduleCache {
+
+	public static final String FILE_EXTENSION = NetworkSnapshot.FILE_EXTENSION;
+
+	private File directory;
+	private long maximumSize;
+	private Printer printer;
+	private NetworkPartitioner partitioner;
+
+	public ScheduleCache(String directoryPath, long maximumSize, Printer printer) {
+		this.directory = new File(directoryPath);
+		this.maximumSize = maximumSize;
+		this.printer = printer;
+		this.partitioner = new NetworkPartitioner(printer);
+	}
+
+
+	/**
+	 * [Method]: computeKey
+	 * [Usage]: Computes the key of a network in the cache. Must be
+	 * called before the network is configured for the solver, as
+	 * the configuration changes the objects of the network.
+	 *
+	 * @param net				Network as given by the user or by the parser
+	 * @param solverOptions		Description of the options of the solver that change the schedule
+	 * @return					Hexadecimal SHA-256 hash of the network and options
+	 */
+	public String computeKey(Network net, String solverOptions) {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		StringBuilder description = new StringBuilder();
+
+		description.append("options:" + solverOptions + "\n");
+		description.append("bounds:" + net.getPacketUpperBoundRange() + "," + net.getCycleUpperBoundRange() + "\n");
+		description.append("network:" + net.getTimeToTravel() + "," + net.getJitterUpperBoundRange() + "\n");
+
+		for(Device dev : net.getDevices()) {
+			description.append(
+				"device:" + dev.getName() + "," + dev.getPacketPeriodicity() + "," + dev.getFirstT1Time() + "," +
+				dev.getHardConstraintTime() + "," + dev.getSoftConstraintTime() + "," + dev.getPacketSize() + "\n"
+			);
+		}
+
+		for(Switch swt : net.getSwitches()) {
+			description.append(
+				"switch:" + swt.getName() + "," + swt.getMaxPacketSize() + "," + swt.getTimeToTravel() + "," +
+				swt.getTransmissionTime() + "," + swt.getPortSpeed() + "\n"
+			);
+
+			if(!(swt instanceof TSNSwitch)) {
+				continue;
+			}
+
+			TSNSwitch tsnSwt = (TSNSwitch) swt;
+
+			description.append(
+				"tsnSwitch:" + tsnSwt.getGbSize() + "," + tsnSwt.getCycleDurationLowerBound() + "," +
+				tsnSwt.getCycleDurationUpperBound() + "," + tsnSwt.getUseSameCycleStart() + "," +
+				tsnSwt.getFirstCycleStart() + "," + tsnSwt.getScheduleType() + "\n"
+			);
+
+			for(Port port : tsnSwt.getPorts()) {
+				Cycle cycle = port.getCycle();
+
+				description.append(
+					"port:" + port.getName() + "," + port.getConnectsTo() + "," + port.getPortSpeed() + "," +
+					port.getTimeToTravel() + "," + port.getGbSize() + "," + port.getMaxPacketSize() + "," +
+					port.getBufferSize() + "," + port.getBufferSizePerPriority() + "," + port.getUseHyperCycle() + "," + port.getUseMicroCycles() + "," +
+					port.getCycleUpperBoundRange() + "," + port.getDefinedHyperCycleSize() + "\n"
+				);
+
+				description.append(
+					"cycle:" + cycle.getMaximumSlotDuration() + "," + cycle.getCycleStart() + "," +
+					cycle.getUpperBoundCycleTime() + "," + cycle.getLowerBoundCycleTime() + "," +
+					cycle.getNumOfPrts() + "\n"
+				);
+			}
+		}
+
+		for(Flow flw : net.getFlows()) {
+			description.append(
+				"flow:" + flw.getName() + "," + flw.getType() + "," + flw.getStartDeviceName() + "," +
+				flw.getPacketSize() + "," + flw.getFlowFirstSendingTime() + "," + flw.getFlowSendingPeriodicity() + "," +
+				flw.getFlowMaximumJitter() + "," + flw.getFlowMaximumLatency() + "," +
+				flw.isFixedPriority() + "," + flw.getPriorityValue() + "\n"
+			);
+
+			if(flw.getPathTree() != null) {
+				this.describePathNode(flw.getPathTree().getRoot(), description);
+				description.append("\n");
+			} else {
+				description.append("path:");
+				if(flw.getPath() != null) {
+					for(Switch swt : flw.getPath()) {
+						description.append(swt.getName() + ",");
+					}
+				}
+				for(Device dev : flw.getEndDeviceList()) {
+					description.append(dev.getName() + ",");
+				}
+				description.append("\n");
+			}
+		}
+
+		return toHex(digest.digest(description.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+
+	/**
+	 * [Method]: describeFile
+	 * [Usage]: Describes a file given as an option of the solver (such
+	 * as a warm start) by its path and a hash of its content, so the key
+	 * changes when the file changes.
+	 *
+	 * @param path		Path of the file
+	 * @return			Path and hexadecimal SHA-256 hash of the content, or "missing"
+	 */
+	public static String describeFile(String path) {
+		try {
+			byte[] content = Files.readAllBytes(new File(path).toPath());
+
+			return path + ":" + toHex(MessageDigest.getInstance("SHA-256").digest(content));
+		} catch (IOException | NoSuchAlgorithmException e) {
+			return path + ":missing";
+		}
+	}
+
+	private static String toHex(byte[] hash) {
+		StringBuilder hex = new StringBuilder();
+
+		for(byte b : hash) {
+			hex.append(String.format("%02x", b));
+		}
+
+		return hex.toString();
+	}
+
+	/*
+	 * Writes the names of the nodes of a path tree in depth first
+	 * order, using brackets to delimit the children of each node.
+	 */
+	private void describePathNode(PathNode node, StringBuilder description) {
+		if(node.getNode() instanceof Device) {
+			description.append(((Device) node.getNode()).getName());
+		} else {
+			description.append(((Switch) node.getNode()).getName());
+		}
+
+		description.append("[");
+		for(PathNode child : node.getChildren()) {
+			this.describePathNode(child, description);
+			description.append(",");
+		}
+		description.append("]");
+	}
+
+
+	/**
+	 * [Method]: restore
+	 * [Usage]: Looks for the schedule of the given key in the cache.
+	 * If it is found, the values of its cycles and flow fragments are
+	 * moved into the given network, which can then be exported without
+	 * calling the solver.
+	 *
+	 * @param key		Key computed with computeKey
+	 * @param net		Network to receive the values of the schedule
+	 * @return			True if the schedule was found and restored
+	 */
+	public boolean restore(String key, Network net) {
+		if(key == null) {
+			return false;
+		}
+
+		File entry = new File(this.directory, key + FILE_EXTENSION);
+
+		if(!entry.isFile()) {
+			return false;
+		}
+
+		Network cached;
+
+		try {
+			cached = NetworkSnapshot.read(entry.getPath());
+		} catch (IOException | RuntimeException e) {
+			// Entries of another schema version or damaged entries are misses
+			this.printer.printIfLoggingIsEnabled("- Could not read cached schedule: " + e.getMessage());
+			entry.delete();
+			return false;
+		}
+
+		this.partitioner.mergeComponent(net, cached);
+
+		// Keeps recently used entries from being evicted
+		entry.setLastModified(System.currentTimeMillis());
+
+		return true;
+	}
+
+
+	/**
+	 * [Method]: store
+	 * [Usage]: Stores the schedule of a network under the given key
+	 * and evicts old entries if the cache went over its size limit.
+	 *
+	 * @param key		Key computed with computeKey before scheduling
+	 * @param net		Network containing the values of the schedule
+	 */
+	public void store(String key, Network net) {
+		if(key == null) {
+			return;
+		}
+
+		if(!this.directory.isDirectory() && !this.directory.mkdirs()) {
+			this.printer.printIfLoggingIsEnabled("- Could not create cache directory " + this.directory.getPath());
+			return;
+		}
+
+		File entry = new File(this.directory, key + FILE_EXTENSION);
+		File temporaryEntry = null;
+
+		try {
+			// Requests scheduled in parallel may store the same entry at the same time
+			temporaryEntry = File.createTempFile(key, ".tmp", this.directory);
+			NetworkSnapshot.write(net, temporaryEntry.getPath());
+			Files.move(
+				temporaryEntry.toPath(),
+				entry.toPath(),
+				StandardCopyOption.REPLACE_EXISTING
+			);
+		} catch (IOException e) {
+			this.printer.printIfLoggingIsEnabled("- Could not store schedule in cache: " + e.getMessage());
+			if(temporaryEntry != null) {
+				temporaryEntry.delete();
+			}
+			return;
+		}
+
+		this.evict();
+	}
+
+
+	/**
+	 * [Method]: evict
+	 * [Usage]: Removes the least recently used entries of the cache
+	 * until its total size is within the limit. A limit of zero or
+	 * less means the cache is unbounded.
+	 */
+	public void evict() {
+		if(this.maximumSize <= 0) {
+			return;
+		}
+
+		File[] entries = this.directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+
+		if(entries == null) {
+			return;
+		}
+
+		long totalSize = 0;
+
+		for(File entry : entries) {
+			totalSize += entry.length();
+		}
+
+		ArrayList<File> entriesByAge = new ArrayList<File>(Arrays.asList(entries));
+		entriesByAge.sort(Comparator.comparingLong(File::lastModified));
+
+		for(File entry : entriesByAge) {
+			if(totalSize <= this.maximumSize) {
+				break;
+			}
+
+			long size = entry.length();
+
+			if(entry.delete()) {
+				totalSize -= size;
+				this.printer.printIfLoggingIsEnabled("- Evicted cached schedule " + entry.getName());
+			}
+		}
+	}
+
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void setMaximumSize(long maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+}
@@ -13,6 +13,7 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.microsoft.z3.*;
 import com.tsnsched.core.network.NetworkProperties;
@@ -20,11 +21,15 @@ import com.tsnsched.nest_sched.NestSchedINIGen;
 import com.tsnsched.nest_sched.NestSchedNEDGen;
 import com.tsnsched.nest_sched.NestSchedXMLGen;
 import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.ConstraintSink;
 import com.tsnsched.core.components.Port;
+import com.tsnsched.core.components.Z3ExpressionCache;
 import com.tsnsched.core.interface_manager.ParserManager;
 import com.tsnsched.core.interface_manager.Printer;
 import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkJournal;
 import com.tsnsched.core.network.NetworkModificationHandler;
+import com.tsnsched.core.network.NetworkSnapshot;
 import com.tsnsched.core.nodes.Switch;
 import com.tsnsched.core.nodes.TSNSwitch;
 import com.tsnsched.core.sched2netconf.XMLExporter;
@@ -36,6 +41,15 @@ import com.tsnsched.core.sched2netconf.XMLExporter;
  * a log file and store the timing properties on the cycles and flows.
  */
 public class ScheduleGenerator {
+		/*
+		 * Share of the time left given to scheduling the whole network at
+		 * once when there is a time limit. The incremental fallback needs
+		 * the rest: it only gets a useful partial schedule if it has time
+		 * for many batches, and a whole-network check that did not finish in
+		 * half of the time rarely finishes in the remainder.
+		 */
+		private static final double FULL_ATTEMPT_SHARE = 0.5;
+		
 		private Boolean exportModel = false;
 		private Boolean generateXMLFiles = false;
 		private Boolean generateSimulationFiles = false;
@@ -45,9 +59,40 @@ public class ScheduleGenerator {
 		private Boolean enableLoggerFile = false;
 		private Boolean generateJSONOutput = true;
 		private Boolean useIncrementalStrategy = false;
+		private int incrementalBatchSize = 1;
 		private Boolean enablePacketTimeOutput = false;
+		private String outputPath = "./output.json";
+		private Boolean compactOutput = false;
+		private Boolean useParallelPartitions = false;
+		private int partitionThreads = Runtime.getRuntime().availableProcessors();
+		private EncodingMode encodingMode = EncodingMode.STANDARD;
+		private SolverConfiguration solverConfiguration = new SolverConfiguration("qfufbv_ackr", 0);
+		private Boolean usePortfolio = false;
+		private ArrayList<SolverConfiguration> portfolio = SolverConfiguration.defaultPortfolio();
+		private int solveTimeout = 0; // Wall-clock limit in milliseconds, 0 for no limit
+		private int solveResourceLimit = 0; // z3 resource limit of each check, 0 for no limit
+		private long deadline = 0;
+		private Boolean scheduleInProgress = false;
+		private Status lastSolverStatus = null;
+		private int lastNumOfAssertions = 0;
+		private ScheduleOutcome lastOutcome = null;
+		private CancellationHandle cancellationHandle = new CancellationHandle();
+		private ArrayList<OptimizationObjective> objectives = new ArrayList<OptimizationObjective>();
+		private String warmStartPath = null;
+		private WarmStartHints preloadedHints = null;
+		private SchedulingEngine schedulingEngine = SchedulingEngine.Z3;
+		private Boolean breakSymmetries = false;
+		private Boolean diagnoseConflicts = false;
+		private Boolean shedConflictingFlows = false;
+		private Boolean lazyPairwiseRules = false;
+		private Boolean useSlotIndicators = false;
+		private Boolean useScheduleCache = false;
+		private String cacheDirectory = "scheduleCache";
+		private long cacheMaximumSize = 256L * 1024 * 1024; // In bytes, 0 for no limit
 
-		private String topologyFilePath = "network.ser";
+		private String snapshotPath = "network" + NetworkSnapshot.FILE_EXTENSION;
+		private String journalPath = null;
+		private int journalCompactionThreshold = 64; // Number of changes kept in the journal before compaction
 		private ArrayList<Flow> tempFlowList;
 		private int auxIncrementalFlowCounter = 1;
 
@@ -96,6 +141,7 @@ public class ScheduleGenerator {
                     HashMap<String, String> cfg = new HashMap<String, String>();
                     cfg.put("model", "true");
                     Context ctx = new Context(cfg);
+                    this.cancellationHandle.register(ctx);
 
                     return ctx;
                 }
@@ -123,6 +169,9 @@ public class ScheduleGenerator {
            {
                 
                 { 
+                    Z3ExpressionCache.release(ctx);
+                    ConstraintSink.release(ctx);
+                    this.cancellationHandle.unregister(ctx);
                     ctx.close();
                 }
                 
@@ -141,9 +190,160 @@ public class ScheduleGenerator {
 	   
 	   
 	   
-	   public void configureNetwork(Network net, Context ctx, Solver solver) {
+	   /**
+	    * [Method]: createSolver
+	    * [Usage]: Creates a solver according to the solver configuration
+	    * of the generator, limited by the time left until the deadline
+	    * and by the resource limit.
+	    * 
+	    * @param ctx   z3 context of the solver
+	    * @return      Solver object ready to receive the scheduling rules
+	    */
+	   Solver createSolver(Context ctx) {
+		   Solver solver = this.solverConfiguration.createSolver(ctx);
+		   this.applySolverLimits(ctx, solver);
+		   return solver;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: applySolverLimits
+	    * [Usage]: Sets the timeout of the next checks of a solver to the
+	    * time left until the deadline, and its resource limit. Can be
+	    * called again between checks as the deadline gets closer.
+	    * 
+	    * @param ctx       z3 context of the solver
+	    * @param solver    Solver to be limited
+	    */
+	   void applySolverLimits(Context ctx, Solver solver) {
+		   Params params = this.getSolverLimits(ctx);
+		   
+		   if(params == null) {
+			   return;
+		   }
+		   
+		   try {
+			   solver.setParameters(params);
+		   } catch (Z3Exception e) {
+			   this.printer.printIfLoggingIsEnabled("Z3 Managed Exception: " + e.getMessage());
+		   }
+	   }
+	   
+	   /**
+	    * [Method]: getSolverLimits
+	    * [Usage]: Builds the parameters limiting the next checks to the
+	    * time left until the deadline and to the resource limit. Returns
+	    * null if the generator has no limits.
+	    * 
+	    * @param ctx       z3 context of the solver
+	    * @return          Parameters with the limits
+	    */
+	   private Params getSolverLimits(Context ctx) {
+		   if(this.deadline == 0 && this.solveResourceLimit <= 0) {
+			   return null;
+		   }
+		   
+		   Params params = ctx.mkParams();
+		   
+		   if(this.deadline != 0) {
+			   params.add("timeout", (int) Math.max(1, this.getRemainingTime()));
+		   }
+		   
+		   if(this.solveResourceLimit > 0) {
+			   params.add("rlimit", this.solveResourceLimit);
+		   }
+		   
+		   return params;
+	   }
+	   
+	   private void releaseSolverLimits(Context ctx, Solver solver) {
+		   if(this.deadline == 0 && this.solveResourceLimit <= 0) {
+			   return;
+		   }
+		   
+		   try {
+			   Params params = ctx.mkParams();
+			   params.add("timeout", Integer.MAX_VALUE);
+			   params.add("rlimit", 0);
+			   solver.setParameters(params);
+		   } catch (Z3Exception e) {
+			   this.printer.printIfLoggingIsEnabled("Z3 Managed Exception: " + e.getMessage());
+		   }
+	   }
+	   
+	   /**
+	    * [Method]: startDeadline
+	    * [Usage]: Starts the deadline of a schedule from the time limit of
+	    * the generator, unless a schedule is already in progress. Every
+	    * public scheduling method calls it, so the time limit holds whether
+	    * the network is given to generateSchedule or directly to one of
+	    * the strategies, and strategies called by others share the
+	    * deadline of the outermost one. A cancellation of a previous
+	    * schedule is cleared when the outermost one starts.
+	    * 
+	    * @return		True if this call started the deadline, to be given to finishDeadline
+	    */
+	   private boolean startDeadline() {
+		   if(this.scheduleInProgress) {
+			   return false;
+		   }
+		   
+		   this.scheduleInProgress = true;
+		   this.cancellationHandle.reset();
+		   this.deadline = (this.solveTimeout > 0 ? System.nanoTime() + this.solveTimeout * 1000000L : 0);
+		   
+		   return true;
+	   }
+	   
+	   private void finishDeadline(boolean outermost) {
+		   if(outermost) {
+			   this.scheduleInProgress = false;
+			   this.deadline = 0;
+		   }
+	   }
+	   
+	   /**
+	    * [Method]: getRemainingTime
+	    * [Usage]: Milliseconds left until the deadline of the current
+	    * schedule, or -1 if there is no deadline.
+	    */
+	   private long getRemainingTime() {
+		   if(this.deadline == 0) {
+			   return -1;
+		   }
+		   
+		   return Math.max(0, (this.deadline - System.nanoTime())/1000000);
+	   }
+	   
+	   /**
+	    * [Method]: isOutOfTime
+	    * [Usage]: True if the current schedule was cancelled or its
+	    * deadline was reached, in which case no further check should
+	    * be started.
+	    */
+	   boolean isOutOfTime() {
+		   return this.cancellationHandle.isCancelled() || this.getRemainingTime() == 0;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: prepareNetwork
+	    * [Usage]: Creates the fragments of the flows and the z3 objects
+	    * of the network, along with the rules that are not specific to a
+	    * port or flow (symmetry breaking). The rules
+	    * of the ports and flows are set by configureNetwork.
+	    * 
+	    * @param net       Network to be configured
+	    * @param ctx       z3 context of the solver
+	    * @param solver    Solver receiving the scheduling rules
+	    */
+	   void prepareNetwork(Network net, Context ctx, Solver solver) {
+		   Printer printer = (net.getPrinter() != null ? net.getPrinter() : this.printer);
+		   
+		   this.applyEncodingMode(net);
+		   
 		   for(Flow flw : net.getFlows()) {
-			   flw.setPrinter(this.printer);
+			   flw.setPrinter(printer);
 		   	   flw.modifyIfUsingCustomVal();
 	    	   flw.convertUnicastFlow();
 	    	   flw.setUpPeriods(flw.getPathTree().getRoot());
@@ -151,10 +351,12 @@ public class ScheduleGenerator {
 	       
 	       for(Switch swt : net.getSwitches()) {
 	    	   TSNSwitch auxSwt = (TSNSwitch) swt;
-	    	   auxSwt.setPrinter(this.printer);
+	    	   auxSwt.setPrinter(printer);
 	    	   auxSwt.setUpCycleSize(solver, ctx);
 	       }
 	       
+	       net.setUpBounds();
+	       
 	       
 	       // On all network flows: Data given by the user will be converted to z3 values 
 	       for(Flow flw : net.getFlows()) {
@@ -166,6 +368,25 @@ public class ScheduleGenerator {
                ((TSNSwitch) swt).toZ3(ctx, solver);
            }
            
+           if(this.breakSymmetries) {
+        	   SymmetryBreaker symmetryBreaker = new SymmetryBreaker(net, ctx, printer);
+        	   symmetryBreaker.breakSymmetries(solver);
+        	   symmetryBreaker.reportSymmetries();
+           }
+	   }
+	   
+	   /**
+	    * [Method]: configureNetwork
+	    * [Usage]: Creates the z3 objects of the network and sets
+	    * every scheduling rule on the given solver.
+	    * 
+	    * @param net       Network to be configured
+	    * @param ctx       z3 context of the solver
+	    * @param solver    Solver receiving the scheduling rules
+	    */
+	   public void configureNetwork(Network net, Context ctx, Solver solver) {
+		   this.prepareNetwork(net, ctx, solver);
+		   
            net.preventCollisionOnFirstHop(solver, ctx);
 		   net.assertFirstSendingTimeOfFlows(solver, ctx);
 
@@ -177,6 +398,23 @@ public class ScheduleGenerator {
 
 
 
+	   /**
+	    * [Method]: applyEncodingMode
+	    * [Usage]: Sets the encoding used by the ports of the
+	    * network to create the packet transmission rules.
+	    * 
+	    * @param net   Network with the ports to be configured
+	    */
+	   private void applyEncodingMode(Network net) {
+		   for(Switch swt : net.getSwitches()) {
+			   for(Port port : ((TSNSwitch) swt).getPorts()) {
+				   port.setEncodingMode(this.encodingMode);
+				   port.setLazyPairwiseRules(net.getLazyPairwiseRules());
+				   port.setUseSlotIndicators(this.useSlotIndicators);
+			   }
+		   }
+	   }
+	   
 	   public void generateSchedule(String topologyFilePath)
 	   {
 
@@ -189,251 +427,1049 @@ public class ScheduleGenerator {
 	   }
 
 	   public void generateSchedule(Network net){
-		   /*
-			this.setRulesAndAttemptScheduling(net);
-		   /**/
-		   /**/
-		   if(!this.useIncrementalStrategy){
-			   this.setRulesAndAttemptScheduling(net);
+		   boolean outermost = this.startDeadline();
+		   
+		   try {
+			   /*
+				this.setRulesAndAttemptScheduling(net);
+			   /**/
+			   /**/
+			   ScheduleCache cache = null;
+			   String cacheKey = null;
+		   
+			   if(this.useScheduleCache && !this.useIncrementalStrategy && !this.loadNetwork) {
+				   cache = new ScheduleCache(this.cacheDirectory, this.cacheMaximumSize, this.printer);
+				   cacheKey = cache.computeKey(net, this.describeSolverOptions());
+			   
+				   if(this.restoreFromCache(cache, cacheKey, net)) {
+					   this.lastOutcome = ScheduleOutcome.SCHEDULED;
+					   return;
+				   }
+			   }
+		   
+			   boolean successfullyScheduled;
+		   
+			   if(!this.useIncrementalStrategy && this.schedulingEngine != SchedulingEngine.Z3 && !this.loadNetwork){
+				   this.lastOutcome = null;
+				   successfullyScheduled = this.scheduleWithHeuristic(net);
+			   
+				   if(this.lastOutcome == null) {
+					   this.lastOutcome = (successfullyScheduled ? ScheduleOutcome.SCHEDULED : ScheduleOutcome.NOT_SCHEDULED);
+				   }
+			   } else {
+				   successfullyScheduled = this.scheduleWithSolver(net);
+			   }
+		   
+			   if(cache != null && successfullyScheduled) {
+				   cache.store(cacheKey, net);
+			   }
+				/**/
+		   } finally {
+			   this.finishDeadline(outermost);
+		   }
+	   }
+	   
+	   /*
+	    * Picks the strategy used by z3 to schedule the network
+	    * according to the parameters of the generator. The deadline
+	    * limits the solvers of every strategy; only when no other
+	    * strategy is chosen, the time left after a failed attempt is
+	    * used to schedule part of the flows (scheduleWithinTimeLimit).
+	    */
+	   private boolean scheduleWithSolver(Network net) {
+		   boolean successfullyScheduled;
+		   
+		   this.lastOutcome = null;
+		   
+		   if(!this.useIncrementalStrategy && this.useParallelPartitions && !this.loadNetwork){
+			   successfullyScheduled = this.scheduleIndependentPartitions(net);
+		   } else if(!this.useIncrementalStrategy && this.usePortfolio && !this.loadNetwork && 
+				   this.objectives.isEmpty() && this.warmStartPath == null && this.preloadedHints == null){
+			   successfullyScheduled = this.scheduleWithPortfolio(net);
+		   } else if(!this.useIncrementalStrategy && this.solveTimeout > 0 && !this.loadNetwork && !this.diagnoseConflicts && !this.shedConflictingFlows){
+			   successfullyScheduled = this.scheduleWithinTimeLimit(net);
+		   } else if(!this.useIncrementalStrategy && (this.diagnoseConflicts || this.shedConflictingFlows) && !this.loadNetwork){
+			   successfullyScheduled = this.scheduleWithDiagnosis(net);
+		   } else if(!this.useIncrementalStrategy){
+			   successfullyScheduled = this.setRulesAndAttemptScheduling(net);
 		   } else {
+			   successfullyScheduled = this.scheduleIncrementally(net);
+		   }
+		   
+		   // Strategies that may leave flows out record their own outcome
+		   if(this.lastOutcome == null) {
+			   this.lastOutcome = (successfullyScheduled ? ScheduleOutcome.SCHEDULED : ScheduleOutcome.NOT_SCHEDULED);
+		   }
+		   
+		   return successfullyScheduled;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: scheduleWithHeuristic
+	    * [Usage]: Schedules a copy of the network with the greedy
+	    * pre-scheduler and checks the result against the scheduling
+	    * rules. If the greedy schedule is not valid, the network is
+	    * scheduled by z3 as usual. With the polish engine, the greedy
+	    * schedule is given to z3 as a warm start and the result of z3
+	    * is used if it is found in time.
+	    * 
+	    * @param net		Network used as base to generate the schedule
+	    * @return			True if every flow of the network was scheduled
+	    */
+	   public boolean scheduleWithHeuristic(Network net) {
+		   boolean outermost = this.startDeadline();
+		   
+		   try {
+			   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
+			   this.printer.setEnableLoggerFile(this.enableLoggerFile);
+			   net.setPrinter(this.printer);
+		   
+			   if(this.parserManager == null) {
+				   this.parserManager = new ParserManager();
+				   this.parserManager.setPrinter(this.printer);
+			   }
+		   
+			   long totalStartTime = System.nanoTime();
+		   
+			   this.printer.printIfLoggingIsEnabled("==================================================");
+			   this.printer.printIfLoggingIsEnabled("[RUNNING GREEDY PRE-SCHEDULER]");
+		   
+			   NetworkPartitioner partitioner = new NetworkPartitioner(this.printer);
+			   byte[] snapshot = partitioner.takeSnapshot(net);
+			   Network copy = partitioner.restoreSnapshot(snapshot);
+			   copy.setPrinter(this.printer);
+		   
+			   Context ctx = this.createContext();
+			   GreedyScheduler scheduler = new GreedyScheduler(copy, this.printer);
+			   boolean successfullyScheduled = scheduler.schedule(ctx);
+			   this.closeContext(ctx);
+		   
+			   String failureReason = scheduler.getFailureReason();
+		   
+			   if(successfullyScheduled) {
+				   List<String> violations = new ScheduleValidator(copy, this.printer).validate();
+			   
+				   if(!violations.isEmpty()) {
+					   successfullyScheduled = false;
+					   failureReason = "invalid schedule: " + violations.get(0);
+				   }
+			   }
+		   
+			   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) (System.nanoTime() - totalStartTime))/1000000000 + " seconds\n ");
+		   
+			   if(!successfullyScheduled) {
+				   this.printer.printIfLoggingIsEnabled("- Greedy schedule not found, falling back to z3");
+				   net.addScheduleInfo("engine", "z3");
+				   net.addScheduleInfo("heuristicFailure", failureReason);
+			   
+				   return this.scheduleWithSolver(net);
+			   }
+		   
+			   if(this.schedulingEngine == SchedulingEngine.POLISH && !this.cancellationHandle.isCancelled()) {
+				   Network polishCopy = partitioner.restoreSnapshot(snapshot);
+				   polishCopy.addScheduleInfo("engine", "greedy+z3");
+			   
+				   this.preloadedHints = new WarmStartHints(this.printer);
+				   this.preloadedHints.loadFromNetwork(copy);
+				   boolean polished = this.setRulesAndAttemptScheduling(polishCopy);
+				   this.preloadedHints = null;
+			   
+				   if(polished) {
+					   partitioner.mergeComponent(net, polishCopy);
+					   return true;
+				   }
+			   
+				   this.printer.printIfLoggingIsEnabled("- Schedule not polished by z3, using the greedy schedule");
+			   }
+		   
+			   partitioner.mergeComponent(net, copy);
+			   net.addScheduleInfo("engine", "greedy");
+			   net.setAllElementsToNotModified();
+			   this.exportSchedule(net);
+		   
+			   return true;
+		   } finally {
+			   this.finishDeadline(outermost);
+		   }
+	   }
 
-			   this.serializeNetwork=true;
+	   /**
+	    * [Usage]: After creating a network, setting up the
+	    * flows and switches, the user now can call this 
+	    * function in order calculate the schedule values
+	    * using z3 
+	    * 
+	    * @param net   Network used as base to generate the schedule
+	    */
+	   public boolean setRulesAndAttemptScheduling(Network net)
+	   {
+		   boolean outermost = this.startDeadline();
+		   
+		   try {
+			   boolean successfullyScheduled = false;
+			   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
+			   this.printer.setEnableLoggerFile(this.enableLoggerFile);
 
-			   if(this.useIncrementalStrategy){
-				   this.tempFlowList = (ArrayList<Flow>) net.getFlows().clone();
-				   net.setFlows(new ArrayList<Flow>());
-				   net.addFlow(this.tempFlowList.get(0));
+			   if(this.parserManager == null) {
+				   this.parserManager = new ParserManager();
+				   this.parserManager.setPrinter(this.printer);
 			   }
 
-			   boolean successfullyScheduled = this.setRulesAndAttemptScheduling(net);
-			   this.tempFlowList.remove(0);
-			   this.loadNetwork=true;
+			   net.setPrinter(printer);
+		   
+			   long totalStartTime = System.nanoTime();
+		   
+			   Context ctx = this.createContext(); //Creating the z3 context
+		   
+			   //qfufbv, qfufbv_ackr, nra, qsat, psmt (see scheduleWithPortfolio to race them)
+		       Solver solver = this.createSolver(ctx);     //Creating the solver to generate unknown values based on the given context
+	       
+		   
+			   long startTime;
+			   long endTime;
+			   long totalTime;
+		   
+		   
+			   this.printer.printIfLoggingIsEnabled("==================================================");
+			   this.printer.printIfLoggingIsEnabled("[CREATING FRAGMENTS AND SETTING RULES]");
 
-			   for(Flow flw : this.tempFlowList) {
-				    if(successfullyScheduled == false) {
-						break;
-					}
+			   startTime = System.nanoTime();
+		   
+		   
+		       if(this.loadNetwork) {
+		    	   this.printer.printIfLoggingIsEnabled("- Loading network and modifications");
+		    	   //this.serializeNetwork = false; 
+		    	   net.createNewObjects();
+		    	   this.applyEncodingMode(net);
+		    	   net.loadNetwork(ctx, solver);	
+		    	   Flow.setInstanceCounter(net.getFlows().size() + 1);
+		    	   if(net.getHasBeenModified()) {
+		    		   net.setSolverAndContextForNetModHandler(solver, ctx);
+		    		   net.applyChangesToSolver();	    		   
+		    	   }
+		    	   // Sets up the hard constraint for each individual flow in the network
+		           net.preventCollisionOnFirstHop(solver, ctx);
+				   net.assertFirstSendingTimeOfFlows(solver, ctx);
+		           net.secureHC(solver, ctx);
+		       } else {
+		    	   this.printer.printIfLoggingIsEnabled("- Creating network");
+		    	   // Pairwise rules are only completed by refinement when the solver checks the rules directly
+		    	   net.setLazyPairwiseRules(this.lazyPairwiseRules && this.objectives.isEmpty() && 
+		    			   this.preloadedHints == null && this.warmStartPath == null);
+		    	   this.configureNetwork(net, ctx, solver);	    	   
+		       }
+	       
 
-					net = this.deserializeNetwork("network.ser");
-					Flow flow = new Flow(net, flw);
-					net.addElement(flow, NetworkProperties.INCREMENTFLOW);
-					successfullyScheduled = this.setRulesAndAttemptScheduling(net);
-			   }
+		       // A switch is picked in order to evaluate the unknown values
+	           TSNSwitch switch1 = null;
+	           switch1 = (TSNSwitch) net.getSwitches().get(0);
+           
+	           /*
+	            * The duration of the cycle is given as a question to z3, so all the 
+	            * constraints will have to be evaluated in order to z3 to know this cycle
+	            * duration 
+	            */            
+	           RealExpr switch1CycDuration = null;
+
+	           for(Switch swt : net.getSwitches()) {
+	        	   for(Port port : ((TSNSwitch)swt).getPorts()) {
+	        		   if(port.getIsModifiedOrCreated()) {
+	        			   switch1CycDuration = port.getCycle().getCycleDurationZ3();
+	        			   break;
+	        		   }
+	        	   }
+	           }
+           
+	           if(switch1CycDuration == null) {
+	        	   switch1CycDuration = switch1.getCycle(0).getCycleDurationZ3();
+	           }
+           
+	           ScheduleOptimizer optimizer = null;
+           
+	           if(!this.objectives.isEmpty()) {
+	        	   this.printer.printIfLoggingIsEnabled("- Setting up objectives: " + this.objectives);
+	        	   optimizer = new ScheduleOptimizer(net, ctx, this.objectives, this.printer);
+	        	   optimizer.setUpObjectives(solver);
+	           }
+           
+	           WarmStartHints warmStart = null;
+           
+	           if(this.preloadedHints != null || this.warmStartPath != null) {
+	        	   warmStart = (this.preloadedHints != null ? this.preloadedHints : new WarmStartHints(this.printer));
+        	   
+	        	   if(optimizer != null) {
+	        		   // The hints are assumed by the plain check, which is not used to optimize
+	        		   this.printer.printIfLoggingIsEnabled("- Warm start hints are not used with objectives");
+	        		   warmStart = null;
+	        	   } else if(this.preloadedHints != null || warmStart.load(this.warmStartPath)) {
+	        		   warmStart.createPreferences(net, ctx);
+	        	   } else {
+	        		   warmStart = null;
+	        	   }
+	           }
+           
+           
+	           endTime = System.nanoTime();
+	           totalTime = endTime-startTime;
+           
+		       /* find model for the constraints above */
+		       Model model = null;
+		       LocalTime time = LocalTime.now();
+	       
+		       this.printer.printIfLoggingIsEnabled("Time taken to set the rules: " + ((float) totalTime)/1000000000 + " seconds\n ");
+		       ConstraintSink.of(ctx, solver).flush();
+		       this.lastNumOfAssertions = solver.getNumAssertions();
+		       this.printer.printIfLoggingIsEnabled("Number of assertions (" + this.encodingMode + " encoding): " + this.lastNumOfAssertions);
+	       
+		       this.printer.printIfLoggingIsEnabled("\n==================================================");
+		       this.printer.printIfLoggingIsEnabled("[RULES SET. CHECKING SOLVER]");
+		       this.printer.printIfLoggingIsEnabled("Current time of the day: " + time);
+	       
+		       startTime = System.nanoTime();
+
+		       Status result;
+	       
+		       if(this.cancellationHandle.isCancelled()) {
+		    	   result = Status.UNKNOWN;
+		       } else if(optimizer != null) {
+		    	   result = optimizer.optimize(solver, this.getSolverLimits(ctx));
+		       } else if(warmStart != null) {
+		    	   result = warmStart.check(ctx, solver);
+		       } else {
+		    	   result = ConstraintSink.of(ctx, solver).check();
+	    	   
+		    	   if(net.getLazyPairwiseRules()) {
+		    		   LazyRuleRefiner refiner = new LazyRuleRefiner(net, ctx, this.printer);
+		    		   result = refiner.refine(solver, result);
+		    		   refiner.reportRefinement();
+		    	   }
+		       }
+	       
+		       this.lastSolverStatus = result;
+	       
+		       // When optimizing, the best schedule found before the time limit is also used
+		       if (Status.SATISFIABLE == result || (optimizer != null && optimizer.getModel() != null))
+		       {
+		    	   endTime = System.nanoTime();
+		    	   totalTime = endTime - startTime;
+		    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) totalTime)/1000000000 + " seconds ");
+		    	   this.printer.printIfLoggingIsEnabled("Number of assertions: " + solver.getAssertions().length);
+		           model = (optimizer == null ? solver.getModel() : optimizer.getModel());
+	           
+		           /*
+		           for(BoolExpr exp : solver.getAssertions()) {
+		    		   System.out.println(exp);	    		   
+		    	   }
+		           */
+
+		           //System.out.println(model);
+	           
+
+	   		       startTime = System.nanoTime();
+
+	   		       this.printer.printIfLoggingIsEnabled("\n==================================================");
+	   		       this.printer.printIfLoggingIsEnabled("[DATA LOGGING]");
+   	    	   
+	   	   		   Expr v = model.evaluate(switch1CycDuration, false);
+		           if (v != null)
+		           {
+		        	   successfullyScheduled = true;
+		        	   net.setAllElementsToNotModified();
+	        	   
+		        	   if(this.exportModel) {
+		    	    	   printer.exportModel(solver);
+		    	       }
+	        	   
+	            	   new ModelExtractor(model, ctx).extractNetwork(net);
+	            	   printer.generateLog("log.txt", net, ctx, model);
+            	   
+	            	   if(optimizer != null) {
+	            		   optimizer.reportObjectives();
+	            	   }
+            	   
+	            	   if(warmStart != null) {
+	            		   warmStart.reportKeptHints(net, model);
+	            	   }
+	        	   
+		        	   /*
+		        	   for(Flow f : net.getFlows()) {
+			        	   printer.printDataOnTree(f.getPathTree().getRoot(), model, ctx);  	        		   
+		        	   }
+		        	   */
+	        	   
+		               this.exportSchedule(net);
+	    	       
+		           } else
+		           {
+		        	   this.printer.printIfLoggingIsEnabled("Failed to evaluate");
+		           }
+		       } else
+		       {
+		    	   endTime = System.nanoTime();
+		    	   totalTime = endTime - startTime;
+		    	   this.printer.printIfLoggingIsEnabled("The specified constraints MIGHT NOT be satisfiable.");
+		    	   if(result == Status.UNKNOWN) {
+		    		   this.printer.printIfLoggingIsEnabled("Reason: " + (this.cancellationHandle.isCancelled() ? "cancelled" : solver.getReasonUnknown()));
+		    	   }
+		    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) totalTime)/1000000000 + " seconds\n ");
+
+			       startTime = System.nanoTime();
+
+			       this.printer.printIfLoggingIsEnabled("\n==================================================");
+			       this.printer.printIfLoggingIsEnabled("[DATA LOGGING]");
+	    	       if(this.exportModel) {
+	    	    	   printer.exportModel(solver);
+	    	       }	    	   	
+		           /*
+		           for(Flow f : net.getFlows()) {
+		        	   printer.printDataOnTree(f.getPathTree().getRoot(), model, ctx);  	        		   
+	        	   }
+	        	   */
+		       }
+	       
+			   this.closeContext(ctx);
+		   
+	    	   endTime = System.nanoTime();
+	    	   totalTime = endTime - startTime;
+	    	   this.printer.printIfLoggingIsEnabled("Time taken on logging: " + ((float) totalTime)/1000000000 + " seconds");
+
+	    	   this.printer.printIfLoggingIsEnabled("\n==================================================");
 
+			   long totalEndTime   = System.nanoTime();
+			   long totalExecutionTime = totalEndTime - totalStartTime;
+		
+			   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) totalExecutionTime)/1000000000 + " seconds\n ");
 
+			   return successfullyScheduled;
+		   } finally {
+			   this.finishDeadline(outermost);
 		   }
-			/**/
 	   }
-
+	   
+	   
+	   /**
+	    * [Method]: scheduleWithinTimeLimit
+	    * [Usage]: Attempts to schedule every flow of the network using a
+	    * share (FULL_ATTEMPT_SHARE) of the time left until the deadline. If
+	    * the solver does not reach an answer in time, the rest is used to
+	    * schedule the flows incrementally, one batch at a time, over a fresh
+	    * copy of the network. The flows committed until the deadline are
+	    * exported as a partial schedule, listing the flows that were left
+	    * out, and their values are merged back into the given network. Without a deadline, the network is only scheduled as a whole.
+	    * 
+	    * @param net		Network used as base to generate the schedule
+	    * @return			True if every flow of the network was scheduled
+	    */
+	   public boolean scheduleWithinTimeLimit(Network net) {
+		   boolean outermost = this.startDeadline();
+		   
+		   try {
+			   long remainingTime = this.getRemainingTime();
+			   
+			   if(remainingTime < 0) {
+				   return this.setRulesAndAttemptScheduling(net);
+			   }
+			   
+			   NetworkPartitioner partitioner = new NetworkPartitioner(this.printer);
+			   byte[] snapshot = partitioner.takeSnapshot(net);
+			   long overallDeadline = this.deadline;
+		   
+			   this.deadline = System.nanoTime() + (long) (remainingTime * FULL_ATTEMPT_SHARE) * 1000000L;
+			   boolean successfullyScheduled = this.setRulesAndAttemptScheduling(net);
+			   this.deadline = overallDeadline;
+		   
+			   if(successfullyScheduled || this.lastSolverStatus != Status.UNKNOWN || this.cancellationHandle.isCancelled()) {
+				   return successfullyScheduled;
+			   }
+		   
+			   this.printer.printIfLoggingIsEnabled("==================================================");
+			   this.printer.printIfLoggingIsEnabled("[TIME LIMIT REACHED]");
+			   this.printer.printIfLoggingIsEnabled("- Scheduling a subset of the flows in the remaining " + this.getRemainingTime() + " ms");
+		   
+			   Network copy = partitioner.restoreSnapshot(snapshot);
+			   copy.addScheduleInfo("timeLimitReached", true);
+		   
+			   boolean allFlowsScheduled = this.scheduleIncrementally(copy);
+		   
+			   if(this.lastOutcome != ScheduleOutcome.NOT_SCHEDULED) {
+				   partitioner.mergeComponent(net, copy);
+				   net.getScheduleInfo().putAll(copy.getScheduleInfo());
+				   net.setAllElementsToNotModified();
+			   }
+		   
+			   return allFlowsScheduled;
+		   } finally {
+			   this.finishDeadline(outermost);
+		   }
+	   }
+	   
+	   
+	   /**
+	    * [Method]: scheduleWithDiagnosis
+	    * [Usage]: Attempts to schedule every flow of the network. If the
+	    * network can not be scheduled, the flows and ports in conflict are
+	    * found by the conflict diagnoser and reported. When flows can be
+	    * shed, the flow of lowest priority of each conflict is left out
+	    * and the remaining flows are diagnosed again on the same solver,
+	    * until they can be scheduled. The schedule of the remaining flows
+	    * is then exported, listing the conflicts found and the flows left
+	    * out, its values are merged back into the given network and the
+	    * outcome is recorded as partial (see getLastOutcome).
+	    * 
+	    * @param net		Network used as base to generate the schedule
+	    * @return			True if every flow of the network was scheduled
+	    */
+	   public boolean scheduleWithDiagnosis(Network net) {
+		   boolean outermost = this.startDeadline();
+		   
+		   try {
+			   NetworkPartitioner partitioner = new NetworkPartitioner(this.printer);
+			   byte[] snapshot = partitioner.takeSnapshot(net);
+		   
+			   boolean successfullyScheduled = this.setRulesAndAttemptScheduling(net);
+			   this.lastOutcome = (successfullyScheduled ? ScheduleOutcome.SCHEDULED : ScheduleOutcome.NOT_SCHEDULED);
+		   
+			   if(successfullyScheduled || this.lastSolverStatus != Status.UNSATISFIABLE || this.cancellationHandle.isCancelled()) {
+				   return successfullyScheduled;
+			   }
+		   
+			   this.printer.printIfLoggingIsEnabled("==================================================");
+			   this.printer.printIfLoggingIsEnabled("[DIAGNOSING CONFLICTS]");
+		   
+			   ConflictDiagnoser diagnoser = new ConflictDiagnoser(this, this.printer);
+			   ArrayList<Object> conflicts = new ArrayList<Object>();
+			   ArrayList<String> shedFlowNames = new ArrayList<String>();
+			   ArrayList<Flow> remainingFlows = new ArrayList<Flow>(net.getFlows());
+			   Status status = diagnoser.findConflict(partitioner.extractComponent(snapshot, remainingFlows));
+		   
+			   // Flows are left out on the solver of the diagnosis, without setting the rules of the others again
+			   while(status == Status.UNSATISFIABLE) {
+				   conflicts.add(diagnoser.describeConflict());
+				   String flowToShed = (this.shedConflictingFlows ? diagnoser.pickFlowToShed() : null);
+			   
+				   if(flowToShed == null || this.isOutOfTime()) {
+					   break;
+				   }
+			   
+				   this.printer.printIfLoggingIsEnabled("- Leaving out the flow " + flowToShed);
+				   shedFlowNames.add(flowToShed);
+				   remainingFlows.removeIf(flw -> flw.getName().equals(flowToShed));
+				   status = diagnoser.shedFlow(flowToShed);
+			   }
+		   
+			   diagnoser.close();
+			   net.addScheduleInfo("conflicts", conflicts);
+		   
+			   if(!this.shedConflictingFlows || status != Status.SATISFIABLE || this.cancellationHandle.isCancelled()) {
+				   this.printer.printIfLoggingIsEnabled("- Conflicts found: " + conflicts.size());
+				   return false;
+			   }
+		   
+			   this.printer.printIfLoggingIsEnabled("- Scheduling the " + remainingFlows.size() + " remaining flows, flows left out: " + shedFlowNames);
+		   
+			   Network copy = partitioner.extractComponent(snapshot, remainingFlows);
+			   copy.addScheduleInfo("conflicts", conflicts);
+			   copy.addScheduleInfo("partialSchedule", true);
+			   copy.addScheduleInfo("rejectedFlows", shedFlowNames);
+		   
+			   // Only part of the flows is in the schedule, so false is returned and the outcome tells it is partial
+			   if(this.setRulesAndAttemptScheduling(copy)) {
+				   partitioner.mergeComponent(net, copy);
+				   net.getScheduleInfo().putAll(copy.getScheduleInfo());
+				   net.setAllElementsToNotModified();
+				   this.lastOutcome = ScheduleOutcome.PARTIALLY_SCHEDULED;
+			   }
+		   
+			   return false;
+		   } finally {
+			   this.finishDeadline(outermost);
+		   }
+	   }
+	   
+	   
+	   /**
+	    * [Method]: scheduleIncrementally
+	    * [Usage]: Schedules the flows of the network in batches of the
+	    * incremental batch size, keeping a single z3 context and solver
+	    * alive between the batches. Flows of a batch that can not be
+	    * scheduled, including the first batch, are left out and the
+	    * following batches are still attempted, until the deadline is
+	    * reached or the generator is cancelled. The schedule of the flows
+	    * that were committed is exported at the end, listing the flows left
+	    * out, and the outcome is recorded as partial if any flow was left out.
+	    * 
+	    * @param net		Network used as base to generate the schedule
+	    * @return			True if every flow of the network was scheduled
+	    */
+	   public boolean scheduleIncrementally(Network net) {
+		   boolean outermost = this.startDeadline();
+		   
+		   try {
+			   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
+			   this.printer.setEnableLoggerFile(this.enableLoggerFile);
+			   net.setPrinter(this.printer);
+		   
+			   if(this.parserManager == null) {
+				   this.parserManager = new ParserManager();
+				   this.parserManager.setPrinter(this.printer);
+			   }
+		   
+			   long totalStartTime = System.nanoTime();
+		   
+			   this.printer.printIfLoggingIsEnabled("==================================================");
+			   this.printer.printIfLoggingIsEnabled("[SCHEDULING FLOWS INCREMENTALLY]");
+		   
+			   this.tempFlowList = new ArrayList<Flow>(net.getFlows());
+			   int batchSize = Math.max(1, this.incrementalBatchSize);
+		   
+			   net.setFlows(new ArrayList<Flow>(this.tempFlowList.subList(0, Math.min(batchSize, this.tempFlowList.size()))));
+		   
+			   Context ctx = this.createContext();
+			   Solver solver = this.createSolver(ctx);
+			   IncrementalScheduler scheduler = new IncrementalScheduler(net, ctx, solver, this.printer);
+		   
+			   List<Flow> batch = this.tempFlowList.subList(0, Math.min(batchSize, this.tempFlowList.size()));
+			   this.reportRejectedBatch(batch, scheduler.start(this));
+		   
+			   for(int i = batchSize; i < this.tempFlowList.size(); i += batchSize) {
+				   if(this.cancellationHandle.isCancelled() || this.getRemainingTime() == 0) {
+					   this.printer.printIfLoggingIsEnabled("- Stopped before the flow " + this.tempFlowList.get(i).getName() + 
+							   (this.cancellationHandle.isCancelled() ? ": cancelled" : ": time limit reached"));
+					   break;
+				   }
+			   
+				   this.applySolverLimits(ctx, solver);
+				   batch = this.tempFlowList.subList(i, Math.min(i + batchSize, this.tempFlowList.size()));
+				   this.reportRejectedBatch(batch, scheduler.addFlows(batch));
+			   }
+		   
+			   ArrayList<String> unscheduledFlowNames = new ArrayList<String>();
+			   for(Flow flw : this.tempFlowList) {
+				   if(!scheduler.getCommittedFlows().contains(flw)) {
+					   unscheduledFlowNames.add(flw.getName());
+				   }
+			   }
+		   
+			   boolean successfullyScheduled = unscheduledFlowNames.isEmpty();
+			   // The final check only confirms the committed values, so it is not limited
+			   this.releaseSolverLimits(ctx, solver);
+			   Model model = (this.cancellationHandle.isCancelled() ? null : scheduler.getFinalModel());
+		   
+			   this.printer.printIfLoggingIsEnabled("- Flows committed: " + scheduler.getCommittedFlows().size() + 
+					   ", flows left out: " + unscheduledFlowNames.size());
+		   
+			   if(model == null) {
+				   this.lastOutcome = ScheduleOutcome.NOT_SCHEDULED;
+			   } else {
+				   this.lastOutcome = (successfullyScheduled ? ScheduleOutcome.SCHEDULED : ScheduleOutcome.PARTIALLY_SCHEDULED);
+			   }
+		   
+			   if(model != null) {
+				   new ModelExtractor(model, ctx).extractNetwork(net);
+				   printer.generateLog("log.txt", net, ctx, model);
+				   net.setAllElementsToNotModified();
+				   net.addScheduleInfo("incrementalBatchSize", batchSize);
+				   net.addScheduleInfo("partialSchedule", !successfullyScheduled);
+				   net.addScheduleInfo("unscheduledFlows", unscheduledFlowNames);
+				   this.exportSchedule(net);
+			   } else {
+				   this.printer.printIfLoggingIsEnabled("The specified constraints MIGHT NOT be satisfiable.");
+			   }
+		   
+			   this.closeContext(ctx);
+		   
+			   this.printer.printIfLoggingIsEnabled("\n==================================================");
+			   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) (System.nanoTime() - totalStartTime))/1000000000 + " seconds\n ");
+		   
+			   return successfullyScheduled;
+		   } finally {
+			   this.finishDeadline(outermost);
+		   }
+	   }
+	   
+	   
+	   /*
+	    * Logs the flows of a batch left out by the incremental scheduler
+	    * and the status given by the solver for them.
+	    */
+	   private void reportRejectedBatch(List<Flow> batch, Status result) {
+		   if(result == Status.SATISFIABLE) {
+			   return;
+		   }
+		   
+		   ArrayList<String> flowNames = new ArrayList<String>();
+		   for(Flow flw : batch) {
+			   flowNames.add(flw.getName());
+		   }
+		   
+		   this.printer.printIfLoggingIsEnabled("- Batch left out (" + result + "): " + flowNames);
+	   }
+	   
+	   
+	   /**
+	    * [Method]: restoreFromCache
+	    * [Usage]: Looks for a schedule generated before for the same
+	    * network and solver options. If it is found, its values are
+	    * restored into the network and the output is generated without
+	    * calling z3.
+	    * 
+	    * @param cache		Cache of generated schedules
+	    * @param cacheKey	Key of the network in the cache
+	    * @param net		Network to receive the values of the schedule
+	    * @return			True if the schedule was restored from the cache
+	    */
+	   private boolean restoreFromCache(ScheduleCache cache, String cacheKey, Network net) {
+		   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
+		   this.printer.setEnableLoggerFile(this.enableLoggerFile);
+		   net.setPrinter(this.printer);
+		   
+		   if(!cache.restore(cacheKey, net)) {
+			   this.printer.printIfLoggingIsEnabled("- Schedule cache miss: " + cacheKey);
+			   return false;
+		   }
+		   
+		   this.printer.printIfLoggingIsEnabled("- Schedule restored from cache: " + cacheKey);
+		   
+		   if(this.parserManager == null) {
+			   this.parserManager = new ParserManager();
+			   this.parserManager.setPrinter(this.printer);
+		   }
+		   
+		   this.exportSchedule(net);
+		   
+		   return true;
+	   }
+	   
+	   /*
+	    * Every option of the generator that can change the schedule found
+	    * for a network, used as part of the key of the cache. Options that
+	    * only change the format of the output are left out, since the
+	    * output is generated again from the values restored.
+	    */
+	   private String describeSolverOptions() {
+		   return this.encodingMode + ";" +
+				   (this.usePortfolio ? "portfolio:" + this.portfolio : this.solverConfiguration.toString()) + ";" +
+				   this.useParallelPartitions + ";" +
+				   this.schedulingEngine + ";" +
+				   this.breakSymmetries + ";" +
+				   this.lazyPairwiseRules + ";" +
+				   this.useSlotIndicators + ";" +
+				   this.diagnoseConflicts + ";" +
+				   this.shedConflictingFlows + ";" +
+				   this.objectives + ";" +
+				   this.solveTimeout + ";" +
+				   this.solveResourceLimit + ";" +
+				   (this.warmStartPath == null ? "" : "warmStart:" + ScheduleCache.describeFile(this.warmStartPath));
+	   }
+	   
+	   
+	   /**
+	    * [Method]: exportSchedule
+	    * [Usage]: Once the values of the schedule are stored in the
+	    * network objects, prints them and generates the output files
+	    * enabled through the parameters of the generator.
+	    * 
+	    * @param net		Network containing the generated schedule
+	    */
+	   private void exportSchedule(Network net) {
+		   printer.printOnConsole(net);
+		   
+		   if(this.generateXMLFiles) {
+			   new XMLExporter(net);	    	   
+		   }
+		   
+		   if(this.serializeNetwork) {
+			   this.printer.printIfLoggingIsEnabled("- Serializing network");
+			   this.serializeNetwork(net, this.snapshotPath);
+		   }
+		   
+		   if(this.generateSimulationFiles) {
+			   this.printer.printIfLoggingIsEnabled("- Generating simulation files");
+			   generateSimulationFiles(net);			   
+		   }
+		   
+		   if(this.generateJSONOutput) {
+			   this.parserManager.setEnablePacketTimeOutput(this.enablePacketTimeOutput);
+			   this.parserManager.setOutputFile(this.outputPath);
+			   this.parserManager.setCompactOutput(this.compactOutput);
+			   this.parserManager.parseOutput(net);	    	    	   
+		   }
+	   }
+	   
+	   
+	   /**
+	    * [Method]: scheduleIndependentPartitions
+	    * [Usage]: Splits the flows of the network into groups that never
+	    * share a port and solves each group in its own z3 context, using
+	    * a pool of threads. The values found for each group are merged back
+	    * into the given network before the output is generated. If all flows
+	    * belong to a single group, the regular scheduling process is used.
+	    * 
+	    * @param net		Network used as base to generate the schedule
+	    * @return			True if every group was successfully scheduled
+	    */
+	   public boolean scheduleIndependentPartitions(Network net) {
+		   boolean outermost = this.startDeadline();
+		   
+		   try {
+			   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
+			   this.printer.setEnableLoggerFile(this.enableLoggerFile);
+			   net.setPrinter(this.printer);
+		   
+			   if(this.parserManager == null) {
+				   this.parserManager = new ParserManager();
+				   this.parserManager.setPrinter(this.printer);
+			   }
+		   
+			   long totalStartTime = System.nanoTime();
+		   
+			   NetworkPartitioner partitioner = new NetworkPartitioner(this.printer);
+			   ArrayList<ArrayList<Flow>> components = partitioner.findIndependentComponents(net);
+		   
+			   this.printer.printIfLoggingIsEnabled("==================================================");
+			   this.printer.printIfLoggingIsEnabled("[PARTITIONING NETWORK]");
+			   this.printer.printIfLoggingIsEnabled("- Number of independent components: " + components.size());
+		   
+			   if(components.size() < 2) {
+				   return this.setRulesAndAttemptScheduling(net);
+			   }
+		   
+			   byte[] snapshot = partitioner.takeSnapshot(net);
+			   ArrayList<Network> componentNetworks = new ArrayList<Network>();
+		   
+			   for(ArrayList<Flow> component : components) {
+				   this.printer.printIfLoggingIsEnabled("- Component with " + component.size() + " flow(s)");
+				   componentNetworks.add(partitioner.extractComponent(snapshot, component));
+			   }
+		   
+			   ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(this.partitionThreads, components.size())));
+			   ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		   
+			   for(Network componentNetwork : componentNetworks) {
+				   results.add(pool.submit(() -> this.solveComponent(componentNetwork)));
+			   }
+		   
+			   boolean successfullyScheduled = true;
+		   
+			   for(Future<Boolean> result : results) {
+				   try {
+					   successfullyScheduled = result.get() && successfullyScheduled;
+				   } catch (InterruptedException | ExecutionException e) {
+					   e.printStackTrace();
+					   successfullyScheduled = false;
+				   }
+			   }
+		   
+			   pool.shutdown();
+		   
+			   if(successfullyScheduled) {
+				   for(Network componentNetwork : componentNetworks) {
+					   partitioner.mergeComponent(net, componentNetwork);
+				   }
+			   
+				   // The components were solved in their own contexts, so the log is written from the merged values
+				   this.printer.generateLog("log.txt", net, null, null);
+				   net.setAllElementsToNotModified();
+				   this.exportSchedule(net);
+			   } else {
+				   this.printer.printIfLoggingIsEnabled("The specified constraints of at least one component MIGHT NOT be satisfiable.");
+			   }
+		   
+			   this.printer.printIfLoggingIsEnabled("\n==================================================");
+			   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) (System.nanoTime() - totalStartTime))/1000000000 + " seconds\n ");
+		   
+			   return successfullyScheduled;
+		   } finally {
+			   this.finishDeadline(outermost);
+		   }
+	   }
+	   
+	   
 	   /**
-	    * [Usage]: After creating a network, setting up the
-	    * flows and switches, the user now can call this 
-	    * function in order calculate the schedule values
-	    * using z3 
+	    * [Method]: solveComponent
+	    * [Usage]: Sets the rules of a single component of the network in a
+	    * new z3 context and stores the values of the model in its objects.
+	    * Runs on a worker thread, so it uses its own printer with the
+	    * logging disabled.
 	    * 
-	    * @param net   Network used as base to generate the schedule
+	    * @param componentNetwork		Copy of the network containing a single component
+	    * @return						True if the component was successfully scheduled
 	    */
-	   public boolean setRulesAndAttemptScheduling(Network net)
-	   {
+	   private boolean solveComponent(Network componentNetwork) {
 		   boolean successfullyScheduled = false;
-		   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
-		   this.printer.setEnableLoggerFile(this.enableLoggerFile);
-
-		   if(this.parserManager == null) {
-			   this.parserManager = new ParserManager();
-			   this.parserManager.setPrinter(this.printer);
+		   Printer componentPrinter = new Printer();
+		   componentPrinter.setEnableConsoleOutput(false);
+		   componentPrinter.setEnableLoggerFile(false);
+		   componentNetwork.setPrinter(componentPrinter);
+		   
+		   long startTime = System.nanoTime();
+		   
+		   Context ctx = this.createContext();
+		   Solver solver = this.createSolver(ctx);
+		   
+		   this.configureNetwork(componentNetwork, ctx, solver);
+		   
+		   if(!this.cancellationHandle.isCancelled() && ConstraintSink.of(ctx, solver).check() == Status.SATISFIABLE) {
+			   Model model = solver.getModel();
+			   new ModelExtractor(model, ctx).extractNetwork(componentNetwork);
+			   componentPrinter.generateLog("log.txt", componentNetwork, ctx, model);
+			   successfullyScheduled = true;
 		   }
-
-		   net.setPrinter(printer);
 		   
-		   long totalStartTime = System.nanoTime();
+		   this.closeContext(ctx);
 		   
-		   Context ctx = this.createContext(); //Creating the z3 context
+		   this.printer.printIfLoggingIsEnabled("- Component with " + componentNetwork.getFlows().size() + " flow(s) " + 
+				   (successfullyScheduled ? "scheduled" : "MIGHT NOT be satisfiable") + " in " + 
+				   ((float) (System.nanoTime() - startTime))/1000000000 + " seconds");
 		   
-		   String name = "qfufbv_ackr";
-		   //System.out.println(ctx.getTacticDescription(name));
-		   //qfufbv, qfufbv_ackr, nra, qsat, psmt
-		   Tactic t1 = ctx.mkTactic(name);
-		   //Tactic t2 = ctx.mkTactic("nra");
-		   //Tactic t = ctx.parAndThen(t1, t2);
-	       Solver solver = ctx.mkSolver(t1);     //Creating the solver to generate unknown values based on the given context
-	       
+		   return successfullyScheduled;
+	   }
+	   
+	   
+	   /**
+	    * [Method]: scheduleWithPortfolio
+	    * [Usage]: Races the solver configurations of the portfolio against
+	    * each other. Each configuration sets the rules over its own copy of
+	    * the network in its own z3 context. The first configuration to reach
+	    * an answer wins and the others are interrupted. If the answer is
+	    * satisfiable, the values of the winner are merged into the given
+	    * network and the winning configuration is exported with the schedule.
+	    * Each configuration only checks the rules, so the portfolio is not
+	    * used with optimization objectives or warm start hints.
+	    * 
+	    * @param net		Network used as base to generate the schedule
+	    * @return			True if the winning configuration found a schedule
+	    */
+	   public boolean scheduleWithPortfolio(Network net) {
+		   boolean outermost = this.startDeadline();
 		   
-		   long startTime;
-		   long endTime;
-		   long totalTime;
+		   try {
+			   this.printer.setEnableConsoleOutput(this.enableConsoleOutput);
+			   this.printer.setEnableLoggerFile(this.enableLoggerFile);
+			   net.setPrinter(this.printer);
 		   
+			   if(this.parserManager == null) {
+				   this.parserManager = new ParserManager();
+				   this.parserManager.setPrinter(this.printer);
+			   }
 		   
-		   this.printer.printIfLoggingIsEnabled("==================================================");
-		   this.printer.printIfLoggingIsEnabled("[CREATING FRAGMENTS AND SETTING RULES]");
-
-		   startTime = System.nanoTime();
+			   long totalStartTime = System.nanoTime();
 		   
+			   this.printer.printIfLoggingIsEnabled("==================================================");
+			   this.printer.printIfLoggingIsEnabled("[RACING SOLVER PORTFOLIO]");
+		   
+			   NetworkPartitioner partitioner = new NetworkPartitioner(this.printer);
+			   byte[] snapshot = partitioner.takeSnapshot(net);
+			   PortfolioRace race = new PortfolioRace();
+			   ExecutorService pool = Executors.newFixedThreadPool(this.portfolio.size());
+			   CompletionService<PortfolioRace.Entry> entries = new ExecutorCompletionService<PortfolioRace.Entry>(pool);
+		   
+			   for(SolverConfiguration configuration : this.portfolio) {
+				   Network copy = partitioner.restoreSnapshot(snapshot);
+				   this.printer.printIfLoggingIsEnabled("- Starting " + configuration);
+				   entries.submit(() -> this.runPortfolioEntry(copy, configuration, race));
+			   }
+		   
+			   PortfolioRace.Entry winner = null;
+		   
+			   for(int i = 0; i < this.portfolio.size() && winner == null; i++) {
+				   try {
+					   PortfolioRace.Entry entry = entries.take().get();
+				   
+					   if(entry.getStatus() != Status.UNKNOWN) {
+						   winner = entry;
+						   race.finish();
+					   }
+				   } catch (InterruptedException | ExecutionException e) {
+					   e.printStackTrace();
+				   }
+			   }
+		   
+			   race.finish();
+			   pool.shutdown();
+		   
+			   boolean successfullyScheduled = winner != null && winner.getStatus() == Status.SATISFIABLE;
+		   
+			   if(winner == null) {
+				   this.printer.printIfLoggingIsEnabled("No configuration of the portfolio reached an answer.");
+			   } else {
+				   this.printer.printIfLoggingIsEnabled("- Winner: " + winner.getConfiguration() + " with " + 
+						   winner.getStatus() + " in " + winner.getSolvingTime() + " seconds");
+			   
+				   net.addScheduleInfo("solverTactic", winner.getConfiguration().getTactic());
+				   net.addScheduleInfo("solverRandomSeed", winner.getConfiguration().getRandomSeed());
+				   net.addScheduleInfo("solvingTime", winner.getSolvingTime());
+				   net.addScheduleInfo("portfolioSize", this.portfolio.size());
+			   }
+		   
+			   if(successfullyScheduled) {
+				   partitioner.mergeComponent(net, winner.getNetwork());
+				   this.printer.generateLog("log.txt", net, null, null);
+				   net.setAllElementsToNotModified();
+				   this.exportSchedule(net);
+			   } else if(winner != null) {
+				   this.printer.printIfLoggingIsEnabled("The specified constraints MIGHT NOT be satisfiable.");
+			   }
+		   
+			   this.printer.printIfLoggingIsEnabled("\n==================================================");
+			   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) (System.nanoTime() - totalStartTime))/1000000000 + " seconds\n ");
+		   
+			   return successfullyScheduled;
+		   } finally {
+			   this.finishDeadline(outermost);
+		   }
+	   }
+	   
+	   
+	   /**
+	    * [Method]: runPortfolioEntry
+	    * [Usage]: Sets the rules of a copy of the network in a new z3
+	    * context and checks them with the solver of a configuration of
+	    * the portfolio. Runs on a worker thread, so it uses its own printer
+	    * with the logging disabled. If the race finishes while the solver
+	    * is running, the check is interrupted and returns unknown.
+	    * 
+	    * @param copy				Copy of the network owned by this entry
+	    * @param configuration		Solver configuration of this entry
+	    * @param race				Race shared by the entries of the portfolio
+	    * @return					Result of the entry
+	    */
+	   private PortfolioRace.Entry runPortfolioEntry(Network copy, SolverConfiguration configuration, PortfolioRace race) {
+		   Status status = Status.UNKNOWN;
+		   Printer entryPrinter = new Printer();
+		   entryPrinter.setEnableConsoleOutput(false);
+		   entryPrinter.setEnableLoggerFile(false);
+		   copy.setPrinter(entryPrinter);
+		   
+		   long startTime = System.nanoTime();
+		   
+		   Context ctx = this.createContext();
+		   
+		   try {
+			   Solver solver = configuration.createSolver(ctx);
+			   this.applySolverLimits(ctx, solver);
+			   
+			   this.configureNetwork(copy, ctx, solver);
+			   
+			   if(!this.cancellationHandle.isCancelled() && race.register(ctx)) {
+				   status = ConstraintSink.of(ctx, solver).check();
+				   race.unregister(ctx);
+			   }
+			   
+			   if(status == Status.SATISFIABLE && !race.isFinished()) {
+				   Model model = solver.getModel();
+				   new ModelExtractor(model, ctx).extractNetwork(copy);
+				   entryPrinter.generateLog("log.txt", copy, ctx, model);
+			   }
+		   } catch (Z3Exception e) {
+			   race.unregister(ctx);
+			   status = Status.UNKNOWN;
+		   }
 		   
-	       if(this.loadNetwork) {
-	    	   this.printer.printIfLoggingIsEnabled("- Loading network and modifications");
-	    	   //this.serializeNetwork = false; 
-	    	   net.createNewObjects();
-	    	   net.loadNetwork(ctx, solver);	
-	    	   Flow.setInstanceCounter(net.getFlows().size() + 1);
-	    	   if(net.getHasBeenModified()) {
-	    		   net.setSolverAndContextForNetModHandler(solver, ctx);
-	    		   net.applyChangesToSolver();	    		   
-	    	   }
-	    	   // Sets up the hard constraint for each individual flow in the network
-	           net.preventCollisionOnFirstHop(solver, ctx);
-			   net.assertFirstSendingTimeOfFlows(solver, ctx);
-	           net.secureHC(solver, ctx);
-	       } else {
-	    	   this.printer.printIfLoggingIsEnabled("- Creating network");
-	    	   this.configureNetwork(net, ctx, solver);	    	   
-	       }
-	       
-
-	       // A switch is picked in order to evaluate the unknown values
-           TSNSwitch switch1 = null;
-           switch1 = (TSNSwitch) net.getSwitches().get(0);
-           
-           /*
-            * The duration of the cycle is given as a question to z3, so all the 
-            * constraints will have to be evaluated in order to z3 to know this cycle
-            * duration 
-            */            
-           RealExpr switch1CycDuration = null;
-
-           for(Switch swt : net.getSwitches()) {
-        	   for(Port port : ((TSNSwitch)swt).getPorts()) {
-        		   if(port.getIsModifiedOrCreated()) {
-        			   switch1CycDuration = port.getCycle().getCycleDurationZ3();
-        			   break;
-        		   }
-        	   }
-           }
-           
-           if(switch1CycDuration == null) {
-        	   switch1CycDuration = switch1.getCycle(0).getCycleDurationZ3();
-           }
-           
-           
-           endTime = System.nanoTime();
-           totalTime = endTime-startTime;
-           
-	       /* find model for the constraints above */
-	       Model model = null;
-	       LocalTime time = LocalTime.now();
-	       
-	       this.printer.printIfLoggingIsEnabled("Time taken to set the rules: " + ((float) totalTime)/1000000000 + " seconds\n ");
-	       
-	       this.printer.printIfLoggingIsEnabled("\n==================================================");
-	       this.printer.printIfLoggingIsEnabled("[RULES SET. CHECKING SOLVER]");
-	       this.printer.printIfLoggingIsEnabled("Current time of the day: " + time);
-	       
-	       startTime = System.nanoTime();
-
-	       Status result = solver.check();
-	       if (Status.SATISFIABLE == result)
-	       {
-	    	   endTime = System.nanoTime();
-	    	   totalTime = endTime - startTime;
-	    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) totalTime)/1000000000 + " seconds ");
-	    	   this.printer.printIfLoggingIsEnabled("Number of assertions: " + solver.getAssertions().length);
-	           model = solver.getModel();
-	           
-	           /*
-	           for(BoolExpr exp : solver.getAssertions()) {
-	    		   System.out.println(exp);	    		   
-	    	   }
-	           */
-
-	           //System.out.println(model);
-	           
-
-   		       startTime = System.nanoTime();
-
-   		       this.printer.printIfLoggingIsEnabled("\n==================================================");
-   		       this.printer.printIfLoggingIsEnabled("[DATA LOGGING]");
-   	    	   
-   	   		   Expr v = model.evaluate(switch1CycDuration, false);
-	           if (v != null)
-	           {
-	        	   successfullyScheduled = true;
-	        	   net.setAllElementsToNotModified();
-	        	   
-	        	   if(this.exportModel) {
-	    	    	   printer.exportModel(solver);
-	    	       }
-	        	   
-            	   printer.generateLog("log.txt", net, ctx, model);   	            	   
-	        	   
-	        	   /*
-	        	   for(Flow f : net.getFlows()) {
-		        	   printer.printDataOnTree(f.getPathTree().getRoot(), model, ctx);  	        		   
-	        	   }
-	        	   */
-	        	   
-	               printer.printOnConsole(net);
-	    	       
-	    	       if(this.generateXMLFiles) {
-	    	    	   new XMLExporter(net);	    	   
-	    	       }
-	    	       
-	    	       //System.out.println("- Exporting model");
-		           //printer.exportModel(solver);
-	    	       
-	    	       if(this.serializeNetwork) {
-	    	    	   this.printer.printIfLoggingIsEnabled("- Serializing network");
-	    	    	   this.serializeNetwork(net, "network.ser");
-	    	       }
-	       
-	    	       if(this.generateSimulationFiles) {
-	    	    	   this.printer.printIfLoggingIsEnabled("- Generating simulation files");
-	    	    	   generateSimulationFiles(net);			   
-	    		   }
-	    	       
-	    	       if(this.generateJSONOutput) {
-					   this.parserManager.setEnablePacketTimeOutput(this.enablePacketTimeOutput);
-	    	    	   this.parserManager.parseOutput(net);	    	    	   
-	    	       }
-	    	       
-	           } else
-	           {
-	        	   this.printer.printIfLoggingIsEnabled("Failed to evaluate");
-	           }
-	       } else
-	       {
-	    	   endTime = System.nanoTime();
-	    	   totalTime = endTime - startTime;
-	    	   this.printer.printIfLoggingIsEnabled("The specified constraints MIGHT NOT be satisfiable.");
-	    	   this.printer.printIfLoggingIsEnabled("Time taken on solving: " + ((float) totalTime)/1000000000 + " seconds\n ");
-
-		       startTime = System.nanoTime();
-
-		       this.printer.printIfLoggingIsEnabled("\n==================================================");
-		       this.printer.printIfLoggingIsEnabled("[DATA LOGGING]");
-    	       if(this.exportModel) {
-    	    	   printer.exportModel(solver);
-    	       }	    	   	
-	           /*
-	           for(Flow f : net.getFlows()) {
-	        	   printer.printDataOnTree(f.getPathTree().getRoot(), model, ctx);  	        		   
-        	   }
-        	   */
-	       }
-	       
 		   this.closeContext(ctx);
 		   
-    	   endTime = System.nanoTime();
-    	   totalTime = endTime - startTime;
-    	   this.printer.printIfLoggingIsEnabled("Time taken on logging: " + ((float) totalTime)/1000000000 + " seconds");
-
-    	   this.printer.printIfLoggingIsEnabled("\n==================================================");
-
-		   long totalEndTime   = System.nanoTime();
-		   long totalExecutionTime = totalEndTime - totalStartTime;
-		
-		   this.printer.printIfLoggingIsEnabled("Execution time: " + ((float) totalExecutionTime)/1000000000 + " seconds\n ");
-
-		   return successfullyScheduled;
+		   return new PortfolioRace.Entry(configuration, copy, status, ((float) (System.nanoTime() - startTime))/1000000000);
 	   }
 	   
 	   
@@ -467,14 +1503,20 @@ public class ScheduleGenerator {
 
 
 	   /**
-	    * [Method]: serializateNetwork
-	    * [Usage]: Serialize the primitive objects of the network object.
-	    * The serialized file is stored in the path string folder. Can be used
-	    * to store the data of a network and the values of the generated 
-	    * schedule.
+	    * [Method]: serializeNetwork
+	    * [Usage]: Stores the network and the values of its schedule in a
+	    * snapshot file (see NetworkSnapshot). Can be used to load the
+	    * network and its schedule in a later execution.
 	    * 
-	    * @param net		Network object to be serialized
-	    * @param path		Path of for the serialized object file
+	    * If a journal path is set and the network was loaded from the same
+	    * snapshot, the snapshot is only written again (compacting the
+	    * journal) once the journal holds the given number of changes.
+	    * Until then, the changes are kept in the journal only, and the
+	    * ones since the last compaction are scheduled again when the
+	    * network is loaded.
+	    * 
+	    * @param net		Network object to be stored
+	    * @param path		Path of the snapshot file
 	    */
 	   public void serializeNetwork(Network net, String path) {
 		   
@@ -487,36 +1529,55 @@ public class ScheduleGenerator {
 			   }			   
 		   }
 		   
-	    	try {
-	            FileOutputStream fileOut = new FileOutputStream(path);
-	            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-	            out.writeObject(net);
-	            out.close();
-	            fileOut.close();
-	            this.printer.printIfLoggingIsEnabled("Serialized data is saved in network.ser");
-	         } catch (Exception i) {
-	            i.printStackTrace();
-	         }
+		   NetworkJournal journal = net.getJournal();
+		   
+		   if(this.journalPath != null && journal != null && journal.getNumOfRecords() < this.journalCompactionThreshold &&
+				   path.equals(journal.getSnapshotPath())) {
+			   this.printer.printIfLoggingIsEnabled("- " + journal.getNumOfRecords() + " change(s) kept in the journal " + journal.getPath());
+			   return;
+		   }
+		   
+		   try {
+			   if(this.journalPath != null) {
+				   NetworkJournal.compact(net, path, this.journalPath);
+				   this.printer.printIfLoggingIsEnabled("Serialized data is saved in " + path + ", with an empty journal in " + this.journalPath);
+			   } else {
+				   NetworkSnapshot.write(net, path);
+				   this.printer.printIfLoggingIsEnabled("Serialized data is saved in " + path);
+			   }
+		   } catch (IOException e) {
+			   this.printer.printIfLoggingIsEnabled("[ERROR] Could not save the network in " + path + ": " + e.getMessage());
+		   }
 	    }
 	   
 	   /**
 	    * [Method]: deserializeNetwork
-	    * [Usage]: From a serialized object file, load the primitive
-	    * values of the stored object.
+	    * [Usage]: Loads a network and the values of its schedule from a
+	    * snapshot file. Networks serialized by previous versions (java
+	    * serialization) are still loaded, and can be converted to
+	    * snapshots with NetworkSnapshot.
 	    * 
-	    * @param path		Path of the serialized object file
+	    * If a journal path is set, the changes of the journal are replayed
+	    * on the network loaded, and the next changes are appended to it.
+	    * 
+	    * @param path		Path of the snapshot or serialized network
 	    * @return			The network object with all its primitive values
 	    */
 	   public Network deserializeNetwork(String path) {
 		   Network net = null;
 		   
 		   try {
-	           FileInputStream fileIn = new FileInputStream(path);
-	           ObjectInputStream in = new ObjectInputStream(fileIn);
-	           net = (Network) in.readObject();
-	           net.setNetModHandler(new NetworkModificationHandler());
-	           in.close();
-	           fileIn.close();			   
+			   if(NetworkSnapshot.isSnapshot(path)) {
+				   net = NetworkSnapshot.read(path);
+			   } else {
+				   this.printer.printIfLoggingIsEnabled("- Loading network serialized by a previous version from " + path);
+				   
+				   try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+					   net = (Network) in.readObject();
+				   }
+				   
+				   net.setNetModHandler(new NetworkModificationHandler());
+			   }
 		   } catch (Exception i) {
  	           i.printStackTrace();
 	           return null;
@@ -530,6 +1591,25 @@ public class ScheduleGenerator {
 		   
 		   this.loadInstanceCounters(net);
 		   
+		   if(this.journalPath != null) {
+			   try {
+				   NetworkJournal journal = NetworkJournal.open(this.journalPath, path);
+				   
+				   if(journal.isStale()) {
+					   this.printer.printIfLoggingIsEnabled("- Journal " + this.journalPath + " belongs to a previous snapshot, started again");
+				   } else if(journal.getNumOfDiscardedBytes() > 0) {
+					   this.printer.printIfLoggingIsEnabled("- Discarded " + journal.getNumOfDiscardedBytes() + " byte(s) of an incomplete change at the end of the journal");
+				   }
+				   
+				   int numOfChanges = journal.replay(net);
+				   net.setJournal(journal);
+				   this.printer.printIfLoggingIsEnabled("- Replayed " + numOfChanges + " change(s) from the journal " + this.journalPath);
+			   } catch (IOException e) {
+				   e.printStackTrace();
+				   return null;
+			   }
+		   }
+		   
 		   return net;
 	   }
 	   
@@ -602,6 +1682,75 @@ public class ScheduleGenerator {
 					case "-enablePacketTimeOutput":
 						this.enablePacketTimeOutput=true;
 						break;
+					case "-compactOutput":
+						this.compactOutput=true;
+						break;
+					case "-parallelPartitions":
+						this.useParallelPartitions=true;
+						break;
+					case "-portfolio":
+						this.usePortfolio=true;
+						break;
+					case "-encoding=compact":
+						this.encodingMode=EncodingMode.COMPACT;
+						break;
+					case "-encoding=standard":
+						this.encodingMode=EncodingMode.STANDARD;
+						break;
+					case "-breakSymmetries":
+						this.breakSymmetries=true;
+						break;
+					case "-diagnoseConflicts":
+						this.diagnoseConflicts=true;
+						break;
+					case "-shedFlows":
+						this.shedConflictingFlows=true;
+						break;
+					case "-lazyPairwise":
+						this.lazyPairwiseRules=true;
+						break;
+					case "-slotIndicators":
+						this.useSlotIndicators=true;
+						break;
+					case "-useCache":
+						this.useScheduleCache=true;
+						break;
+					case "-noCache":
+						this.useScheduleCache=false;
+						break;
+					default:
+						if(argument.startsWith("-snapshotPath=")) {
+							this.snapshotPath=argument.substring("-snapshotPath=".length());
+						} else if(argument.startsWith("-journalPath=")) {
+							this.journalPath=argument.substring("-journalPath=".length());
+						} else if(argument.startsWith("-journalCompaction=")) {
+							this.journalCompactionThreshold=Integer.parseInt(argument.substring("-journalCompaction=".length()));
+						} else if(argument.startsWith("-incrementalBatch=")) {
+							this.incrementalBatchSize=Integer.parseInt(argument.substring("-incrementalBatch=".length()));
+						} else if(argument.startsWith("-timeout=")) {
+							this.solveTimeout=Integer.parseInt(argument.substring("-timeout=".length()));
+						} else if(argument.startsWith("-rlimit=")) {
+							this.solveResourceLimit=Integer.parseInt(argument.substring("-rlimit=".length()));
+						} else if(argument.startsWith("-portfolio=")) {
+							this.usePortfolio=true;
+							this.portfolio=SolverConfiguration.parsePortfolio(argument.substring("-portfolio=".length()));
+						} else if(argument.startsWith("-optimize=")) {
+							this.objectives = new ArrayList<OptimizationObjective>();
+							for(String objective : argument.substring("-optimize=".length()).split(",")) {
+								this.objectives.add(OptimizationObjective.valueOf(objective.trim().toUpperCase()));
+							}
+						} else if(argument.startsWith("-warmStart=")) {
+							this.warmStartPath=argument.substring("-warmStart=".length());
+						} else if(argument.startsWith("-engine=")) {
+							this.schedulingEngine=SchedulingEngine.valueOf(argument.substring("-engine=".length()).toUpperCase());
+						} else if(argument.startsWith("-outputPath=")) {
+							this.outputPath=argument.substring("-outputPath=".length());
+						} else if(argument.startsWith("-cacheDir=")) {
+							this.cacheDirectory=argument.substring("-cacheDir=".length());
+						} else if(argument.startsWith("-cacheSize=")) {
+							this.cacheMaximumSize=Long.parseLong(argument.substring("-cacheSize=".length())) * 1024 * 1024;
+						}
+						break;
 
 				}
 				
@@ -680,6 +1829,306 @@ public class ScheduleGenerator {
 		public void setEnablePacketTimeOutput(Boolean enablePacketTimeOutput) {
 			this.enablePacketTimeOutput = enablePacketTimeOutput;
 		}
+
+		public String getOutputPath() {
+			return outputPath;
+		}
+
+		/**
+		 * [Method]: setOutputPath
+		 * [Usage]: Sets the path of the JSON output file.
+		 */
+		public void setOutputPath(String outputPath) {
+			this.outputPath = outputPath;
+		}
+
+		public String getSnapshotPath() {
+			return snapshotPath;
+		}
+
+		/**
+		 * [Method]: setSnapshotPath
+		 * [Usage]: Sets the path of the snapshot file written when
+		 * the network is serialized.
+		 */
+		public void setSnapshotPath(String snapshotPath) {
+			this.snapshotPath = snapshotPath;
+		}
+
+		public String getJournalPath() {
+			return journalPath;
+		}
+
+		/**
+		 * [Method]: setJournalPath
+		 * [Usage]: Sets the path of the journal to which the changes made
+		 * to a loaded network are appended (see NetworkJournal). Null for
+		 * no journal.
+		 */
+		public void setJournalPath(String journalPath) {
+			this.journalPath = journalPath;
+		}
+
+		public int getJournalCompactionThreshold() {
+			return journalCompactionThreshold;
+		}
+
+		/**
+		 * [Method]: setJournalCompactionThreshold
+		 * [Usage]: Sets the number of changes kept in the journal before
+		 * the snapshot is written again and the journal is emptied.
+		 */
+		public void setJournalCompactionThreshold(int journalCompactionThreshold) {
+			this.journalCompactionThreshold = journalCompactionThreshold;
+		}
+
+		public Boolean getCompactOutput() {
+			return compactOutput;
+		}
+
+		/**
+		 * [Method]: setCompactOutput
+		 * [Usage]: If set to true, the JSON output is written
+		 * in a single line, without indentation.
+		 */
+		public void setCompactOutput(Boolean compactOutput) {
+			this.compactOutput = compactOutput;
+		}
+
+		public Boolean getUseParallelPartitions() {
+			return useParallelPartitions;
+		}
+
+		public void setUseParallelPartitions(Boolean useParallelPartitions) {
+			this.useParallelPartitions = useParallelPartitions;
+		}
+
+		public int getPartitionThreads() {
+			return partitionThreads;
+		}
+
+		public void setPartitionThreads(int partitionThreads) {
+			this.partitionThreads = partitionThreads;
+		}
+
+		public EncodingMode getEncodingMode() {
+			return encodingMode;
+		}
+
+		public void setEncodingMode(EncodingMode encodingMode) {
+			this.encodingMode = encodingMode;
+		}
+
+		public SolverConfiguration getSolverConfiguration() {
+			return solverConfiguration;
+		}
+
+		public void setSolverConfiguration(SolverConfiguration solverConfiguration) {
+			this.solverConfiguration = solverConfiguration;
+		}
+
+		public Boolean getUsePortfolio() {
+			return usePortfolio;
+		}
+
+		public void setUsePortfolio(Boolean usePortfolio) {
+			this.usePortfolio = usePortfolio;
+		}
+
+		public int getSolveTimeout() {
+			return solveTimeout;
+		}
+
+		public void setSolveTimeout(int solveTimeout) {
+			this.solveTimeout = solveTimeout;
+		}
+
+		public int getSolveResourceLimit() {
+			return solveResourceLimit;
+		}
+
+		public void setSolveResourceLimit(int solveResourceLimit) {
+			this.solveResourceLimit = solveResourceLimit;
+		}
+
+		public CancellationHandle getCancellationHandle() {
+			return cancellationHandle;
+		}
+
+		/**
+		 * [Method]: cancel
+		 * [Usage]: Cancels the schedule being generated. Can be
+		 * called from another thread. No output is generated for
+		 * a cancelled schedule.
+		 */
+		public void cancel() {
+			this.cancellationHandle.cancel();
+		}
+
+		public String getWarmStartPath() {
+			return warmStartPath;
+		}
+
+		/**
+		 * [Method]: setWarmStartPath
+		 * [Usage]: Sets the previous schedule (JSON output or serialized
+		 * network) used as a hint for the solver, or null for none.
+		 */
+		public void setWarmStartPath(String warmStartPath) {
+			this.warmStartPath = warmStartPath;
+		}
+
+		public SchedulingEngine getSchedulingEngine() {
+			return schedulingEngine;
+		}
+
+		/**
+		 * [Method]: setSchedulingEngine
+		 * [Usage]: Sets whether schedules are generated by z3, by the
+		 * greedy pre-scheduler with z3 as a fallback, or by the greedy
+		 * pre-scheduler followed by z3 starting from its schedule.
+		 */
+		public void setSchedulingEngine(SchedulingEngine schedulingEngine) {
+			this.schedulingEngine = schedulingEngine;
+		}
+
+		public Boolean getBreakSymmetries() {
+			return breakSymmetries;
+		}
+
+		public void setBreakSymmetries(Boolean breakSymmetries) {
+			this.breakSymmetries = breakSymmetries;
+		}
+
+		public Boolean getDiagnoseConflicts() {
+			return diagnoseConflicts;
+		}
+
+		/**
+		 * [Method]: setDiagnoseConflicts
+		 * [Usage]: Sets whether the flows and ports in conflict are
+		 * searched for when the network can not be scheduled.
+		 */
+		public void setDiagnoseConflicts(Boolean diagnoseConflicts) {
+			this.diagnoseConflicts = diagnoseConflicts;
+		}
+
+		public Boolean getShedConflictingFlows() {
+			return shedConflictingFlows;
+		}
+
+		/**
+		 * [Method]: setShedConflictingFlows
+		 * [Usage]: Sets whether the flows of lowest priority of each
+		 * conflict are left out until the network can be scheduled.
+		 */
+		public void setShedConflictingFlows(Boolean shedConflictingFlows) {
+			this.shedConflictingFlows = shedConflictingFlows;
+		}
+
+		public Boolean getLazyPairwiseRules() {
+			return lazyPairwiseRules;
+		}
+
+		/**
+		 * [Method]: setLazyPairwiseRules
+		 * [Usage]: Sets whether the FIFO rules between packets of
+		 * different flows and the collision rules of the first hop
+		 * are only added when a schedule found violates them.
+		 */
+		public void setLazyPairwiseRules(Boolean lazyPairwiseRules) {
+			this.lazyPairwiseRules = lazyPairwiseRules;
+		}
+
+		public Boolean getUseSlotIndicators() {
+			return useSlotIndicators;
+		}
+
+		/**
+		 * [Method]: setUseSlotIndicators
+		 * [Usage]: Sets whether the non-used slots of the ports are
+		 * zeroed out through a "used" indicator per slot instead of
+		 * the disjunction over every packet and cycle.
+		 */
+		public void setUseSlotIndicators(Boolean useSlotIndicators) {
+			this.useSlotIndicators = useSlotIndicators;
+		}
+
+		public Status getLastSolverStatus() {
+			return lastSolverStatus;
+		}
+
+		public int getLastNumOfAssertions() {
+			return lastNumOfAssertions;
+		}
+
+		/**
+		 * [Method]: getLastOutcome
+		 * [Usage]: Returns whether the last network given to the
+		 * generator was fully scheduled, partially scheduled (some
+		 * flows were left out and the others exported) or not scheduled.
+		 * The status of the solver alone can not tell a partial schedule
+		 * apart, since the last check of a partial schedule may have
+		 * failed for the flows left out.
+		 *
+		 * @return		Outcome of the last schedule, null if none was attempted
+		 */
+		public ScheduleOutcome getLastOutcome() {
+			return lastOutcome;
+		}
+
+		public Boolean getUseScheduleCache() {
+			return useScheduleCache;
+		}
+
+		public void setUseScheduleCache(Boolean useScheduleCache) {
+			this.useScheduleCache = useScheduleCache;
+		}
+
+		public String getCacheDirectory() {
+			return cacheDirectory;
+		}
+
+		public void setCacheDirectory(String cacheDirectory) {
+			this.cacheDirectory = cacheDirectory;
+		}
+
+		public long getCacheMaximumSize() {
+			return cacheMaximumSize;
+		}
+
+		public void setCacheMaximumSize(long cacheMaximumSize) {
+			this.cacheMaximumSize = cacheMaximumSize;
+		}
+
+		public ArrayList<OptimizationObjective> getObjectives() {
+			return objectives;
+		}
+
+		/**
+		 * [Method]: setObjectives
+		 * [Usage]: Sets the objectives minimized by the solver, in
+		 * lexicographic order. An empty list disables the optimization.
+		 */
+		public void setObjectives(ArrayList<OptimizationObjective> objectives) {
+			this.objectives = objectives;
+		}
+
+		public int getIncrementalBatchSize() {
+			return incrementalBatchSize;
+		}
+
+		public void setIncrementalBatchSize(int incrementalBatchSize) {
+			this.incrementalBatchSize = incrementalBatchSize;
+		}
+
+		public ArrayList<SolverConfiguration> getPortfolio() {
+			return portfolio;
+		}
+
+		public void setPortfolio(ArrayList<SolverConfiguration> portfolio) {
+			this.portfolio = portfolio;
+		}
 		
 		
 }
@@ -0,0 +1,270 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.ConstraintSink;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.components.Z3ExpressionCache;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ScheduleOptimizer
+ * [Usage]: Looks for the schedule that minimizes a list of objectives
+ * instead of the first feasible one. The scheduling rules are still set
+ * on a regular solver, and its assertions are given to a z3 optimize
+ * object together with the objectives. Objectives are minimized in
+ * lexicographic order: the first one in the list has the highest
+ * priority. If the time limit is reached, the best schedule found so
+ * far is used.
+ */
+public class ScheduleOptimizer {
+
+	private Network net;
+	private Context ctx;
+	private Printer printer;
+	private List<OptimizationObjective> objectives;
+	private ArrayList<RealExpr> objectiveTerms = new ArrayList<RealExpr>();
+
+	private Status status = Status.UNKNOWN;
+	private Model model = null;
+
+
+	public ScheduleOptimizer(Network net, Context ctx, List<OptimizationObjective> objectives, Printer printer) {
+		this.net = net;
+		this.ctx = ctx;
+		this.objectives = objectives;
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: setUpObjectives
+	 * [Usage]: Creates the z3 term of each objective. Auxiliary
+	 * variables needed by the terms are defined through assertions
+	 * added to the given solver. Must be called after the scheduling
+	 * rules are set.
+	 *
+	 * @param solver	Solver containing the scheduling rules
+	 */
+	public void setUpObjectives(Solver solver) {
+		for(OptimizationObjective objective : this.objectives) {
+			switch(objective) {
+				case LATENCY:
+					this.objectiveTerms.add(this.getSumOfLatencies());
+					break;
+				case JITTER:
+					this.objectiveTerms.add(this.getMaximumJitter(solver));
+					break;
+				case GATE_OPEN_TIME:
+					this.objectiveTerms.add(this.getGateOpenTime());
+					break;
+			}
+		}
+	}
+
+
+	/**
+	 * [Method]: optimize
+	 * [Usage]: Minimizes the objectives over the assertions of the
+	 * solver. Returns satisfiable if the optimum was found. If the
+	 * limits are reached, unknown is returned, but the best model
+	 * found so far can still be retrieved with getModel.
+	 *
+	 * @param solver	Solver containing the scheduling rules
+	 * @param limits	Time and resource limits, or null for none
+	 * @return			Status of the optimization
+	 */
+	public Status optimize(Solver solver, Params limits) {
+		Optimize optimize = this.ctx.mkOptimize();
+
+		try {
+			Params params = this.ctx.mkParams();
+			params.add("priority", "lex");
+			optimize.setParameters(params);
+
+			if(limits != null) {
+				optimize.setParameters(limits);
+			}
+		} catch (Z3Exception e) {
+			this.printer.printIfLoggingIsEnabled("Z3 Managed Exception: " + e.getMessage());
+		}
+
+		ConstraintSink.of(this.ctx, solver).flush();
+		optimize.Add(solver.getAssertions());
+
+		for(RealExpr term : this.objectiveTerms) {
+			optimize.MkMinimize(term);
+		}
+
+		this.status = optimize.Check();
+
+		if(this.status == Status.SATISFIABLE) {
+			this.model = optimize.getModel();
+		} else if(this.status == Status.UNKNOWN) {
+			this.printer.printIfLoggingIsEnabled("Optimization stopped: " + optimize.getReasonUnknown());
+
+			try {
+				this.model = optimize.getModel();
+			} catch (Z3Exception e) {
+				this.model = null;
+			}
+		}
+
+		return this.status;
+	}
+
+
+	/**
+	 * [Method]: reportObjectives
+	 * [Usage]: Stores the objectives, their values in the model and
+	 * whether the optimum was reached in the schedule information of
+	 * the network, so they are exported with the schedule.
+	 */
+	public void reportObjectives() {
+		if(this.objectives.isEmpty()) {
+			return;
+		}
+
+		ArrayList<LinkedHashMap<String, Object>> report = new ArrayList<LinkedHashMap<String, Object>>();
+
+		for(int i = 0; i < this.objectives.size(); i++) {
+			LinkedHashMap<String, Object> entry = new LinkedHashMap<String, Object>();
+			double value = ModelExtractor.toDouble(this.model.eval(this.objectiveTerms.get(i), true));
+
+			entry.put("objective", this.objectives.get(i).toString().toLowerCase());
+			entry.put("value", value);
+			report.add(entry);
+
+			this.printer.printIfLoggingIsEnabled("- Objective " + this.objectives.get(i) + ": " + value);
+		}
+
+		this.net.addScheduleInfo("objectives", report);
+		this.net.addScheduleInfo("optimal", this.status == Status.SATISFIABLE);
+	}
+
+
+	/*
+	 * Latency of a packet of a flow to one of its subscribers, from
+	 * the moment it starts being sent by the publisher until it is
+	 * scheduled on the last switch, as bounded by the hard constraint.
+	 */
+	private RealExpr getLatency(Flow flw, Device dev, int index) {
+		Z3ExpressionCache z3Cache = Z3ExpressionCache.of(this.ctx);
+		ArrayList<PathNode> nodes = flw.getNodesFromRootToNode(dev);
+		ArrayList<FlowFragment> flowFrags = flw.getFlowFromRootToNode(dev);
+
+		TSNSwitch firstSwitchInPath = (TSNSwitch) nodes.get(1).getNode();
+		TSNSwitch lastSwitchInPath = (TSNSwitch) nodes.get(nodes.size() - 2).getNode();
+
+		return (RealExpr) this.ctx.mkAdd(
+			z3Cache.mkReal(flw.getPacketSize()/firstSwitchInPath.getPortOf(flw.getStartDeviceName()).getPortSpeed()),
+			this.ctx.mkSub(
+				lastSwitchInPath.scheduledTime(this.ctx, index, flowFrags.get(flowFrags.size() - 1)),
+				firstSwitchInPath.departureTime(this.ctx, index, flowFrags.get(0))
+			)
+		);
+	}
+
+	private RealExpr getSumOfLatencies() {
+		ArrayList<RealExpr> latencies = new ArrayList<RealExpr>();
+
+		for(Flow flw : this.net.getFlows()) {
+			for(PathNode leaf : flw.getPathTree().getLeaves()) {
+				for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+					latencies.add(this.getLatency(flw, (Device) leaf.getNode(), i));
+				}
+			}
+		}
+
+		return this.sum(latencies);
+	}
+
+	/*
+	 * The jitter of a packet is the distance between its latency and the
+	 * average latency of the packets of the flow to the same subscriber.
+	 * A single variable bounds the jitter of every packet from above, so
+	 * minimizing it minimizes the maximum jitter.
+	 */
+	private RealExpr getMaximumJitter(Solver solver) {
+		RealExpr maximumJitter = this.ctx.mkRealConst("networkMaximumJitter");
+
+		solver.add(this.ctx.mkGe(maximumJitter, this.ctx.mkReal(0)));
+
+		for(Flow flw : this.net.getFlows()) {
+			for(PathNode leaf : flw.getPathTree().getLeaves()) {
+				ArrayList<RealExpr> latencies = new ArrayList<RealExpr>();
+
+				for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+					latencies.add(this.getLatency(flw, (Device) leaf.getNode(), i));
+				}
+
+				RealExpr avgLatency = (RealExpr) this.ctx.mkDiv(this.sum(latencies), this.ctx.mkReal(latencies.size()));
+
+				for(RealExpr latency : latencies) {
+					solver.add(this.ctx.mkGe(maximumJitter, this.ctx.mkSub(latency, avgLatency)));
+					solver.add(this.ctx.mkGe(maximumJitter, this.ctx.mkSub(avgLatency, latency)));
+				}
+			}
+		}
+
+		return maximumJitter;
+	}
+
+	private RealExpr getGateOpenTime() {
+		ArrayList<RealExpr> slotDurations = new ArrayList<RealExpr>();
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				Cycle cycle = port.getCycle();
+
+				if(port.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				for(int prt = 0; prt < cycle.getNumOfPrts(); prt++) {
+					for(int index = 0; index < cycle.getNumOfSlots(prt); index++) {
+						slotDurations.add(cycle.slotDurationZ3(this.ctx, prt, index));
+					}
+				}
+			}
+		}
+
+		return this.sum(slotDurations);
+	}
+
+	private RealExpr sum(List<RealExpr> terms) {
+		if(terms.isEmpty()) {
+			return this.ctx.mkReal(0);
+		}
+
+		return (RealExpr) this.ctx.mkAdd(terms.toArray(new RealExpr[0]));
+	}
+
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Model getModel() {
+		return model;
+	}
+
+}
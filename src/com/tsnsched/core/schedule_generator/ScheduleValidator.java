@@ -0,0 +1,551 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.PathNode;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Device;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: ScheduleValidator
+ * [Usage]: Checks the values of a schedule stored in the network objects
+ * against the rules of the z3 encoding, without using a solver. Used on
+ * schedules that were not built by z3 before they are exported. Every
+ * rule that does not hold is reported along with the port or flow where
+ * it was found. Only the slots of the priorities used on a port are
+ * checked, since they are the only ones stored after scheduling.
+ */
+public class ScheduleValidator {
+
+	private static final double TOLERANCE = 1e-6;
+	private static final int MAXIMUM_LOGGED_VIOLATIONS = 10;
+
+	private Network net;
+	private Printer printer;
+	private ArrayList<String> violations = new ArrayList<String>();
+
+
+	public ScheduleValidator(Network net, Printer printer) {
+		this.net = net;
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: validate
+	 * [Usage]: Checks the cycles and slots of every port with fragments,
+	 * the packet times of every fragment, the latency and jitter of every
+	 * flow and the collisions on the first hop of every device.
+	 *
+	 * @return		Description of each rule that does not hold, empty if the schedule is valid
+	 */
+	public List<String> validate() {
+		this.violations = new ArrayList<String>();
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(!port.getFlowFragments().isEmpty()) {
+					this.validatePort((TSNSwitch) swt, port);
+				}
+			}
+		}
+
+		for(Flow flw : this.net.getFlows()) {
+			this.validateFlow(flw);
+		}
+
+		for(Device dev : this.net.getDevices()) {
+			this.validateFirstHop(dev);
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Schedule validation: " + this.violations.size() + " violation(s)");
+
+		for(int i = 0; i < Math.min(MAXIMUM_LOGGED_VIOLATIONS, this.violations.size()); i++) {
+			this.printer.printIfLoggingIsEnabled("    " + this.violations.get(i));
+		}
+
+		return this.violations;
+	}
+
+
+	/*
+	 * Cycle, slot and packet rules of a single port.
+	 */
+	private void validatePort(TSNSwitch swt, Port port) {
+		Cycle cycle = port.getCycle();
+		String portName = swt.getName() + "." + port.getName();
+		double cycleStart = cycle.getFirstCycleStart();
+		double cycleDuration = cycle.getCycleDuration();
+		double guardBand = port.getGbSize() / port.getPortSpeed();
+		ArrayList<Integer> priorities = cycle.getSlotsUsed();
+
+		if(cycleStart < -TOLERANCE) {
+			this.report(portName + ": cycle starts at " + cycleStart);
+		}
+
+		if(swt.getUseSameCycleStart() && swt.getFirstCycleStart() != null &&
+		   Math.abs(cycleStart - swt.getFirstCycleStart()) > TOLERANCE) {
+			this.report(portName + ": cycle does not start with the switch at " + swt.getFirstCycleStart());
+		}
+
+		if(port.getUseHyperCycle() && !port.getUseMicroCycles() &&
+		   Math.abs(cycleDuration - port.getDefinedHyperCycleSize()) > TOLERANCE) {
+			this.report(portName + ": cycle lasts " + cycleDuration + " instead of the hyper cycle " + port.getDefinedHyperCycleSize());
+		}
+
+		for(int prt : priorities) {
+			if(prt < 0 || prt >= cycle.getNumOfPrts()) {
+				this.report(portName + ": slots for invalid priority " + prt);
+				continue;
+			}
+
+			ArrayList<Double> starts = cycle.getSlotStartList(prt);
+			ArrayList<Double> durations = cycle.getSlotDurationList(prt);
+
+			if(starts.size() != cycle.getNumOfSlots(prt)) {
+				this.report(portName + ": " + starts.size() + " slots for priority " + prt + " instead of " + cycle.getNumOfSlots(prt));
+			}
+
+			for(int index = 0; index < starts.size(); index++) {
+				double start = starts.get(index);
+				double duration = durations.get(index);
+
+				if(start < -TOLERANCE || duration < -TOLERANCE || start + duration > cycleDuration + TOLERANCE) {
+					this.report(portName + ": slot " + index + " of priority " + prt + " is outside of the cycle");
+				}
+
+				if(duration > cycle.getMaximumSlotDuration() + TOLERANCE) {
+					this.report(portName + ": slot " + index + " of priority " + prt + " is longer than the maximum");
+				}
+
+				if(index < starts.size() - 1 && start + duration > starts.get(index + 1) + TOLERANCE) {
+					this.report(portName + ": slots " + index + " and " + (index + 1) + " of priority " + prt + " are out of order");
+				}
+
+				if(duration > TOLERANCE && !this.hasTransmissionInside(port, cycleStart + start, cycleStart + start + duration)) {
+					this.report(portName + ": slot " + index + " of priority " + prt + " is open without transmissions");
+				}
+
+				for(int auxPrt : priorities) {
+					if(auxPrt == prt || auxPrt < 0 || auxPrt >= cycle.getNumOfPrts()) {
+						continue;
+					}
+
+					for(int auxIndex = 0; auxIndex < cycle.getSlotStartList(auxPrt).size(); auxIndex++) {
+						double auxStart = cycle.getSlotStart(auxPrt, auxIndex);
+						double auxEnd = auxStart + cycle.getSlotDuration(auxPrt, auxIndex);
+
+						if(start < auxEnd - TOLERANCE && start + duration > auxStart + TOLERANCE) {
+							this.report(portName + ": slots of priorities " + prt + " and " + auxPrt + " overlap");
+						}
+
+						if(start > auxStart + TOLERANCE && Math.abs(start - auxEnd) > TOLERANCE &&
+						   start < auxEnd + guardBand - TOLERANCE) {
+							this.report(portName + ": no guard band between slots of priorities " + auxPrt + " and " + prt);
+						}
+					}
+				}
+			}
+		}
+
+		for(FlowFragment frag : port.getFlowFragments()) {
+			this.validatePackets(portName, port, frag);
+		}
+
+		this.validateQueue(portName, port);
+	}
+
+	private void validatePackets(String portName, Port port, FlowFragment frag) {
+		Cycle cycle = port.getCycle();
+		double cycleStart = cycle.getFirstCycleStart();
+		double transmissionTime = frag.getParent().getPacketSize() / port.getPortSpeed();
+		int prt = frag.getFragmentPriority();
+
+		if(!cycle.getSlotsUsed().contains(prt)) {
+			this.report(portName + ": no slots for priority " + prt + " of " + frag.getName());
+			return;
+		}
+
+		if(frag.getScheduledTimeList().size() < frag.getNumOfPacketsSent()) {
+			this.report(portName + ": missing packet times of " + frag.getName());
+			return;
+		}
+
+		ArrayList<Double> starts = cycle.getSlotStartList(prt);
+		ArrayList<Double> durations = cycle.getSlotDurationList(prt);
+
+		if(cycleStart > frag.getArrivalTime(0) + TOLERANCE) {
+			this.report(portName + ": cycle starts after the first arrival of " + frag.getName());
+		}
+
+		for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+			double arrival = frag.getArrivalTime(i);
+			double scheduled = frag.getScheduledTime(i);
+			String packetName = frag.getName() + "(" + i + ")";
+			boolean insideSlot = false;
+
+			if(Math.abs(arrival - frag.getDepartureTime(i) - port.getTimeToTravel()) > TOLERANCE) {
+				this.report(portName + ": arrival of " + packetName + " does not match its departure");
+			}
+
+			if(scheduled < arrival + transmissionTime - TOLERANCE) {
+				this.report(portName + ": " + packetName + " is scheduled before it can be transmitted");
+			}
+
+			if(i < frag.getNumOfPacketsSent() - 1 && frag.getScheduledTime(i + 1) < scheduled + transmissionTime - TOLERANCE) {
+				this.report(portName + ": " + packetName + " overlaps the next packet of its fragment");
+			}
+
+			for(int index = 0; index < starts.size(); index++) {
+				if(scheduled >= cycleStart + starts.get(index) + transmissionTime - TOLERANCE &&
+				   scheduled <= cycleStart + starts.get(index) + durations.get(index) + TOLERANCE) {
+					insideSlot = true;
+				}
+			}
+
+			if(!insideSlot) {
+				this.report(portName + ": " + packetName + " is not transmitted inside a slot of priority " + prt);
+			}
+
+			if(!this.isFollowedByQueuedPackets(port, frag, i)) {
+				this.validateSlotOfArrival(portName, cycle, frag, i, transmissionTime, starts, durations);
+			}
+
+			for(FlowFragment auxFrag : port.getFlowFragments()) {
+				if(auxFrag.getFragmentPriority() != prt) {
+					continue;
+				}
+
+				for(int j = 0; j < auxFrag.getNumOfPacketsSent() && j < auxFrag.getScheduledTimeList().size(); j++) {
+					if(auxFrag == frag && i == j) {
+						continue;
+					}
+
+					double auxTransmissionTime = auxFrag.getParent().getPacketSize() / port.getPortSpeed();
+					double interframeGap = port.getInterframeGapSize() / port.getPortSpeed();
+
+					if(arrival > auxFrag.getArrivalTime(j) ?
+					   scheduled < auxFrag.getScheduledTime(j) + transmissionTime + interframeGap - TOLERANCE :
+					   scheduled > auxFrag.getScheduledTime(j) - auxTransmissionTime - interframeGap + TOLERANCE) {
+						this.report(portName + ": " + packetName + " and " + auxFrag.getName() + "(" + j + ") break the queue order");
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * A packet that arrives during a slot is sent right away, one that
+	 * arrives between slots waits for the next one, and no packet can be
+	 * sent after the last slot of its priority.
+	 */
+	private void validateSlotOfArrival(String portName, Cycle cycle, FlowFragment frag, int i, double transmissionTime,
+									   ArrayList<Double> starts, ArrayList<Double> durations) {
+		double cycleStart = cycle.getFirstCycleStart();
+		double arrival = frag.getArrivalTime(i);
+		double scheduled = frag.getScheduledTime(i);
+		String packetName = frag.getName() + "(" + i + ")";
+
+		for(int index = 0; index < starts.size(); index++) {
+			double slotStart = cycleStart + starts.get(index);
+			double slotEnd = slotStart + durations.get(index);
+
+			if(arrival >= slotStart - TOLERANCE && arrival <= slotEnd - transmissionTime + TOLERANCE &&
+			   Math.abs(scheduled - arrival - transmissionTime) > TOLERANCE) {
+				this.report(portName + ": " + packetName + " arrives during slot " + index + " but is not sent right away");
+			}
+
+			boolean afterPreviousSlot = (index == 0 ?
+				arrival >= cycleStart - TOLERANCE :
+				arrival > cycleStart + starts.get(index - 1) + durations.get(index - 1) - transmissionTime + TOLERANCE);
+
+			if(arrival < slotStart - TOLERANCE && afterPreviousSlot &&
+			   Math.abs(scheduled - slotStart - transmissionTime) > TOLERANCE) {
+				this.report(portName + ": " + packetName + " arrives before slot " + index + " but is not sent at its start");
+			}
+
+			if(index == starts.size() - 1 && arrival >= cycleStart - TOLERANCE &&
+			   arrival <= cycleStart + cycle.getCycleDuration() + TOLERANCE && scheduled > slotEnd + TOLERANCE) {
+				this.report(portName + ": " + packetName + " is sent after the last slot of its priority");
+			}
+		}
+	}
+
+	/*
+	 * The slot rules of a packet are relaxed by the encoding when, for every
+	 * fragment of the port, a packet of the same priority that arrived later
+	 * is sent right after it.
+	 */
+	private boolean isFollowedByQueuedPackets(Port port, FlowFragment frag, int i) {
+		double interframeGap = port.getInterframeGapSize() / port.getPortSpeed();
+		double transmissionTime = frag.getParent().getPacketSize() / port.getPortSpeed();
+
+		for(FlowFragment auxFrag : port.getFlowFragments()) {
+			boolean followed = false;
+
+			for(int j = 0; j < auxFrag.getNumOfPacketsSent() && j < auxFrag.getScheduledTimeList().size(); j++) {
+				if(auxFrag == frag && i == j && port.getFlowFragments().size() != 1) {
+					continue;
+				}
+
+				if(auxFrag.getFragmentPriority() == frag.getFragmentPriority() &&
+				   frag.getArrivalTime(i) <= auxFrag.getArrivalTime(j) + TOLERANCE &&
+				   Math.abs(auxFrag.getScheduledTime(j) - frag.getScheduledTime(i) - transmissionTime - interframeGap) <= TOLERANCE) {
+					followed = true;
+					break;
+				}
+			}
+
+			if(!followed) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean hasTransmissionInside(Port port, double slotStart, double slotEnd) {
+		for(FlowFragment frag : port.getFlowFragments()) {
+			double transmissionTime = frag.getParent().getPacketSize() / port.getPortSpeed();
+
+			for(int i = 0; i < frag.getNumOfPacketsSent() && i < frag.getScheduledTimeList().size(); i++) {
+				if(frag.getScheduledTime(i) - transmissionTime >= slotStart - TOLERANCE &&
+				   frag.getScheduledTime(i) <= slotEnd + TOLERANCE) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * The number of packets waiting in the port at the same time cannot
+	 * go over its buffer size, or over the buffer size of their priority.
+	 */
+	private void validateQueue(String portName, Port port) {
+		if(port.getBufferSize() > 0) {
+			this.validateQueue(portName, port, -1, port.getBufferSize());
+		}
+
+		for(int prt = 0; prt < port.getBufferSizePerPriority().size(); prt++) {
+			if(port.getBufferSizePerPriority().get(prt) > 0) {
+				this.validateQueue(portName, port, prt, port.getBufferSizePerPriority().get(prt));
+			}
+		}
+	}
+
+	private void validateQueue(String portName, Port port, int prt, int bufferSize) {
+		ArrayList<double[]> events = new ArrayList<double[]>();
+
+		for(FlowFragment frag : port.getFlowFragments()) {
+			if(prt != -1 && frag.getFragmentPriority() != prt) {
+				continue;
+			}
+
+			for(int i = 0; i < frag.getNumOfPacketsSent() && i < frag.getScheduledTimeList().size(); i++) {
+				events.add(new double[] {frag.getArrivalTime(i), 1});
+				events.add(new double[] {frag.getScheduledTime(i), -1});
+			}
+		}
+
+		Collections.sort(events, (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+
+		int queued = 0;
+
+		for(double[] event : events) {
+			queued += (int) event[1];
+
+			if(queued > bufferSize) {
+				this.report(portName + ": more than " + bufferSize + " packets" + (prt != -1 ? " of priority " + prt : "") + " queued at " + event[0]);
+				return;
+			}
+		}
+	}
+
+
+	/*
+	 * Offset, links between fragments, latency and jitter of a flow.
+	 */
+	private void validateFlow(Flow flw) {
+		PathNode root = flw.getPathTree().getRoot();
+
+		if(root.getChildren().isEmpty() || root.getChildren().get(0).getFlowFragments().isEmpty()) {
+			return;
+		}
+
+		TSNSwitch firstSwitch = (TSNSwitch) root.getChildren().get(0).getNode();
+		FlowFragment firstFragment = root.getChildren().get(0).getFlowFragments().get(0);
+		double firstHopTransmissionTime = flw.getPacketSize() / firstSwitch.getPortOf(flw.getStartDeviceName()).getPortSpeed();
+
+		if(flw.getFlowFirstSendingTime() < firstHopTransmissionTime - TOLERANCE) {
+			this.report(flw.getName() + ": first packet is sent before it leaves the device");
+		}
+
+		for(PathNode child : root.getChildren()) {
+			for(FlowFragment frag : child.getFlowFragments()) {
+				for(int i = 0; i < frag.getNumOfPacketsSent() && i < frag.getDepartureTimeList().size(); i++) {
+					if(Math.abs(frag.getDepartureTime(i) - flw.getFlowFirstSendingTime() - i * flw.getFlowSendingPeriodicity()) > TOLERANCE) {
+						this.report(flw.getName() + ": packet " + i + " does not leave the device on its period");
+					}
+				}
+			}
+
+			this.validateLinks(flw, child);
+		}
+
+		if(firstFragment.getDepartureTimeList().size() < flw.getNumOfPacketsSent()) {
+			this.report(flw.getName() + ": missing packet times");
+			return;
+		}
+
+		double maximumJitter = flw.getFlowMaximumJitter();
+
+		if(maximumJitter < 0) {
+			maximumJitter = (this.net.getJitterUpperBoundRange() != -1 ? this.net.getJitterUpperBoundRange() : 25);
+		}
+
+		for(PathNode leaf : flw.getPathTree().getLeaves()) {
+			PathNode parent = leaf.getParent();
+			FlowFragment lastFragment = parent.getFlowFragments().get(parent.getChildren().indexOf(leaf));
+			ArrayList<Double> latencies = new ArrayList<Double>();
+			double averageLatency = 0;
+
+			if(lastFragment.getScheduledTimeList().size() < flw.getNumOfPacketsSent()) {
+				continue;
+			}
+
+			for(int i = 0; i < flw.getNumOfPacketsSent(); i++) {
+				for(FlowFragment frag : parent.getFlowFragments()) {
+					if(i < frag.getScheduledTimeList().size() &&
+					   firstHopTransmissionTime + frag.getScheduledTime(i) - firstFragment.getDepartureTime(i) > flw.getFlowMaximumLatency() + TOLERANCE) {
+						this.report(flw.getName() + ": packet " + i + " goes over the maximum latency at " + frag.getName());
+					}
+				}
+
+				latencies.add(lastFragment.getScheduledTime(i) - firstFragment.getDepartureTime(i));
+				averageLatency += latencies.get(i) / flw.getNumOfPacketsSent();
+			}
+
+			for(int i = 0; i < latencies.size(); i++) {
+				if(Math.abs(latencies.get(i) - averageLatency) > maximumJitter + TOLERANCE) {
+					this.report(flw.getName() + ": packet " + i + " goes over the maximum jitter to " + ((Device) leaf.getNode()).getName());
+				}
+			}
+		}
+	}
+
+	/*
+	 * Packets leave a switch for the next one when they are
+	 * scheduled by the previous fragment.
+	 */
+	private void validateLinks(Flow flw, PathNode node) {
+		for(int index = 0; index < node.getFlowFragments().size(); index++) {
+			FlowFragment frag = node.getFlowFragments().get(index);
+			PathNode next = node.getChildren().get(index);
+
+			if(!(next.getNode() instanceof TSNSwitch)) {
+				continue;
+			}
+
+			for(FlowFragment nextFrag : next.getFlowFragments()) {
+				for(int i = 0; i < nextFrag.getNumOfPacketsSent() && i < nextFrag.getDepartureTimeList().size(); i++) {
+					if(i < frag.getScheduledTimeList().size() &&
+					   Math.abs(nextFrag.getDepartureTime(i) - frag.getScheduledTime(i)) > TOLERANCE) {
+						this.report(flw.getName() + ": packet " + i + " of " + nextFrag.getName() + " does not leave when scheduled by " + frag.getName());
+					}
+				}
+			}
+
+			this.validateLinks(flw, next);
+		}
+	}
+
+	/*
+	 * Flows leaving the same device cannot send packets over
+	 * the first link at the same time.
+	 */
+	private void validateFirstHop(Device dev) {
+		ArrayList<Flow> flows = new ArrayList<Flow>();
+
+		for(Flow flw : this.net.getFlows()) {
+			if(flw.getStartDevice() != null && flw.getStartDevice().getName().equals(dev.getName())) {
+				flows.add(flw);
+			}
+		}
+
+		if(flows.size() < 2) {
+			return;
+		}
+
+		double speed = ((TSNSwitch) flows.get(0).getPathTree().getRoot().getChildren().get(0).getNode())
+			.getPortOf(dev.getName())
+			.getPortSpeed();
+		ArrayList<FlowFragment> fragments = new ArrayList<FlowFragment>();
+
+		for(Flow flw : flows) {
+			for(PathNode child : flw.getPathTree().getRoot().getChildren()) {
+				fragments.addAll(child.getFlowFragments());
+			}
+		}
+
+		for(FlowFragment fragA : fragments) {
+			for(FlowFragment fragB : fragments) {
+				if(fragA.getParent().getName().equals(fragB.getParent().getName())) {
+					continue;
+				}
+
+				for(int i = 0; i < fragA.getNumOfPacketsSent(); i++) {
+					for(int j = 0; j < fragB.getNumOfPacketsSent(); j++) {
+						if(this.getDepartureTime(fragA, i) < this.getDepartureTime(fragB, j) + fragA.getParent().getPacketSize() / speed - TOLERANCE &&
+						   this.getDepartureTime(fragB, i) < this.getDepartureTime(fragA, j) + fragB.getParent().getPacketSize() / speed - TOLERANCE) {
+							this.report(dev.getName() + ": " + fragA.getName() + " and " + fragB.getName() + " collide on the first hop");
+							return;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Departure times of packets beyond the ones stored repeat
+	 * on the following hyper cycles of the port.
+	 */
+	private double getDepartureTime(FlowFragment frag, int index) {
+		if(index < frag.getDepartureTimeList().size()) {
+			return frag.getDepartureTime(index);
+		}
+
+		int numOfPackets = frag.getNumOfPacketsSent();
+
+		return frag.getDepartureTime(index % numOfPackets) +
+			(index / numOfPackets) * frag.getPort().getCycle().getCycleDuration() * frag.getPort().getCycleUpperBoundRange();
+	}
+
+	private void report(String violation) {
+		this.violations.add(violation);
+	}
+
+
+	public ArrayList<String> getViolations() {
+		return violations;
+	}
+
+}
@@ -0,0 +1,134 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.util.ArrayList;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Params;
+import com.microsoft.z3.Solver;
+import com.microsoft.z3.Z3Exception;
+
+/**
+ * [Class]: SolverConfiguration
+ * [Usage]: Describes how the z3 solver used to find a schedule
+ * is created: the tactic it is built from and the random seed
+ * given to it. The tactic "default" uses the general purpose
+ * solver of z3 instead of a tactic.
+ */
+public class SolverConfiguration {
+
+	public static final String DEFAULT_SOLVER = "default";
+
+	private String tactic;
+	private int randomSeed;
+
+	public SolverConfiguration(String tactic, int randomSeed) {
+		this.tactic = tactic;
+		this.randomSeed = randomSeed;
+	}
+
+
+	/**
+	 * [Method]: createSolver
+	 * [Usage]: Creates a solver in the given context according
+	 * to this configuration.
+	 *
+	 * @param ctx		z3 context of the solver
+	 * @return			Solver object ready to receive the scheduling rules
+	 */
+	public Solver createSolver(Context ctx) {
+		Solver solver;
+
+		if(DEFAULT_SOLVER.equals(this.tactic)) {
+			solver = ctx.mkSolver();
+		} else {
+			solver = ctx.mkSolver(ctx.mkTactic(this.tactic));
+		}
+
+		if(this.randomSeed != 0) {
+			try {
+				Params params = ctx.mkParams();
+				params.add("random_seed", this.randomSeed);
+				solver.setParameters(params);
+			} catch (Z3Exception e) {
+				// Tactics that do not take a seed keep their default behavior
+			}
+		}
+
+		return solver;
+	}
+
+
+	/**
+	 * [Method]: defaultPortfolio
+	 * [Usage]: Lists the configurations raced against each other
+	 * when the portfolio mode is used and no list is given.
+	 *
+	 * @return			List of solver configurations
+	 */
+	public static ArrayList<SolverConfiguration> defaultPortfolio() {
+		ArrayList<SolverConfiguration> portfolio = new ArrayList<SolverConfiguration>();
+
+		portfolio.add(new SolverConfiguration("qfufbv_ackr", 0));
+		portfolio.add(new SolverConfiguration(DEFAULT_SOLVER, 0));
+		portfolio.add(new SolverConfiguration("smt", 0));
+		portfolio.add(new SolverConfiguration("qfufbv_ackr", 1));
+		portfolio.add(new SolverConfiguration(DEFAULT_SOLVER, 1));
+		portfolio.add(new SolverConfiguration("smt", 2));
+
+		return portfolio;
+	}
+
+	/**
+	 * [Method]: parsePortfolio
+	 * [Usage]: Reads a list of configurations given as
+	 * "tactic:seed" separated by commas (e.g.: "smt:1,default:2").
+	 * The seed can be left out, in which case 0 is used.
+	 *
+	 * @param list		List of configurations
+	 * @return			List of solver configurations
+	 */
+	public static ArrayList<SolverConfiguration> parsePortfolio(String list) {
+		ArrayList<SolverConfiguration> portfolio = new ArrayList<SolverConfiguration>();
+
+		for(String entry : list.split(",")) {
+			String[] values = entry.trim().split(":");
+
+			if(values[0].isEmpty() || values.length > 2) {
+				throw new IllegalArgumentException("Invalid solver configuration: " + entry);
+			}
+
+			portfolio.add(new SolverConfiguration(values[0], values.length == 2 ? Integer.parseInt(values[1]) : 0));
+		}
+
+		return portfolio;
+	}
+
+	@Override
+	public String toString() {
+		return this.tactic + " (seed " + this.randomSeed + ")";
+	}
+
+	public String getTactic() {
+		return tactic;
+	}
+
+	public void setTactic(String tactic) {
+		this.tactic = tactic;
+	}
+
+	public int getRandomSeed() {
+		return randomSeed;
+	}
+
+	public void setRandomSeed(int randomSeed) {
+		this.randomSeed = randomSeed;
+	}
+
+}
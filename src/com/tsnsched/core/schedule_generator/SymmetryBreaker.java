@@ -0,0 +1,267 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.components.Z3ExpressionCache;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: SymmetryBreaker
+ * [Usage]: Adds rules that remove equivalent schedules from the
+ * search of the solver. The scheduling rules never compare priority
+ * values, so renaming the priorities of a port (along with its slots)
+ * gives another valid schedule. On each port where every fragment has
+ * its own priority variable, priorities are given in the order the
+ * fragments appear: the first fragment uses priority 0 and a fragment
+ * can only use a priority if the previous one is used by an earlier
+ * fragment. The same is done over the priorities of the flows with a
+ * fixed priority per flow, for the whole network. The rules are only
+ * added where every priority of the cycle has the same number of slots
+ * and the same buffer size.
+ */
+public class SymmetryBreaker {
+
+	private Network net;
+	private Context ctx;
+	private Printer printer;
+
+	private int numOfPorts = 0;
+	private int numOfRules = 0;
+	private BigInteger removedAssignments = BigInteger.ZERO;
+
+
+	public SymmetryBreaker(Network net, Context ctx, Printer printer) {
+		this.net = net;
+		this.ctx = ctx;
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: breakSymmetries
+	 * [Usage]: Adds the ordering rules of the priorities to the solver.
+	 * Must be called after the fragments of the flows are created.
+	 *
+	 * @param solver	Solver receiving the scheduling rules
+	 */
+	public void breakSymmetries(Solver solver) {
+		ArrayList<IntExpr> flowPriorities = new ArrayList<IntExpr>();
+		boolean interchangeableFlowPriorities = true;
+		int numOfPrts = -1;
+
+		for(Switch swt : this.net.getSwitches()) {
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(port.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				if(!this.hasInterchangeablePriorities(port) ||
+				   (numOfPrts != -1 && numOfPrts != port.getCycle().getNumOfPrts())) {
+					interchangeableFlowPriorities = false;
+				}
+
+				numOfPrts = port.getCycle().getNumOfPrts();
+
+				this.breakPortSymmetry(solver, port);
+			}
+		}
+
+		for(Flow flw : this.net.getFlows()) {
+			if(!flw.isFixedPriority()) {
+				continue;
+			}
+
+			if(flw.getFragmentPriorityZ3() == null || flw.getFragmentPriorityZ3().isIntNum()) {
+				interchangeableFlowPriorities = false;
+			} else {
+				flowPriorities.add(flw.getFragmentPriorityZ3());
+			}
+		}
+
+		if(interchangeableFlowPriorities && !flowPriorities.isEmpty()) {
+			this.addValuePrecedence(solver, flowPriorities, numOfPrts);
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Symmetry breaking: " + this.numOfRules + " rules on " + this.numOfPorts +
+			" ports and " + (interchangeableFlowPriorities ? flowPriorities.size() : 0) + " flows, " +
+			this.removedAssignments + " equivalent priority assignments removed");
+	}
+
+
+	/**
+	 * [Method]: reportSymmetries
+	 * [Usage]: Stores the number of rules added and of equivalent
+	 * priority assignments removed in the schedule information of
+	 * the network.
+	 */
+	public void reportSymmetries() {
+		LinkedHashMap<String, Object> report = new LinkedHashMap<String, Object>();
+
+		report.put("ports", this.numOfPorts);
+		report.put("rules", this.numOfRules);
+		report.put("removedAssignments", this.removedAssignments.toString());
+
+		this.net.addScheduleInfo("symmetryBreaking", report);
+	}
+
+
+	/*
+	 * Priorities of a port can only be renamed if none of its fragments
+	 * has a fixed value or shares the priority variable of its flow.
+	 */
+	private void breakPortSymmetry(Solver solver, Port port) {
+		Z3ExpressionCache z3Cache = Z3ExpressionCache.of(this.ctx);
+		Cycle cycle = port.getCycle();
+		ArrayList<IntExpr> fragmentPriorities = new ArrayList<IntExpr>();
+
+		if(!this.hasInterchangeablePriorities(port)) {
+			return;
+		}
+
+		for(FlowFragment frag : port.getFlowFragments()) {
+			if(frag.getParent().isFixedPriority() || frag.getFragmentPriorityZ3().isIntNum()) {
+				return;
+			}
+
+			fragmentPriorities.add(frag.getFragmentPriorityZ3());
+		}
+
+		this.addValuePrecedence(solver, fragmentPriorities, cycle.getNumOfPrts());
+		this.numOfPorts++;
+
+		// Slots of a priority are only used if the slots of the previous priority are used
+		for(int prt = 1; prt < cycle.getNumOfPrts(); prt++) {
+			solver.add(
+				this.ctx.mkImplies(
+					this.isPriorityUsed(fragmentPriorities, z3Cache.mkInt(prt)),
+					this.isPriorityUsed(fragmentPriorities, z3Cache.mkInt(prt - 1))
+				)
+			);
+			this.numOfRules++;
+		}
+	}
+
+	/*
+	 * Lexicographic ordering of the priorities: the first variable is 0,
+	 * the k-th variable is at most k and uses a priority only if the
+	 * previous one is used by an earlier variable.
+	 */
+	private void addValuePrecedence(Solver solver, List<IntExpr> priorities, int numOfPrts) {
+		Z3ExpressionCache z3Cache = Z3ExpressionCache.of(this.ctx);
+
+		solver.add(this.ctx.mkEq(priorities.get(0), z3Cache.mkInt(0)));
+		this.numOfRules++;
+
+		for(int k = 1; k < priorities.size(); k++) {
+			if(k < numOfPrts - 1) {
+				solver.add(this.ctx.mkLe(priorities.get(k), z3Cache.mkInt(k)));
+				this.numOfRules++;
+			}
+
+			for(int prt = 1; prt <= Math.min(k, numOfPrts - 1); prt++) {
+				solver.add(
+					this.ctx.mkImplies(
+						this.ctx.mkEq(priorities.get(k), z3Cache.mkInt(prt)),
+						this.isPriorityUsed(priorities.subList(0, k), z3Cache.mkInt(prt - 1))
+					)
+				);
+				this.numOfRules++;
+			}
+		}
+
+		this.removedAssignments = this.removedAssignments.add(this.countRemovedAssignments(priorities.size(), numOfPrts));
+	}
+
+	private BoolExpr isPriorityUsed(List<IntExpr> priorities, IntExpr prt) {
+		BoolExpr used = this.ctx.mkFalse();
+
+		for(IntExpr priority : priorities) {
+			used = this.ctx.mkOr(used, this.ctx.mkEq(priority, prt));
+		}
+
+		return used;
+	}
+
+	/*
+	 * Priorities can only be renamed if every priority of the port has
+	 * the same number of slots and the same buffer size.
+	 */
+	private boolean hasInterchangeablePriorities(Port port) {
+		Cycle cycle = port.getCycle();
+
+		for(int prt = 1; prt < cycle.getNumOfPrts(); prt++) {
+			if(cycle.getNumOfSlots(prt) != cycle.getNumOfSlots(0) ||
+			   this.getBufferSizeOfPriority(port, prt) != this.getBufferSizeOfPriority(port, 0)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private int getBufferSizeOfPriority(Port port, int prt) {
+		ArrayList<Integer> bufferSizePerPriority = port.getBufferSizePerPriority();
+
+		if(prt >= bufferSizePerPriority.size() || bufferSizePerPriority.get(prt) <= 0) {
+			return 0;
+		}
+
+		return bufferSizePerPriority.get(prt);
+	}
+
+	/*
+	 * Out of the numOfPrts^n assignments of n variables, only one per
+	 * partition of the variables into at most numOfPrts groups is kept.
+	 * The partitions are counted with the Stirling numbers of the second kind.
+	 */
+	private BigInteger countRemovedAssignments(int n, int numOfPrts) {
+		BigInteger[] stirling = new BigInteger[numOfPrts + 1];
+		BigInteger kept = BigInteger.ZERO;
+
+		stirling[0] = BigInteger.ONE;
+		for(int k = 1; k <= numOfPrts; k++) {
+			stirling[k] = BigInteger.ZERO;
+		}
+
+		for(int i = 1; i <= n; i++) {
+			for(int k = numOfPrts; k >= 1; k--) {
+				stirling[k] = stirling[k].multiply(BigInteger.valueOf(k)).add(stirling[k - 1]);
+			}
+			stirling[0] = BigInteger.ZERO;
+		}
+
+		for(int k = 1; k <= numOfPrts; k++) {
+			kept = kept.add(stirling[k]);
+		}
+
+		return BigInteger.valueOf(numOfPrts).pow(n).subtract(kept);
+	}
+
+
+	public int getNumOfRules() {
+		return numOfRules;
+	}
+
+	public BigInteger getRemovedAssignments() {
+		return removedAssignments;
+	}
+
+}
@@ -0,0 +1,419 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.schedule_generator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+import com.google.gson.*;
+import com.microsoft.z3.*;
+import com.tsnsched.core.components.ConstraintSink;
+import com.tsnsched.core.components.Cycle;
+import com.tsnsched.core.components.Flow;
+import com.tsnsched.core.components.FlowFragment;
+import com.tsnsched.core.components.Port;
+import com.tsnsched.core.components.Z3ExpressionCache;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.network.NetworkSnapshot;
+import com.tsnsched.core.nodes.Switch;
+import com.tsnsched.core.nodes.TSNSwitch;
+
+/**
+ * [Class]: WarmStartHints
+ * [Usage]: Values of a schedule generated before for a similar network,
+ * assumed when solving the current network. Hints in conflict with the
+ * current network are dropped and the check is repeated with the rest.
+ * Cycles, slots and flows are matched by the names of their switches,
+ * ports, flows and flow fragments. Slots are matched by their position
+ * among the slots of the priority with a positive duration. The hints
+ * can be read from the JSON output of TSNsched or from a network
+ * snapshot (as created with the serializeNetwork parameter or stored in
+ * the schedule cache).
+ */
+public class WarmStartHints {
+
+	private Printer printer;
+	private LinkedHashMap<String, Double> hints = new LinkedHashMap<String, Double>();
+
+	// Preferences created for the current network, with the port they belong to
+	private ArrayList<BoolExpr> preferences = new ArrayList<BoolExpr>();
+	private ArrayList<String> preferencePorts = new ArrayList<String>();
+
+	public WarmStartHints(Printer printer) {
+		this.printer = printer;
+	}
+
+
+	/**
+	 * [Method]: load
+	 * [Usage]: Reads the hints from a previous schedule. Files ending
+	 * with .json are read as the output of TSNsched, any other file must
+	 * be a network snapshot.
+	 *
+	 * @param path		Path of the previous schedule
+	 * @return			True if the file could be read
+	 */
+	public boolean load(String path) {
+		if(path.toLowerCase().endsWith(".json")) {
+			return this.loadFromOutput(path);
+		}
+
+		if(NetworkSnapshot.isSnapshot(path)) {
+			try {
+				this.loadFromNetwork(NetworkSnapshot.read(path));
+				return true;
+			} catch (IOException e) {
+				this.printer.printIfLoggingIsEnabled("- Could not read warm start file: " + e.getMessage());
+				return false;
+			}
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Warm start file is neither a JSON output nor a network snapshot: " + path);
+
+		return false;
+	}
+
+
+	/**
+	 * [Method]: loadFromNetwork
+	 * [Usage]: Reads the hints from a network containing the values
+	 * of a schedule.
+	 *
+	 * @param net		Scheduled network
+	 */
+	public void loadFromNetwork(Network net) {
+		for(Switch swt : net.getSwitches()) {
+			if(!(swt instanceof TSNSwitch)) {
+				continue;
+			}
+
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(port.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				String portKey = swt.getName() + ":" + port.getName();
+				Cycle cycle = port.getCycle();
+
+				this.hints.put("cycleDuration:" + portKey, cycle.getCycleDuration());
+				this.hints.put("firstCycleStart:" + portKey, cycle.getFirstCycleStart());
+
+				for(int prt : cycle.getSlotsUsed()) {
+					int position = 0;
+
+					// Same index as the slots of the JSON output, which leaves out the unused ones
+					for(int i = 0; i < cycle.getSlotStartList(prt).size(); i++) {
+						if(cycle.getSlotDuration(prt, i) > 0) {
+							this.hints.put("slotStart:" + portKey + ":" + prt + ":" + position, cycle.getSlotStart(prt, i));
+							this.hints.put("slotDuration:" + portKey + ":" + prt + ":" + position, cycle.getSlotDuration(prt, i));
+							position++;
+						}
+					}
+				}
+
+				for(FlowFragment frag : port.getFlowFragments()) {
+					this.hints.put(
+						"priority:" + frag.getParent().getName() + ":" + frag.getNodeName() + "->" + frag.getNextHop(),
+						(double) frag.getFragmentPriority()
+					);
+
+					for(int i = 0; i < frag.getScheduledTimeList().size(); i++) {
+						this.hints.put("scheduledTime:" + frag.getName() + ":" + i, frag.getScheduledTime(i));
+					}
+				}
+			}
+		}
+
+		for(Flow flw : net.getFlows()) {
+			this.hints.put("firstSendingTime:" + flw.getName(), flw.getFlowFirstSendingTime());
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Loaded " + this.hints.size() + " warm start hints");
+	}
+
+
+	/*
+	 * The JSON output lists only the slots with a positive duration,
+	 * so slots are matched by their position in the list.
+	 */
+	private boolean loadFromOutput(String path) {
+		JsonObject output;
+
+		try {
+			String content = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+			output = new Gson().fromJson(content, JsonObject.class);
+		} catch (IOException | JsonParseException e) {
+			this.printer.printIfLoggingIsEnabled("- Could not read warm start file: " + e.getMessage());
+			return false;
+		}
+
+		if(output == null) {
+			return false;
+		}
+
+		if(output.has("switches")) {
+			for(JsonElement switchElement : output.getAsJsonArray("switches")) {
+				JsonObject switchObject = switchElement.getAsJsonObject();
+
+				for(JsonElement portElement : switchObject.getAsJsonArray("ports")) {
+					JsonObject portObject = portElement.getAsJsonObject();
+					String portKey = switchObject.get("name").getAsString() + ":" + portObject.get("name").getAsString();
+
+					this.hints.put("cycleDuration:" + portKey, portObject.get("cycleDuration").getAsDouble());
+					this.hints.put("firstCycleStart:" + portKey, portObject.get("firstCycleStart").getAsDouble());
+
+					for(JsonElement prtElement : portObject.getAsJsonArray("prioritySlotsData")) {
+						JsonObject prtObject = prtElement.getAsJsonObject();
+						int prt = prtObject.get("priority").getAsInt();
+						int i = 0;
+
+						for(JsonElement slotElement : prtObject.getAsJsonArray("slotsData")) {
+							JsonObject slotObject = slotElement.getAsJsonObject();
+							this.hints.put("slotStart:" + portKey + ":" + prt + ":" + i, slotObject.get("slotStart").getAsDouble());
+							this.hints.put("slotDuration:" + portKey + ":" + prt + ":" + i, slotObject.get("slotDuration").getAsDouble());
+							i++;
+						}
+					}
+				}
+			}
+		}
+
+		if(output.has("flows")) {
+			for(JsonElement flowElement : output.getAsJsonArray("flows")) {
+				JsonObject flowObject = flowElement.getAsJsonObject();
+				String flowName = flowObject.get("name").getAsString();
+
+				this.hints.put("firstSendingTime:" + flowName, flowObject.get("firstSendingTime").getAsDouble());
+
+				if(flowObject.has("hops")) {
+					for(JsonElement hopElement : flowObject.getAsJsonArray("hops")) {
+						JsonObject hopObject = hopElement.getAsJsonObject();
+						this.hints.put(
+							"priority:" + flowName + ":" + hopObject.get("currentNodeName").getAsString() +
+							"->" + hopObject.get("nextNodeName").getAsString(),
+							hopObject.get("priority").getAsDouble()
+						);
+					}
+				}
+
+				if(flowObject.has("packetTimes")) {
+					for(JsonElement fragElement : flowObject.getAsJsonArray("packetTimes")) {
+						for(Map.Entry<String, JsonElement> fragEntry : fragElement.getAsJsonObject().entrySet()) {
+							for(JsonElement packetElement : fragEntry.getValue().getAsJsonArray()) {
+								JsonObject packetObject = packetElement.getAsJsonObject();
+								int i = packetObject.get("packetNumber").getAsInt();
+								this.hints.put(
+									"scheduledTime:" + fragEntry.getKey() + ":" + i,
+									packetObject.get("packet" + i + "ScheduledTime").getAsDouble()
+								);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Loaded " + this.hints.size() + " warm start hints");
+
+		return true;
+	}
+
+
+	/**
+	 * [Method]: createPreferences
+	 * [Usage]: Matches the hints with the z3 terms of the current
+	 * network, creating an equality for each match. Must be called
+	 * after the scheduling rules are set. Hints without a match, such
+	 * as the ones of removed flows, are ignored.
+	 *
+	 * @param net		Network being scheduled
+	 * @param ctx		z3 context used to set the scheduling rules
+	 * @return			List of preferences to be kept when possible
+	 */
+	public ArrayList<BoolExpr> createPreferences(Network net, Context ctx) {
+		Z3ExpressionCache z3Cache = Z3ExpressionCache.of(ctx);
+
+		this.preferences.clear();
+		this.preferencePorts.clear();
+
+		for(Switch swt : net.getSwitches()) {
+			if(!(swt instanceof TSNSwitch)) {
+				continue;
+			}
+
+			for(Port port : ((TSNSwitch) swt).getPorts()) {
+				if(port.getFlowFragments().isEmpty()) {
+					continue;
+				}
+
+				String portKey = swt.getName() + ":" + port.getName();
+				Cycle cycle = port.getCycle();
+
+				this.addPreference(ctx, portKey, "cycleDuration:" + portKey, cycle.getCycleDurationZ3());
+				this.addPreference(ctx, portKey, "firstCycleStart:" + portKey, cycle.getFirstCycleStartZ3());
+
+				for(int prt = 0; prt < cycle.getNumOfPrts(); prt++) {
+					for(int i = 0; i < cycle.getNumOfSlots(prt); i++) {
+						this.addPreference(ctx, portKey, "slotStart:" + portKey + ":" + prt + ":" + i, z3Cache.slotStart(cycle, prt, i));
+						this.addPreference(ctx, portKey, "slotDuration:" + portKey + ":" + prt + ":" + i, z3Cache.slotDuration(cycle, prt, i));
+					}
+				}
+
+				for(FlowFragment frag : port.getFlowFragments()) {
+					this.addPreference(
+						ctx, portKey,
+						"priority:" + frag.getParent().getName() + ":" + frag.getNodeName() + "->" + frag.getNextHop(),
+						frag.getFragmentPriorityZ3()
+					);
+
+					for(int i = 0; i < frag.getNumOfPacketsSent(); i++) {
+						this.addPreference(ctx, portKey, "scheduledTime:" + frag.getName() + ":" + i, z3Cache.scheduledTime(frag, i));
+					}
+				}
+			}
+		}
+
+		for(Flow flw : net.getFlows()) {
+			this.addPreference(ctx, null, "firstSendingTime:" + flw.getName(), flw.getFlowFirstSendingTimeZ3());
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Matched " + this.preferences.size() + " of " + this.hints.size() + " warm start hints");
+
+		return this.preferences;
+	}
+
+	private void addPreference(Context ctx, String portKey, String hintKey, Expr term) {
+		Double value = this.hints.get(hintKey);
+
+		if(value == null || term == null) {
+			return;
+		}
+
+		BoolExpr preference;
+
+		if(term instanceof IntExpr) {
+			preference = ctx.mkEq(term, Z3ExpressionCache.of(ctx).mkInt((int) Math.round(value)));
+		} else {
+			preference = ctx.mkEq(term, Z3ExpressionCache.of(ctx).mkReal(value));
+		}
+
+		this.preferences.add(preference);
+		this.preferencePorts.add(portKey);
+	}
+
+
+	/**
+	 * [Method]: check
+	 * [Usage]: Checks the solver assuming the preferences created for
+	 * the current network. Each preference is guarded by a literal of
+	 * its own, given as an assumption. While the solver finds the
+	 * assumptions in conflict, the preferences in the unsatisfiable
+	 * core are dropped and the solver is checked again with the rest.
+	 * The solver keeps the rules of the network alone, so the result
+	 * is unsatisfiable only if the network can not be scheduled.
+	 *
+	 * @param ctx		z3 context used to set the scheduling rules
+	 * @param solver	Solver containing the scheduling rules
+	 * @return			Status of the last check of the solver
+	 */
+	public Status check(Context ctx, Solver solver) {
+		ConstraintSink sink = ConstraintSink.of(ctx, solver);
+		LinkedHashSet<BoolExpr> assumptions = new LinkedHashSet<BoolExpr>();
+
+		for(int i = 0; i < this.preferences.size(); i++) {
+			BoolExpr guard = ctx.mkBoolConst("warmStartHint!" + i);
+			sink.add("warmStart", ctx.mkImplies(guard, this.preferences.get(i)));
+			assumptions.add(guard);
+		}
+
+		Status status = sink.check(assumptions.toArray(new BoolExpr[0]));
+		int numOfDropped = 0;
+
+		while(status == Status.UNSATISFIABLE && !assumptions.isEmpty()) {
+			BoolExpr[] unsatCore = solver.getUnsatCore();
+
+			if(unsatCore.length == 0) {
+				break;
+			}
+
+			for(BoolExpr guard : unsatCore) {
+				if(assumptions.remove(guard)) {
+					numOfDropped++;
+				}
+			}
+
+			this.printer.printIfLoggingIsEnabled("- Dropped " + unsatCore.length + " conflicting warm start hints, " + assumptions.size() + " left");
+			status = sink.check(assumptions.toArray(new BoolExpr[0]));
+		}
+
+		this.printer.printIfLoggingIsEnabled("- Warm start hints assumed: " + assumptions.size() + ", dropped: " + numOfDropped);
+
+		return status;
+	}
+
+
+	/**
+	 * [Method]: reportKeptHints
+	 * [Usage]: Counts how many of the preferences hold in the new
+	 * schedule and how many ports had at least one value changed,
+	 * storing them in the schedule information of the network.
+	 *
+	 * @param net		Scheduled network
+	 * @param model		Model of the new schedule
+	 */
+	public void reportKeptHints(Network net, Model model) {
+		int kept = 0;
+		Set<String> portsWithHints = new HashSet<String>();
+		Set<String> changedPorts = new HashSet<String>();
+
+		for(int i = 0; i < this.preferences.size(); i++) {
+			String portKey = this.preferencePorts.get(i);
+
+			if(portKey != null) {
+				portsWithHints.add(portKey);
+			}
+
+			if(model.eval(this.preferences.get(i), true).isTrue()) {
+				kept++;
+			} else if(portKey != null) {
+				changedPorts.add(portKey);
+			}
+		}
+
+		double keptRatio = (this.preferences.isEmpty() ? 0 : ((double) kept) / this.preferences.size());
+
+		LinkedHashMap<String, Object> report = new LinkedHashMap<String, Object>();
+		report.put("hints", this.hints.size());
+		report.put("matchedHints", this.preferences.size());
+		report.put("keptHints", kept);
+		report.put("keptRatio", keptRatio);
+		report.put("changedPorts", changedPorts.size());
+		report.put("portsWithHints", portsWithHints.size());
+
+		this.printer.printIfLoggingIsEnabled(
+			"- Warm start kept " + kept + " of " + this.preferences.size() + " matched hints (" +
+			changedPorts.size() + " of " + portsWithHints.size() + " ports changed)"
+		);
+
+		net.addScheduleInfo("warmStart", report);
+	}
+
+
+	public int getNumOfHints() {
+		return hints.size();
+	}
+
+	public ArrayList<BoolExpr> getPreferences() {
+		return preferences;
+	}
+
+}
@@ -0,0 +1,178 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * [Class]: ScheduleClient
+ * [Usage]: Command line client of the ScheduleServer, used to try the
+ * server locally. Sends a network file to the server, optionally many
+ * times and from several threads, and reports the status and time of
+ * the answers. The output of the first schedule received is written
+ * to the output file. With -health or -metrics, prints the answer of
+ * the endpoint instead.
+ *
+ * Usage: ScheduleClient <network file> [-url=http://127.0.0.1:8090]
+ *        [-outputPath=output.json] [-requests=1] [-concurrency=1]
+ *        [options of the schedule generator...]
+ */
+public class ScheduleClient {
+
+	private String url = "http://127.0.0.1:" + ScheduleServer.DEFAULT_PORT;
+	private String outputPath = "output.json";
+	private int numOfRequests = 1;
+	private int concurrency = 1;
+	private StringBuilder query = new StringBuilder();
+
+	private HttpClient client = HttpClient.newHttpClient();
+
+
+	/**
+	 * [Method]: schedule
+	 * [Usage]: Sends a network to the server and returns its answer.
+	 *
+	 * @param content		Network in the JSON or XML input format
+	 * @return				Answer of the server
+	 * @throws IOException	If the server can not be reached
+	 * @throws InterruptedException	If interrupted while waiting for the answer
+	 */
+	public HttpResponse<byte[]> schedule(byte[] content) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(this.url + "/schedule" + this.query))
+				.POST(HttpRequest.BodyPublishers.ofByteArray(content))
+				.build();
+
+		return this.client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	/**
+	 * [Method]: get
+	 * [Usage]: Returns the answer of an endpoint of the server, such
+	 * as /health or /metrics.
+	 *
+	 * @param endpoint		Path of the endpoint
+	 * @return				Body of the answer
+	 * @throws IOException	If the server can not be reached
+	 * @throws InterruptedException	If interrupted while waiting for the answer
+	 */
+	public String get(String endpoint) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(this.url + endpoint)).GET().build();
+
+		return this.client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+	}
+
+
+	/*
+	 * Sends the network the given number of times and prints the number
+	 * of answers of each status and the distribution of their times.
+	 */
+	private void run(byte[] content) throws Exception {
+		ExecutorService threads = Executors.newFixedThreadPool(this.concurrency);
+		ArrayList<Future<long[]>> answers = new ArrayList<Future<long[]>>();
+		ArrayList<Long> times = new ArrayList<Long>();
+		TreeMap<Integer, Integer> statuses = new TreeMap<Integer, Integer>();
+		AtomicBoolean outputWritten = new AtomicBoolean(false);
+		long startTime = System.nanoTime();
+
+		for(int i = 0; i < this.numOfRequests; i++) {
+			answers.add(threads.submit(() -> {
+				long requestStart = System.nanoTime();
+				HttpResponse<byte[]> response = this.schedule(content);
+
+				if(response.statusCode() == 200 && outputWritten.compareAndSet(false, true)) {
+					Files.write(Paths.get(this.outputPath), response.body());
+				} else if(response.statusCode() != 200 && this.numOfRequests == 1) {
+					System.out.println(new String(response.body(), StandardCharsets.UTF_8));
+				}
+
+				return new long[] {response.statusCode(), System.nanoTime() - requestStart};
+			}));
+		}
+
+		for(Future<long[]> answer : answers) {
+			long[] result = answer.get();
+
+			statuses.merge((int) result[0], 1, Integer::sum);
+			times.add(result[1]);
+		}
+
+		threads.shutdown();
+		Collections.sort(times);
+
+		System.out.println("Requests: " + this.numOfRequests + " (" + this.concurrency + " at a time) in " +
+				(System.nanoTime() - startTime) / 1000000 + " ms");
+		System.out.println("Status: " + statuses);
+		System.out.printf("Time (ms): min %.1f, median %.1f, p95 %.1f, max %.1f%n",
+				times.get(0) / 1e6, times.get(times.size() / 2) / 1e6,
+				times.get((int) Math.ceil(times.size() * 0.95) - 1) / 1e6, times.get(times.size() - 1) / 1e6);
+
+		if(outputWritten.get()) {
+			System.out.println("Schedule saved in " + this.outputPath);
+		}
+	}
+
+
+	public void setParameters(String[] args) {
+
+		for(String argument : args) {
+			if(argument.startsWith("-url=")) {
+				this.url = argument.substring("-url=".length());
+			} else if(argument.startsWith("-outputPath=")) {
+				this.outputPath = argument.substring("-outputPath=".length());
+			} else if(argument.startsWith("-requests=")) {
+				this.numOfRequests = Integer.parseInt(argument.substring("-requests=".length()));
+			} else if(argument.startsWith("-concurrency=")) {
+				this.concurrency = Integer.parseInt(argument.substring("-concurrency=".length()));
+			} else if(argument.startsWith("-") && !argument.equals("-health") && !argument.equals("-metrics")) {
+				this.query.append(this.query.length() == 0 ? "?" : "&");
+				this.query.append(URLEncoder.encode(argument.substring(1), StandardCharsets.UTF_8).replace("%3D", "="));
+			}
+		}
+
+	}
+
+	public static void main(String[] args) {
+
+		if(args.length < 1) {
+			System.out.println("Usage: ScheduleClient <network file>|-health|-metrics [-url=URL] [-outputPath=PATH] " +
+					"[-requests=N] [-concurrency=N] [options of the schedule generator...]");
+			return;
+		}
+
+		ScheduleClient scheduleClient = new ScheduleClient();
+		scheduleClient.setParameters(args);
+
+		try {
+			if(args[0].equals("-health")) {
+				System.out.println(scheduleClient.get("/health"));
+			} else if(args[0].equals("-metrics")) {
+				System.out.println(scheduleClient.get("/metrics"));
+			} else {
+				scheduleClient.run(Files.readAllBytes(Paths.get(args[0])));
+			}
+		} catch (Exception e) {
+			System.out.println("[ERROR] " + e.getMessage());
+		}
+	}
+
+}
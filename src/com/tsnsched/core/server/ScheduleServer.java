@@ -0,0 +1,600 @@
+//TSNsched uses the Z3 theorem solver to generate traffic schedules for Time Sensitive Networking (TSN)
+//
+//    TSNsched is licensed under the GNU GPL version 2 or later.
+//
+//    You should have received a copy of the GNU General Public License
+//    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+
+package com.tsnsched.core.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonObject;
+import com.microsoft.z3.Version;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.tsnsched.core.interface_manager.ParserManager;
+import com.tsnsched.core.interface_manager.Printer;
+import com.tsnsched.core.network.Network;
+import com.tsnsched.core.schedule_generator.OptimizationObjective;
+import com.tsnsched.core.schedule_generator.ScheduleGenerator;
+import com.tsnsched.core.schedule_generator.SchedulingEngine;
+import com.tsnsched.core.schedule_generator.SolverConfiguration;
+
+/**
+ * [Class]: ScheduleServer
+ * [Usage]: Keeps TSNsched running as a local HTTP server, so the JVM,
+ * the z3 native library and the compiled code are loaded once for many
+ * schedules instead of once per execution. Endpoints:
+ *
+ *   POST /schedule   Body with the network in the JSON or XML input
+ *                    format. Options of the schedule generator are given
+ *                    in the query (e.g.: /schedule?lazyPairwise&timeout=5000).
+ *                    Only options that change how the schedule is searched
+ *                    or how the output is written are accepted; requests
+ *                    with other options are answered with status 400.
+ *                    Answers with the JSON output of the schedule.
+ *   GET  /health     Whether the server is up and z3 could be loaded.
+ *   GET  /metrics    Counters of requests, queue and scheduling times.
+ *
+ * Every request is scheduled by its own ScheduleGenerator (and so its own
+ * z3 contexts) on a fixed pool of workers. Requests wait in a queue of
+ * limited size while every worker is busy; requests arriving when the
+ * queue is full are rejected at once with status 503, before their body
+ * is read. Requests are answered by a fixed pool of threads, one for each
+ * worker and place in the queue plus a few for the rejected requests,
+ * /health and /metrics. Requests share the
+ * working directory of the server, so the generator never writes its log
+ * file or uses the schedule cache in server mode.
+ */
+public class ScheduleServer {
+
+	public static final int DEFAULT_PORT = 8090;
+
+	/*
+	 * Options of the generator accepted in the query of a request (or
+	 * when starting the server). Options that read or write files of the
+	 * server, such as snapshots, journals, warm starts, the cache, the log
+	 * and the output path, are left out.
+	 */
+	private static final List<String> SUPPORTED_FLAGS = Arrays.asList(
+			"-useIncremental", "-enablePacketTimeOutput", "-compactOutput", "-parallelPartitions", "-portfolio",
+			"-encoding=compact", "-encoding=standard", "-breakSymmetries", "-diagnoseConflicts", "-shedFlows",
+			"-lazyPairwise", "-slotIndicators");
+	private static final List<String> SUPPORTED_VALUES = Arrays.asList(
+			"-portfolio=", "-incrementalBatch=", "-timeout=", "-rlimit=", "-optimize=", "-engine=");
+
+	/*
+	 * Threads answering requests beyond the ones admitted, so rejected
+	 * requests, /health and /metrics are answered while the queue is full.
+	 */
+	private static final int EXTRA_HANDLER_THREADS = 4;
+
+	private String host = "127.0.0.1";
+	private int port = DEFAULT_PORT;
+	private int numOfWorkers = Runtime.getRuntime().availableProcessors();
+	private int queueCapacity = 16;
+	private int maximumRequestSize = 64 * 1024 * 1024; // In bytes
+	private ArrayList<String> defaultArguments = new ArrayList<String>(); // Options of the generator used by every request
+
+	private HttpServer server;
+	private ExecutorService workers;
+	private Semaphore admission;
+	private String z3Version = null;
+	private String z3Error = null;
+	private long startTime;
+
+	private AtomicInteger activeRequests = new AtomicInteger();
+	private AtomicInteger queuedRequests = new AtomicInteger();
+	private AtomicLong requestsReceived = new AtomicLong();
+	private AtomicLong requestsScheduled = new AtomicLong();
+	private AtomicLong requestsNotScheduled = new AtomicLong();
+	private AtomicLong requestsInvalid = new AtomicLong();
+	private AtomicLong requestsFailed = new AtomicLong();
+	private AtomicLong requestsRejected = new AtomicLong();
+	private AtomicLong requestsFinished = new AtomicLong(); // By the workers, whatever their result
+	private AtomicLong totalScheduleTime = new AtomicLong(); // In nanoseconds
+	private AtomicLong maximumScheduleTime = new AtomicLong();
+
+
+	public ScheduleServer() {
+
+	}
+
+
+	/**
+	 * [Method]: start
+	 * [Usage]: Loads z3 and starts accepting requests.
+	 *
+	 * @throws IOException	If the server can not listen on the address
+	 */
+	public void start() throws IOException {
+		this.loadZ3();
+
+		this.workers = Executors.newFixedThreadPool(this.numOfWorkers);
+		this.admission = new Semaphore(this.numOfWorkers + this.queueCapacity);
+
+		this.server = HttpServer.create(new InetSocketAddress(this.host, this.port), 0);
+		this.server.createContext("/schedule", this::handleSchedule);
+		this.server.createContext("/health", this::handleHealth);
+		this.server.createContext("/metrics", this::handleMetrics);
+		// Threads answering admitted requests mostly wait for the workers
+		this.server.setExecutor(Executors.newFixedThreadPool(this.numOfWorkers + this.queueCapacity + EXTRA_HANDLER_THREADS));
+
+		this.startTime = System.nanoTime();
+		this.server.start();
+	}
+
+	/**
+	 * [Method]: stop
+	 * [Usage]: Stops accepting requests and waits for the requests
+	 * being scheduled to finish.
+	 *
+	 * @param delay		Seconds given to the requests being answered
+	 */
+	public void stop(int delay) {
+		this.server.stop(delay);
+		this.workers.shutdown();
+
+		try {
+			this.workers.awaitTermination(delay, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/*
+	 * Loading the native library of z3 on start up keeps its cost out
+	 * of the first request.
+	 */
+	private void loadZ3() {
+		try {
+			this.z3Version = Version.getFullVersion();
+		} catch (LinkageError e) {
+			this.z3Error = e.getMessage();
+		}
+	}
+
+	private void handleSchedule(HttpExchange exchange) throws IOException {
+
+		if(!exchange.getRequestMethod().equals("POST")) {
+			this.sendError(exchange, 405, "Networks must be sent with POST");
+			return;
+		}
+
+		this.requestsReceived.incrementAndGet();
+
+		String[] arguments;
+
+		try {
+			arguments = this.getArguments(exchange.getRequestURI().getRawQuery());
+		} catch (IllegalArgumentException e) {
+			this.requestsInvalid.incrementAndGet();
+			this.sendError(exchange, 400, e.getMessage());
+			return;
+		}
+
+		// Admitted before the body is read, so rejected requests never hold a network in memory
+		if(!this.admission.tryAcquire()) {
+			this.requestsRejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			this.sendError(exchange, 503, "Queue is full");
+			return;
+		}
+
+		byte[] body;
+
+		try (InputStream in = exchange.getRequestBody()) {
+			body = in.readNBytes(this.maximumRequestSize + 1);
+		} catch (IOException e) {
+			this.admission.release();
+			throw e;
+		}
+
+		if(body.length > this.maximumRequestSize) {
+			this.admission.release();
+			this.requestsInvalid.incrementAndGet();
+			this.sendError(exchange, 413, "Network larger than " + this.maximumRequestSize + " bytes");
+			return;
+		}
+
+		String content = new String(body, StandardCharsets.UTF_8);
+
+		Future<Response> response;
+
+		this.queuedRequests.incrementAndGet();
+
+		try {
+			response = this.workers.submit(() -> this.schedule(content, arguments));
+		} catch (RuntimeException e) {
+			this.queuedRequests.decrementAndGet();
+			this.admission.release();
+			this.requestsFailed.incrementAndGet();
+			this.sendError(exchange, 503, "Server is stopping");
+			return;
+		}
+
+		try {
+			Response result = response.get();
+			this.send(exchange, result.status, result.body);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.sendError(exchange, 500, "Interrupted while scheduling");
+		} catch (ExecutionException e) {
+			this.sendError(exchange, 500, String.valueOf(e.getCause()));
+		}
+	}
+
+	/*
+	 * Runs on a worker. The output is written by the generator to
+	 * a temporary file, which is sent back and removed.
+	 */
+	private Response schedule(String content, String[] arguments) {
+		long startTime = System.nanoTime();
+		Path outputFile = null;
+
+		this.queuedRequests.decrementAndGet();
+		this.activeRequests.incrementAndGet();
+
+		try {
+			ParserManager parserManager = new ParserManager();
+			parserManager.setPrinter(new Printer());
+			Network net;
+
+			try {
+				net = parserManager.parseFromContent(content);
+			} catch (RuntimeException e) {
+				net = null;
+			}
+
+			if(net == null) {
+				this.requestsInvalid.incrementAndGet();
+				return new Response(400, this.errorBody("Input is not a network in the JSON or XML format"));
+			}
+
+			ScheduleGenerator generator = new ScheduleGenerator();
+			outputFile = Files.createTempFile("tsnsched", ".json");
+
+			generator.setParameters(arguments);
+			// Workers share the working directory, so the log file and the cache are never used
+			generator.setEnableLoggerFile(false);
+			generator.setUseScheduleCache(false);
+			generator.setOutputPath(outputFile.toString());
+			generator.setParserManager(parserManager);
+			generator.generateSchedule(net);
+
+			if(Files.size(outputFile) == 0) {
+				this.requestsNotScheduled.incrementAndGet();
+
+				JsonObject error = new JsonObject();
+				error.addProperty("error", "No schedule found");
+				error.addProperty("solverStatus", String.valueOf(generator.getLastSolverStatus()));
+
+				return new Response(422, error.toString().getBytes(StandardCharsets.UTF_8));
+			}
+
+			this.requestsScheduled.incrementAndGet();
+
+			return new Response(200, Files.readAllBytes(outputFile));
+		} catch (Exception | LinkageError e) {
+			this.requestsFailed.incrementAndGet();
+
+			return new Response(500, this.errorBody(e.toString()));
+		} finally {
+			long scheduleTime = System.nanoTime() - startTime;
+
+			this.requestsFinished.incrementAndGet();
+			this.totalScheduleTime.addAndGet(scheduleTime);
+			this.maximumScheduleTime.accumulateAndGet(scheduleTime, Math::max);
+			this.activeRequests.decrementAndGet();
+			this.admission.release();
+
+			if(outputFile != null) {
+				try {
+					Files.deleteIfExists(outputFile);
+				} catch (IOException e) {
+					// Left in the temporary directory
+				}
+			}
+		}
+	}
+
+	private void handleHealth(HttpExchange exchange) throws IOException {
+		JsonObject health = new JsonObject();
+
+		health.addProperty("status", this.z3Error == null ? "ok" : "degraded");
+
+		if(this.z3Error == null) {
+			health.addProperty("z3", this.z3Version);
+		} else {
+			health.addProperty("z3Error", this.z3Error);
+		}
+
+		health.addProperty("uptimeSeconds", (System.nanoTime() - this.startTime) / 1000000000L);
+
+		this.send(exchange, this.z3Error == null ? 200 : 503, health.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		JsonObject metrics = new JsonObject();
+		long numOfFinished = this.requestsFinished.get();
+
+		metrics.addProperty("workers", this.numOfWorkers);
+		metrics.addProperty("queueCapacity", this.queueCapacity);
+		metrics.addProperty("activeRequests", this.activeRequests.get());
+		metrics.addProperty("queuedRequests", this.queuedRequests.get());
+		metrics.addProperty("requestsReceived", this.requestsReceived.get());
+		metrics.addProperty("requestsScheduled", this.requestsScheduled.get());
+		metrics.addProperty("requestsNotScheduled", this.requestsNotScheduled.get());
+		metrics.addProperty("requestsInvalid", this.requestsInvalid.get());
+		metrics.addProperty("requestsFailed", this.requestsFailed.get());
+		metrics.addProperty("requestsRejected", this.requestsRejected.get());
+		metrics.addProperty("averageScheduleTimeMs", numOfFinished == 0 ? 0 : this.totalScheduleTime.get() / numOfFinished / 1000000.0);
+		metrics.addProperty("maximumScheduleTimeMs", this.maximumScheduleTime.get() / 1000000.0);
+		metrics.addProperty("uptimeSeconds", (System.nanoTime() - this.startTime) / 1000000000L);
+
+		this.send(exchange, 200, metrics.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	/*
+	 * Options of the query are given to the generator as in the command
+	 * line (e.g.: "timeout=5000" as "-timeout=5000"), after the options
+	 * of the server. Throws IllegalArgumentException on the first option
+	 * that is not supported or has an invalid value.
+	 */
+	private String[] getArguments(String query) {
+		ArrayList<String> arguments = new ArrayList<String>(this.defaultArguments);
+
+		if(query != null) {
+			for(String option : query.split("&")) {
+				if(option.isEmpty()) {
+					continue;
+				}
+
+				String argument = "-" + URLDecoder.decode(option, StandardCharsets.UTF_8);
+
+				if(!isSupported(argument)) {
+					throw new IllegalArgumentException("Option " + argument.substring(1) + " is not supported by the server");
+				}
+
+				checkValue(argument);
+
+				arguments.add(argument);
+			}
+		}
+
+		return arguments.toArray(new String[0]);
+	}
+
+	private static boolean isSupported(String argument) {
+		if(SUPPORTED_FLAGS.contains(argument)) {
+			return true;
+		}
+
+		for(String prefix : SUPPORTED_VALUES) {
+			if(argument.startsWith(prefix)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * Reads the value of a supported option as the generator does, so
+	 * invalid values are answered with status 400 instead of failing on
+	 * a worker. Throws IllegalArgumentException if the value is invalid.
+	 */
+	private static void checkValue(String argument) {
+		int separator = argument.indexOf('=');
+
+		if(separator < 0) {
+			return;
+		}
+
+		String name = argument.substring(1, separator);
+		String value = argument.substring(separator + 1);
+		boolean valid;
+
+		try {
+			if(name.equals("timeout") || name.equals("rlimit")) {
+				valid = Integer.parseInt(value) >= 0;
+			} else if(name.equals("incrementalBatch")) {
+				valid = Integer.parseInt(value) > 0;
+			} else if(name.equals("portfolio")) {
+				SolverConfiguration.parsePortfolio(value);
+				valid = true;
+			} else if(name.equals("optimize")) {
+				for(String objective : value.split(",")) {
+					OptimizationObjective.valueOf(objective.trim().toUpperCase());
+				}
+				valid = true;
+			} else if(name.equals("engine")) {
+				SchedulingEngine.valueOf(value.toUpperCase());
+				valid = true;
+			} else {
+				valid = true;
+			}
+		} catch (IllegalArgumentException e) {
+			valid = false;
+		}
+
+		if(!valid) {
+			throw new IllegalArgumentException("Invalid value for option " + name + ": " + value);
+		}
+	}
+
+	private byte[] errorBody(String message) {
+		JsonObject error = new JsonObject();
+		error.addProperty("error", message);
+
+		return error.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		this.send(exchange, status, this.errorBody(message));
+	}
+
+	private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+
+	/**
+	 * [Method]: setParameters
+	 * [Usage]: Reads the options of the server from the arguments of
+	 * the command line. Other options starting with "-" are given to
+	 * the schedule generator of every request if they are supported
+	 * in server mode, and ignored with a warning otherwise.
+	 *
+	 * @param args		Arguments of the command line
+	 */
+	public void setParameters(String[] args) {
+
+		for(String argument : args) {
+			if(argument.equals("-server")) {
+				continue;
+			} else if(argument.startsWith("-host=")) {
+				this.host = argument.substring("-host=".length());
+			} else if(argument.startsWith("-port=")) {
+				this.port = Integer.parseInt(argument.substring("-port=".length()));
+			} else if(argument.startsWith("-workers=")) {
+				this.numOfWorkers = Integer.parseInt(argument.substring("-workers=".length()));
+			} else if(argument.startsWith("-queue=")) {
+				this.queueCapacity = Integer.parseInt(argument.substring("-queue=".length()));
+			} else if(argument.startsWith("-maxRequestSize=")) {
+				this.maximumRequestSize = Integer.parseInt(argument.substring("-maxRequestSize=".length()));
+			} else if(isSupported(argument)) {
+				try {
+					checkValue(argument);
+					this.defaultArguments.add(argument);
+				} catch (IllegalArgumentException e) {
+					System.out.println("[WARNING] " + e.getMessage() + " (ignored)");
+				}
+			} else if(argument.startsWith("-")) {
+				System.out.println("[WARNING] Option " + argument + " is not supported by the server and is ignored");
+			}
+		}
+
+	}
+
+	public static void main(String[] args) {
+		ScheduleServer scheduleServer = new ScheduleServer();
+		scheduleServer.setParameters(args);
+
+		try {
+			scheduleServer.start();
+		} catch (IOException e) {
+			System.out.println("[ERROR] Could not start the server: " + e.getMessage());
+			return;
+		}
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> scheduleServer.stop(5)));
+
+		System.out.println("TSNsched listening on http://" + scheduleServer.getHost() + ":" + scheduleServer.getPort() +
+				" with " + scheduleServer.getNumOfWorkers() + " worker(s) and a queue of " + scheduleServer.getQueueCapacity() +
+				(scheduleServer.z3Error == null ? " (z3 " + scheduleServer.z3Version + ")" : " ([ERROR] z3 not loaded: " + scheduleServer.z3Error + ")"));
+	}
+
+
+	/*
+	 * Status and body of the answer to a request.
+	 */
+	private static class Response {
+		private int status;
+		private byte[] body;
+
+		private Response(int status, byte[] body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+
+	public String getHost() {
+		return host;
+	}
+
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	/**
+	 * [Method]: getPort
+	 * [Usage]: Returns the port the server listens on. Once started
+	 * with port 0, returns the port chosen by the system.
+	 *
+	 * @return		Port of the server
+	 */
+	public int getPort() {
+		return (this.server == null ? port : this.server.getAddress().getPort());
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	public int getNumOfWorkers() {
+		return numOfWorkers;
+	}
+
+	public void setNumOfWorkers(int numOfWorkers) {
+		this.numOfWorkers = numOfWorkers;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getMaximumRequestSize() {
+		return maximumRequestSize;
+	}
+
+	public void setMaximumRequestSize(int maximumRequestSize) {
+		this.maximumRequestSize = maximumRequestSize;
+	}
+
+	public ArrayList<String> getDefaultArguments() {
+		return defaultArguments;
+	}
+
+	/**
+	 * [Method]: setDefaultArguments
+	 * [Usage]: Sets the options of the schedule generator (as in the
+	 * command line) used by every request, before the options of the
+	 * request itself.
+	 */
+	public void setDefaultArguments(String ... defaultArguments) {
+		this.defaultArguments = new ArrayList<String>(Arrays.asList(defaultArguments));
+	}
+
+}
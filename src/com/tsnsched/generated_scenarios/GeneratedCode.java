@@ -33,6 +33,15 @@ public class GeneratedCode {
 		Boolean loadNetwork = false;
 
 		ScheduleGenerator scheduleGenerator = new ScheduleGenerator(loadNetwork);
+		Network net = this.createNetwork();
+		scheduleGenerator.generateSchedule(net);
+
+	}
+
+	/*
+	 * Builds the network of this scenario without scheduling it.
+	 */
+	public Network createNetwork() {
 		Network net = new Network(25);
 
 		/*
@@ -252,8 +261,7 @@ public class GeneratedCode {
 		net.addFlow(flow16);
 		net.addFlow(flow17);
 		/**/
-		scheduleGenerator.generateSchedule(net);
 
+		return net;
 	}
 }
-
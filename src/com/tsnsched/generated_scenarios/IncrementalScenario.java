@@ -17,7 +17,7 @@ public class IncrementalScenario {
 		ScheduleGenerator scheduleGenerator = new ScheduleGenerator(false);
 		Network net = new Network();
 
-		String path = "network.ser";
+		String path = "network.snap";
 
 		long startTime;
 		long endTime;
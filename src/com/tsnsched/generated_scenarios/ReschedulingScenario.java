@@ -22,7 +22,7 @@ public class ReschedulingScenario {
 			
 
 			/*
-			String path = "network.ser";
+			String path = "network.snap";
 			net = scheduleGenerator.deserializeNetwork(path);
 			
 			TSNSwitch swt = (TSNSwitch) net.getSwitch("switch0");
@@ -41,7 +41,7 @@ public class ReschedulingScenario {
 			
 			/*
 						
-			String path = "network.ser";
+			String path = "network.snap";
 			net = scheduleGenerator.deserializeNetwork(path);
 			
 			
@@ -63,7 +63,7 @@ public class ReschedulingScenario {
 			/**/
 			
 			/**/
-			String path = "network.ser";
+			String path = "network.snap";
 			net = scheduleGenerator.deserializeNetwork(path);
 			
 			
@@ -16,6 +16,22 @@ public class SmallScenario { //Non-incremental, actually
 		Boolean loadNetwork = false;
 
 		ScheduleGenerator scheduleGenerator = new ScheduleGenerator(loadNetwork);
+		Network net = this.createNetwork();
+
+		long totalTime;
+		long startTime = System.nanoTime();
+		scheduleGenerator.generateSchedule(net);
+		long endTime = System.nanoTime();
+		totalTime = endTime - startTime;
+
+		System.out.println("Total time spent: " + ((float) totalTime)/1000000000 + " seconds\n ");
+
+	}
+
+	/*
+	 * Builds the network of this scenario without scheduling it.
+	 */
+	public Network createNetwork() {
 		Network net = new Network();
 
 		/*
@@ -650,13 +666,6 @@ public class SmallScenario { //Non-incremental, actually
 		net.addFlow(flow13);
 		net.addFlow(flow14);
 
-		long totalTime;
-		long startTime = System.nanoTime();
-		scheduleGenerator.generateSchedule(net);
-		long endTime = System.nanoTime();
-		totalTime = endTime - startTime;
-
-		System.out.println("Total time spent: " + ((float) totalTime)/1000000000 + " seconds\n ");
-
+		return net;
 	}
-}
\ No newline at end of file
+}